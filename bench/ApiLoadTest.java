@@ -0,0 +1,111 @@
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// HTTP API LOAD TEST
+// Starts ApiServer on a random localhost port against a generated data set, then lets
+// many client threads hammer it with a mix of stock / sales / search requests.
+// Prints requests per second and latency percentiles for each client count.
+//
+// Run with:  ant loadtest   (-Dloadtest.args="--clients 1,8,64,256 --seconds 10")
+public class ApiLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int[] clientCounts = { 1, 8, 64, 256 };
+        int seconds = 10;
+        int days = 90;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--clients":
+                    clientCounts = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--seconds": seconds = Integer.parseInt(value); break;
+                case "--days": days = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        File dir = java.nio.file.Files.createTempDirectory("goldenhour-loadtest-").toFile();
+        WorkloadGenerator gen = new WorkloadGenerator();
+        gen.outDir = dir;
+        gen.days = days;
+        gen.generate();
+
+        ApiServer api = new ApiServer(new DataLoader(dir), dir);
+        api.start(0); // 0 = any free port
+        String base = "http://127.0.0.1:" + api.getPort();
+        System.out.println("# API on " + base + ", " + days + " days of data in " + dir);
+
+        LocalDate today = LocalDate.now();
+        String[] paths = {
+                "/api/stock",
+                "/api/stock?model=" + gen.modelName(3),
+                "/api/stock?outlet=" + gen.outletCode(0),
+                "/api/sales?from=" + today.minusDays(6) + "&to=" + today,
+                "/api/sales?from=" + today + "&to=" + today,
+                "/api/search?q=Priya",
+        };
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newCachedThreadPool())
+                .build();
+
+        // Warm up (fills the server's caches and JIT-compiles the handlers)
+        for (int i = 0; i < 50; i++)
+            client.send(HttpRequest.newBuilder(URI.create(base + paths[i % paths.length])).build(),
+                    HttpResponse.BodyHandlers.discarding());
+
+        System.out.printf(Locale.ROOT, "%8s %12s %10s %10s %10s %8s%n", "CLIENTS", "REQ/S", "P50 ms", "P99 ms", "MAX ms", "ERRORS");
+        try {
+            for (int clients : clientCounts)
+                run(client, base, paths, clients, seconds);
+        } finally {
+            api.stop();
+            SyntheticCorpus.delete(dir);
+        }
+        System.exit(0); // the HttpClient's threads are not daemons
+    }
+
+    // One round: 'clients' threads each send requests back-to-back for 'seconds'
+    private static void run(HttpClient client, String base, String[] paths, int clients, int seconds)
+            throws InterruptedException {
+        Metrics.Timer latency = new Metrics.Timer();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        for (int c = 0; c < clients; c++) {
+            final int offset = c;
+            pool.execute(() -> {
+                int n = offset;
+                while (System.nanoTime() < deadline) {
+                    HttpRequest req = HttpRequest.newBuilder(URI.create(base + paths[n++ % paths.length])).build();
+                    long t0 = System.nanoTime();
+                    try {
+                        HttpResponse<byte[]> res = client.send(req, HttpResponse.BodyHandlers.ofByteArray());
+                        if (res.statusCode() != 200)
+                            errors.incrementAndGet();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latency.record(System.nanoTime() - t0);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+
+        System.out.printf(Locale.ROOT, "%8d %12.1f %10.2f %10.2f %10.2f %8d%n", clients,
+                latency.getCount() / (double) seconds, latency.percentileMillis(50), latency.percentileMillis(99),
+                latency.getMaxMillis(), errors.get());
+    }
+}
@@ -0,0 +1,166 @@
+import java.io.*;
+import java.time.LocalDate;
+import java.util.*;
+
+// DATA-LAYER BENCHMARKS
+// Times the hot data-layer methods (loading, saving, searching, filtering, sorting and the
+// analytics math) against synthetic receipt histories of different sizes.
+//
+// It follows the JMH "average time" recipe: a few warm-up iterations (so the JIT has compiled
+// the code), then measured iterations, each of which calls the method repeatedly for a fixed
+// amount of time. Results are written as JSON in the same shape JMH uses (-rf json).
+//
+// Run with:  ant bench
+//   -Dbench.corpus=day,year,5years   which history sizes to test
+//   -Dbench.outlets=10               number of outlets in the synthetic data
+//   -Dbench.results=build/bench/results.json
+public class BenchmarkRunner {
+
+    // One thing to measure. Returning the result stops the JIT from deleting the work.
+    interface Op {
+        Object run() throws Exception;
+    }
+
+    // The "Blackhole": results are written here so the JIT cannot prove they are unused
+    static volatile Object sink;
+
+    private static int warmupIterations = 3;
+    private static int measureIterations = 5;
+    private static long iterationMillis = 1000;
+
+    public static void main(String[] args) throws Exception {
+        List<String> corpora = Arrays.asList("day", "year", "5years");
+        int outlets = 10;
+        int salesPerHour = 1;
+        long seed = 42;
+        File out = new File("build/bench/results.json");
+
+        // Simple "--name value" argument parsing
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--corpus": corpora = Arrays.asList(value.split(",")); break;
+                case "--outlets": outlets = Integer.parseInt(value); break;
+                case "--sales-per-hour": salesPerHour = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--warmup": warmupIterations = Integer.parseInt(value); break;
+                case "--iterations": measureIterations = Integer.parseInt(value); break;
+                case "--iteration-ms": iterationMillis = Long.parseLong(value); break;
+                case "--out": out = new File(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        List<String> results = new ArrayList<>();
+        for (String corpus : corpora) {
+            corpus = corpus.trim();
+            System.out.println("# Building corpus '" + corpus + "' (" + outlets + " outlets)...");
+            File dir = SyntheticCorpus.build(corpus, outlets, salesPerHour, seed);
+            try {
+                runCorpus(corpus, dir, results);
+            } finally {
+                SyntheticCorpus.delete(dir);
+            }
+        }
+
+        // Write the JSON array
+        if (out.getParentFile() != null)
+            out.getParentFile().mkdirs();
+        try (PrintWriter pw = new PrintWriter(new FileWriter(out))) {
+            pw.println("[");
+            for (int i = 0; i < results.size(); i++)
+                pw.println(results.get(i) + (i < results.size() - 1 ? "," : ""));
+            pw.println("]");
+        }
+        System.out.println("# Results written to " + out.getPath());
+    }
+
+    // Sets up the shared state for one corpus and runs every benchmark against it
+    private static void runCorpus(String corpus, File dir, List<String> results) throws Exception {
+        DataLoader loader = new DataLoader(dir);
+        History history = new History();
+        Analytics analytics = new Analytics(loader);
+        Performance performance = new Performance(loader);
+
+        Map<String, Model> models = loader.loadModels();
+        List<String> outletCodes = new ArrayList<>(loader.loadOutlets().keySet());
+        List<Transaction> all = loader.loadTransactions();
+        LocalDate today = LocalDate.now();
+        List<Transaction> month = history.filterSalesByDate(all, today.withDayOfMonth(1), today);
+        System.out.println("# " + all.size() + " receipts loaded, " + month.size() + " this month");
+
+        Map<String, Op> ops = new LinkedHashMap<>();
+        // A fresh DataLoader each time, so this measures parsing every receipt, not its cache
+        ops.put("DataLoader.loadTransactions", () -> new DataLoader(dir).loadTransactions());
+        // The same call when nothing changed since the last parse (fingerprint check + list copy)
+        ops.put("DataLoader.loadTransactions.cached", loader::loadTransactions);
+        ops.put("DataLoader.loadModels", loader::loadModels);
+        ops.put("DataLoader.saveModels", () -> {
+            loader.saveModels(models, outletCodes);
+            return null;
+        });
+        ops.put("DataLoader.searchSalesReceipts", () -> loader.searchSalesReceipts("Zikri"));
+        ops.put("History.filterSalesByDate", () -> history.filterSalesByDate(all, today.minusDays(29), today));
+        // Sorting works on a fresh copy each time, otherwise we would keep re-sorting sorted data
+        ops.put("History.sortSales", () -> {
+            List<Transaction> copy = new ArrayList<>(month);
+            history.sortSales(copy, "Amount", true);
+            return copy;
+        });
+        ops.put("Analytics.getTrendData", () -> analytics.getTrendData(month, "This Month"));
+        ops.put("Performance.getEmployeePerformance", performance::getEmployeePerformance);
+
+        for (Map.Entry<String, Op> e : ops.entrySet()) {
+            results.add(measure(e.getKey(), corpus, e.getValue()));
+        }
+    }
+
+    // Runs warm-up + measured iterations and returns one JMH-style JSON result object
+    private static String measure(String name, String corpus, Op op) throws Exception {
+        for (int i = 0; i < warmupIterations; i++)
+            iteration(op);
+
+        double[] scores = new double[measureIterations];
+        for (int i = 0; i < measureIterations; i++)
+            scores[i] = iteration(op);
+
+        // Mean and a 99.9% confidence half-width (normal approximation)
+        double sum = 0;
+        for (double s : scores)
+            sum += s;
+        double mean = sum / scores.length;
+        double var = 0;
+        for (double s : scores)
+            var += (s - mean) * (s - mean);
+        double sd = scores.length > 1 ? Math.sqrt(var / (scores.length - 1)) : 0;
+        double error = 3.291 * sd / Math.sqrt(scores.length);
+
+        System.out.printf(Locale.ROOT, "%-40s %-7s %12.3f +- %.3f ms/op%n", name, corpus, mean, error);
+
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < scores.length; i++)
+            raw.append(i > 0 ? ", " : "").append(String.format(Locale.ROOT, "%.6f", scores[i]));
+
+        return String.format(Locale.ROOT,
+                "  {\"benchmark\": \"%s\", \"mode\": \"avgt\", \"threads\": 1, \"forks\": 1,"
+                        + " \"warmupIterations\": %d, \"measurementIterations\": %d,"
+                        + " \"params\": {\"corpus\": \"%s\"},"
+                        + " \"primaryMetric\": {\"score\": %.6f, \"scoreError\": %.6f, \"scoreUnit\": \"ms/op\","
+                        + " \"rawData\": [[%s]]}}",
+                name, warmupIterations, measureIterations, corpus, mean, error, raw);
+    }
+
+    // Calls the operation until the iteration time is used up; returns average ms per call
+    private static double iteration(Op op) throws Exception {
+        long budget = iterationMillis * 1_000_000L;
+        long start = System.nanoTime();
+        long calls = 0;
+        long elapsed;
+        do {
+            sink = op.run();
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < budget);
+        return elapsed / 1_000_000.0 / calls;
+    }
+}
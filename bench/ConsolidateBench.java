@@ -0,0 +1,125 @@
+import java.io.*;
+import java.util.*;
+
+// CONSOLIDATION AT HQ: SPEED AND CORRECTNESS
+// Generates one data set with many outlets, then splits its sales files the way HQ would
+// receive them: one folder per outlet, each with its own SalesReceipt/sales_DATE.txt files.
+// Then merges them back with ReceiptConsolidator, once per thread count, and checks that
+//   - the store holds exactly the sales of the original data set (same parse, same totals)
+//   - every store day is in time order
+//   - a second run with nothing changed skips every day
+//
+// Run with:  ant consolidate   (-Dconsolidate.args="--outlets 100 --days 14 --threads 1,4,8")
+public class ConsolidateBench {
+
+    public static void main(String[] args) throws Exception {
+        int outlets = 100;
+        int days = 14;
+        String threadList = "1,4," + Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--outlets": outlets = Integer.parseInt(value); break;
+                case "--days": days = Integer.parseInt(value); break;
+                case "--threads": threadList = value; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        File root = java.nio.file.Files.createTempDirectory("goldenhour-consolidate-").toFile();
+        try {
+            File original = new File(root, "original");
+            WorkloadGenerator gen = new WorkloadGenerator();
+            gen.outDir = original;
+            gen.outlets = outlets;
+            gen.days = days;
+            gen.generate();
+            List<File> outletDirs = split(new File(original, DataLoader.SALES_DIR), new File(root, "outlets"));
+            System.out.println("# " + outlets + " outlet(s) x " + days + " day(s) = " + outletDirs.size() * days
+                    + " outlet-day file(s), fan-in " + ReceiptConsolidator.FAN_IN);
+
+            List<String> expected = sales(original);
+            for (String t : threadList.split(",")) {
+                int threads = Integer.parseInt(t.trim());
+                File store = new File(root, "store" + threads);
+                ReceiptConsolidator c = new ReceiptConsolidator(new File(store, DataLoader.SALES_DIR), threads);
+                ReceiptConsolidator.Result first = c.consolidate(outletDirs);
+                System.out.printf(Locale.ROOT, "threads=%-3d %6d ms  %8.0f outlet-days/s  %6.1f MB/s%n", threads, first.millis,
+                        first.outletDays * 1000.0 / Math.max(1, first.millis), first.bytes / 1e3 / Math.max(1, first.millis));
+
+                if (!sales(store).equals(expected))
+                    throw new IllegalStateException("the store's sales differ from the original data set");
+                checkTimeOrder(new File(store, DataLoader.SALES_DIR));
+                ReceiptConsolidator.Result again = c.consolidate(outletDirs);
+                if (again.days != 0 || again.unchanged != first.days)
+                    throw new IllegalStateException("second run merged " + again.days + " day(s) again");
+                System.out.printf(Locale.ROOT, "            %6d ms  (second run, nothing changed)%n", again.millis);
+            }
+            System.out.println("# store = original sales (" + expected.size() + " sale(s)), every day in time order");
+        } finally {
+            SyntheticCorpus.delete(root);
+        }
+    }
+
+    // Every receipt goes to its outlet's folder (the outlet is part of its Transaction ID)
+    private static List<File> split(File salesDir, File outletsRoot) throws IOException {
+        Map<String, File> dirs = new TreeMap<>();
+        for (File day : Objects.requireNonNull(salesDir.listFiles((d, n) -> n.startsWith("sales_")))) {
+            Map<String, Writer> writers = new HashMap<>();
+            try (BufferedReader br = new BufferedReader(new FileReader(day))) {
+                StringBuilder receipt = new StringBuilder();
+                String outlet = "";
+                String line;
+                while ((line = br.readLine()) != null) {
+                    receipt.append(line).append('\n');
+                    if (line.startsWith(FileFormats.TRANSACTION_ID))
+                        outlet = IdGenerator.outletOf(line.substring(FileFormats.TRANSACTION_ID.length()).trim());
+                    if (line.equals(FileFormats.RECEIPT_SEPARATOR)) {
+                        String o = outlet;
+                        File dir = dirs.computeIfAbsent(o, k -> new File(outletsRoot, k));
+                        Writer w = writers.get(o);
+                        if (w == null) {
+                            File folder = new File(dir, DataLoader.SALES_DIR);
+                            folder.mkdirs();
+                            w = new BufferedWriter(new FileWriter(new File(folder, day.getName())));
+                            writers.put(o, w);
+                        }
+                        w.write(receipt.toString());
+                        receipt.setLength(0);
+                    }
+                }
+            } finally {
+                for (Writer w : writers.values())
+                    w.close();
+            }
+        }
+        return new ArrayList<>(dirs.values());
+    }
+
+    // Every sale of a data folder, as text, in one fixed order
+    private static List<String> sales(File dataDir) {
+        List<String> all = new ArrayList<>();
+        for (Transaction t : new DataLoader(dataDir).loadTransactions())
+            all.add(t.getTransactionId() + "|" + t.getDate() + " " + t.getTime() + "|" + t.getOutletCode() + "|"
+                    + t.getEmployeeId() + "|" + t.getModelName() + "|" + t.getQuantity() + "|" + t.getTotalCents());
+        Collections.sort(all);
+        return all;
+    }
+
+    private static void checkTimeOrder(File storeSales) throws IOException {
+        for (File day : Objects.requireNonNull(storeSales.listFiles((d, n) -> n.startsWith("sales_")))) {
+            int last = -1;
+            try (BufferedReader br = new BufferedReader(new FileReader(day))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (!line.startsWith("Time: "))
+                        continue;
+                    int minute = StockMovement.parseMinuteOfDay(line.substring(6));
+                    if (minute < last)
+                        throw new IllegalStateException(day.getName() + " is not in time order");
+                    last = minute;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// MULTI-OUTLET REPLICATION ON ONE MACHINE
+// Starts an HQ (ReplicationHub) and several outlet "nodes" on localhost, each with its own
+// generated data folder and replication/node.properties. Every node then sells, saves stock
+// and clocks staff in and out from several threads at once, while HQ is cut off halfway and
+// restarted (same folder, same port) three quarters of the way through.
+//
+// At the end every node must have been fully acknowledged, and HQ's consolidated view must
+// match what each node's own files say: sales (count, money, units), the stock column of
+// that outlet, and who is still on shift. A fresh HQ started from the replica logs alone
+// must show the same thing. Prints events/s and the bytes sent.
+//
+// Run with:  ant replicate   (-Dreplicate.args="--nodes 3 --sales 2000 --threads 4")
+public class ReplicationDemo {
+
+    public static void main(String[] args) throws Exception {
+        int nodes = 3;
+        int salesPerNode = 2000;
+        int threads = 4;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--nodes": nodes = Integer.parseInt(value); break;
+                case "--sales": salesPerNode = Integer.parseInt(value); break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        Metrics.setEnabled(true);
+
+        File root = java.nio.file.Files.createTempDirectory("goldenhour-replication-").toFile();
+        String key = "demo-" + System.nanoTime();
+        try {
+            File hqDir = new File(root, "hq");
+            ReplicationHub hub = new ReplicationHub(hqDir, key);
+            hub.start(0);
+            int port = hub.getPort();
+
+            // Each node: a week of older history (not replicated: it predates the outbox) + its config
+            WorkloadGenerator gen = new WorkloadGenerator();
+            gen.outlets = nodes;
+            gen.days = 7;
+            gen.lastDay = LocalDate.now().minusDays(30);
+            DataLoader[] loaders = new DataLoader[nodes];
+            for (int n = 0; n < nodes; n++) {
+                File dir = new File(root, "node" + n);
+                gen.outDir = dir;
+                gen.generate();
+                File config = new File(dir, ReplicationOutbox.DIR);
+                config.mkdirs();
+                try (PrintWriter pw = new PrintWriter(new FileWriter(new File(config, ReplicationOutbox.CONFIG_FILE)))) {
+                    pw.println("node=" + gen.outletCode(n));
+                    pw.println("hq=127.0.0.1:" + port);
+                    pw.println("key=" + key);
+                }
+                loaders[n] = new DataLoader(dir);
+            }
+            System.out.println("# HQ on port " + port + ", " + nodes + " node(s), " + salesPerNode + " sale(s) each, "
+                    + threads + " till thread(s) per node");
+
+            // --- THE WORKLOAD ---
+            AtomicLong done = new AtomicLong();
+            long total = (long) nodes * salesPerNode;
+            Map<String, Set<String>> expectedOnShift = new TreeMap<>();
+            List<Thread> workers = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int n = 0; n < nodes; n++) {
+                int node = n;
+                String outlet = gen.outletCode(n);
+                for (int t = 0; t < threads; t++) {
+                    int first = t;
+                    int step = threads;
+                    int count = salesPerNode;
+                    workers.add(new Thread(() -> sell(loaders[node], gen, node, first, step, count, done)));
+                }
+                // One back-office thread per node: stock saves and attendance
+                Set<String> onShift = new TreeSet<>();
+                expectedOnShift.put(outlet, onShift);
+                workers.add(new Thread(() -> backOffice(loaders[node], gen, node, onShift, done, total)));
+            }
+            for (Thread w : workers)
+                w.start();
+
+            // Cut HQ off halfway, restart it three quarters of the way (the outlets must catch up alone)
+            while (done.get() < total / 2)
+                Thread.sleep(5);
+            hub.dropConnections();
+            System.out.println("# dropped every connection at " + done.get() + " sale(s)");
+            while (done.get() < total * 3 / 4)
+                Thread.sleep(5);
+            hub.stop();
+            System.out.println("# HQ stopped at " + done.get() + " sale(s)");
+            Thread.sleep(500);
+            hub = new ReplicationHub(hqDir, key);
+            hub.start(port);
+            System.out.println("# HQ restarted at " + done.get() + " sale(s)");
+
+            for (Thread w : workers)
+                w.join();
+            long events = 0;
+            long bytes = 0;
+            for (DataLoader loader : loaders) {
+                if (!loader.getOutbox().awaitSent(60_000))
+                    throw new IllegalStateException(loader.getOutbox().getNode() + " was not fully acknowledged");
+                events += hub.view().events(loader.getOutbox().getNode());
+                bytes += loader.getOutbox().size();
+            }
+            double secs = (System.nanoTime() - start) / 1e9;
+            System.out.printf(Locale.ROOT, "# all acknowledged: %d event(s), %.1f MB in %.2f s = %.0f event(s)/s%n",
+                    events, bytes / 1e6, secs, events / secs);
+
+            // --- CHECKS ---
+            check(hub.view(), loaders, gen, expectedOnShift, "live HQ");
+            hub.stop();
+            check(new ReplicationHub(hqDir, key).view(), loaders, gen, expectedOnShift, "HQ rebuilt from its logs");
+            System.out.println(hub.view().report());
+            for (String line : Metrics.report().split("\n"))
+                if (line.contains("Replication"))
+                    System.out.println(line);
+            for (DataLoader loader : loaders)
+                loader.getOutbox().close();
+        } finally {
+            ReceiptAppender.closeAll();
+            SyntheticCorpus.delete(root);
+        }
+    }
+
+    // One till: rings up every 'step'-th sale of this node
+    private static void sell(DataLoader loader, WorkloadGenerator gen, int node, int first, int step, int count,
+            AtomicLong done) {
+        Random rnd = new Random(node * 1000L + first);
+        String outlet = gen.outletCode(node);
+        StringBuilder items = new StringBuilder();
+        for (int i = first; i < count; i += step) {
+            items.setLength(0);
+            long totalCents = 0;
+            int itemCount = rnd.nextInt(10) < 8 ? 1 : 2;
+            for (int k = 0; k < itemCount; k++) {
+                int m = rnd.nextInt(gen.skus);
+                FileFormats.appendSalesItem(items, gen.modelName(m), 1, gen.modelPrice(m));
+                totalCents += Money.ofDouble(gen.modelPrice(m));
+            }
+            String receipt = FileFormats.salesReceipt(IdGenerator.forOutlet(outlet).nextId(), LocalDate.now(),
+                    LocalTime.now().format(FileFormats.TIME_FORMAT), gen.employeeId(node, i % gen.staffPerOutlet),
+                    "Demo", items, "Cash", totalCents);
+            loader.appendSalesReceipt(receipt);
+            done.incrementAndGet();
+        }
+    }
+
+    // Stock saves (this outlet's column only) and clock in / out, until the tills are done
+    private static void backOffice(DataLoader loader, WorkloadGenerator gen, int node, Set<String> onShift,
+            AtomicLong done, long total) {
+        Random rnd = new Random(node);
+        String outlet = gen.outletCode(node);
+        List<String> outletCodes = new ArrayList<>(loader.loadOutlets().keySet());
+        for (int s = 0; s < gen.staffPerOutlet; s++) {
+            loader.clockIn(gen.employeeId(node, s));
+            onShift.add(gen.employeeId(node, s));
+        }
+        while (done.get() < total) {
+            Map<String, Model> models = loader.loadModels();
+            for (int k = 0; k < 3; k++)
+                models.get(gen.modelName(rnd.nextInt(gen.skus))).setStock(outlet, rnd.nextInt(50));
+            loader.saveModels(models, outletCodes);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+        // Half the staff go home
+        for (int s = 0; s < gen.staffPerOutlet; s += 2) {
+            loader.clockOut(gen.employeeId(node, s));
+            onShift.remove(gen.employeeId(node, s));
+        }
+    }
+
+    private static void check(ReplicationHub.View view, DataLoader[] loaders, WorkloadGenerator gen,
+            Map<String, Set<String>> expectedOnShift, String what) throws IOException {
+        int today = (int) LocalDate.now().toEpochDay();
+        for (int n = 0; n < loaders.length; n++) {
+            String outlet = gen.outletCode(n);
+            long[] mine = new long[3];
+            for (Transaction t : loaders[n].loadTransactions()) {
+                if (t.getOutletCode().equals(outlet) && t.getEpochDay() >= today) {
+                    mine[0]++;
+                    mine[1] += t.getTotalCents();
+                    mine[2] += t.getQuantity();
+                }
+            }
+            long[] hq = view.salesTotals(outlet, LocalDate.now(), null);
+            if (!Arrays.equals(mine, hq))
+                throw new IllegalStateException(what + ": sales of " + outlet + " are " + Arrays.toString(hq)
+                        + ", the node has " + Arrays.toString(mine));
+
+            int stockChecked = 0;
+            for (Model m : loaders[n].loadModels().values()) {
+                Integer q = view.stock(m.getModelName(), outlet);
+                if (q == null)
+                    continue; // never changed since replication was switched on
+                if (q != m.getStock(outlet))
+                    throw new IllegalStateException(what + ": stock of " + m.getModelName() + " at " + outlet + " is "
+                            + q + ", the node has " + m.getStock(outlet));
+                stockChecked++;
+            }
+            if (stockChecked == 0)
+                throw new IllegalStateException(what + ": no stock changes arrived from " + outlet);
+
+            Set<String> onShift = view.onShift(outlet).keySet();
+            if (!onShift.equals(expectedOnShift.get(outlet)))
+                throw new IllegalStateException(what + ": on shift at " + outlet + " is " + onShift + ", expected "
+                        + expectedOnShift.get(outlet));
+        }
+        System.out.println("# " + what + ": sales, stock and shifts match every node");
+    }
+}
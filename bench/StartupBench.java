@@ -0,0 +1,106 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+// STARTUP TIME: COLD vs WARM START
+// Starts a fresh Java process again and again against a generated data set and measures,
+// from the moment Java started:
+//   login      employees, models and outlets loaded (what the login screen + first login need)
+//   dashboard  + every sale loaded (what the Analytics / History tabs need)
+// "cold" parses the CSV files and receipts like a first start; "warm" reads goldenhour.img
+// (see WarmStartImage.java), which this tool writes once before the runs.
+// A fresh process per run, because the point is to include class loading and a cold JIT.
+//
+// Run with:  ant startup   (-Dstartup.args="--days 365 --runs 5")
+public class StartupBench {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--child")) {
+            child(args[1], new File(args[2]));
+            return;
+        }
+        int days = 365;
+        int runs = 5;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--days": days = Integer.parseInt(value); break;
+                case "--runs": runs = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        File dir = java.nio.file.Files.createTempDirectory("goldenhour-startup-").toFile();
+        try {
+            WorkloadGenerator gen = new WorkloadGenerator();
+            gen.outDir = dir;
+            gen.days = days;
+            gen.generate();
+            System.out.println("# " + days + " days of data in " + dir);
+            System.out.println("# " + new DataLoader(dir).saveWarmStart());
+
+            Map<String, List<long[]>> results = new LinkedHashMap<>();
+            results.put("cold", new ArrayList<>());
+            results.put("warm", new ArrayList<>());
+            for (int r = 0; r < runs; r++)
+                for (String mode : results.keySet())
+                    results.get(mode).add(runChild(mode, dir));
+
+            System.out.printf(Locale.ROOT, "%6s %14s %18s%n", "START", "LOGIN p50 ms", "DASHBOARD p50 ms");
+            for (Map.Entry<String, List<long[]>> e : results.entrySet())
+                System.out.printf(Locale.ROOT, "%6s %14d %18d%n", e.getKey(), median(e.getValue(), 0), median(e.getValue(), 1));
+        } finally {
+            SyntheticCorpus.delete(dir);
+        }
+    }
+
+    // Runs one fresh JVM and reads back its "login dashboard" line
+    private static long[] runChild(String mode, File dir) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process p = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "StartupBench",
+                "--child", mode, dir.getPath()).redirectErrorStream(true).start();
+        long[] times = null;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.startsWith("TIMES ")) {
+                    String[] t = line.split(" ");
+                    times = new long[] { Long.parseLong(t[1]), Long.parseLong(t[2]) };
+                } else {
+                    System.out.println("  [" + mode + "] " + line);
+                }
+            }
+        }
+        if (p.waitFor() != 0 || times == null)
+            throw new IllegalStateException(mode + " run failed");
+        return times;
+    }
+
+    // Inside the fresh JVM: the same loading steps as GUI's constructor + first dashboard
+    private static void child(String mode, File dir) {
+        DataLoader loader = new DataLoader(dir);
+        WarmStartImage image = mode.equals("warm") ? loader.loadWarmStart() : null;
+        if (mode.equals("warm") && (image == null || !image.hasCatalogue()))
+            throw new IllegalStateException("warm start image is out of date");
+        if (image == null) {
+            CompletableFuture<?> employees = CompletableFuture.supplyAsync(loader::loadEmployee);
+            CompletableFuture<?> models = CompletableFuture.supplyAsync(loader::loadModels);
+            CompletableFuture<?> outlets = CompletableFuture.supplyAsync(loader::loadOutlets);
+            CompletableFuture.allOf(employees, models, outlets).join();
+        }
+        long login = ManagementFactory.getRuntimeMXBean().getUptime();
+        int sales = loader.loadTransactions().size();
+        long dashboard = ManagementFactory.getRuntimeMXBean().getUptime();
+        if (sales == 0)
+            throw new IllegalStateException("no sales loaded");
+        System.out.println("TIMES " + login + " " + dashboard);
+    }
+
+    private static long median(List<long[]> runs, int column) {
+        long[] v = runs.stream().mapToLong(t -> t[column]).sorted().toArray();
+        return v[v.length / 2];
+    }
+}
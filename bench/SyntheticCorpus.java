@@ -0,0 +1,51 @@
+import java.io.*;
+
+// BENCHMARK DATA BUILDER
+// Creates a throw-away working folder (CSV files + receipt folders) for the benchmarks,
+// using WorkloadGenerator so the data looks exactly like the real app's files.
+// DataLoader can then be pointed at it with new DataLoader(folder).
+// The same seed always produces the same folder, so runs are comparable.
+public class SyntheticCorpus {
+
+    // Corpus sizes the benchmark understands (name -> number of days)
+    public static int daysFor(String corpus) {
+        switch (corpus) {
+            case "day":
+                return 1;
+            case "year":
+                return 365;
+            case "5years":
+                return 5 * 365;
+            default:
+                throw new IllegalArgumentException("Unknown corpus: " + corpus + " (use day, year or 5years)");
+        }
+    }
+
+    // Builds the folder and returns it. The last day of the corpus is "today",
+    // so "This Week" / "This Month" style queries always find data.
+    public static File build(String corpus, int outlets, int salesPerHour, long seed) throws IOException {
+        File dir = java.nio.file.Files.createTempDirectory("goldenhour-bench-" + corpus + "-").toFile();
+        WorkloadGenerator gen = new WorkloadGenerator();
+        gen.outDir = dir;
+        gen.outlets = outlets;
+        gen.days = daysFor(corpus);
+        gen.salesPerHour = salesPerHour;
+        gen.seed = seed;
+        try {
+            gen.generate();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating corpus", e);
+        }
+        return dir;
+    }
+
+    // Removes the folder again after the benchmark is finished
+    public static void delete(File f) {
+        File[] children = f.listFiles();
+        if (children != null)
+            for (File c : children)
+                delete(c);
+        f.delete();
+    }
+}
@@ -0,0 +1,289 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+// SYNTHETIC WORKLOAD GENERATOR
+// Writes a complete working folder for load tests and benchmarks:
+//   outlet.csv, employee.csv, model.csv, attendance.csv,
+//   SalesReceipt/sales_DATE.txt and StockReceipt/receipts_DATE.txt
+//
+// All text goes through FileFormats, the same code SalesPanel, StockInOutTab and
+// DataLoader.clockIn/clockOut use, so the output is indistinguishable from real data.
+//
+// Deterministic: every day gets its own random generator derived from (seed, day number),
+// so the same options always produce byte-for-byte the same files, no matter how many
+// writer threads are used. Days are written in parallel, one file per task.
+//
+// Run with:  ant generate -Dgen.args="--out data --days 365 --outlets 10"
+public class WorkloadGenerator {
+
+    // --- OPTIONS ---
+    public File outDir = new File("generated");
+    public int outlets = 10;
+    public int skus = 40;
+    public int staffPerOutlet = 4;
+    public int days = 30;
+    public int salesPerHour = 4;        // per outlet, during opening hours
+    public int stockMovesPerDay = 3;    // per outlet
+    public long seed = 42;
+    public int threads = Runtime.getRuntime().availableProcessors();
+    public LocalDate lastDay = LocalDate.now(); // the newest day generated ("today" by default)
+
+    // Opening hours (10:00 to 22:00), same as the malls the outlets are in
+    private static final int OPEN_HOUR = 10;
+    private static final int CLOSE_HOUR = 22;
+
+    private static final String[] FIRST_NAMES = { "Melvin", "Zikri", "Aisyah", "Wei Jie", "Priya", "Hafiz",
+            "Mei Ling", "Arjun", "Siti", "Jason", "Nurul", "Kavitha", "Darren", "Farah", "Kelvin", "Amir" };
+    private static final String[] METHODS = { "Cash", "Credit Card", "Debit Card", "E-Wallet" };
+
+    public static void main(String[] args) throws Exception {
+        WorkloadGenerator gen = new WorkloadGenerator();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--out": gen.outDir = new File(value); break;
+                case "--outlets": gen.outlets = Integer.parseInt(value); break;
+                case "--skus": gen.skus = Integer.parseInt(value); break;
+                case "--staff": gen.staffPerOutlet = Integer.parseInt(value); break;
+                case "--days": gen.days = Integer.parseInt(value); break;
+                case "--sales-per-hour": gen.salesPerHour = Integer.parseInt(value); break;
+                case "--stock-moves-per-day": gen.stockMovesPerDay = Integer.parseInt(value); break;
+                case "--seed": gen.seed = Long.parseLong(value); break;
+                case "--threads": gen.threads = Integer.parseInt(value); break;
+                case "--last-day": gen.lastDay = LocalDate.parse(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        long start = System.nanoTime();
+        long bytes = gen.generate();
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "Generated %,d bytes in %.2f s (%.1f MB/s) into %s%n",
+                bytes, secs, bytes / 1e6 / secs, gen.outDir.getPath());
+    }
+
+    // Writes everything and returns the total number of bytes written
+    public long generate() throws IOException, InterruptedException {
+        outDir.mkdirs();
+        File salesDir = new File(outDir, "SalesReceipt");
+        File stockDir = new File(outDir, "StockReceipt");
+        salesDir.mkdirs();
+        stockDir.mkdirs();
+
+        long total = 0;
+        total += writeText(new File(outDir, "outlet.csv"), outletCsv());
+        total += writeText(new File(outDir, "employee.csv"), employeeCsv());
+        total += writeText(new File(outDir, "model.csv"), modelCsv());
+        total += writeText(new File(outDir, "attendance.csv"), attendanceCsv());
+
+        // PARALLEL WRITERS: one task per day, each writes its own two files
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<Long>> written = new ArrayList<>();
+        LocalDate first = lastDay.minusDays(days - 1);
+        for (int d = 0; d < days; d++) {
+            final LocalDate date = first.plusDays(d);
+            written.add(pool.submit(() -> {
+                SplittableRandom rnd = dayRandom(date, 1);
+                long n = writeText(new File(salesDir, "sales_" + date + ".txt"), salesDay(date, rnd));
+                n += writeText(new File(stockDir, "receipts_" + date + ".txt"), stockDay(date, rnd));
+                return n;
+            }));
+        }
+        pool.shutdown();
+        try {
+            for (Future<Long> f : written)
+                total += f.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Generator task failed", e.getCause());
+        }
+        return total;
+    }
+
+    // --- CATALOGUE FILES ---
+
+    public String outletCode(int o) {
+        return "C" + (60 + o);
+    }
+
+    private String outletName(int o) {
+        return "Outlet " + (o + 1);
+    }
+
+    // The label StockInOutTab shows in its From/To dropdowns
+    private String outletLabel(int o) {
+        return outletCode(o) + " (" + outletName(o) + ")";
+    }
+
+    public String modelName(int m) {
+        return (m % 2 == 0 ? "DW" : "SW") + (2300 + (m / 8) * 100) + "-" + (m % 8 / 2 + 1);
+    }
+
+    public double modelPrice(int m) {
+        // Whole or half ringgit prices between 299 and 1249
+        return 299.0 + (m * 37 % 20) * 50 + (m % 3 == 0 ? 0.5 : 0.0);
+    }
+
+    public String employeeId(int o, int s) {
+        return String.format("%s%02d", outletCode(o), s + 1);
+    }
+
+    private String employeeName(int o, int s) {
+        return FIRST_NAMES[(o * 7 + s) % FIRST_NAMES.length] + " " + (char) ('A' + (o + s) % 26) + ".";
+    }
+
+    private String outletCsv() {
+        StringBuilder sb = new StringBuilder("OutletCode,OutletName\n");
+        for (int o = 0; o < outlets; o++)
+            sb.append(outletCode(o)).append(",").append(outletName(o)).append("\n");
+        return sb.toString();
+    }
+
+    private String employeeCsv() {
+        StringBuilder sb = new StringBuilder("EmployeeID,EmployeeName,Role,Password,OutletCode\n");
+        for (int o = 0; o < outlets; o++) {
+            for (int s = 0; s < staffPerOutlet; s++) {
+                String role = s == 0 ? "Manager" : (s % 2 == 1 ? "Full-time" : "Part-time");
+                sb.append(employeeId(o, s)).append(",").append(employeeName(o, s)).append(",").append(role)
+                        .append(",pw").append(o).append(s).append(",").append(outletCode(o)).append("\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    // Same layout as DataLoader.saveModels
+    private String modelCsv() {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        StringBuilder sb = new StringBuilder("Model,Price");
+        for (int o = 0; o < outlets; o++)
+            sb.append(",").append(outletCode(o));
+        sb.append("\n");
+        for (int m = 0; m < skus; m++) {
+            sb.append(modelName(m)).append(",").append(modelPrice(m));
+            for (int o = 0; o < outlets; o++)
+                sb.append(",").append(rnd.nextInt(25));
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    // Every staff member clocks in and out once per working day (6 days a week)
+    private String attendanceCsv() {
+        StringBuilder sb = new StringBuilder(FileFormats.ATTENDANCE_HEADER).append("\n");
+        LocalDate first = lastDay.minusDays(days - 1);
+        for (int d = 0; d < days; d++) {
+            LocalDate date = first.plusDays(d);
+            SplittableRandom rnd = dayRandom(date, 2);
+            for (int o = 0; o < outlets; o++) {
+                for (int s = 0; s < staffPerOutlet; s++) {
+                    if ((date.getDayOfWeek().getValue() + s) % 7 == 0)
+                        continue; // day off
+                    int in = (OPEN_HOUR - 1) * 60 + rnd.nextInt(90);
+                    int out = in + 6 * 60 + rnd.nextInt(4 * 60);
+                    sb.append(FileFormats.attendanceClosed(employeeId(o, s), date.toString(), time(in), time(out),
+                            out - in)).append("\n");
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    // --- DAILY RECEIPT FILES ---
+
+    // All outlets write into the same sales_DATE.txt, in time order, like the real app
+    private String salesDay(LocalDate date, SplittableRandom rnd) {
+        int perDay = salesPerHour * (CLOSE_HOUR - OPEN_HOUR) * outlets;
+        int[] minutes = new int[perDay];
+        for (int i = 0; i < perDay; i++)
+            minutes[i] = OPEN_HOUR * 60 + rnd.nextInt((CLOSE_HOUR - OPEN_HOUR) * 60);
+        Arrays.sort(minutes);
+
+        StringBuilder sb = new StringBuilder(perDay * 520);
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < perDay; i++) {
+            int o = rnd.nextInt(outlets);
+            int s = rnd.nextInt(staffPerOutlet);
+            String customer = FIRST_NAMES[rnd.nextInt(FIRST_NAMES.length)];
+
+            // Most sales are one watch, a few customers buy two or three
+            int itemCount = rnd.nextInt(10) < 8 ? 1 : 2 + rnd.nextInt(2);
+            items.setLength(0);
+            long totalCents = 0;
+            for (int k = 0; k < itemCount; k++) {
+                int m = rnd.nextInt(skus);
+                int qty = 1 + (rnd.nextInt(10) == 0 ? 1 : 0);
+                FileFormats.appendSalesItem(items, modelName(m), qty, modelPrice(m));
+                totalCents += Money.ofDouble(modelPrice(m)) * qty;
+            }
+
+            // IDs are stamped with the sale's own time; +i keeps two sales in the same minute apart
+            long id = IdGenerator.composeAt(millisAt(date, minutes[i]) + i, IdGenerator.nodeOf(outletCode(o)), 0);
+            sb.append(FileFormats.salesReceipt(id, date, time(minutes[i]), employeeId(o, s), customer, items,
+                    METHODS[rnd.nextInt(METHODS.length)], totalCents));
+            sb.append("\n").append(FileFormats.RECEIPT_SEPARATOR).append("\n");
+        }
+        return sb.toString();
+    }
+
+    // Morning deliveries from HQ plus the odd transfer between outlets
+    private String stockDay(LocalDate date, SplittableRandom rnd) {
+        int moves = stockMovesPerDay * outlets;
+        int[] minutes = new int[moves];
+        for (int i = 0; i < moves; i++)
+            minutes[i] = (OPEN_HOUR - 1) * 60 + rnd.nextInt((CLOSE_HOUR - OPEN_HOUR + 1) * 60);
+        Arrays.sort(minutes);
+
+        StringBuilder sb = new StringBuilder(moves * 400);
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < moves; i++) {
+            int to = rnd.nextInt(outlets);
+            boolean fromHq = rnd.nextInt(3) != 0 || outlets < 2;
+            int from = fromHq ? -1 : (to + 1 + rnd.nextInt(outlets - 1)) % outlets;
+            String type = fromHq ? "Stock In" : "Stock Out";
+
+            items.setLength(0);
+            int totalQty = 0;
+            int lines = 1 + rnd.nextInt(3);
+            for (int k = 0; k < lines; k++) {
+                int qty = 1 + rnd.nextInt(5);
+                FileFormats.appendStockItem(items, modelName(rnd.nextInt(skus)), qty);
+                totalQty += qty;
+            }
+
+            String fromLabel = fromHq ? "HQ (Service Center)" : outletLabel(from);
+            int staffOutlet = fromHq ? to : from;
+            long id = IdGenerator.composeAt(millisAt(date, minutes[i]) + i,
+                    fromHq ? IdGenerator.HQ_NODE : IdGenerator.nodeOf(outletCode(from)), 0);
+            sb.append(FileFormats.stockReceipt(id, type, date, time(minutes[i]), fromLabel, outletLabel(to), items,
+                    totalQty, employeeName(staffOutlet, rnd.nextInt(staffPerOutlet))));
+            sb.append("\n").append(FileFormats.RECEIPT_SEPARATOR).append("\n");
+        }
+        return sb.toString();
+    }
+
+    // --- HELPERS ---
+
+    // A random generator that depends only on the seed, the day and the stream number
+    private SplittableRandom dayRandom(LocalDate date, int stream) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + date.toEpochDay() * 31 + stream);
+    }
+
+    private static String time(int minuteOfDay) {
+        return LocalTime.of(minuteOfDay / 60, minuteOfDay % 60).format(FileFormats.TIME_FORMAT);
+    }
+
+    // The same moment in milliseconds since 1970 (for IdGenerator.composeAt)
+    private static long millisAt(LocalDate date, int minuteOfDay) {
+        return (date.toEpochDay() * 1440 + minuteOfDay) * 60_000L;
+    }
+
+    private static long writeText(File f, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        Files.write(f.toPath(), bytes);
+        return bytes.length;
+    }
+}
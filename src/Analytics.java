@@ -10,38 +10,46 @@ public class Analytics {
     // Constructor: This runs once when the app starts.
     // It prepares the 'dataLoader' so we can fetch data from the file system or database.
     public Analytics() {
-        this.dataLoader = new DataLoader();
+        this(new DataLoader());
+    }
+
+    // Same as above, but reuses a DataLoader that is already pointed at the right folder.
+    public Analytics(DataLoader dataLoader) {
+        this.dataLoader = dataLoader;
     }
 
     // --- DASHBOARD TOTALS (The numbers at the top of the screen) ---
 
     // 1. Calculate Grand Total Sales
-    // This goes through the entire database to find how much money we made.
+    // How much money we made, ever. Every day file keeps its own total in a small summary
+    // (see DaySummary.java), so this adds up one number per day instead of reading every sale.
+    // (The receipts only ever hold SALEs, so no "REFUND" or "RETURN" needs to be taken out.)
     public double calculateTotalSales() {
-        return dataLoader.loadTransactions().stream()
-                // Step 1: Filter. Imagine a conveyor belt of transactions.
-                // We pick up each one and ask: "Is this a SALE?" 
-                // We throw away "REFUND" or "RETURN" types here.
-                .filter(t -> t.getType().equals("SALE")) 
-                
-                // Step 2: Extract Price. Now we only look at the money amount ($) 
-                // of that sale, ignoring the date, model name, etc.
-                .mapToDouble(Transaction::getTotalAmount) 
-                
-                // Step 3: Sum. Add all those numbers together.
-                .sum(); 
+        long t0 = Metrics.start();
+        double total = Money.toDouble(dataLoader.salesTotals(null, null).revenueCents);
+        Metrics.stop("Analytics.calculateTotalSales", t0);
+        return total;
     }
 
     // 2. Sum up a specific list
     // Unlike the method above (which loads everything), this calculates the total 
     // for a specific list you pass to it (e.g., just "Today's" transactions).
     public double calculateCumulativeTotal(List<Transaction> filteredList) {
-        return filteredList.stream().mapToDouble(Transaction::getTotalAmount).sum();
+        return Money.toDouble(calculateCumulativeTotalCents(filteredList));
+    }
+
+    // Same total in cents: a plain loop over longs, exact and nothing allocated
+    public long calculateCumulativeTotalCents(List<Transaction> filteredList) {
+        long cents = 0;
+        for (Transaction t : filteredList)
+            cents += t.getTotalCents();
+        return cents;
     }
 
     // 3. Find the "Best Seller"
     // This looks at a list of sales and figures out which Item Model appears the most.
     public String getTopSellingModelForList(List<Transaction> transactions) {
+        long t0 = Metrics.start();
         // Create a blank "Scoreboard" (Map) to keep count.
         // Key = Model Name (e.g., "iPhone"), Value = Count (e.g., 5)
         Map<String, Integer> counts = new HashMap<>();
@@ -55,13 +63,15 @@ public class Analytics {
         }
         
         // Now look at the scoreboard to find the winner.
-        return counts.entrySet().stream()
+        String top = counts.entrySet().stream()
                 // Find the entry with the highest Value (highest count)
                 .max(Map.Entry.comparingByValue())
                 // Get the Key (the Model Name) of that winner
                 .map(Map.Entry::getKey) 
                 // If the list was empty (no sales), return "N/A" so the app doesn't crash.
                 .orElse("N/A"); 
+        Metrics.stop("Analytics.getTopSellingModel", t0);
+        return top;
     }
 
     // 4. Calculate Average Sales Per Day
@@ -102,65 +112,77 @@ public class Analytics {
     // THE COMPLEX PART: PREPARING GRAPH DATA
     // This creates a list of "Buckets" (Time periods) and fills them with money amounts.
     public Map<String, Double> getTrendData(List<Transaction> transactions, String period) {
-        // We use LinkedHashMap because it remembers the order. 
-        // (We want the graph to go 1pm, 2pm, 3pm... not random order).
-        Map<String, Double> trend = new LinkedHashMap<>();
+        long t0 = Metrics.start();
 
         // --- STEP 1: CREATE EMPTY BUCKETS ---
         // Even if we had $0 sales at 2:00 PM, the graph still needs a spot for "2:00 PM".
-        
+        // labels[i] is the text under bar i, cents[i] is the money in it (exact, see Money.java).
+        String[] labels;
+        LocalDate weekStart = LocalDate.now().minusDays(6);
+
         if (period.equals("Today")) {
             // Create 24 buckets: "00:00", "01:00" ... up to "23:00"
+            labels = new String[24];
             for (int i = 0; i < 24; i++) {
-                trend.put(String.format("%02d:00", i), 0.0);
+                labels[i] = String.format("%02d:00", i);
             }
         } else if (period.equals("This Week")) {
             // Create buckets for the last 7 dates.
-            LocalDate start = LocalDate.now().minusDays(6);
+            labels = new String[7];
             for (int i = 0; i < 7; i++) {
-                trend.put(start.plusDays(i).toString(), 0.0);
+                labels[i] = weekStart.plusDays(i).toString();
             }
         } else if (period.equals("This Month")) {
             // Create buckets for every day of the current month (1st to 30th/31st)
-            int len = LocalDate.now().lengthOfMonth();
-            for (int i = 0; i < len; i++) {
-                trend.put(String.format("%d", i + 1), 0.0);
+            labels = new String[LocalDate.now().lengthOfMonth()];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = String.valueOf(i + 1);
             }
+        } else {
+            labels = new String[0];
         }
+        long[] cents = new long[labels.length];
 
         // --- STEP 2: FILL THE BUCKETS ---
         // Now look at the actual transactions and drop the money into the correct bucket.
-        
+        // The date and time were read into numbers when the sale was loaded, so working out
+        // the bucket is simple integer math (no text parsing per sale).
+        long firstDay = weekStart.toEpochDay();
         for (Transaction t : transactions) {
-            String key = ""; // This will hold the label of the bucket we want (e.g., "14:00")
+            int bucket = -1;
             
             // LOGIC FOR MATCHING TRANSACTIONS TO BUCKETS
             if (period.equals("Today")) {
-                try {
-                    // The transaction has a time like "02:30 PM". We need to turn that into "14:00".
-                    String time = t.getTime(); 
-                    java.time.LocalTime lt = java.time.LocalTime.parse(time,
-                            java.time.format.DateTimeFormatter.ofPattern("hh:mm a"));
-                    // Take the hour and format it (e.g., 14 becomes "14:00")
-                    key = String.format("%02d:00", lt.getHour());
-                } catch (Exception e) {
-                    // If the time format is broken, skip this transaction safely.
-                }
+                // If the time was broken we don't know the hour, so skip it (it is NOT a 00:00 sale)
+                if (!t.hasTime())
+                    continue;
+                // "02:30 PM" is stored as minute 870 of the day -> hour 14 -> bucket "14:00"
+                bucket = t.getMinuteOfDay() / 60;
+            } else if (!t.hasDate()) {
+                // If the date was broken, skip this transaction safely.
+                continue;
             } else if (period.equals("This Week")) {
-                // If viewing weekly, the bucket label is just the Date (e.g., "2023-10-25")
-                key = t.getDate();
+                // If viewing weekly, the bucket is "how many days after the first day"
+                bucket = (int) (t.getEpochDay() - firstDay);
             } else if (period.equals("This Month")) {
-                // If viewing monthly, the bucket label is the Day Number (e.g., "25")
-                key = String.valueOf(LocalDate.parse(t.getDate()).getDayOfMonth());
+                // If viewing monthly, the bucket is the Day Number (e.g., the 25th -> bucket 24)
+                bucket = LocalDate.ofEpochDay(t.getEpochDay()).getDayOfMonth() - 1;
             }
 
             // --- STEP 3: ADD TO TOTAL ---
             // If we found a matching bucket for this transaction...
-            if (trend.containsKey(key)) {
+            if (bucket >= 0 && bucket < cents.length) {
                 // Take the money already in the bucket + the new money from this transaction
-                trend.put(key, trend.get(key) + t.getTotalAmount());
+                cents[bucket] += t.getTotalCents();
             }
         }
+
+        // We use LinkedHashMap because it remembers the order. 
+        // (We want the graph to go 1pm, 2pm, 3pm... not random order).
+        Map<String, Double> trend = new LinkedHashMap<>();
+        for (int i = 0; i < labels.length; i++)
+            trend.put(labels[i], Money.toDouble(cents[i]));
+        Metrics.stop("Analytics.getTrendData", t0);
         return trend; // Return the filled buckets to be drawn on the screen
     }
-}
\ No newline at end of file
+}
@@ -16,6 +16,14 @@ public class AnalyticsPanel {
         this.dataLoader = dataLoader;
     }
 
+    // The numbers for one period, worked out on the background thread
+    private static class Stats {
+        long totalCents;
+        String topModel;
+        double avg;
+        Map<String, Double> trend;
+    }
+
     public JPanel createPanel() {
         // --- 1. MAIN LAYOUT (The Wrapper) ---
         // We use BorderLayout to stick the Controls to the Top (NORTH), 
@@ -26,7 +34,7 @@ public class AnalyticsPanel {
         wrapper.setBorder(new EmptyBorder(20, 20, 20, 20)); // Padding around edges
 
         // Instantiate logic classes for calculations
-        Analytics analytics = new Analytics();
+        Analytics analytics = new Analytics(dataLoader); // shares the parsed sales (see DataLoader.loadTransactions)
         History history = new History();
 
         // --- 2. TOP CONTROLS (North) ---
@@ -78,38 +86,63 @@ public class AnalyticsPanel {
         chart.setBorder(new LineBorder(new Color(230, 230, 230), 1)); // Subtle grey border
 
         // --- 5. DATA UPDATE LOGIC ---
-        // This Runnable block handles refreshing data when period changes or button is clicked
+        // This Runnable block handles refreshing data when period changes or button is clicked.
+        // Reading the receipts can take a while, so it happens on a background thread
+        // (SwingWorker) and only the finished numbers are put on screen.
+        // Every request gets a number: if the period is changed again before an older request
+        // finishes, the older result is thrown away instead of overwriting the newer one.
+        java.util.concurrent.atomic.AtomicInteger latest = new java.util.concurrent.atomic.AtomicInteger();
         Runnable updateData = () -> {
             // A. Get current selection
             String selectedPeriod = (String) periodBox.getSelectedItem();
-            
-            // B. Reload fresh transactions
-            List<Transaction> all = dataLoader.loadTransactions();
-            
-            // C. Filter dates (Using History logic)
-            LocalDate start = analytics.getStartDateForPeriod(selectedPeriod);
-            List<Transaction> filtered = history.filterSalesByDate(all, start, LocalDate.now());
-
-            // D. Recalculate stats (Using Analytics logic)
-            double total = analytics.calculateCumulativeTotal(filtered);
-            String topModel = analytics.getTopSellingModelForList(filtered);
-            double avg = analytics.calculateAverageDailySales(filtered, selectedPeriod);
-
-            // E. Update UI text
-            updateCardValue(cardSales, String.format("RM %.2f", total));
-            updateCardValue(cardModel, topModel);
-            updateCardValue(cardAvg, String.format("RM %.2f", avg));
-
-            // F. Push new data to chart
-            Map<String, Double> trend = analytics.getTrendData(filtered, selectedPeriod);
-            chart.setData(trend);
+            int request = latest.incrementAndGet();
+            refreshBtn.setEnabled(false);
+
+            new SwingWorker<Stats, Void>() {
+                @Override
+                protected Stats doInBackground() {
+                    // B. Reload fresh transactions (only the days of this period, see DaySummary.java)
+                    LocalDate start = analytics.getStartDateForPeriod(selectedPeriod);
+                    List<Transaction> all = dataLoader.loadTransactions(start, LocalDate.now());
+
+                    // C. Filter dates (Using History logic)
+                    List<Transaction> filtered = history.filterSalesByDate(all, start, LocalDate.now());
+
+                    // D. Recalculate stats (Using Analytics logic)
+                    Stats stats = new Stats();
+                    stats.totalCents = analytics.calculateCumulativeTotalCents(filtered);
+                    stats.topModel = analytics.getTopSellingModelForList(filtered);
+                    stats.avg = analytics.calculateAverageDailySales(filtered, selectedPeriod);
+                    stats.trend = analytics.getTrendData(filtered, selectedPeriod);
+                    return stats;
+                }
+
+                @Override
+                protected void done() {
+                    if (request != latest.get())
+                        return; // a newer request is on its way
+                    refreshBtn.setEnabled(true);
+                    try {
+                        Stats stats = get();
+                        // E. Update UI text
+                        updateCardValue(cardSales, "RM " + Money.format(stats.totalCents));
+                        updateCardValue(cardModel, stats.topModel);
+                        updateCardValue(cardAvg, String.format("RM %.2f", stats.avg));
+
+                        // F. Push new data to chart
+                        chart.setData(stats.trend);
+                    } catch (Exception ex) {
+                        JOptionPane.showMessageDialog(wrapper, "Could not load sales: " + ex.getMessage());
+                    }
+                }
+            }.execute();
         };
 
         // Hook up listeners
         periodBox.addActionListener(e -> updateData.run());
         refreshBtn.addActionListener(e -> updateData.run());
 
-        // Initial load on startup
+        // Initial load on startup (in the background, the panel shows straight away)
         updateData.run();
 
         // --- 6. FINAL ASSEMBLY ---
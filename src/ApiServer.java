@@ -0,0 +1,283 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// HEADLESS HTTP API (Back-office scripts)
+// A small web server that answers stock and sales questions without opening the Swing window.
+// It only listens on localhost (127.0.0.1), so it is not reachable from other machines.
+//
+// Start it with:   java GUI --server [--port 8085]
+//
+// Endpoints (all GET, all return JSON except /api/search):
+//   /api/health
+//   /api/stock                          every model, every outlet
+//   /api/stock?model=DW2300-1           one model
+//   /api/stock?outlet=C60               every model, one outlet
+//   /api/sales?from=2026-01-01&to=2026-01-31
+//   /api/search?q=Melvin                same text the SEARCH tab shows
+public class ApiServer {
+
+    public static final int DEFAULT_PORT = 8085;
+
+    private final DataLoader dataLoader;
+    private final File modelFile;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // --- CACHED DATA ---
+    // Each request reads these references once, and a reload swaps in a brand new object,
+    // so a request never sees a half-loaded map. The models are a Catalogue: every
+    // request works on one version of it (see Catalogue.java).
+    // (Sales are not kept here: DataLoader already caches them and only reads the days asked for.)
+    private final Catalogue catalogue = new Catalogue(Collections.emptyMap());
+    private volatile Map<String, String> outlets;
+    private volatile long modelFileStamp = -1;
+
+    public ApiServer(DataLoader dataLoader, File baseDir) {
+        this.dataLoader = dataLoader;
+        this.modelFile = new File(baseDir, "model.csv");
+        this.outlets = dataLoader.loadOutlets();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("--port"))
+                port = Integer.parseInt(args[i + 1]);
+        }
+        ApiServer api = new ApiServer(new DataLoader(), null);
+        api.start(port);
+        System.out.println("GoldenHour API listening on http://127.0.0.1:" + api.getPort() + "/api/");
+    }
+
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/api/health", onlyGet(ex -> send(ex, 200, "application/json", "{\"status\": \"ok\"}")));
+        server.createContext("/api/stock", onlyGet(this::handleStock));
+        server.createContext("/api/sales", onlyGet(this::handleSales));
+        server.createContext("/api/search", onlyGet(this::handleSearch));
+        executor = createExecutor();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null)
+            server.stop(0);
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // THREADS: One virtual thread per request when the JVM has them (Java 21+).
+    // We look the method up by name because the project still compiles for Java 16;
+    // on older JVMs we fall back to a normal pool sized for blocking file I/O.
+    static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(8, Runtime.getRuntime().availableProcessors() * 4));
+        }
+    }
+
+    // --- HANDLERS ---
+
+    private void handleStock(HttpExchange ex) throws IOException {
+        long t0 = Metrics.start();
+        Map<String, String> q = query(ex);
+        Catalogue.Snapshot current = currentModels();
+        Map<String, String> outletMap = outlets;
+        String modelName = q.get("model");
+        String outlet = q.get("outlet");
+
+        if (outlet != null && !outletMap.containsKey(outlet)) {
+            send(ex, 404, "application/json", "{\"error\": \"Unknown outlet " + json(outlet) + "\"}");
+            return;
+        }
+        Collection<Model> selected;
+        if (modelName != null) {
+            Model m = current.get(modelName);
+            if (m == null) {
+                send(ex, 404, "application/json", "{\"error\": \"Unknown model " + json(modelName) + "\"}");
+                return;
+            }
+            selected = Collections.singletonList(m);
+        } else {
+            selected = current.models().values();
+        }
+
+        StringBuilder sb = new StringBuilder("{\"version\": " + current.version + ", \"models\": [");
+        boolean first = true;
+        for (Model m : selected) {
+            if (!first)
+                sb.append(", ");
+            first = false;
+            sb.append("{\"model\": \"").append(json(m.getModelName())).append("\", \"price\": ");
+            Money.append(sb, m.getPriceCents());
+            sb.append(", \"stock\": {");
+            boolean firstOutlet = true;
+            for (String code : outletMap.keySet()) {
+                if (outlet != null && !outlet.equals(code))
+                    continue;
+                if (!firstOutlet)
+                    sb.append(", ");
+                firstOutlet = false;
+                sb.append("\"").append(json(code)).append("\": ").append(m.getStock(code));
+            }
+            sb.append("}}");
+        }
+        sb.append("]}");
+        send(ex, 200, "application/json", sb.toString());
+        Metrics.stop("ApiServer.stock", t0);
+    }
+
+    private void handleSales(HttpExchange ex) throws IOException {
+        long t0 = Metrics.start();
+        Map<String, String> q = query(ex);
+        LocalDate from, to;
+        try {
+            from = q.containsKey("from") ? LocalDate.parse(q.get("from")) : LocalDate.now();
+            to = q.containsKey("to") ? LocalDate.parse(q.get("to")) : from;
+        } catch (Exception e) {
+            send(ex, 400, "application/json", "{\"error\": \"Dates must be YYYY-MM-DD\"}");
+            return;
+        }
+
+        // Only the days that can hold sales in [from, to] are read (see DataLoader.loadTransactions(from, to))
+        List<Transaction> sales = new History().filterSalesByDate(dataLoader.loadTransactions(from, to), from, to);
+        long totalCents = new Analytics(dataLoader).calculateCumulativeTotalCents(sales);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"from\": \"").append(from).append("\", \"to\": \"").append(to).append("\"");
+        sb.append(", \"count\": ").append(sales.size());
+        Money.append(sb.append(", \"total\": "), totalCents);
+        sb.append(", \"sales\": [");
+        for (int i = 0; i < sales.size(); i++) {
+            Transaction t = sales.get(i);
+            if (i > 0)
+                sb.append(", ");
+            sb.append("{\"date\": \"").append(t.getDate()).append("\", \"time\": \"").append(json(t.getTime()))
+                    .append("\", \"employee\": \"").append(json(t.getEmployeeId()))
+                    .append("\", \"customer\": \"").append(json(t.getCustomerName()))
+                    .append("\", \"model\": \"").append(json(t.getModelName()))
+                    .append("\", \"quantity\": ").append(t.getQuantity())
+                    .append(", \"amount\": ");
+            Money.append(sb, t.getTotalCents()).append("}");
+        }
+        sb.append("]}");
+        send(ex, 200, "application/json", sb.toString());
+        Metrics.stop("ApiServer.sales", t0);
+    }
+
+    private void handleSearch(HttpExchange ex) throws IOException {
+        long t0 = Metrics.start();
+        String keyword = query(ex).get("q");
+        if (keyword == null || keyword.trim().isEmpty()) {
+            send(ex, 400, "text/plain; charset=utf-8", "Missing ?q=");
+            return;
+        }
+        send(ex, 200, "text/plain; charset=utf-8", dataLoader.searchSalesReceipts(keyword.trim()));
+        Metrics.stop("ApiServer.search", t0);
+    }
+
+    // --- DATA REFRESH ---
+
+    // Reloads model.csv only when the file changed on disk (e.g. the GUI made a sale)
+    private Catalogue.Snapshot currentModels() {
+        long stamp = modelFile.lastModified() ^ (modelFile.length() << 20);
+        if (stamp != modelFileStamp) {
+            synchronized (this) {
+                if (stamp != modelFileStamp) {
+                    catalogue.replace(dataLoader.loadModels());
+                    modelFileStamp = stamp;
+                }
+            }
+        }
+        return catalogue.snapshot();
+    }
+
+    // --- HELPERS ---
+
+    // The API is read-only, so anything other than GET is refused.
+    // A handler that fails still answers: 400 for a bad request (e.g. a broken %-escape in the
+    // query), 500 for anything else, so the client is never left waiting for a response.
+    private static HttpHandler onlyGet(HttpHandler handler) {
+        return ex -> {
+            if (!"GET".equals(ex.getRequestMethod())) {
+                send(ex, 405, "application/json", "{\"error\": \"Only GET is supported\"}");
+                return;
+            }
+            try {
+                handler.handle(ex);
+            } catch (IllegalArgumentException e) {
+                fail(ex, 400, "Bad request: " + e.getMessage());
+            } catch (RuntimeException e) {
+                System.out.println("API error on " + ex.getRequestURI() + ": " + e);
+                fail(ex, 500, "Internal error");
+            }
+        };
+    }
+
+    // Sends an error, or just hangs up if the answer had already started
+    private static void fail(HttpExchange ex, int status, String message) {
+        try {
+            send(ex, status, "application/json", "{\"error\": \"" + json(message) + "\"}");
+        } catch (IOException e) {
+            ex.close();
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> params = new HashMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null)
+            return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static void send(HttpExchange ex, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", contentType);
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    // Escapes quotes, backslashes and control characters for a JSON string
+    static String json(String s) {
+        if (s == null)
+            return "";
+        StringBuilder sb = new StringBuilder(s.length() + 8);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < 0x20)
+                sb.append(String.format("\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        return sb.toString();
+    }
+}
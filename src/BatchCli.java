@@ -0,0 +1,404 @@
+import java.io.*;
+import java.time.LocalDate;
+import java.util.*;
+
+// HEADLESS BATCH TOOL (Nightly jobs)
+// Does the same work as the STOCK IN/OUT and PERFORMANCE tabs, but from the command line,
+// so it can run on a server without a screen.
+//
+//   java BatchCli import <manifest.csv> [--employee "Name"] [--dry-run]
+//   java BatchCli report [--from YYYY-MM-DD] [--to YYYY-MM-DD] [--out reports]
+//   java BatchCli stock-as-of --date YYYY-MM-DD [--out reports]
+//   java BatchCli count <sheet.csv> [more sheets...] [--as-of YYYY-MM-DDTHH:MM] [--apply]
+//   java BatchCli compact   (writes the EDIT tab's logged sales edits into the day files)
+//   java BatchCli archive [--older-than DAYS]   (gzips old day files into monthly bundles, default 90)
+//   java BatchCli checkpoint   (saves goldenhour.img so the next app start is a warm start)
+//   java BatchCli consolidate <outlet folder>... [--out consolidated] [--threads N]
+//        (merges every outlet's sales into one company-wide store, see ReceiptConsolidator.java)
+//
+// (Also available as "java GUI --batch ...")
+//
+// MANIFEST FORMAT (one transfer line per row, header row optional):
+//   Type,From,To,Model,Quantity
+//   Stock In,HQ,C60,DW2300-1,5
+//   Stock Out,C60,C61,SW2400-2,2
+//
+// The whole manifest is checked first. If any line would make stock negative, or names an
+// unknown model/outlet, NOTHING is changed. Otherwise all lines are applied to the stock
+// in memory, model.csv is saved ONCE, and the receipts are appended in ONE write.
+public class BatchCli {
+
+    private final DataLoader dataLoader;
+
+    public BatchCli(DataLoader dataLoader) {
+        this.dataLoader = dataLoader;
+    }
+
+    public static void main(String[] args) {
+        // No window will ever be opened from here
+        System.setProperty("java.awt.headless", "true");
+
+        if (args.length == 0) {
+            printUsage();
+            System.exit(2);
+        }
+
+        Map<String, String> options = new HashMap<>();
+        List<String> positional = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--dry-run") || args[i].equals("--apply"))
+                options.put(args[i].substring(2), "true");
+            else if (args[i].startsWith("--") && i + 1 < args.length)
+                options.put(args[i].substring(2), args[++i]);
+            else
+                positional.add(args[i]);
+        }
+
+        File baseDir = options.containsKey("dir") ? new File(options.get("dir")) : null;
+        BatchCli cli = new BatchCli(new DataLoader(baseDir));
+        try {
+            switch (args[0]) {
+                case "import":
+                    if (positional.isEmpty()) {
+                        printUsage();
+                        System.exit(2);
+                    }
+                    System.out.println(cli.importManifest(new File(positional.get(0)),
+                            options.getOrDefault("employee", "Batch Import"), options.containsKey("dry-run")));
+                    break;
+                case "report":
+                    LocalDate to = options.containsKey("to") ? LocalDate.parse(options.get("to")) : LocalDate.now();
+                    LocalDate from = options.containsKey("from") ? LocalDate.parse(options.get("from")) : to;
+                    File out = new File(options.getOrDefault("out", "reports"));
+                    System.out.println(cli.writeReports(from, to, out));
+                    break;
+                case "stock-as-of":
+                    LocalDate date = options.containsKey("date") ? LocalDate.parse(options.get("date")) : LocalDate.now();
+                    System.out.println(cli.writeStockAsOf(date, new File(options.getOrDefault("out", "reports"))));
+                    break;
+                case "count":
+                    if (positional.isEmpty()) {
+                        printUsage();
+                        System.exit(2);
+                    }
+                    List<File> sheets = new ArrayList<>();
+                    for (String p : positional)
+                        sheets.add(new File(p));
+                    java.time.LocalDateTime asOf = options.containsKey("as-of")
+                            ? java.time.LocalDateTime.parse(options.get("as-of")) : null;
+                    System.out.println(cli.countSheets(sheets, asOf, options.containsKey("apply")));
+                    break;
+                case "compact":
+                    int days = cli.dataLoader.compactSalesAmendments();
+                    System.out.println("Sales edits written into " + days + " day file(s).");
+                    break;
+                case "archive":
+                    System.out.println(cli.dataLoader.archiveReceipts(
+                            Integer.parseInt(options.getOrDefault("older-than", "90"))));
+                    break;
+                case "checkpoint":
+                    System.out.println(cli.dataLoader.saveWarmStart());
+                    break;
+                case "consolidate":
+                    if (positional.isEmpty()) {
+                        printUsage();
+                        System.exit(2);
+                    }
+                    List<File> outletDirs = new ArrayList<>();
+                    for (String p : positional)
+                        outletDirs.add(new File(p));
+                    File store = new File(new File(options.getOrDefault("out", "consolidated")), DataLoader.SALES_DIR);
+                    int threads = Integer.parseInt(options.getOrDefault("threads",
+                            Integer.toString(Runtime.getRuntime().availableProcessors())));
+                    System.out.println(new ReceiptConsolidator(store, threads).consolidate(outletDirs));
+                    break;
+                default:
+                    printUsage();
+                    System.exit(2);
+            }
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage:");
+        System.out.println("  BatchCli import <manifest.csv> [--employee NAME] [--dry-run] [--dir DATA_DIR]");
+        System.out.println("  BatchCli report [--from YYYY-MM-DD] [--to YYYY-MM-DD] [--out DIR] [--dir DATA_DIR]");
+        System.out.println("  BatchCli stock-as-of --date YYYY-MM-DD [--out DIR] [--dir DATA_DIR]");
+        System.out.println("  BatchCli count <sheet.csv>... [--as-of YYYY-MM-DDTHH:MM] [--apply] [--dir DATA_DIR]");
+        System.out.println("  BatchCli compact [--dir DATA_DIR]");
+        System.out.println("  BatchCli archive [--older-than DAYS] [--dir DATA_DIR]");
+        System.out.println("  BatchCli checkpoint [--dir DATA_DIR]");
+        System.out.println("  BatchCli consolidate <outlet folder>... [--out DIR] [--threads N]");
+    }
+
+    // One parsed manifest row
+    static class TransferLine {
+        int lineNo;
+        String type;     // "Stock In" or "Stock Out" (same words as the STOCK IN/OUT tab)
+        String from;     // outlet code or "HQ"
+        String to;
+        String model;
+        int qty;
+    }
+
+    // --- BULK IMPORT ---
+    public String importManifest(File manifest, String employeeName, boolean dryRun) throws IOException {
+        long t0 = Metrics.start();
+        Map<String, Model> models = dataLoader.loadModels();
+        Map<String, String> outlets = dataLoader.loadOutlets();
+        List<TransferLine> lines = readManifest(manifest);
+
+        // STEP 1: VALIDATE EVERYTHING FIRST
+        // We play the whole manifest forward on a scratch copy of the numbers we touch.
+        // Lines are applied in file order, so a "Stock In" earlier in the file can feed
+        // a "Stock Out" later on, exactly as if someone had typed them one by one.
+        Map<String, Integer> scratch = new HashMap<>(); // "model|outlet" -> quantity
+        List<String> errors = new ArrayList<>();
+        for (TransferLine l : lines) {
+            if (!models.containsKey(l.model)) {
+                errors.add("Line " + l.lineNo + ": unknown model " + l.model);
+                continue;
+            }
+            if (!isKnownPlace(l.from, outlets) || !isKnownPlace(l.to, outlets)) {
+                errors.add("Line " + l.lineNo + ": unknown outlet " + (isKnownPlace(l.from, outlets) ? l.to : l.from));
+                continue;
+            }
+            if (l.from.equals(l.to)) {
+                errors.add("Line " + l.lineNo + ": From and To cannot be the same");
+                continue;
+            }
+            // HQ is treated as having unlimited stock, same as StockInOutTab
+            if (!l.from.equals("HQ")) {
+                String key = l.model + "|" + l.from;
+                int avail = scratch.computeIfAbsent(key, k -> models.get(l.model).getStock(l.from));
+                if (avail < l.qty) {
+                    errors.add("Line " + l.lineNo + ": insufficient stock for " + l.model + " at " + l.from
+                            + " (have " + avail + ", need " + l.qty + ")");
+                    continue;
+                }
+                scratch.put(key, avail - l.qty);
+            }
+            if (!l.to.equals("HQ")) {
+                String key = l.model + "|" + l.to;
+                scratch.put(key, scratch.computeIfAbsent(key, k -> models.get(l.model).getStock(l.to)) + l.qty);
+            }
+        }
+        if (!errors.isEmpty()) {
+            StringBuilder sb = new StringBuilder("Import rejected, nothing was changed:\n");
+            for (String e : errors)
+                sb.append("  ").append(e).append("\n");
+            return sb.toString();
+        }
+
+        // STEP 2: BUILD THE RECEIPTS
+        // Consecutive lines with the same type/from/to become one receipt, like one
+        // click of "Done" in the STOCK IN/OUT tab with several rows filled in.
+        List<String> receipts = new ArrayList<>();
+        String now = java.time.LocalTime.now().format(FileFormats.TIME_FORMAT);
+        LocalDate today = LocalDate.now();
+        int units = 0;
+        for (int i = 0; i < lines.size();) {
+            TransferLine head = lines.get(i);
+            StringBuilder items = new StringBuilder();
+            int totalQty = 0;
+            int j = i;
+            while (j < lines.size() && sameGroup(head, lines.get(j))) {
+                FileFormats.appendStockItem(items, lines.get(j).model, lines.get(j).qty);
+                totalQty += lines.get(j).qty;
+                j++;
+            }
+            receipts.add(FileFormats.stockReceipt(IdGenerator.forOutlet(head.from).nextId(), head.type, today, now,
+                    label(head.from, outlets), label(head.to, outlets), items, totalQty, employeeName));
+            units += totalQty;
+            i = j;
+        }
+
+        if (dryRun) {
+            return "Dry run OK: " + lines.size() + " lines, " + units + " units, " + receipts.size()
+                    + " receipts would be written.";
+        }
+
+        // STEP 3: APPLY + ONE SAVE + ONE RECEIPT WRITE
+        for (Map.Entry<String, Integer> e : scratch.entrySet()) {
+            String[] key = e.getKey().split("\\|", 2);
+            models.get(key[0]).setStock(key[1], e.getValue());
+        }
+        dataLoader.saveModels(models, new ArrayList<>(outlets.keySet()));
+        dataLoader.appendReceipts(receipts);
+
+        Metrics.stop("BatchCli.import", t0);
+        return "Imported " + lines.size() + " lines (" + units + " units) as " + receipts.size() + " receipts.";
+    }
+
+    private List<TransferLine> readManifest(File manifest) throws IOException {
+        List<TransferLine> lines = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(manifest))) {
+            String line;
+            int lineNo = 0;
+            while ((line = br.readLine()) != null) {
+                lineNo++;
+                if (line.trim().isEmpty() || line.toLowerCase().startsWith("type,"))
+                    continue; // blank line or header
+                String[] d = line.split(",");
+                if (d.length < 5)
+                    throw new IOException("Line " + lineNo + ": expected Type,From,To,Model,Quantity");
+                TransferLine l = new TransferLine();
+                l.lineNo = lineNo;
+                l.type = d[0].trim().equalsIgnoreCase("Stock Out") || d[0].trim().equalsIgnoreCase("OUT")
+                        ? "Stock Out" : "Stock In";
+                l.from = placeCode(d[1]);
+                l.to = placeCode(d[2]);
+                l.model = d[3].trim();
+                try {
+                    l.qty = Integer.parseInt(d[4].trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException("Line " + lineNo + ": quantity is not a number");
+                }
+                if (l.qty <= 0)
+                    throw new IOException("Line " + lineNo + ": quantity must be positive");
+                lines.add(l);
+            }
+        }
+        return lines;
+    }
+
+    // Accepts "HQ", "hq", "HQ (Service Center)", "C60" or "C60 (Kuala Lumpur)"
+    private static String placeCode(String raw) {
+        String code = raw.trim().split(" ")[0];
+        return code.equalsIgnoreCase("HQ") ? "HQ" : code;
+    }
+
+    private static boolean isKnownPlace(String code, Map<String, String> outlets) {
+        return code.equals("HQ") || outlets.containsKey(code);
+    }
+
+    // The dropdown text StockInOutTab writes into receipts, e.g. "C60 (Kuala Lumpur City Centre)"
+    private static String label(String code, Map<String, String> outlets) {
+        return code.equals("HQ") ? "HQ (Service Center)" : code + " (" + outlets.get(code) + ")";
+    }
+
+    private static boolean sameGroup(TransferLine a, TransferLine b) {
+        return a.type.equals(b.type) && a.from.equals(b.from) && a.to.equals(b.to);
+    }
+
+    // --- REPORTS ---
+    // Writes four files into 'outDir' and returns a short summary.
+    public String writeReports(LocalDate from, LocalDate to, File outDir) throws IOException {
+        long t0 = Metrics.start();
+        outDir.mkdirs();
+        String range = from + "_" + to;
+
+        Analytics analytics = new Analytics(dataLoader);
+        History history = new History();
+        Performance performance = new Performance(dataLoader);
+
+        List<Transaction> sales = history.filterSalesByDate(dataLoader.loadTransactions(from, to), from, to);
+        Map<String, employee> employees = dataLoader.loadEmployee();
+        long totalCents = analytics.calculateCumulativeTotalCents(sales);
+        long days = java.time.temporal.ChronoUnit.DAYS.between(from, to) + 1;
+
+        // 1. Summary (same numbers as the ANALYTICS cards)
+        try (PrintWriter pw = new PrintWriter(new FileWriter(new File(outDir, "summary_" + range + ".txt")))) {
+            pw.println("=== GoldenHour Sales Summary ===");
+            pw.println("Period: " + from + " to " + to);
+            pw.println("Transactions: " + sales.size());
+            pw.println("Total Sales: RM " + Money.format(totalCents));
+            pw.println("Average Daily Sales: RM " + String.format("%.2f", days > 0 ? Money.toDouble(totalCents) / days : 0));
+            pw.println("Top Model: " + analytics.getTopSellingModelForList(sales));
+        }
+
+        // 2. Staff leaderboard (same as the PERFORMANCE tab)
+        try (PrintWriter pw = new PrintWriter(new FileWriter(new File(outDir, "performance_" + range + ".csv")))) {
+            pw.println("Rank,EmployeeID,EmployeeName,TotalSales,TxnCount");
+            int rank = 1;
+            for (Performance.PerformanceEntry e : performance.getEmployeePerformance(sales)) {
+                employee emp = employees.get(e.empId);
+                pw.printf("%d,%s,%s,%s,%d\n", rank++, e.empId, emp != null ? emp.getName() : "Unknown Staff",
+                        Money.format(e.totalCents), e.transactionCount);
+            }
+        }
+
+        // 3. Daily totals (one row per day, including days with no sales)
+        // cents[i] = money on day 'from + i' (sales already carry their day as a number)
+        long[] daily = new long[(int) days];
+        for (Transaction t : sales)
+            daily[(int) (t.getEpochDay() - from.toEpochDay())] += t.getTotalCents();
+        try (PrintWriter pw = new PrintWriter(new FileWriter(new File(outDir, "daily_sales_" + range + ".csv")))) {
+            pw.println("Date,TotalSales");
+            for (int i = 0; i < daily.length; i++)
+                pw.println(from.plusDays(i) + "," + Money.format(daily[i]));
+        }
+
+        // 4. Current stock levels (a copy of model.csv with a total column)
+        Map<String, String> outlets = dataLoader.loadOutlets();
+        try (PrintWriter pw = new PrintWriter(new FileWriter(new File(outDir, "stock_" + to + ".csv")))) {
+            StringBuilder header = new StringBuilder("Model,Price");
+            for (String code : outlets.keySet())
+                header.append(",").append(code);
+            pw.println(header.append(",Total"));
+            for (Model m : dataLoader.loadModels().values()) {
+                StringBuilder row = new StringBuilder(m.getModelName()).append(",").append(m.getPrice());
+                for (String code : outlets.keySet())
+                    row.append(",").append(m.getStock(code));
+                pw.println(row.append(",").append(m.getTotalStock()));
+            }
+        }
+
+        Metrics.stop("BatchCli.report", t0);
+        return "Reports for " + from + " to " + to + " written to " + outDir.getPath() + " (" + sales.size()
+                + " transactions, RM " + Money.format(totalCents) + ")";
+    }
+
+    // --- STOCK AS OF A DATE ---
+    // Rebuilds the stock table for the end of 'date' from the nearest stock snapshot plus the receipt
+    // ledger after it (see StockLedger.java),
+    // plus how many units went in and out of each outlet that day.
+    public String writeStockAsOf(LocalDate date, File outDir) throws IOException {
+        long t0 = Metrics.start();
+        outDir.mkdirs();
+        StockLedger ledger = StockLedger.load(dataLoader);
+        List<String> outletCodes = new ArrayList<>(dataLoader.loadOutlets().keySet());
+
+        File out = new File(outDir, "stock_as_of_" + date + ".csv");
+        try (PrintWriter pw = new PrintWriter(new FileWriter(out))) {
+            pw.println("Model," + String.join(",", outletCodes) + ",Total");
+            for (Map.Entry<String, Map<String, Integer>> row : ledger.stockAsOf(date, outletCodes).entrySet()) {
+                StringBuilder sb = new StringBuilder(row.getKey());
+                int total = 0;
+                for (int qty : row.getValue().values()) {
+                    sb.append(",").append(qty);
+                    total += qty;
+                }
+                pw.println(sb.append(",").append(total));
+            }
+            pw.println();
+            pw.println("Outlet,UnitsIn,UnitsOut");
+            for (String code : outletCodes) {
+                int[] inOut = ledger.unitsInOut(code, date, date);
+                pw.println(code + "," + inOut[0] + "," + inOut[1]);
+            }
+        }
+        Metrics.stop("BatchCli.stockAsOf", t0);
+        return "Stock as of " + date + " written to " + out.getPath() + " (" + ledger.getMovements().size()
+                + " movements in the ledger)";
+    }
+
+    // --- BULK STOCK COUNT ---
+    // Same as the IMPORT SHEETS button in the STOCK COUNT tab (see StockCountEngine.java)
+    public String countSheets(List<File> sheets, java.time.LocalDateTime asOf, boolean apply) throws IOException {
+        StockCountEngine engine = new StockCountEngine(dataLoader);
+        List<String> problems = new ArrayList<>();
+        StockCountEngine.Result result = engine.reconcile(engine.readSheets(sheets, problems), asOf, problems);
+        engine.saveReport(result);
+        String summary = result.getSummary();
+        if (apply && !result.getMismatches().isEmpty()) {
+            int applied = engine.applyAdjustments(result, dataLoader.loadModels(),
+                    new ArrayList<>(dataLoader.loadOutlets().keySet()));
+            summary += "Applied " + applied + " adjustments.";
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,161 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// THE MODELS CATALOGUE, ONE VERSION AT A TIME (COPY-ON-WRITE)
+// Every screen used to share ONE Map<String, Model> and change the Model objects inside it.
+// Anything reading in the background (a report, an export, the API) could then see a sale
+// half-way: one outlet's number already lowered, the next one not yet.
+//
+// Now the catalogue is a series of read-only versions (Snapshot):
+//   READ   snapshot() hands out the current version. No lock, no waiting, and it never changes
+//          afterwards, so a long report sees ONE consistent catalogue from start to finish.
+//   WRITE  update() copies only the models it touches, changes the copies, and swaps the whole
+//          new version in with one atomic step. Readers see all of a change or none of it.
+//          Writers take turns (a lock only they use), so two tills can't lose each other's sale.
+//
+// Published models are frozen: calling setStock / addStock / reduceStock on one throws, so
+// nobody can change a version that someone else may be reading.
+//
+// Each new version also tells events() exactly which numbers changed (see StockEventBus.java).
+//
+// ** USED BY GUI (the tabs), STOCKCOUNTENGINE & APISERVER **
+public class Catalogue {
+
+    // One published version: never changes once someone can see it
+    public static final class Snapshot {
+        public final long version;
+        private final Map<String, Model> models; // read-only, every Model frozen
+
+        private Snapshot(long version, Map<String, Model> models) {
+            this.version = version;
+            this.models = Collections.unmodifiableMap(models);
+        }
+
+        public Map<String, Model> models() {
+            return models;
+        }
+
+        public Model get(String modelName) {
+            return models.get(modelName);
+        }
+
+        public boolean contains(String modelName) {
+            return models.containsKey(modelName);
+        }
+    }
+
+    // A change being prepared: reads see the change so far, model() gives a private copy to change
+    public static final class Edit {
+        private final Snapshot base;
+        private final Map<String, Model> copies = new HashMap<>();
+
+        private Edit(Snapshot base) {
+            this.base = base;
+        }
+
+        public Snapshot base() {
+            return base;
+        }
+
+        public Model get(String modelName) {
+            Model copy = copies.get(modelName);
+            return copy != null ? copy : base.get(modelName);
+        }
+
+        // The model to change (copied from the published version the first time), null if unknown
+        public Model model(String modelName) {
+            Model copy = copies.get(modelName);
+            if (copy == null) {
+                Model published = base.get(modelName);
+                if (published == null)
+                    return null;
+                copy = published.copy();
+                copies.put(modelName, copy);
+            }
+            return copy;
+        }
+    }
+
+    private final AtomicReference<Snapshot> current;
+    private final Object writeLock = new Object();
+    private final StockEventBus events = new StockEventBus();
+
+    // The catalogue takes over these Model objects (they are frozen from now on)
+    public Catalogue(Map<String, Model> models) {
+        this.current = new AtomicReference<>(freeze(1, models));
+    }
+
+    // The current version (lock-free)
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    public long version() {
+        return current.get().version;
+    }
+
+    // (model, outlet, old, new) for every number a new version changed
+    public StockEventBus events() {
+        return events;
+    }
+
+    // --- WRITING ---
+
+    // Runs 'change' on copies of the current version and publishes the result as the next version,
+    // then calls 'save' with it (e.g. to write model.csv) before the next writer may start, so the
+    // file always ends up with the newest version. If 'change' throws, nothing is published.
+    // Returns the version now current.
+    public Snapshot update(Consumer<Edit> change, Consumer<Snapshot> save) {
+        synchronized (writeLock) {
+            long t0 = Metrics.start();
+            Snapshot base = current.get();
+            Edit edit = new Edit(base);
+            change.accept(edit);
+            if (edit.copies.isEmpty())
+                return base;
+            Map<String, Model> next = new LinkedHashMap<>(base.models);
+            next.putAll(edit.copies);
+            Snapshot published = freeze(base.version + 1, next);
+            current.set(published);
+            Metrics.stop("Catalogue.update", t0);
+            if (save != null)
+                save.accept(published);
+            if (events.hasListeners())
+                events.publish(StockSnapshots.changes(stockOf(base.models, edit.copies.keySet()),
+                        stockOf(published.models, edit.copies.keySet())));
+            return published;
+        }
+    }
+
+    // Swaps in a whole new catalogue (e.g. model.csv was changed by another program)
+    public Snapshot replace(Map<String, Model> models) {
+        synchronized (writeLock) {
+            Snapshot base = current.get();
+            Snapshot published = freeze(base.version + 1, models);
+            current.set(published);
+            if (events.hasListeners())
+                events.publish(StockSnapshots.changes(stockOf(base.models, base.models.keySet()),
+                        stockOf(published.models, published.models.keySet())));
+            return published;
+        }
+    }
+
+    // model -> outlet -> quantity, for the given models only (the shape StockSnapshots.changes compares)
+    private static Map<String, Map<String, Integer>> stockOf(Map<String, Model> models, Collection<String> names) {
+        Map<String, Map<String, Integer>> stock = new LinkedHashMap<>();
+        for (String name : names) {
+            Model m = models.get(name);
+            if (m != null)
+                stock.put(name, m.getAllStock());
+        }
+        return stock;
+    }
+
+    private static Snapshot freeze(long version, Map<String, Model> models) {
+        Map<String, Model> copy = new LinkedHashMap<>(models);
+        for (Model m : copy.values())
+            m.freeze();
+        return new Snapshot(version, copy);
+    }
+}
@@ -5,8 +5,10 @@ import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.geom.RoundRectangle2D;
-import java.util.LinkedHashMap;
+import java.awt.image.BufferedImage;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class CustomComponents {
 
@@ -124,81 +126,189 @@ public class CustomComponents {
 
     // --- SIMPLE BAR CHART ---
     // A custom component that manually draws a bar graph using Math.
+    //
+    // SPEED: Drawing happens ONCE per new data (or new size) on a background thread,
+    // into a picture (BufferedImage) that we keep. Every other repaint (mouse-over,
+    // a dialog closing on top of it...) just copies that picture to the screen.
+    // If there are more bars than pixels (e.g. a year of hourly data = 8760 bars),
+    // neighbouring bars are merged so each drawn bar is at least a few pixels wide.
     public static class SimpleBarChart extends JPanel {
-        // LinkedHashMap keeps the order correct (e.g. 9am, then 10am, not random)
-        private Map<String, Double> data = new LinkedHashMap<>();
+        private static final Font LABEL_FONT = new Font("SansSerif", Font.PLAIN, 10);
+        private static final Color BAR_COLOR = new Color(52, 152, 219);
+        private static final int PADDING = 40;      // Space for labels at bottom
+        private static final int MIN_BAR_WIDTH = 3; // Merge bars below this width
+
+        // One background thread draws charts for the whole app (daemon: never blocks exit)
+        private static final ExecutorService RENDERER = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "chart-renderer");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // Plain arrays instead of a map: cheap to loop over and safe to hand to another thread,
+        // because setData() always swaps in NEW arrays instead of changing the old ones.
+        private String[] labels = new String[0];
+        private double[] values = new double[0];
+        private int dataVersion = 0;
+
+        // THE CACHED PICTURE (only touched on the Swing thread)
+        private BufferedImage cache;
+        private int cacheVersion = -1;
+        private int pendingVersion = -1;
+        private int pendingWidth, pendingHeight;
 
+        // LinkedHashMap keeps the order correct (e.g. 9am, then 10am, not random)
         public void setData(Map<String, Double> data) {
-            this.data = data;
+            String[] newLabels = new String[data.size()];
+            double[] newValues = new double[data.size()];
+            int i = 0;
+            for (Map.Entry<String, Double> entry : data.entrySet()) {
+                newLabels[i] = entry.getKey();
+                newValues[i] = entry.getValue();
+                i++;
+            }
+            setData(newLabels, newValues);
+        }
+
+        public void setData(String[] labels, double[] values) {
+            this.labels = labels;
+            this.values = values;
+            dataVersion++;
             repaint(); // Trigger a redraw whenever new data arrives
         }
 
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            if (data == null || data.isEmpty())
+            int width = getWidth();
+            int height = getHeight();
+            if (cache != null && cacheVersion == dataVersion && cache.getWidth() == width && cache.getHeight() == height) {
+                g.drawImage(cache, 0, 0, null); // The fast path: nothing changed
                 return;
+            }
+            // Something changed: show the old picture (stretched) until the new one is ready
+            if (cache != null)
+                g.drawImage(cache, 0, 0, width, height, null);
+            requestRender(width, height);
+        }
 
-            Graphics2D g2 = (Graphics2D) g;
+        private void requestRender(int width, int height) {
+            if (width <= 0 || height <= 0)
+                return;
+            if (pendingVersion == dataVersion && pendingWidth == width && pendingHeight == height)
+                return; // already being drawn
+            pendingVersion = dataVersion;
+            pendingWidth = width;
+            pendingHeight = height;
+
+            final int version = dataVersion;
+            final String[] l = labels;
+            final double[] v = values;
+            RENDERER.execute(() -> {
+                BufferedImage img = render(l, v, width, height);
+                SwingUtilities.invokeLater(() -> {
+                    // Only keep it if nobody changed the data or size in the meantime
+                    if (version == dataVersion && width == getWidth() && height == getHeight()) {
+                        cache = img;
+                        cacheVersion = version;
+                        repaint();
+                    }
+                    if (pendingVersion == version)
+                        pendingVersion = -1;
+                });
+            });
+        }
+
+        // Draws the whole chart into a new picture. Runs on the "chart-renderer" thread.
+        static BufferedImage render(String[] labels, double[] values, int width, int height) {
+            long t0 = Metrics.start();
+            BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            if (values.length == 0)
+                return img;
+            Graphics2D g2 = img.createGraphics();
             g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setFont(LABEL_FONT);
+            FontMetrics fm = g2.getFontMetrics(); // Helper to measure text width
 
-            // Get total canvas size
-            int width = getWidth();
-            int height = getHeight();
-            int padding = 40; // Space for labels at bottom
+            // DOWNSAMPLING: If the bars would be thinner than MIN_BAR_WIDTH pixels,
+            // add groups of neighbours together (e.g. 24 hourly bars -> 1 daily bar).
+            // The group is labelled with its first bucket.
+            int plotWidth = Math.max(1, width - 2 * PADDING);
+            int maxBars = Math.max(1, plotWidth / MIN_BAR_WIDTH);
+            if (values.length > maxBars) {
+                int group = (values.length + maxBars - 1) / maxBars;
+                int n = (values.length + group - 1) / group;
+                String[] groupedLabels = new String[n];
+                double[] grouped = new double[n];
+                for (int i = 0; i < values.length; i++) {
+                    grouped[i / group] += values[i];
+                    if (i % group == 0)
+                        groupedLabels[i / group] = labels[i];
+                }
+                labels = groupedLabels;
+                values = grouped;
+            }
 
             // MATH: Find the highest value in the dataset.
             // We need this to "scale" the bars. 
             // If max is 1000, then a 500 bar should be 50% height.
-            double maxVal = data.values().stream().mapToDouble(Double::doubleValue).max().orElse(1.0);
+            double maxVal = 0;
+            for (double v : values)
+                maxVal = Math.max(maxVal, v);
             if (maxVal == 0) maxVal = 1; // Prevent crash (division by zero)
 
             // Calculate how wide each bar can be to fit them all on screen
-            int barWidth = (width - 2 * padding) / data.size();
-            int x = padding; // Starting X position
+            double barWidth = plotWidth / (double) values.length;
+            int gap = barWidth >= 12 ? 5 : (barWidth >= 4 ? 1 : 0);
+
+            // LABEL SPACING: Measure the widest label once, then only print every
+            // 'labelStep'-th label so they never overlap.
+            int widest = 0;
+            for (String label : labels)
+                widest = Math.max(widest, fm.stringWidth(label));
+            int labelStep = Math.max(1, (int) Math.ceil((widest + 6) / barWidth));
 
             // Draw the bottom axis line
             g2.setColor(Color.BLACK);
-            g2.drawLine(padding, height - padding, width - padding, height - padding);
+            g2.drawLine(PADDING, height - PADDING, width - PADDING, height - PADDING);
 
             // --- DRAWING LOOP ---
-            for (Map.Entry<String, Double> entry : data.entrySet()) {
-                double val = entry.getValue();
-                
+            for (int i = 0; i < values.length; i++) {
+                double val = values[i];
+                int x = PADDING + (int) (i * barWidth);
+                int w = Math.max(1, (int) ((i + 1) * barWidth) - (int) (i * barWidth));
+
                 // MATH: Convert Value -> Pixel Height
                 // (Value / Max) gives us percentage (e.g. 0.5)
                 // Multiply by available height to get pixel height
-                int barHeight = (int) ((val / maxVal) * (height - 2 * padding));
+                int barHeight = (int) ((val / maxVal) * (height - 2 * PADDING));
 
                 // MATH: Calculate Y Position
                 // Java coordinates start at Top-Left (0,0).
                 // So "Height - Padding - barHeight" means: 
                 // "Go to bottom, move up the padding, then move up the height of the bar to find the top edge."
-                g2.setColor(new Color(52, 152, 219));
-                g2.fillRect(x + 5, height - padding - barHeight, barWidth - 10, barHeight);
+                g2.setColor(BAR_COLOR);
+                g2.fillRect(x + gap, height - PADDING - barHeight, Math.max(1, w - 2 * gap), barHeight);
 
                 // --- TEXT LABELS ---
                 g2.setColor(Color.DARK_GRAY);
-                g2.setFont(new Font("SansSerif", Font.PLAIN, 10));
-
-                FontMetrics fm = g2.getFontMetrics(); // Helper to measure text width
-                
-                // Draw Time Label (bottom)
-                int textWidth = fm.stringWidth(entry.getKey());
-                // Math to center the text under the bar
-                g2.drawString(entry.getKey(), x + (barWidth - textWidth) / 2, height - padding + 15);
+                if (i % labelStep == 0) {
+                    // Draw Time Label (bottom), centered under the bar
+                    int textWidth = fm.stringWidth(labels[i]);
+                    g2.drawString(labels[i], x + (w - textWidth) / 2, height - PADDING + 15);
+                }
 
-                // Draw Value Label (top of bar), only if > 0
+                // Draw Value Label (top of bar), only if > 0 and there is room for it
                 if (val > 0) {
                     String valStr = String.valueOf((int) val);
                     int valWidth = fm.stringWidth(valStr);
-                    // Draw text slightly above the blue bar
-                    g2.drawString(valStr, x + (barWidth - valWidth) / 2, height - padding - barHeight - 5);
+                    if (valWidth + 2 <= w)
+                        g2.drawString(valStr, x + (w - valWidth) / 2, height - PADDING - barHeight - 5);
                 }
-                
-                // Move X pointer to the right for the next bar
-                x += barWidth;
             }
+            g2.dispose();
+            Metrics.stop("SimpleBarChart.render", t0);
+            return img;
         }
     }
-}
\ No newline at end of file
+}
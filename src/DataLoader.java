@@ -12,16 +12,75 @@ public class DataLoader {
     private static final String OUTLET_FILE = "outlet.csv";
     private static final String MODEL_FILE = "model.csv";
     private static final String ATTENDANCE_FILE = "attendance.csv";
+    static final String SALES_DIR = "SalesReceipt"; // (also the store layout of ReceiptConsolidator)
+    private static final String STOCK_DIR = "StockReceipt";
+    private static final String HISTORY_DIR = "StockHistory";
+    private static final String COUNT_REPORT_DIR = "StockCountReport";
+
+    // WORKING FOLDER: Where the CSV files and receipt folders live.
+    // 'null' means "the folder the app was started from" (the normal case).
+    // Benchmarks and tools pass a different folder so they can work on a copy of the data.
+    private final File baseDir;
+
+    // Keeps old stock numbers around so we can look back in time (see StockSnapshots.java)
+    private final StockSnapshots stockSnapshots;
+
+    // Edits to past sales, laid over the receipt files when we read them (see SalesAmendments.java)
+    private final SalesAmendments salesAmendments;
+
+    // Sales, stock changes and clock in/out for HQ, or null if this is not an outlet node
+    // (see ReplicationOutbox.java; switched on by replication/node.properties)
+    private final ReplicationOutbox outbox;
+
+    // The last full parse of the sales folder, kept while salesFingerprint() stays the same.
+    // Filled by loadTransactions() or straight from the warm start image (see WarmStartImage.java).
+    private volatile SalesCache salesCache;
+
+    private static class SalesCache {
+        final String stamp;
+        final java.util.concurrent.CompletableFuture<List<Transaction>> transactions; // still decoding on a warm start
+
+        SalesCache(String stamp, java.util.concurrent.CompletableFuture<List<Transaction>> transactions) {
+            this.stamp = stamp;
+            this.transactions = transactions;
+        }
+    }
+
+    public DataLoader() {
+        this(null);
+    }
+
+    public DataLoader(File baseDir) {
+        this.baseDir = baseDir;
+        this.stockSnapshots = new StockSnapshots(file(HISTORY_DIR));
+        this.salesAmendments = new SalesAmendments(file(SALES_DIR));
+        this.outbox = ReplicationOutbox.forDir(file(ReplicationOutbox.DIR));
+        IdGenerator.useTillFolder(file(IdGenerator.TILLS_DIR)); // see IdGenerator "TILLS"
+    }
+
+    public ReplicationOutbox getOutbox() {
+        return outbox;
+    }
+
+    public StockSnapshots getStockSnapshots() {
+        return stockSnapshots;
+    }
+
+    // Helper: Turns a file name like "model.csv" into a path inside the working folder
+    private File file(String name) {
+        return new File(baseDir, name);
+    }
     
     // --- LOAD EMPLOYEES ---
     // ** CONNECTION TO GUI.JAVA **
     // Called in GUI constructor to load the login credentials.
     public Map<String, employee> loadEmployee() {
+        long t0 = Metrics.start();
         // TreeMap sorts keys automatically (so Employee IDs are in order: 001, 002...)
         Map<String, employee> employee = new TreeMap<>();
         
         // Try-with-resources: Automatically closes the file even if an error crashes the app
-        try (BufferedReader br = new BufferedReader(new FileReader(EMPLOYEE_FILE))) {
+        try (BufferedReader br = new BufferedReader(new FileReader(file(EMPLOYEE_FILE)))) {
             br.readLine(); // READ HEADER: We ignore the first line (labels)
             
             String line;
@@ -51,6 +110,7 @@ public class DataLoader {
             // If file is missing or locked, print error to console
             System.out.println("File Error: " + e.getMessage());
         }
+        Metrics.stop("DataLoader.loadEmployee", t0);
         return employee;
     }
 
@@ -58,9 +118,10 @@ public class DataLoader {
     // ** USED BY STOCKINOUTTAB & SEARCHPANEL **
     // Loads the list of stores (e.g., C60 -> Kuala Lumpur)
     public Map<String, String> loadOutlets() {
+        long t0 = Metrics.start();
         // LinkedHashMap preserves the order from the text file (Top to Bottom)
         Map<String, String> outlet = new LinkedHashMap<>(); 
-        try (BufferedReader br = new BufferedReader(new FileReader(OUTLET_FILE))) {
+        try (BufferedReader br = new BufferedReader(new FileReader(file(OUTLET_FILE)))) {
             br.readLine(); // Skip header
             String line;
             while ((line = br.readLine()) != null) {
@@ -73,6 +134,7 @@ public class DataLoader {
         } catch (IOException e) {
             System.out.println("Error loading outlets: " + e.getMessage());
         }
+        Metrics.stop("DataLoader.loadOutlets", t0);
         return outlet;
     }
 
@@ -80,7 +142,8 @@ public class DataLoader {
     // ** USED BY REGISTERPANEL **
     // Overwrites the entire CSV file with the new list of employees.
     public void uploadEmployeeCSV(Map<String, employee> employee) {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(EMPLOYEE_FILE))) {
+        long t0 = Metrics.start();
+        try (PrintWriter pw = new PrintWriter(new FileWriter(file(EMPLOYEE_FILE)))) {
             // Step 1: Write the Header row first
             pw.println("EmployeeID,EmployeeName,Role,Password,OutletCode"); 
             
@@ -92,6 +155,7 @@ public class DataLoader {
         } catch (IOException e) {
             System.out.println("Error updating employees: " + e.getMessage());
         }
+        Metrics.stop("DataLoader.uploadEmployeeCSV", t0);
     }
     
     // --- LOAD MODELS (STOCK) ---
@@ -99,8 +163,9 @@ public class DataLoader {
     // This is complex because the CSV has dynamic columns (one column per outlet).
     // File structure: Model,Price,Outlet1_Qty,Outlet2_Qty...
     public Map<String, Model> loadModels() {
+        long t0 = Metrics.start();
         Map<String, Model> models = new LinkedHashMap<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(MODEL_FILE))) {
+        try (BufferedReader br = new BufferedReader(new FileReader(file(MODEL_FILE)))) {
             String header = br.readLine();
             // We need the header to know which column belongs to which Outlet (e.g. C60, C61)
             String[] headers = header.split(","); 
@@ -112,10 +177,10 @@ public class DataLoader {
                 // Basic Validation: Must have at least Name and Price
                 if (data.length > 2) {
                     String name = data[0];
-                    double price = Double.parseDouble(data[1]); // Convert text "10.50" to number 10.50
+                    long priceCents = Money.parse(data[1]); // Convert text "10.50" to 1050 cents
                     
                     // Create the base Model object
-                    Model m = new Model(name, price);
+                    Model m = new Model(name, priceCents);
 
                     // DYNAMIC PARSING LOOP
                     // Start at index 2 because 0 is Name and 1 is Price.
@@ -133,14 +198,28 @@ public class DataLoader {
         } catch (Exception e) {
             System.out.println("Error loading models: " + e.getMessage());
         }
+        Metrics.stop("DataLoader.loadModels", t0);
         return models;
     }
 
     // --- SAVE MODELS ---
     // ** USED BY SALESPANEL & STOCKINOUTTAB **
-    // Saves changes to stock quantity back to the file.
+    // Saves changes to stock quantity back to the file, and records what changed in StockHistory.
     public void saveModels(Map<String, Model> models, List<String> outletCodes) {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(MODEL_FILE))) {
+        long t0 = Metrics.start();
+
+        // HISTORY: Remember what the file said before we overwrite it, so the
+        // differences can be written to the stock history afterwards.
+        Map<String, Map<String, Integer>> before = null;
+        if (file(MODEL_FILE).exists()) {
+            try (BufferedReader br = new BufferedReader(new FileReader(file(MODEL_FILE)))) {
+                before = StockSnapshots.readMatrix(br, true);
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Error reading old stock: " + e.getMessage());
+            }
+        }
+
+        try (PrintWriter pw = new PrintWriter(new FileWriter(file(MODEL_FILE)))) {
             // Step 1: Rebuild the Header.
             // We start with "Model,Price" and then loop to add every Outlet Code.
             StringBuilder header = new StringBuilder("Model,Price");
@@ -164,90 +243,569 @@ public class DataLoader {
         } catch (IOException e) {
             System.out.println("Error saving models: " + e.getMessage());
         }
+        long now = System.currentTimeMillis();
+        Map<String, Map<String, Integer>> after = StockSnapshots.toMatrix(models, outletCodes);
+        stockSnapshots.recordSave(before, after, outletCodes, now);
+
+        // HQ: only the numbers that changed, not the whole file
+        if (outbox != null && before != null) {
+            for (StockSnapshots.Change c : StockSnapshots.changes(before, after))
+                outbox.append(ReplicationEvent.stock(c, now));
+        }
+        Metrics.stop("DataLoader.saveModels", t0);
     }
     
     // --- LOAD TRANSACTIONS (PARSER) ---
     // ** USED BY ANALYTICSPANEL & HISTORYPANEL **
     // This reads the receipt text files and converts them back into Java Objects.
+    // Parsing is skipped if no day file (and no edit) changed since the last time.
+    // Each caller gets its own list, so sorting or filtering it doesn't affect anyone else.
     public List<Transaction> loadTransactions() {
+        // Timed by Metrics; the actual parsing is in loadTransactionsFromFiles below
+        long t0 = Metrics.start();
+        String stamp = salesFingerprint();
+        List<Transaction> cached = cachedTransactions(stamp);
+        if (cached != null) {
+            Metrics.count("DataLoader.loadTransactions.cached");
+        } else {
+            // (If a receipt is added while we parse, the next call sees a new stamp and parses again)
+            cached = Collections.unmodifiableList(loadTransactionsFromFiles());
+            salesCache = new SalesCache(stamp, java.util.concurrent.CompletableFuture.completedFuture(cached));
+        }
+        List<Transaction> transactions = new ArrayList<>(cached);
+        Metrics.stop("DataLoader.loadTransactions", t0);
+        Metrics.count("DataLoader.loadTransactions.rows", transactions.size());
+        return transactions;
+    }
+
+    private List<Transaction> loadTransactionsFromFiles() {
         List<Transaction> transactions = new ArrayList<>();
-        File dir = new File("SalesReceipt");
+        File dir = file(SALES_DIR);
 
         // If the folder doesn't exist, there are no sales to load.
         if (!dir.exists() || !dir.isDirectory()) {
             return transactions;
         }
 
-        // Get a list of all files ending in ".txt" inside that folder
-        File[] files = dir.listFiles((d, name) -> name.endsWith(".txt"));
-        if (files == null)
+        // Every day file, plain ".txt" or compressed in the archive (see ReceiptArchive.java)
+        return parseSalesDays(ReceiptArchive.dayFiles(dir, "sales_"));
+    }
+
+    // A cheap "fingerprint" of the sales folder: the name + size + time of every day file
+    // (plain or archived) and of the edit log. Same fingerprint = same transactions.
+    String salesFingerprint() {
+        File dir = file(SALES_DIR);
+        StringBuilder sb = new StringBuilder();
+        for (ReceiptArchive.DayFile f : ReceiptArchive.dayFiles(dir, "sales_"))
+            sb.append(f.name).append('=').append(f.stamp()).append(';');
+        File log = new File(dir, SalesAmendments.LOG_FILE);
+        return sb.append("edits=").append(log.length()).append(':').append(log.lastModified()).toString();
+    }
+
+    // The cached transactions if they still match 'stamp' (waits for a warm start image that
+    // is still being checked / decoded), otherwise null
+    private List<Transaction> cachedTransactions(String stamp) {
+        SalesCache cache = salesCache;
+        if (cache == null || !cache.stamp.equals(stamp))
+            return null;
+        try {
+            List<Transaction> transactions = cache.transactions.join();
+            if (transactions == null)
+                salesCache = null; // the warm start image's sales were out of date
             return transactions;
+        } catch (RuntimeException e) {
+            // A damaged warm start image: forget it and parse the files instead
+            System.out.println("Ignoring warm start sales: " + e.getMessage());
+            salesCache = null;
+            return null;
+        }
+    }
 
-        // Loop through every single receipt file found
-        for (File f : files) {
-            try (BufferedReader br = new BufferedReader(new FileReader(f))) {
-                String line;
-                // Buffer variables to hold data as we read line-by-line
-                String date = "", time = "", cust = "", model = "", empId = "N/A";
-                double amt = 0;
-                int qty = 0;
-
-                while ((line = br.readLine()) != null) {
-                    // PARSING LOGIC: We look for "Keys" in the text file.
-                    // If line is "Date: 2023-10-25", we split by ": " and take the second part.
-                    if (line.contains("Date: "))
-                        date = line.split(": ")[1].trim();
-                    else if (line.contains("Time: "))
-                        time = line.split(": ")[1].trim();
-                    
-                    // Capture Employee ID so we can filter by staff later
-                    else if (line.contains("Employee: "))
-                        empId = line.split(": ")[1].trim();
-
-                    else if (line.contains("Customer Name: "))
-                        cust = line.split(": ")[1].trim();
-                    else if (line.contains("Model: "))
-                        model = line.split(": ")[1].trim();
-                    else if (line.contains("Quantity: "))
-                        qty = Integer.parseInt(line.split(": ")[1].trim()); // Convert text "5" to int 5
-                    else if (line.contains("Subtotal: RM")) {
-                        // Extract money amount (removing the "RM" part)
-                        amt = Double.parseDouble(line.split("RM")[1].trim());
+    // Reads the given days in parallel (each gives back its own list), then joins them in order
+    private List<Transaction> parseSalesDays(List<ReceiptArchive.DayFile> days) {
+        List<Transaction> transactions = new ArrayList<>();
+        List<List<Transaction>> perDay = days.parallelStream()
+                .map(this::parseSalesDay)
+                .collect(java.util.stream.Collectors.toList());
+
+        // Every receipt has a unique Transaction ID (see IdGenerator). If the same receipt
+        // was written twice (e.g. a batch import run again), we only keep the first copy.
+        // A DIFFERENT receipt with an ID we already saw is a clash, not a copy: keep both.
+        Map<String, Transaction> seenIds = new HashMap<>();
+        for (List<Transaction> day : perDay) {
+            for (Transaction t : day) {
+                Transaction first = seenIds.putIfAbsent(t.getTransactionId(), t);
+                if (first == null) {
+                    transactions.add(t);
+                } else if (sameSale(first, t)) {
+                    Metrics.count("DataLoader.duplicateReceipts");
+                } else {
+                    System.out.println("Two different sales share Transaction ID " + t.getTransactionId() + ", keeping both");
+                    Metrics.count("DataLoader.idClashes");
+                    transactions.add(t);
+                }
+            }
+        }
+        return transactions;
+    }
+
+    // True if 'b' is a second copy of the sale 'a' (every field the receipt holds is the same)
+    // ** ALSO USED BY DAYSUMMARY **
+    static boolean sameSale(Transaction a, Transaction b) {
+        return a.getTransactionId().equals(b.getTransactionId()) && a.getEpochDay() == b.getEpochDay()
+                && a.getTime().equals(b.getTime()) && a.getEmployeeId().equals(b.getEmployeeId())
+                && a.getOutletCode().equals(b.getOutletCode()) && a.getModelName().equals(b.getModelName())
+                && a.getQuantity() == b.getQuantity() && a.getTotalCents() == b.getTotalCents()
+                && Objects.equals(a.getCustomerName(), b.getCustomerName());
+    }
+
+    // --- LOAD ONLY SOME DAYS ---
+    // ** USED BY HISTORYPANEL, ANALYTICSPANEL & BATCHCLI **
+    // Same as loadTransactions(), but a day file whose summary (see DaySummary.java) shows no
+    // sale between 'from' and 'to' is never opened. A day is read whole, so the list can still
+    // hold sales from outside the range: callers filter with History.filterSalesByDate as before.
+    public List<Transaction> loadTransactions(java.time.LocalDate from, java.time.LocalDate to) {
+        long t0 = Metrics.start();
+        File dir = file(SALES_DIR);
+        List<Transaction> cached = cachedTransactions(salesFingerprint());
+        if (cached != null) {
+            // Everything is already parsed: no need to open even one day
+            Metrics.count("DataLoader.loadTransactions.cached");
+            return new ArrayList<>(cached);
+        }
+        long first = from.toEpochDay(), last = to.toEpochDay();
+        List<ReceiptArchive.DayFile> all = ReceiptArchive.dayFiles(dir, "sales_");
+        List<ReceiptArchive.DayFile> days = all.parallelStream()
+                .filter(f -> DaySummary.of(dir, f).overlaps(first, last))
+                .collect(java.util.stream.Collectors.toList());
+        List<Transaction> transactions = parseSalesDays(days);
+        Metrics.stop("DataLoader.loadTransactionsRange", t0);
+        Metrics.count("DataLoader.daysSkipped", all.size() - days.size());
+        return transactions;
+    }
+
+    // --- TOTALS STRAIGHT FROM THE SUMMARIES ---
+    // ** USED BY ANALYTICS & GUI (daily email) **
+    // Revenue, number of sales and units per model between 'from' and 'to' (both null = all time),
+    // the same numbers History.filterSalesByDate + Analytics would give, but a day that lies
+    // completely inside the range is answered from its summary without being opened.
+    // A day is still read in full if it is only partly inside the range, if it has logged edits,
+    // or if its Transaction IDs overlap another day's (it may hold copies of the same receipts).
+    public DaySummary.Totals salesTotals(java.time.LocalDate from, java.time.LocalDate to) {
+        long t0 = Metrics.start();
+        File dir = file(SALES_DIR);
+        long first = from == null ? Long.MIN_VALUE : from.toEpochDay();
+        long last = to == null ? Long.MAX_VALUE : to.toEpochDay();
+        List<ReceiptArchive.DayFile> days = ReceiptArchive.dayFiles(dir, "sales_");
+        List<DaySummary> summaries = days.parallelStream()
+                .map(f -> DaySummary.of(dir, f))
+                .collect(java.util.stream.Collectors.toList());
+        boolean[] shared = overlappingIdRanges(summaries);
+
+        DaySummary.Totals totals = new DaySummary.Totals();
+        List<ReceiptArchive.DayFile> toRead = new ArrayList<>();
+        for (int i = 0; i < days.size(); i++) {
+            DaySummary s = summaries.get(i);
+            if (from != null && !s.overlaps(first, last))
+                continue; // nothing in range
+            if (!shared[i] && !mayBeEdited(days.get(i)) && s.within(first, last))
+                totals.add(s);
+            else
+                toRead.add(days.get(i));
+        }
+        for (Transaction t : parseSalesDays(toRead)) {
+            if (from == null || (t.hasDate() && t.getEpochDay() >= first && t.getEpochDay() <= last))
+                totals.add(t);
+        }
+        totals.daysRead = toRead.size();
+        Metrics.stop("DataLoader.salesTotals", t0);
+        return totals;
+    }
+
+    // Marks the days whose [smallest, largest] Transaction ID overlaps another day's
+    private static boolean[] overlappingIdRanges(List<DaySummary> summaries) {
+        boolean[] shared = new boolean[summaries.size()];
+        Integer[] order = new Integer[summaries.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            if (!summaries.get(i).isComplete())
+                shared[i] = true;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> summaries.get(i).minId));
+        long reach = Long.MIN_VALUE; // largest ID seen so far
+        int reachOwner = -1;
+        for (int i : order) {
+            DaySummary s = summaries.get(i);
+            if (s.sales == 0)
+                continue;
+            if (s.minId <= reach) {
+                shared[i] = true;
+                shared[reachOwner] = true;
+            }
+            if (s.maxId > reach) {
+                reach = s.maxId;
+                reachOwner = i;
+            }
+        }
+        return shared;
+    }
+
+    // Could a logged edit (SalesAmendments) change what this day file says?
+    private boolean mayBeEdited(ReceiptArchive.DayFile f) {
+        if (salesAmendments.isEmpty())
+            return false;
+        // Edits are logged under the day file's date; a file with an odd name is always read
+        return salesAmendments.hasEditsOn(f.date()) || Transaction.parseEpochDay(f.date()) == Transaction.NO_DATE;
+    }
+
+    // Reads ONE day of sales receipts (Used by parseSalesDays)
+    private List<Transaction> parseSalesDay(ReceiptArchive.DayFile f) {
+        List<Transaction> transactions = new ArrayList<>();
+        try (BufferedReader br = f.open()) {
+            // Edited sales: each line comes back with its newest value
+            parseSales(br, salesAmendments.overlay(f.name), f.name, null, transactions);
+        } catch (IOException e) {
+            // The file stopped being readable: keep what was read before
+            System.out.println("Error parsing receipt " + f.name + ": " + e.getMessage());
+        }
+        return transactions;
+    }
+
+    // Sales receipts that arrived some other way than a day file (see ReplicationHub.java)
+    public static List<Transaction> parseSalesText(String receipts, String source) {
+        List<Transaction> transactions = new ArrayList<>();
+        try {
+            parseSales(new BufferedReader(new StringReader(receipts)), null, source, null, transactions);
+        } catch (IOException e) {
+            // (a String can't fail to read)
+        }
+        return transactions;
+    }
+
+    // The receipt parser itself, adding every sale it finds to 'into'.
+    // 'overlay' lays logged edits over the lines, 'eachLine' sees every line as read (both may be null).
+    // The ONE parser for sales receipts: DaySummary builds its summaries with it too.
+    static void parseSales(BufferedReader br, SalesAmendments.Overlay overlay, String source,
+            java.util.function.Consumer<String> eachLine, List<Transaction> into) throws IOException {
+        String line;
+        // Buffer variables to hold data as we read line-by-line
+        String id = "", date = "", time = "", cust = "", model = "", empId = "N/A";
+        long amtCents = 0; // money in cents (see Money.java)
+        int qty = 0;
+        int receiptNo = 0; // position in this file, only used for receipts without an ID
+        boolean damaged = false; // a line of this receipt could not be read: skip just this receipt
+
+        while ((line = br.readLine()) != null) {
+            if (eachLine != null)
+                eachLine.accept(line);
+            if (overlay != null)
+                line = overlay.apply(line);
+
+            // TRIGGER: End of an Item Block
+            // The receipt uses a long dashed line to separate items or end the receipt.
+            // We check length > 40 to distinguish from shorter separators.
+            if (line.startsWith("----------------") && line.length() > 40) {
+                // If we successfully collected a Model name, this block is valid.
+                if (!model.isEmpty() && !damaged) {
+                    // Old receipts have no ID line: give them a stable one
+                    if (id.isEmpty())
+                        id = Long.toString(IdGenerator.legacyId(Transaction.parseEpochDay(date),
+                                StockMovement.parseMinuteOfDay(time), receiptNo, source));
+                    // The outlet is part of the ID (old receipts default to C60 like before)
+                    String outlet = IdGenerator.outletOf(id);
+                    if (outlet.isEmpty() || outlet.equals(StockMovement.HQ))
+                        outlet = "C60";
+                    // Create the Transaction object and save it to our list
+                    into.add(new Transaction(id,
+                            "SALE", date, time, empId, outlet, model, qty, amtCents, cust));
+                }
+                // Reset item-specific fields for the next item in the loop
+                // (Date/Time/Cust usually stay same for the whole receipt)
+                receiptNo++;
+                id = "";
+                model = "";
+                amtCents = 0;
+                qty = 0;
+                cust = "";
+                damaged = false;
+                continue;
+            }
+
+            try {
+                // PARSING LOGIC: We look for "Keys" in the text file.
+                // If line is "Date: 2023-10-25", we split by ": " and take the second part.
+                if (line.startsWith(FileFormats.TRANSACTION_ID))
+                    id = line.substring(FileFormats.TRANSACTION_ID.length()).trim();
+                else if (line.contains("Date: "))
+                    date = line.split(": ")[1].trim();
+                else if (line.contains("Time: "))
+                    time = line.split(": ")[1].trim();
+
+                // Capture Employee ID so we can filter by staff later
+                else if (line.contains("Employee: "))
+                    empId = line.split(": ")[1].trim();
+
+                else if (line.contains("Customer Name: "))
+                    cust = line.split(": ")[1].trim();
+                else if (line.contains("Model: "))
+                    model = line.split(": ")[1].trim();
+                else if (line.contains("Quantity: "))
+                    qty = Integer.parseInt(line.split(": ")[1].trim()); // Convert text "5" to int 5
+                else if (line.contains("Subtotal: RM")) {
+                    // Extract money amount (everything after "RM"), straight into cents
+                    amtCents = Money.parse(line, line.indexOf("RM") + 2, line.length());
+                }
+            } catch (RuntimeException e) {
+                // A damaged receipt: the ones before and after it are still read
+                if (!damaged)
+                    System.out.println("Skipping damaged receipt #" + (receiptNo + 1) + " in " + source + ": " + e.getMessage());
+                damaged = true;
+            }
+        }
+    }
+
+    // --- FIND A SALE BY ID ---
+    // Builds a lookup table once, so finding a sale by its Transaction ID is instant
+    // instead of a scan through every receipt.
+    public static Map<String, Transaction> indexById(List<Transaction> transactions) {
+        Map<String, Transaction> index = new HashMap<>(transactions.size() * 2);
+        for (Transaction t : transactions)
+            index.putIfAbsent(t.getTransactionId(), t);
+        return index;
+    }
+
+    // --- LOAD STOCK MOVEMENTS (PARSER) ---
+    // ** USED BY STOCKLEDGER **
+    // Reads every StockReceipt file (transfers) and every SalesReceipt file (items sold)
+    // and returns one StockMovement per model line, oldest first.
+    // Sales count too, because a sale takes stock out of the seller's outlet.
+    public List<StockMovement> loadStockMovements() {
+        long t0 = Metrics.start();
+        List<StockMovement> movements = new ArrayList<>();
+
+        // Sales receipts only store the Employee ID, so we look up which outlet they work at
+        Map<String, String> outletOfEmployee = new HashMap<>();
+        for (employee e : loadEmployee().values())
+            outletOfEmployee.put(e.getID(), e.getOutlet());
+
+        // File names contain the date (receipts_2026-01-31.txt), so sorting by name = sorting by date.
+        // Every day (plain or archived, see ReceiptArchive.java) is parsed in parallel, then the
+        // results are walked in file order so 'seenIds' keeps the first copy of a receipt
+        // that was written twice (same Transaction ID and the same lines). A different receipt
+        // that happens to have an ID we already saw is kept too.
+        List<java.util.function.Supplier<List<ReceiptMovements>>> days = new ArrayList<>();
+        for (ReceiptArchive.DayFile f : ReceiptArchive.dayFiles(file(STOCK_DIR), "receipts_"))
+            days.add(() -> parseStockReceipts(f));
+        for (ReceiptArchive.DayFile f : ReceiptArchive.dayFiles(file(SALES_DIR), "sales_"))
+            days.add(() -> parseSaleItems(f, outletOfEmployee));
+        List<List<ReceiptMovements>> perDay = days.parallelStream()
+                .map(java.util.function.Supplier::get)
+                .collect(java.util.stream.Collectors.toList());
+
+        Map<String, ReceiptMovements> seenIds = new HashMap<>();
+        for (List<ReceiptMovements> day : perDay) {
+            for (ReceiptMovements r : day) {
+                ReceiptMovements first = r.id.isEmpty() ? null : seenIds.putIfAbsent(r.id, r);
+                if (first != null && first.sameAs(r)) {
+                    Metrics.count("DataLoader.duplicateReceipts");
+                    continue;
+                }
+                if (first != null) {
+                    System.out.println("Two different receipts share Transaction ID " + r.id + ", keeping both");
+                    Metrics.count("DataLoader.idClashes");
+                }
+                movements.addAll(r.movements);
+            }
+        }
+
+        // Receipts from different files interleave during the day, so put everything in time order.
+        // (The sort is stable, so lines written in the same minute keep their file order.)
+        movements.sort(Comparator.comparingLong(StockMovement::getTimeKey));
+        Metrics.stop("DataLoader.loadStockMovements", t0);
+        Metrics.count("DataLoader.loadStockMovements.rows", movements.size());
+        return movements;
+    }
+
+    // The movements of one receipt, and its Transaction ID ("" for old receipts without one)
+    private static class ReceiptMovements {
+        final String id;
+        final List<StockMovement> movements = new ArrayList<>();
+
+        ReceiptMovements(String id) {
+            this.id = id;
+        }
+
+        // True if 'other' is a second copy of this receipt (the same movements, line by line)
+        boolean sameAs(ReceiptMovements other) {
+            if (movements.size() != other.movements.size())
+                return false;
+            for (int i = 0; i < movements.size(); i++) {
+                StockMovement a = movements.get(i), b = other.movements.get(i);
+                if (!a.getType().equals(b.getType()) || a.getTimeKey() != b.getTimeKey()
+                        || !a.getFrom().equals(b.getFrom()) || !a.getTo().equals(b.getTo())
+                        || !a.getModelName().equals(b.getModelName()) || a.getQuantity() != b.getQuantity()
+                        || !Objects.equals(a.getEmployee(), b.getEmployee()))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    // One "=== Stock In ===" block -> one movement per "    - Model (Quantity: n)" line.
+    // The employee's name comes after the item lines, so items wait in a small list until the block ends.
+    // A receipt with a line that can't be read is skipped on its own (the rest of the day still counts).
+    private List<ReceiptMovements> parseStockReceipts(ReceiptArchive.DayFile f) {
+        List<ReceiptMovements> out = new ArrayList<>();
+        try (BufferedReader br = f.open()) {
+            String line;
+            String id = "", type = "", from = "", to = "", employeeName = "";
+            java.time.LocalDate date = null;
+            int minute = 0;
+            boolean damaged = false;
+            List<String> models = new ArrayList<>();
+            List<Integer> quantities = new ArrayList<>();
+
+            while ((line = br.readLine()) != null) {
+                if (line.startsWith("=== ")) {
+                    // A new receipt: nothing carries over from the one before
+                    type = line.substring(4, line.length() - 4).trim(); // "=== Stock In ===" -> "Stock In"
+                    models.clear();
+                    quantities.clear();
+                    employeeName = "";
+                    id = "";
+                    from = "";
+                    to = "";
+                    date = null;
+                    minute = 0;
+                    damaged = false;
+                } else if (line.startsWith("----------------") && line.length() > 40) {
+                    if (date != null && !damaged) {
+                        ReceiptMovements r = new ReceiptMovements(id);
+                        for (int i = 0; i < models.size(); i++)
+                            r.movements.add(new StockMovement(type, date, minute, from, to, models.get(i),
+                                    quantities.get(i), employeeName));
+                        out.add(r);
+                    }
+                    models.clear();
+                    quantities.clear();
+                    damaged = false;
+                } else {
+                    try {
+                        if (line.startsWith(FileFormats.TRANSACTION_ID))
+                            id = line.substring(FileFormats.TRANSACTION_ID.length()).trim();
+                        else if (line.startsWith("Date: "))
+                            date = java.time.LocalDate.parse(line.substring(6).trim());
+                        else if (line.startsWith("Time: "))
+                            minute = StockMovement.parseMinuteOfDay(line.substring(6));
+                        else if (line.startsWith("From: "))
+                            from = StockMovement.placeCode(line.substring(6));
+                        else if (line.startsWith("To: "))
+                            to = StockMovement.placeCode(line.substring(4));
+                        else if (line.startsWith("    - ") && line.endsWith(")")) {
+                            // "    - DW2300-1 (Quantity: 5)"
+                            int open = line.lastIndexOf(" (Quantity: ");
+                            if (open > 6) {
+                                int qty = Integer.parseInt(line.substring(open + 12, line.length() - 1).trim());
+                                models.add(line.substring(6, open).trim());
+                                quantities.add(qty);
+                            }
+                        } else if (line.startsWith("Name of Employee in Charge: "))
+                            employeeName = line.substring(28).trim();
+                    } catch (RuntimeException e) {
+                        if (!damaged)
+                            System.out.println("Skipping damaged stock receipt in " + f.name + ": " + e.getMessage());
+                        damaged = true;
                     }
+                }
+            }
+        } catch (IOException e) {
+            // The file stopped being readable: keep what was read before
+            System.out.println("Error parsing stock receipt " + f.name + ": " + e.getMessage());
+        }
+        return out;
+    }
+
+    // One sales receipt -> one movement per "Model:" / "Quantity:" item, from the seller's outlet to the customer.
+    // Like parseSales, a receipt with a line that can't be read is skipped on its own.
+    private List<ReceiptMovements> parseSaleItems(ReceiptArchive.DayFile f, Map<String, String> outletOfEmployee) {
+        List<ReceiptMovements> out = new ArrayList<>();
+        try (BufferedReader br = f.open()) {
+            String line;
+            String empId = "N/A", model = "", idOutlet = "";
+            ReceiptMovements receipt = new ReceiptMovements("");
+            java.time.LocalDate date = null;
+            int minute = 0;
+            boolean damaged = false;
+            SalesAmendments.Overlay overlay = salesAmendments.overlay(f.name);
 
-                    // TRIGGER: End of an Item Block
-                    // The receipt uses a long dashed line to separate items or end the receipt.
-                    // We check length > 40 to distinguish from shorter separators.
-                    else if (line.startsWith("----------------") && line.length() > 40) {
-                        // If we successfully collected a Model name, this block is valid.
-                        if (!model.isEmpty()) {
-                            // Create the Transaction object and save it to our list
-                            transactions.add(new Transaction("",
-                                    "SALE", date, time, empId, "C60", model, qty, amt, cust));
+            while ((line = br.readLine()) != null) {
+                line = overlay.apply(line);
+                if (line.startsWith("=== ")) {
+                    // A new receipt: its date and time must not come from the one before
+                    date = null;
+                    minute = 0;
+                    empId = "N/A";
+                    model = "";
+                } else if (line.startsWith("----------------") && line.length() > 40) {
+                    if (!damaged)
+                        out.add(receipt); // end of this receipt
+                    receipt = new ReceiptMovements("");
+                    idOutlet = "";
+                    damaged = false;
+                } else {
+                    try {
+                        if (line.startsWith(FileFormats.TRANSACTION_ID)) {
+                            String id = line.substring(FileFormats.TRANSACTION_ID.length()).trim();
+                            receipt = new ReceiptMovements(id);
+                            idOutlet = IdGenerator.outletOf(id);
+                        } else if (line.startsWith("Date: "))
+                            date = java.time.LocalDate.parse(line.substring(6).trim());
+                        else if (line.startsWith("Time: "))
+                            minute = StockMovement.parseMinuteOfDay(line.substring(6));
+                        else if (line.startsWith("Employee: "))
+                            empId = line.substring(10).trim();
+                        else if (line.startsWith("Model: "))
+                            model = line.substring(7).trim();
+                        else if (line.startsWith("Quantity: ") && !model.isEmpty() && date != null) {
+                            // The ID says which outlet sold it; old receipts fall back to the seller's outlet
+                            // (same default as SalesPanel when the seller has no outlet on file)
+                            String outlet = !idOutlet.isEmpty() && !idOutlet.equals(StockMovement.HQ) ? idOutlet
+                                    : outletOfEmployee.getOrDefault(empId, "C60");
+                            receipt.movements.add(new StockMovement("Sale", date, minute, outlet, StockMovement.CUSTOMER,
+                                    model, Integer.parseInt(line.substring(10).trim()), empId));
+                            model = "";
                         }
-                        // Reset item-specific fields for the next item in the loop
-                        // (Date/Time/Cust usually stay same for the whole receipt)
-                        model = "";
-                        amt = 0;
-                        qty = 0;
-                        cust = "";
+                    } catch (RuntimeException e) {
+                        if (!damaged)
+                            System.out.println("Skipping damaged receipt in " + f.name + ": " + e.getMessage());
+                        damaged = true;
                     }
                 }
-            } catch (Exception e) {
-                System.out.println("Error parsing receipt " + f.getName() + ": " + e.getMessage());
             }
+            if (!damaged)
+                out.add(receipt); // items after the last dashed line (if any)
+        } catch (IOException e) {
+            // The file stopped being readable: keep what was read before
+            System.out.println("Error parsing receipt " + f.name + ": " + e.getMessage());
         }
-        return transactions;
+        return out;
     }
 
     // --- ATTENDANCE: CLOCK IN ---
     // ** USED BY ATTENDANCETAB **
     public String clockIn(String empId) {
+        long t0 = Metrics.start();
+        String result = clockInFromFiles(empId);
+        Metrics.stop("DataLoader.clockIn", t0);
+        return result;
+    }
+
+    private String clockInFromFiles(String empId) {
         String date = java.time.LocalDate.now().toString();
-        String time = java.time.LocalTime.now().format(java.time.format.DateTimeFormatter.ofPattern("hh:mm a"));
+        String time = java.time.LocalTime.now().format(FileFormats.TIME_FORMAT);
         
         // CHECK DUPLICATES: Read file first to see if they already clocked in.
-        List<String[]> lines = readCSV(ATTENDANCE_FILE);
+        List<String[]> lines = readCSV(file(ATTENDANCE_FILE));
         for (String[] row : lines) {
             // Logic: ID matches AND Date matches AND ClockOut column is empty/missing
             if (row.length > 0 && row[0].equals(empId) && row[1].equals(date) && (row.length < 4 || row[3].isEmpty())) {
@@ -256,10 +814,12 @@ public class DataLoader {
         }
         
         // APPEND: Open file in "Append Mode" (true) to add to the end
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(ATTENDANCE_FILE, true))) {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file(ATTENDANCE_FILE), true))) {
             // Write: ID,Date,Time,, (Empty comma at end implies no clock out yet)
-            bw.write(empId + "," + date + "," + time + ",,"); 
+            bw.write(FileFormats.attendanceClockIn(empId, date, time));
             bw.newLine();
+            if (outbox != null)
+                outbox.append(ReplicationEvent.clockIn(empId, date, time));
             return "Clock In Successful!\nDate: " + date + "\nTime: " + time;
         } catch (IOException e) {
             return "Error: " + e.getMessage();
@@ -271,16 +831,24 @@ public class DataLoader {
     // This is harder because we can't just "edit" a text file line.
     // We have to: Read ALL lines -> Modify the specific line -> Rewrite the WHOLE file.
     public String clockOut(String empId) {
+        long t0 = Metrics.start();
+        String result = clockOutFromFiles(empId);
+        Metrics.stop("DataLoader.clockOut", t0);
+        return result;
+    }
+
+    private String clockOutFromFiles(String empId) {
         String date = java.time.LocalDate.now().toString();
-        String time = java.time.LocalTime.now().format(java.time.format.DateTimeFormatter.ofPattern("hh:mm a"));
+        String time = java.time.LocalTime.now().format(FileFormats.TIME_FORMAT);
         
-        List<String[]> lines = readCSV(ATTENDANCE_FILE);
+        List<String[]> lines = readCSV(file(ATTENDANCE_FILE));
         boolean found = false;
         String result = "";
+        long workedMinutes = -1;
         
         // List to hold the new file content
         List<String> newLines = new ArrayList<>();
-        newLines.add("EmployeeID,Date,ClockInTime,ClockOutTime,TotalHours"); // Re-add Header
+        newLines.add(FileFormats.ATTENDANCE_HEADER); // Re-add Header
 
         for (int i = 1; i < lines.size(); i++) {
             String[] row = lines.get(i);
@@ -291,15 +859,16 @@ public class DataLoader {
                 found = true;
                 try {
                     // MATH: Calculate hours worked
-                    java.time.format.DateTimeFormatter fmt = java.time.format.DateTimeFormatter.ofPattern("hh:mm a");
+                    java.time.format.DateTimeFormatter fmt = FileFormats.TIME_FORMAT;
                     java.time.LocalTime inTime = java.time.LocalTime.parse(row[2], fmt);
                     java.time.LocalTime outTime = java.time.LocalTime.parse(time, fmt);
                     
                     long minutes = java.time.temporal.ChronoUnit.MINUTES.between(inTime, outTime);
-                    String totalHours = String.format("%.1f hours", minutes / 60.0);
+                    String totalHours = FileFormats.totalHours(minutes);
                     
                     // UPDATE: Reconstruct the line with ClockOut Time and Total Hours
-                    newLines.add(row[0] + "," + row[1] + "," + row[2] + "," + time + "," + totalHours);
+                    newLines.add(FileFormats.attendanceClosed(row[0], row[1], row[2], time, minutes));
+                    workedMinutes = minutes;
                     
                     result = "Clock Out Successful!\nDate: " + date + "\nTime: " + time + "\nTotal Hours: " + totalHours;
                 } catch (Exception e) {
@@ -317,17 +886,19 @@ public class DataLoader {
             return "Error: You have not clocked in today!";
             
         // REWRITE: Save the modified list back to the file (overwrite mode)
-        try (PrintWriter pw = new PrintWriter(new FileWriter(ATTENDANCE_FILE))) {
+        try (PrintWriter pw = new PrintWriter(new FileWriter(file(ATTENDANCE_FILE)))) {
             for (String line : newLines)
                 pw.println(line);
         } catch (IOException e) {
             return "Error writing file: " + e.getMessage();
         }
+        if (outbox != null && workedMinutes >= 0)
+            outbox.append(ReplicationEvent.clockOut(empId, date, time, workedMinutes));
         return result;
     }
 
     // Helper: Reads CSV into a List of String arrays
-    private List<String[]> readCSV(String file) {
+    private List<String[]> readCSV(File file) {
         List<String[]> lines = new ArrayList<>();
         try (BufferedReader br = new BufferedReader(new FileReader(file))) {
             String line;
@@ -340,107 +911,257 @@ public class DataLoader {
     }
 
     // --- LOGGING ---
+    // Receipts go through one long-lived writer per folder (see ReceiptAppender.java), which
+    // keeps today's file open, batches receipts from several tills into one disk write,
+    // creates the folder if it's missing and moves on to the next day's file at midnight.
+
     // Appends text to daily log files (Used by StockInOutTab)
     public void appendReceipt(String content) {
-        String directoryName = "StockReceipt";
-        File directory = new File(directoryName);
-        if (!directory.exists())
-            directory.mkdir(); // Auto-create folder if it's missing
-            
-        String date = java.time.LocalDate.now().toString();
-        String filename = directoryName + File.separator + "receipts_" + date + ".txt";
-        
-        // 'true' means append mode (don't delete existing content)
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename, true))) {
-            bw.write(content);
-            bw.newLine();
-            bw.write("--------------------------------------------------"); // Visual Separator
-            bw.newLine();
+        long t0 = Metrics.start();
+        try {
+            ReceiptAppender.forDir(file(STOCK_DIR), "receipts_").append(content);
         } catch (IOException e) {
             System.out.println("Error saving receipt: " + e.getMessage());
         }
+        Metrics.stop("DataLoader.appendReceipt", t0);
+    }
+
+    // Appends many stock receipts with ONE file open (Used by BatchCli bulk imports)
+    public void appendReceipts(List<String> contents) {
+        long t0 = Metrics.start();
+        try {
+            ReceiptAppender.forDir(file(STOCK_DIR), "receipts_").appendAll(contents);
+        } catch (IOException e) {
+            System.out.println("Error saving receipts: " + e.getMessage());
+        }
+        Metrics.stop("DataLoader.appendReceipts", t0);
     }
 
     // Appends text to sales logs (Used by SalesPanel)
     public void appendSalesReceipt(String content) {
-        String directoryName = "SalesReceipt";
-        File directory = new File(directoryName);
+        long t0 = Metrics.start();
+        try {
+            ReceiptAppender.forDir(file(SALES_DIR), "sales_").append(content);
+            if (outbox != null)
+                outbox.append(ReplicationEvent.sale(content));
+        } catch (IOException e) {
+            System.out.println("Error saving sales receipt: " + e.getMessage());
+        }
+        Metrics.stop("DataLoader.appendSalesReceipt", t0);
+    }
+
+    // Saves a stock count variance report (Used by StockCountEngine). Returns the file written.
+    public File saveStockCountReport(String fileName, String content) {
+        File directory = file(COUNT_REPORT_DIR);
         if (!directory.exists())
             directory.mkdir();
-            
-        String date = java.time.LocalDate.now().toString();
-        String filename = directoryName + File.separator + "sales_" + date + ".txt";
-        
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename, true))) {
+        File report = new File(directory, fileName);
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(report))) {
             bw.write(content);
-            bw.newLine();
-            bw.write("--------------------------------------------------");
-            bw.newLine();
         } catch (IOException e) {
-            System.out.println("Error saving sales receipt: " + e.getMessage());
+            System.out.println("Error saving stock count report: " + e.getMessage());
+        }
+        return report;
+    }
+
+    // --- EDITING PAST SALES ---
+    // ** USED BY EDITTAB **
+    // Finds one receipt in a day file by Transaction ID or customer name using the
+    // ReceiptIndex (byte positions), so we never read the whole day to find one sale.
+    public ReceiptIndex.Block findSalesReceipt(String date, String customerOrId) throws IOException {
+        File day = new File(file(SALES_DIR), "sales_" + date + ".txt");
+        if (!day.exists())
+            return null;
+        ReceiptIndex index = ReceiptIndex.of(day);
+        ReceiptIndex.Block byId = index.findById(customerOrId);
+        if (byId != null)
+            return byId;
+        if (salesAmendments.isEmpty())
+            return index.findByCustomer(customerOrId);
+        // Some names were edited: compare against the newest name of each sale
+        for (ReceiptIndex.Block b : index.blocks()) {
+            String[] values = salesAmendments.valuesFor(b.id);
+            String name = values != null && values[0] != null ? values[0] : b.customer;
+            if (name.contains(customerOrId))
+                return b;
         }
+        return null;
+    }
+
+    // The lines of one receipt (only its bytes are read), with any edits applied
+    public List<String> readSalesReceipt(String date, ReceiptIndex.Block block) throws IOException {
+        File day = new File(file(SALES_DIR), "sales_" + date + ".txt");
+        String[] values = salesAmendments.valuesFor(block.id);
+        List<String> lines = ReceiptIndex.of(day).readLines(block);
+        for (int i = 0; i < lines.size(); i++)
+            lines.set(i, SalesAmendments.apply(lines.get(i), values));
+        return lines;
+    }
+
+    // Records an edit as one line in the amendment log (the day file is not rewritten)
+    public void amendSale(String date, String transactionId, String field, String newValue) throws IOException {
+        long t0 = Metrics.start();
+        salesAmendments.amend(date, transactionId, field, newValue);
+        Metrics.stop("DataLoader.amendSale", t0);
+    }
+
+    // Writes all logged edits into the day files and clears the log (Used by BatchCli compact)
+    public int compactSalesAmendments() throws IOException {
+        return salesAmendments.compact();
+    }
+
+    // --- ARCHIVING OLD RECEIPTS ---
+    // ** USED BY BATCHCLI archive **
+    // Compresses sales and stock day files older than 'olderThanDays' into monthly bundles
+    // (see ReceiptArchive.java). The loaders and the search keep reading them as before;
+    // only the EDIT tab can no longer change an archived day.
+    public String archiveReceipts(int olderThanDays) throws IOException {
+        if (olderThanDays < 1)
+            throw new IllegalArgumentException("Only days before yesterday can be archived (use 1 or more)");
+        java.time.LocalDate before = java.time.LocalDate.now().minusDays(olderThanDays);
+        long salesBytes = folderSize(file(SALES_DIR)), stockBytes = folderSize(file(STOCK_DIR));
+        int sales = ReceiptArchive.archive(file(SALES_DIR), "sales_", before, salesAmendments);
+        int stock = ReceiptArchive.archive(file(STOCK_DIR), "receipts_", before, null);
+        long savedKb = (salesBytes + stockBytes - folderSize(file(SALES_DIR)) - folderSize(file(STOCK_DIR))) / 1024;
+        return "Archived " + sales + " sales day(s) and " + stock + " stock day(s) dated before " + before
+                + " (" + savedKb + " KB saved).";
+    }
+
+    // Bytes used by a receipt folder, including its archive
+    private static long folderSize(File dir) {
+        long total = 0;
+        File[] files = dir.listFiles();
+        if (files != null)
+            for (File f : files)
+                total += f.isDirectory() ? folderSize(f) : f.length();
+        return total;
+    }
+
+    // --- WARM START IMAGE ---
+    // ** USED BY GUI (startup / closing) & BATCHCLI checkpoint **
+    // Saves the parsed catalogues and sales into goldenhour.img (see WarmStartImage.java).
+    // The catalogues are read fresh from the CSV files, so the image holds exactly what a
+    // cold start would load. Stamps are taken BEFORE reading: if a file changes while we
+    // read it, the image is simply out of date next time (never newer than its stamp says).
+    public String saveWarmStart() throws IOException {
+        long t0 = Metrics.start();
+        String catalogueStamp = catalogueFingerprint();
+        String salesStamp = salesFingerprint();
+        Map<String, employee> employees = loadEmployee();
+        Map<String, String> outlets = loadOutlets();
+        Map<String, Model> models = loadModels();
+        List<Transaction> transactions = loadTransactions(); // parses only if the cache is out of date
+        File img = file(WarmStartImage.FILE_NAME);
+        WarmStartImage.write(img, catalogueStamp, employees, outlets, models, salesStamp, transactions);
+        Metrics.stop("DataLoader.saveWarmStart", t0);
+        return "Saved " + img.getName() + ": " + employees.size() + " employee(s), " + models.size() + " model(s), "
+                + transactions.size() + " sale(s), " + img.length() / 1024 + " KB.";
+    }
+
+    // Reads goldenhour.img. Returns null if there is none (or it is damaged); if the CSV files
+    // changed since, its catalogue is left out (load them from the files as before).
+    // Its sales are checked and decoded on a background thread straight into the cache above,
+    // so the first loadTransactions() parses nothing (it waits for the decoding if needed).
+    public WarmStartImage loadWarmStart() {
+        long t0 = Metrics.start();
+        WarmStartImage image = WarmStartImage.read(file(WarmStartImage.FILE_NAME), catalogueFingerprint());
+        if (image != null)
+            salesCache = new SalesCache(image.salesStamp, java.util.concurrent.CompletableFuture.supplyAsync(
+                    () -> image.salesStamp.equals(salesFingerprint())
+                            ? Collections.unmodifiableList(image.readTransactions()) : null));
+        Metrics.stop("DataLoader.loadWarmStart", t0);
+        return image;
+    }
+
+    // Size + time of the three CSV files (changes whenever one of them is saved)
+    private String catalogueFingerprint() {
+        StringBuilder sb = new StringBuilder();
+        for (String name : new String[] { EMPLOYEE_FILE, OUTLET_FILE, MODEL_FILE }) {
+            File f = file(name);
+            sb.append(name).append('=').append(f.length()).append(':').append(f.lastModified()).append(';');
+        }
+        return sb.toString();
     }
 
     // --- SEARCH ---
     // ** USED BY SEARCHPANEL **
     // Scans all text files for a specific keyword (like a Customer Name or ID)
     public String searchSalesReceipts(String keyword) {
-        File dir = new File("SalesReceipt");
+        long t0 = Metrics.start();
+        String results = searchSalesReceiptsFromFiles(keyword);
+        Metrics.stop("DataLoader.searchSalesReceipts", t0);
+        return results;
+    }
+
+    private String searchSalesReceiptsFromFiles(String keyword) {
+        File dir = file(SALES_DIR);
         if (!dir.exists() || !dir.isDirectory())
             return "No records found.";
             
-        File[] files = dir.listFiles((d, name) -> name.endsWith(".txt"));
-        if (files == null || files.length == 0)
+        List<ReceiptArchive.DayFile> files = ReceiptArchive.dayFiles(dir, "sales_");
+        if (files.isEmpty())
             return "No records found.";
 
-        StringBuilder results = new StringBuilder();
-        int matches = 0;
         String lowerKey = keyword.toLowerCase(); // Case-insensitive search
 
-        for (File f : files) {
-            try (BufferedReader br = new BufferedReader(new FileReader(f))) {
-                String line;
-                // Buffer: We store lines of a single receipt here temporarily.
-                List<String> block = new ArrayList<>();
-                boolean blockHasMatch = false;
-
-                // Read file line by line
-                while ((line = br.readLine()) != null) {
-                    // Logic: Receipts are separated by "===". 
-                    // When we hit a separator, we check if the previous block had the keyword.
-                    if (line.startsWith("===") && !block.isEmpty()) {
-                        if (blockHasMatch) {
-                            // If yes, add the whole block to final results
-                            for (String l : block)
-                                results.append(l).append("\n");
-                            results.append("--------------------\n");
-                            matches++;
-                        }
-                        // Reset for next receipt
-                        block.clear();
-                        blockHasMatch = false;
+        // Each day (plain or archived) is searched in parallel; the answers are joined in date order.
+        // A day whose summary says the text cannot be in it (see DaySummary.mightContain) is skipped.
+        List<StringBuilder> perDay = files.parallelStream()
+                .map(f -> mayBeEdited(f) || DaySummary.of(dir, f).mightContain(lowerKey) ? searchSalesDay(f, lowerKey)
+                        : new StringBuilder())
+                .collect(java.util.stream.Collectors.toList());
+        StringBuilder results = new StringBuilder();
+        for (StringBuilder day : perDay)
+            results.append(day);
+        return results.length() == 0 ? "No matches found." : results.toString();
+    }
+
+    // The matching receipts of ONE day, already formatted (empty if none)
+    private StringBuilder searchSalesDay(ReceiptArchive.DayFile f, String lowerKey) {
+        StringBuilder results = new StringBuilder();
+        try (BufferedReader br = f.open()) {
+            String line;
+            // Buffer: We store lines of a single receipt here temporarily.
+            List<String> block = new ArrayList<>();
+            boolean blockHasMatch = false;
+
+            SalesAmendments.Overlay overlay = salesAmendments.overlay(f.name); // show edited values
+
+            // Read file line by line
+            while ((line = br.readLine()) != null) {
+                line = overlay.apply(line);
+                // Logic: Receipts are separated by "===". 
+                // When we hit a separator, we check if the previous block had the keyword.
+                if (line.startsWith("===") && !block.isEmpty()) {
+                    if (blockHasMatch) {
+                        // If yes, add the whole block to final results
+                        for (String l : block)
+                            results.append(l).append("\n");
+                        results.append("--------------------\n");
                     }
-                    
-                    // Add current line to buffer
-                    block.add(line);
-                    
-                    // Check if this specific line contains the keyword
-                    if (line.toLowerCase().contains(lowerKey))
-                        blockHasMatch = true;
+                    // Reset for next receipt
+                    block.clear();
+                    blockHasMatch = false;
                 }
                 
-                // FINAL CHECK: The loop ends before processing the very last block.
-                // We must check the buffer one last time.
-                if (blockHasMatch) {
-                    for (String l : block)
-                        results.append(l).append("\n");
-                    results.append("--------------------\n");
-                    matches++;
-                }
-            } catch (IOException e) {
-                // Ignore read errors for individual files
+                // Add current line to buffer
+                block.add(line);
+                
+                // Check if this specific line contains the keyword
+                if (line.toLowerCase().contains(lowerKey))
+                    blockHasMatch = true;
             }
+            
+            // FINAL CHECK: The loop ends before processing the very last block.
+            // We must check the buffer one last time.
+            if (blockHasMatch) {
+                for (String l : block)
+                    results.append(l).append("\n");
+                results.append("--------------------\n");
+            }
+        } catch (IOException e) {
+            // Ignore read errors for individual files
         }
-        return matches == 0 ? "No matches found." : results.toString();
+        return results;
     }
 }
\ No newline at end of file
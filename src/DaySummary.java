@@ -0,0 +1,315 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// A SHORT SUMMARY OF ONE SALES DAY FILE ("ZONE MAP")
+// Most questions only need a few days, or only totals. Instead of opening every day file to
+// find out, we keep a tiny summary next to each one (SalesReceipt/summary/sales_DATE.txt.sum):
+//
+//   - first and last sale time (so a date-range query can skip days that are outside it)
+//   - number of sales, total revenue, units sold per model (totals without reading the receipts)
+//   - which employees and outlets appear, the smallest and largest Transaction ID
+//   - a Bloom filter of every 3-letter piece of text in the file (see mightContain)
+//
+// A summary remembers the size + change time of the file it was made from (the "stamp").
+// If the day file changes (a new sale, a compaction, archiving), the stamp no longer
+// matches and the summary is rebuilt the next time someone asks for it.
+//
+// The sales are read by DataLoader's own receipt parser (so they are exactly the sales the
+// loader returns), but from the file as written: logged edits (SalesAmendments) are NOT
+// included. DataLoader reads an edited day in full instead.
+//
+// ** USED BY DATALOADER (loadTransactions(from, to), salesTotals, search) **
+public class DaySummary {
+
+    public static final String SUMMARY_DIR = "summary";
+
+    // Bloom filter: 65536 bits (8 KB) and 3 bit positions per trigram.
+    // A typical day has a few thousand different trigrams, so a false "maybe" is around 1%.
+    private static final int BLOOM_BITS = 1 << 16;
+    private static final int BLOOM_HASHES = 3;
+
+    // Summaries already read, by summary file path (shared by every DataLoader)
+    private static final Map<String, DaySummary> CACHE = new ConcurrentHashMap<>();
+
+    private String stamp = "";
+    private boolean complete = true;    // false if the day file could not be read to the end
+    public int sales;
+    public int undated;                 // sales whose date could not be read
+    public int firstDay = Integer.MAX_VALUE, lastDay = Integer.MIN_VALUE; // epoch days
+    public int firstMinute, lastMinute; // time of day of the first / last sale
+    public long minId = Long.MAX_VALUE, maxId = Long.MIN_VALUE;
+    public long revenueCents;
+    public final Map<String, Integer> unitsByModel = new HashMap<>();
+    public final Set<String> employees = new TreeSet<>();
+    public final Set<String> outlets = new TreeSet<>();
+    private final long[] bloom = new long[BLOOM_BITS / 64];
+
+    // --- GETTING A SUMMARY ---
+
+    // The up-to-date summary of one sales day (read from disk, or rebuilt if the day changed)
+    public static DaySummary of(File salesDir, ReceiptArchive.DayFile day) {
+        File file = new File(new File(salesDir, SUMMARY_DIR), day.name + ".sum");
+        String stamp = day.stamp();
+        DaySummary cached = CACHE.get(file.getPath());
+        if (cached != null && cached.stamp.equals(stamp))
+            return cached;
+
+        DaySummary summary = read(file);
+        if (summary == null || !summary.stamp.equals(stamp)) {
+            long t0 = Metrics.start();
+            summary = build(day);
+            summary.stamp = stamp;
+            Metrics.stop("DaySummary.build", t0);
+            if (!summary.complete)
+                return summary; // not saved: try again next time
+            summary.write(file);
+        }
+        CACHE.put(file.getPath(), summary);
+        return summary;
+    }
+
+    // --- QUESTIONS A SUMMARY CAN ANSWER ---
+
+    // Could this day have a dated sale between these two epoch days (inclusive)?
+    public boolean overlaps(long fromDay, long toDay) {
+        return !complete || (sales > undated && lastDay >= fromDay && firstDay <= toDay);
+    }
+
+    // Are ALL of this day's sales between these two epoch days?
+    public boolean within(long fromDay, long toDay) {
+        return complete && undated == 0 && (sales == 0 || (firstDay >= fromDay && lastDay <= toDay));
+    }
+
+    // Could a line of this file contain 'lowerText' (already lower case)?
+    // "false" is certain; "true" only means maybe. Text shorter than 3 letters is always a maybe.
+    public boolean mightContain(String lowerText) {
+        if (!complete)
+            return true;
+        for (int i = 0; i + 3 <= lowerText.length(); i++) {
+            if (!bloomHas(lowerText.charAt(i), lowerText.charAt(i + 1), lowerText.charAt(i + 2)))
+                return false;
+        }
+        return true;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    // --- TOTALS OVER MANY DAYS ---
+    // Filled in by DataLoader.salesTotals, partly from summaries and partly from receipts
+    public static class Totals {
+        public long revenueCents;
+        public int sales;
+        public final Map<String, Integer> unitsByModel = new HashMap<>();
+        public int daysFromSummaries;   // how many days were answered without opening them
+        public int daysRead;
+
+        public void add(DaySummary s) {
+            revenueCents += s.revenueCents;
+            sales += s.sales;
+            s.unitsByModel.forEach((model, units) -> unitsByModel.merge(model, units, Integer::sum));
+            daysFromSummaries++;
+        }
+
+        public void add(Transaction t) {
+            revenueCents += t.getTotalCents();
+            sales++;
+            unitsByModel.merge(t.getModelName(), t.getQuantity(), Integer::sum);
+        }
+
+        // Same answer as Analytics.getTopSellingModelForList
+        public String topModel() {
+            return unitsByModel.entrySet().stream().max(Map.Entry.comparingByValue()).map(Map.Entry::getKey)
+                    .orElse("N/A");
+        }
+    }
+
+    // --- BUILDING ---
+
+    // The sales come from DataLoader's own receipt parser, so a summary always counts exactly
+    // the sales the loader would return for this file. The Bloom filter sees every line on the way.
+    private static DaySummary build(ReceiptArchive.DayFile day) {
+        DaySummary s = new DaySummary();
+        List<Transaction> sales = new ArrayList<>();
+        try (BufferedReader br = day.open()) {
+            DataLoader.parseSales(br, null, day.name, line -> s.addTrigrams(line.toLowerCase()), sales);
+        } catch (IOException e) {
+            System.out.println("Error summarising receipt " + day.name + ": " + e.getMessage());
+            s.complete = false;
+        }
+        // Same rule as DataLoader: skip second copies of a sale, keep different sales that share an ID
+        Map<String, Transaction> seenIds = new HashMap<>();
+        for (Transaction t : sales) {
+            Transaction first = seenIds.putIfAbsent(t.getTransactionId(), t);
+            if (first == null || !DataLoader.sameSale(first, t))
+                s.addSale(t);
+        }
+        return s;
+    }
+
+    private void addSale(Transaction t) {
+        int epochDay = t.getEpochDay(), minute = t.getMinuteOfDay();
+        sales++;
+        if (!t.hasDate()) {
+            undated++;
+        } else {
+            long key = (long) epochDay * 1440 + minute;
+            if (key < (long) firstDay * 1440 + firstMinute || firstDay == Integer.MAX_VALUE) {
+                firstDay = epochDay;
+                firstMinute = minute;
+            }
+            if (key > (long) lastDay * 1440 + lastMinute || lastDay == Integer.MIN_VALUE) {
+                lastDay = epochDay;
+                lastMinute = minute;
+            }
+        }
+        long value = IdGenerator.parse(t.getTransactionId());
+        minId = Math.min(minId, value);
+        maxId = Math.max(maxId, value);
+        revenueCents += t.getTotalCents();
+        unitsByModel.merge(t.getModelName(), t.getQuantity(), Integer::sum);
+        employees.add(t.getEmployeeId());
+        outlets.add(t.getOutletCode());
+    }
+
+    // --- BLOOM FILTER ---
+
+    private void addTrigrams(String lower) {
+        for (int i = 0; i + 3 <= lower.length(); i++) {
+            long h = trigramHash(lower.charAt(i), lower.charAt(i + 1), lower.charAt(i + 2));
+            for (int k = 0; k < BLOOM_HASHES; k++) {
+                int bit = bitFor(h, k);
+                bloom[bit >>> 6] |= 1L << bit;
+            }
+        }
+    }
+
+    private boolean bloomHas(char a, char b, char c) {
+        long h = trigramHash(a, b, c);
+        for (int k = 0; k < BLOOM_HASHES; k++) {
+            int bit = bitFor(h, k);
+            if ((bloom[bit >>> 6] & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    private static long trigramHash(char a, char b, char c) {
+        long h = ((long) a << 32 | (long) b << 16 | c) * 0x9E3779B97F4A7C15L; // spread the bits out
+        return h ^ (h >>> 29);
+    }
+
+    // Two halves of one hash give as many bit positions as we need (h1 + k * h2)
+    private static int bitFor(long h, int k) {
+        int h1 = (int) h, h2 = (int) (h >>> 32) | 1;
+        return (h1 + k * h2) & (BLOOM_BITS - 1);
+    }
+
+    // --- THE SIDECAR FILE ---
+    // Plain "key=value" lines, so it can be looked at in a text editor:
+    //   stamp=235012:1760852400000
+    //   sales=480
+    //   units=DW2300-1:12,SW2400-2:7
+    //   bloom=<base64>
+
+    private void write(File file) {
+        File dir = file.getParentFile();
+        if (!dir.exists())
+            dir.mkdirs();
+        StringBuilder units = new StringBuilder();
+        for (Map.Entry<String, Integer> e : unitsByModel.entrySet())
+            units.append(units.length() > 0 ? "," : "").append(e.getKey()).append(':').append(e.getValue());
+        byte[] bloomBytes = new byte[bloom.length * 8];
+        java.nio.ByteBuffer.wrap(bloomBytes).asLongBuffer().put(bloom);
+
+        File tmp = new File(dir, file.getName() + ".tmp." + Thread.currentThread().getId());
+        try (PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(tmp)))) {
+            pw.println("stamp=" + stamp);
+            pw.println("sales=" + sales);
+            pw.println("undated=" + undated);
+            pw.println("first=" + firstDay + ":" + firstMinute);
+            pw.println("last=" + lastDay + ":" + lastMinute);
+            pw.println("ids=" + minId + ":" + maxId);
+            pw.println("revenue=" + revenueCents);
+            pw.println("units=" + units);
+            pw.println("employees=" + String.join(",", employees));
+            pw.println("outlets=" + String.join(",", outlets));
+            pw.println("bloom=" + Base64.getEncoder().encodeToString(bloomBytes));
+        } catch (IOException e) {
+            System.out.println("Error saving day summary " + file.getName() + ": " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            tmp.delete(); // another thread saved the same summary first
+        }
+    }
+
+    // Reads a sidecar file, or null if it is missing or damaged (it will just be rebuilt)
+    private static DaySummary read(File file) {
+        if (!file.exists())
+            return null;
+        DaySummary s = new DaySummary();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                int eq = line.indexOf('=');
+                if (eq < 0)
+                    continue;
+                String key = line.substring(0, eq), value = line.substring(eq + 1);
+                switch (key) {
+                    case "stamp":
+                        s.stamp = value;
+                        break;
+                    case "sales":
+                        s.sales = Integer.parseInt(value);
+                        break;
+                    case "undated":
+                        s.undated = Integer.parseInt(value);
+                        break;
+                    case "first":
+                        s.firstDay = Integer.parseInt(value.substring(0, value.lastIndexOf(':')));
+                        s.firstMinute = Integer.parseInt(value.substring(value.lastIndexOf(':') + 1));
+                        break;
+                    case "last":
+                        s.lastDay = Integer.parseInt(value.substring(0, value.lastIndexOf(':')));
+                        s.lastMinute = Integer.parseInt(value.substring(value.lastIndexOf(':') + 1));
+                        break;
+                    case "ids":
+                        s.minId = Long.parseLong(value.substring(0, value.lastIndexOf(':')));
+                        s.maxId = Long.parseLong(value.substring(value.lastIndexOf(':') + 1));
+                        break;
+                    case "revenue":
+                        s.revenueCents = Long.parseLong(value);
+                        break;
+                    case "units":
+                        for (String pair : value.split(",")) {
+                            int colon = pair.lastIndexOf(':');
+                            if (colon > 0)
+                                s.unitsByModel.put(pair.substring(0, colon), Integer.parseInt(pair.substring(colon + 1)));
+                        }
+                        break;
+                    case "employees":
+                        if (!value.isEmpty())
+                            s.employees.addAll(Arrays.asList(value.split(",")));
+                        break;
+                    case "outlets":
+                        if (!value.isEmpty())
+                            s.outlets.addAll(Arrays.asList(value.split(",")));
+                        break;
+                    case "bloom":
+                        java.nio.ByteBuffer.wrap(Base64.getDecoder().decode(value)).asLongBuffer().get(s.bloom);
+                        break;
+                }
+            }
+        } catch (Exception e) {
+            return null;
+        }
+        return s;
+    }
+}
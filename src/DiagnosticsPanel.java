@@ -0,0 +1,82 @@
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+
+// DIAGNOSTICS TAB (Managers only)
+// Shows the live numbers collected by Metrics.java: how long loads, saves,
+// searches and sales take, and how often they happen.
+// The same text is written to metrics.txt in the background while metrics are on.
+public class DiagnosticsPanel {
+
+    private File metricsFile;
+    private Timer refresh; // polls Metrics while the tab is on screen (see createPanel)
+
+    public DiagnosticsPanel(File metricsFile) {
+        this.metricsFile = metricsFile;
+    }
+
+    public JPanel createPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBackground(Color.WHITE);
+
+        // --- TOP: CONTROLS ---
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT, 15, 10));
+        controls.setBackground(Color.WHITE);
+
+        JCheckBox enabledBox = new JCheckBox("Collect metrics", Metrics.isEnabled());
+        enabledBox.setFont(GUI.MAIN_FONT);
+        enabledBox.setBackground(Color.WHITE);
+
+        CustomComponents.ModernButton resetBtn = new CustomComponents.ModernButton("RESET", GUI.PRIMARY_COLOR, Color.WHITE);
+        resetBtn.setPreferredSize(new Dimension(100, 30));
+        CustomComponents.ModernButton saveBtn = new CustomComponents.ModernButton("WRITE FILE", GUI.ACCENT_COLOR, Color.WHITE);
+        saveBtn.setPreferredSize(new Dimension(130, 30));
+
+        controls.add(enabledBox);
+        controls.add(resetBtn);
+        controls.add(saveBtn);
+
+        // --- CENTER: THE REPORT ---
+        JTextArea reportArea = new JTextArea();
+        reportArea.setEditable(false);
+        reportArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        reportArea.setText(Metrics.report());
+
+        // Refresh every 2 seconds, but only while this tab is actually on screen:
+        // the timer starts when the tab is shown and stops when it is hidden (or thrown away)
+        refresh = new Timer(2000, e -> reportArea.setText(Metrics.report()));
+        reportArea.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & java.awt.event.HierarchyEvent.SHOWING_CHANGED) == 0)
+                return;
+            if (reportArea.isShowing()) {
+                reportArea.setText(Metrics.report());
+                refresh.start();
+            } else {
+                refresh.stop();
+            }
+        });
+
+        enabledBox.addActionListener(e -> {
+            Metrics.setEnabled(enabledBox.isSelected());
+            reportArea.setText(Metrics.report());
+        });
+        resetBtn.addActionListener(e -> {
+            Metrics.reset();
+            reportArea.setText(Metrics.report());
+        });
+        saveBtn.addActionListener(e -> {
+            Metrics.writeReport(metricsFile);
+            JOptionPane.showMessageDialog(panel, "Metrics written to " + metricsFile.getAbsolutePath());
+        });
+
+        panel.add(controls, BorderLayout.NORTH);
+        panel.add(new JScrollPane(reportArea), BorderLayout.CENTER);
+        return panel;
+    }
+
+    // Called when the dashboard holding this tab is thrown away (see GUI.disposeDashboard)
+    public void dispose() {
+        if (refresh != null)
+            refresh.stop();
+    }
+}
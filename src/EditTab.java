@@ -1,7 +1,6 @@
 import javax.swing.*;
 import java.awt.*;
 import java.io.*;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -10,7 +9,7 @@ public class EditTab {
     // SHARED DATA
     // We get these from GUI.java so that when we edit a stock count here,
     // it updates the "real" data immediately across the whole app.
-    private Map<String, Model> models;
+    private Catalogue catalogue;
     private DataLoader dataLoader;
     private Component parentComponent; // Reference to the Main Window (for popups)
 
@@ -27,6 +26,7 @@ public class EditTab {
     private JTextField newStockField;
     private JButton updateStockBtn;
     private String currentModelName;
+    private StockEventBus.Listener stockListener; // kept so dispose() can unsubscribe it
     
     // Hardcoded list of outlets. In a real enterprise app, we might load this from a DB,
     // but for this assignment, using the array ensures we match the CSV headers exactly.
@@ -37,17 +37,16 @@ public class EditTab {
     private JTextField salesCustomerField;
     private JButton updateSalesBtn;
 
-    // State variables to remember which file and which lines we are currently editing
-    private File currentSalesFile;
-    private int currentBlockStartIndex; 
-    private int currentBlockEndIndex; 
+    // State variables to remember which sale we are currently editing
+    private String currentSalesDate;
+    private ReceiptIndex.Block currentBlock;
 
     // --- CONSTRUCTOR ---
     // ** CONNECTION TO GUI.JAVA **
-    // GUI.java creates this class and passes the 'models' map.
-    // This is crucial: By passing the map, we are editing the LIVE data.
-    public EditTab(Map<String, Model> models, DataLoader dataLoader, Component parentComponent) {
-        this.models = models;
+    // GUI.java creates this class and passes the shared catalogue.
+    // This is crucial: By passing the catalogue, we are editing the LIVE data (see Catalogue.java).
+    public EditTab(Catalogue catalogue, DataLoader dataLoader, Component parentComponent) {
+        this.catalogue = catalogue;
         this.dataLoader = dataLoader;
         this.parentComponent = parentComponent;
     }
@@ -157,6 +156,17 @@ public class EditTab {
         searchBtn.addActionListener(e -> updateStockDisplay());
         outletBox.addActionListener(e -> updateStockDisplay()); // Refresh display if outlet changes
 
+        // A sale or transfer changed the model shown here: show its new numbers (see StockEventBus)
+        stockListener = changes -> {
+            for (StockSnapshots.Change c : changes) {
+                if (c.model.equals(currentModelName)) {
+                    showStock(catalogue.snapshot().get(currentModelName));
+                    return;
+                }
+            }
+        };
+        catalogue.events().subscribe(stockListener);
+
         // UPDATE LOGIC
         updateStockBtn.addActionListener(e -> {
             try {
@@ -164,13 +174,11 @@ public class EditTab {
                 int newStock = Integer.parseInt(newStockField.getText().trim());
                 if (newStock < 0) throw new NumberFormatException();
 
-                // 1. Update the Memory Object (Live Data)
-                Model m = models.get(currentModelName);
-                String selectedOutlet = (String) outletBox.getSelectedItem();
-                m.setStock(selectedOutlet, newStock);
-                
+                // 1. Update the Live Data (publishes a new catalogue version)
                 // 2. Save to CSV immediately so changes persist after restart
-                dataLoader.saveModels(models, Arrays.asList(outletCodes));
+                String selectedOutlet = (String) outletBox.getSelectedItem();
+                catalogue.update(edit -> edit.model(currentModelName).setStock(selectedOutlet, newStock),
+                        snapshot -> dataLoader.saveModels(snapshot.models(), Arrays.asList(outletCodes)));
 
                 JOptionPane.showMessageDialog(parentComponent, "Stock updated successfully for " + selectedOutlet);
                 updateStockDisplay(); // Refresh UI to show new numbers
@@ -188,13 +196,10 @@ public class EditTab {
     private void updateStockDisplay() {
         String modelName = stockModelField.getText().trim();
         // Check if the typed model actually exists in our Map
-        if (models.containsKey(modelName)) {
+        Model m = catalogue.snapshot().get(modelName);
+        if (m != null) {
             currentModelName = modelName;
-            Model m = models.get(modelName);
-            String selectedOutlet = (String) outletBox.getSelectedItem();
-
-            outletStockLabel.setText(String.valueOf(m.getStock(selectedOutlet)));
-            currentStockLabel.setText(String.valueOf(m.getTotalStock()));
+            showStock(m);
             
             // Enable editing now that we found the model
             newStockField.setEnabled(true);
@@ -209,6 +214,12 @@ public class EditTab {
         }
     }
 
+    private void showStock(Model m) {
+        String selectedOutlet = (String) outletBox.getSelectedItem();
+        outletStockLabel.setText(String.valueOf(m.getStock(selectedOutlet)));
+        currentStockLabel.setText(String.valueOf(m.getTotalStock()));
+    }
+
     // --- SALES EDIT PANEL ---
     // This allows editing past sales receipts. 
     // It's trickier because we have to edit a text file, not just a variable in memory.
@@ -231,7 +242,7 @@ public class EditTab {
         formPanel.add(salesDateField, gbc);
 
         gbc.gridx = 0; gbc.gridy = 1;
-        formPanel.add(new JLabel("Enter Customer Name:"), gbc);
+        formPanel.add(new JLabel("Enter Customer Name or Transaction ID:"), gbc);
         salesCustomerField = new JTextField(15);
         gbc.gridx = 1;
         formPanel.add(salesCustomerField, gbc);
@@ -264,7 +275,7 @@ public class EditTab {
         formPanel.add(new JLabel("Select Field to Edit:"), gbc);
 
         // The specific lines in the text file we know how to change
-        String[] fields = { "Customer Name", "Model", "Quantity", "Total Price", "Transaction Method" };
+        String[] fields = SalesAmendments.FIELDS;
         JComboBox<String> fieldSelectBox = new JComboBox<>(fields);        
         gbc.gridx = 1;
         formPanel.add(fieldSelectBox, gbc);
@@ -303,170 +314,80 @@ public class EditTab {
     }
 
     // --- FIND SALES RECORD LOGIC ---
-    // Scans a text file line-by-line to find a block of text matching the customer.
+    // Looks the receipt up in the day file's ReceiptIndex (by Transaction ID or customer name)
+    // and reads only that receipt's bytes, instead of loading the whole day.
     private void findSalesRecord(JTextArea summaryArea) {
         String date = salesDateField.getText().trim();
         String customer = salesCustomerField.getText().trim();
 
         // Basic validation
         if (date.isEmpty() || customer.isEmpty()) {
-            JOptionPane.showMessageDialog(parentComponent, "Please enter both Date and Customer Name.");
+            JOptionPane.showMessageDialog(parentComponent, "Please enter both Date and Customer Name (or Transaction ID).");
             return;
         }
 
-        // Locate the specific daily file
-        File dir = new File("SalesReceipt");
-        File file = new File(dir, "sales_" + date + ".txt");
-        if (!file.exists()) {
-            JOptionPane.showMessageDialog(parentComponent, "No sales records found for this date.");
-            return;
-        }
-
-        currentSalesFile = file;
-
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            // Read entire file into memory list
-            List<String> lines = new ArrayList<>();
-            String line;
-            while ((line = br.readLine()) != null) {
-                lines.add(line);
-            }
-
-            boolean matchFound = false;
-            int startIdx = -1;
-            int endIdx = -1;
-
-            // Algorithm: Loop through lines looking for "Customer Name: [Input]"
-            for (int i = 0; i < lines.size(); i++) {
-                String l = lines.get(i);
-                if (l.contains("Customer Name:") && l.contains(customer)) {
-                    
-                    // Found it! Now backtrack UP to find the start of the receipt (===)
-                    int tempStart = i;
-                    while (tempStart >= 0 && !lines.get(tempStart).startsWith("===")) {
-                        tempStart--;
-                    }
-                    startIdx = tempStart;
-
-                    // Now look DOWN to find the end of the receipt (dashed line)
-                    int tempEnd = i;
-                    while (tempEnd < lines.size()) {
-                        String currentLine = lines.get(tempEnd);
-                        // We check length > 40 to find the long separator line
-                        if (currentLine.startsWith("---") && currentLine.length() > 40) {
-                            break;
-                        }
-                        tempEnd++;
-                    }
-                    if (tempEnd >= lines.size()) tempEnd = lines.size() - 1;
-                    
-                    endIdx = tempEnd;
-                    matchFound = true;
-                    break; // Stop after first match
-                }
-            }
-
-            if (matchFound && startIdx != -1) {
-                // Save indices so we know exactly which lines to replace later
-                currentBlockStartIndex = startIdx;
-                currentBlockEndIndex = endIdx;
-
-                // Show the found record in the text area
-                StringBuilder sb = new StringBuilder();
-                for (int i = startIdx; i <= endIdx; i++) {
-                    String lineContent = lines.get(i);
-                    // Filter out "System success messages" that shouldn't be edited
-                    if (!isStatusLine(lineContent)) {
-                        sb.append(lineContent).append("\n");
-                    }
-                }
-                summaryArea.setText(sb.toString());
-                updateSalesBtn.setEnabled(true);
-            } else {
+        try {
+            ReceiptIndex.Block block = dataLoader.findSalesReceipt(date, customer);
+            if (block == null) {
                 JOptionPane.showMessageDialog(parentComponent, "Record not found for customer: " + customer);
                 summaryArea.setText("");
                 updateSalesBtn.setEnabled(false);
+                return;
             }
 
+            // Remember which sale we are editing
+            currentSalesDate = date;
+            currentBlock = block;
+
+            // Show the found record (with any earlier edits) in the text area
+            showBlock(summaryArea, dataLoader.readSalesReceipt(date, block));
+            updateSalesBtn.setEnabled(true);
+
         } catch (IOException e) {
             JOptionPane.showMessageDialog(parentComponent, "Error reading file.");
         }
     }
 
     // --- UPDATE SALES RECORD LOGIC ---
-    // This performs "Surgery" on the text file. 
-    // It keeps the top part, replaces the middle part (edited lines), and keeps the bottom part.
+    // The edit is saved as ONE line in the amendment log (see SalesAmendments.java).
+    // Everything that reads receipts shows the new value from now on, and the day file
+    // itself is only rewritten later, once, by "BatchCli compact".
     private void updateSalesRecord(String field, String newVal, JTextArea summaryArea) {
-        if (currentSalesFile == null || !currentSalesFile.exists())
+        if (currentBlock == null)
             return;
 
         try {
-            // 1. Read the WHOLE file into memory again
-            BufferedReader br = new BufferedReader(new FileReader(currentSalesFile));
-            List<String> lines = new ArrayList<>();
-            String line;
-            while ((line = br.readLine()) != null) {
-                lines.add(line);
-            }
-            br.close();
-
-            // 2. Reconstruct the specific block of lines we are editing
-            List<String> newBlock = new ArrayList<>();
-            for (int i = currentBlockStartIndex; i <= currentBlockEndIndex && i < lines.size(); i++) {
-                String original = lines.get(i);
-                
-                // Skip status lines
-                if (isStatusLine(original)) continue;
-
-                String updated = original;
-
-                // Logic: Check which field was selected and swap the text
-                if (field.equals("Customer Name") && original.startsWith("Customer Name:")) {
-                    updated = "Customer Name: " + newVal;
-                } else if (field.equals("Model") && original.startsWith("Model:")) {
-                    updated = "Model: " + newVal;
-                } else if (field.equals("Quantity") && original.startsWith("Quantity:")) {
-                    updated = "Quantity: " + newVal;
-                } else if (field.equals("Total Price") && original.startsWith("Subtotal:")) {
-                    updated = "Subtotal: RM" + newVal;
-                } else if (field.equals("Transaction Method") && original.startsWith("Enter transaction method:")) {
-                    updated = "Enter transaction method: " + newVal;
-                }
-
-                newBlock.add(updated);
-            }
-
-            // 3. Rebuild the full file list
-            List<String> validLines = new ArrayList<>();
-            // Add lines BEFORE the edited block
-            for (int i = 0; i < currentBlockStartIndex; i++)
-                validLines.add(lines.get(i));
-            // Add the NEW edited block
-            validLines.addAll(newBlock);
-            // Add lines AFTER the edited block
-            for (int i = currentBlockEndIndex + 1; i < lines.size(); i++)
-                validLines.add(lines.get(i));
-
-            // 4. Write everything back to the file
-            PrintWriter pw = new PrintWriter(new FileWriter(currentSalesFile));
-            for (String l : validLines) {
-                pw.println(l);
-            }
-            pw.close();
+            dataLoader.amendSale(currentSalesDate, currentBlock.id, field, newVal);
 
             JOptionPane.showMessageDialog(parentComponent, "Sales information updated successfully.");
 
             // Update the display area to show the new values
-            StringBuilder sb = new StringBuilder();
-            for (String l : newBlock)
-                sb.append(l).append("\n");
-            summaryArea.setText(sb.toString());
+            showBlock(summaryArea, dataLoader.readSalesReceipt(currentSalesDate, currentBlock));
 
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
             JOptionPane.showMessageDialog(parentComponent, "Error updating file: " + e.getMessage());
         }
     }
 
+    // Called when the dashboard holding this tab is thrown away (see GUI.disposeDashboard).
+    // The catalogue outlives the dashboard, so it would otherwise keep calling this tab.
+    public void dispose() {
+        if (stockListener != null) {
+            catalogue.events().unsubscribe(stockListener);
+            stockListener = null;
+        }
+    }
+
+    // Shows the receipt lines, without the "success" messages that shouldn't be edited
+    private void showBlock(JTextArea summaryArea, List<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        for (String l : lines) {
+            if (!isStatusLine(l))
+                sb.append(l).append("\n");
+        }
+        summaryArea.setText(sb.toString());
+    }
+
     // Helper: Identify lines we don't want to show/edit (like "Transaction successful")
     private boolean isStatusLine(String line) {
         return line.isEmpty() ||
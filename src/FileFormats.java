@@ -0,0 +1,102 @@
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+// THE TEXT LAYOUTS
+// Every receipt and attendance line the app writes is built here, so the
+// screens (SalesPanel, StockInOutTab), DataLoader and the tools in bench/
+// (like WorkloadGenerator) always produce exactly the same text.
+// DataLoader's parsers depend on these layouts, so change them with care.
+public class FileFormats {
+
+    // "02:30 PM" style times used in receipts and attendance.csv
+    public static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("hh:mm a");
+
+    // The long dashed line that ends every receipt block (DataLoader looks for > 40 dashes)
+    public static final String RECEIPT_SEPARATOR = "--------------------------------------------------";
+
+    // The short dashed line printed after each item of a sale
+    public static final String ITEM_SEPARATOR = "-----------------------------";
+
+    // Every receipt (sale or stock transfer) carries one ID from IdGenerator right after the time.
+    // Receipts written before IDs existed simply don't have this line.
+    public static final String TRANSACTION_ID = "Transaction ID: ";
+
+    public static final String ATTENDANCE_HEADER = "EmployeeID,Date,ClockInTime,ClockOutTime,TotalHours";
+
+    // --- SALES RECEIPT ---
+    // ** USED BY SALESPANEL **
+    // Adds one purchased item to the "Item(s) Purchased" part of a sales receipt.
+    public static void appendSalesItem(StringBuilder items, String model, int qty, double unitPrice) {
+        items.append("Model: ").append(model).append("\n");
+        items.append("Quantity: ").append(qty).append("\n");
+        items.append("Unit Price: RM").append(unitPrice).append("\n");
+        items.append(ITEM_SEPARATOR).append("\n");
+    }
+
+    // Builds the full receipt block (without the final separator line, DataLoader adds that).
+    // 'id' comes from IdGenerator and identifies the whole sale.
+    public static String salesReceipt(long id, LocalDate date, String time, String empId, String customer,
+            CharSequence items, String method, long grandTotalCents) {
+        StringBuilder rc = new StringBuilder();
+        rc.append("=== Record New Sale ===\n");
+        rc.append("Date: ").append(date).append("\n");
+        rc.append("Time: ").append(time).append("\n");
+        rc.append(TRANSACTION_ID).append(id).append("\n");
+
+        // Critical: Save Employee ID so "PerformancePanel" can give credit later
+        rc.append("Employee: ").append(empId).append("\n");
+
+        rc.append("Customer Name: ").append(customer).append("\n");
+        rc.append("Item(s) Purchased:\n");
+        rc.append(items);
+        rc.append("Enter transaction method: ").append(method).append("\n");
+        Money.append(rc.append("Subtotal: RM"), grandTotalCents).append("\n\n");
+        rc.append("Transaction successful.\n");
+        rc.append("Sale recorded successfully.\n");
+        rc.append("Model quantities updated successfully.\n");
+        rc.append("Receipt generated: sales_").append(date).append(".txt");
+        return rc.toString();
+    }
+
+    // --- STOCK RECEIPT ---
+    // ** USED BY STOCKINOUTTAB **
+    // Adds one "    - Model (Quantity: N)" line to a stock transfer receipt.
+    public static void appendStockItem(StringBuilder items, String model, int qty) {
+        items.append("    - ").append(model).append(" (Quantity: ").append(qty).append(")\n");
+    }
+
+    // 'from' and 'to' are the labels shown in the dropdowns, e.g. "C60 (Kuala Lumpur City Centre)"
+    public static String stockReceipt(long id, String type, LocalDate date, String time, String from, String to,
+            CharSequence items, int totalQty, String employeeName) {
+        StringBuilder rc = new StringBuilder();
+        rc.append("=== ").append(type).append(" ===\n");
+        rc.append("Date: ").append(date).append("\n");
+        rc.append("Time: ").append(time).append("\n");
+        rc.append(TRANSACTION_ID).append(id).append("\n");
+        rc.append("From: ").append(from).append("\n");
+        rc.append("To: ").append(to).append("\n");
+        rc.append("Models Received:\n\n");
+        rc.append(items);
+        rc.append("\nTotal Quantity: ").append(totalQty).append("\n");
+        rc.append("Name of Employee in Charge: ").append(employeeName).append("\n");
+        rc.append("\nModel quantities updated successfully.\n");
+        rc.append(type).append(" recorded.");
+        return rc.toString();
+    }
+
+    // --- ATTENDANCE ---
+    // ** USED BY DATALOADER (clockIn / clockOut) **
+    // An open session: ID,Date,Time,, (empty clock-out columns)
+    public static String attendanceClockIn(String empId, String date, String time) {
+        return empId + "," + date + "," + time + ",,";
+    }
+
+    // A closed session with the worked hours, e.g. "8.5 hours"
+    public static String attendanceClosed(String empId, String date, String inTime, String outTime, long minutes) {
+        return empId + "," + date + "," + inTime + "," + outTime + "," + totalHours(minutes);
+    }
+
+    public static String totalHours(long minutes) {
+        return String.format("%.1f hours", minutes / 60.0);
+    }
+}
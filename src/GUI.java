@@ -2,8 +2,10 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.time.LocalDate;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 // THE MAIN WINDOW (THE MOTHERBOARD)
 // This class is the "Container" for the whole application.
@@ -34,9 +36,27 @@ public class GUI extends JFrame {
     // This makes the app fast because we aren't re-reading files constantly.
     private DataLoader dataLoader = new DataLoader();
     private Map<String, employee> employees;
-    private Map<String, Model> models;
+    private Catalogue catalogue; // the models every tab shares, one version at a time (see Catalogue.java)
     private Map<String, String> outlets;
 
+    // The CSV files are read in the background while the window is being set up (see constructor)
+    private CompletableFuture<Map<String, Model>> modelsLoad;
+    private CompletableFuture<Map<String, String>> outletsLoad;
+
+    // Has any dashboard been shown yet? (only the first one is timed, see onLoginSuccess)
+    private boolean firstDashboardShown = false;
+
+    // DASHBOARD CACHE: one finished dashboard per employee ID (and the employee it was built for).
+    // Logging out and back in shows the same dashboard again instead of building (and stacking
+    // up) a new one every time.
+    private final Map<String, JPanel> dashboards = new HashMap<>();
+    private final Map<String, employee> dashboardOwners = new HashMap<>();
+
+    // Marks a tab whose content hasn't been built yet (see addTab)
+    private static final String LAZY_CONTENT = "goldenhour.lazyContent";
+    // What to stop when a dashboard is thrown away (timers, stock listeners; see disposeDashboard)
+    private static final String ON_DISPOSE = "goldenhour.onDispose";
+
     // --- GLOBAL STYLE CONSTANTS ---
     // We define colors here so if we want to change the "Theme" later, 
     // we only change it in one place.
@@ -46,55 +66,160 @@ public class GUI extends JFrame {
     public static final Font MAIN_FONT = new Font("Segoe UI", Font.PLAIN, 14);
     public static final Font HEADER_FONT = new Font("Segoe UI", Font.BOLD, 22);
 
+    // Where Metrics.java writes its numbers (rewritten every few seconds while metrics are on)
+    public static final java.io.File METRICS_FILE = new java.io.File("metrics.txt");
+
     // --- CONSTRUCTOR ---
     // This runs exactly once when you double-click the app icon.
     public GUI() {
+        // 0. START READING THE FILES, in the background while we set up the window.
+        // WARM START: if the app was closed cleanly and no file changed since, goldenhour.img
+        // already holds everything parsed (see WarmStartImage.java) and nothing is read twice.
+        // Otherwise the three CSV files are read at the same time on background threads.
+        // The sales day summaries (see DaySummary.java) are warmed up as well, so the first
+        // History/Analytics query after login finds them ready.
+        CompletableFuture<WarmStartImage> warmStart = CompletableFuture.supplyAsync(dataLoader::loadWarmStart);
+        CompletableFuture<Map<String, employee>> employeesLoad = warmStart.thenCompose(image -> image != null
+                && image.hasCatalogue() ? CompletableFuture.completedFuture(image.employees)
+                        : CompletableFuture.supplyAsync(dataLoader::loadEmployee));
+        modelsLoad = warmStart.thenCompose(image -> image != null && image.hasCatalogue()
+                ? CompletableFuture.completedFuture(image.models) : CompletableFuture.supplyAsync(dataLoader::loadModels));
+        outletsLoad = warmStart.thenCompose(image -> image != null && image.hasCatalogue()
+                ? CompletableFuture.completedFuture(image.outlets) : CompletableFuture.supplyAsync(dataLoader::loadOutlets));
+        warmStart.thenRunAsync(() -> dataLoader.salesTotals(null, null));
+
         // 1. UI SETUP: Make Java Swing look modern (remove the Windows 95 look)
         setupModernUI();
 
         setTitle("GoldenHour Management System");
         setSize(1200, 850);
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // Close app when X is clicked
+        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE); // the listener below closes the app
+        // CLEAN SHUTDOWN: save what we parsed so the next start is a warm start.
+        // Saving may have to parse the sales first, so the window disappears straight away and
+        // the image is written on a background thread; the app exits when it is done.
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                setVisible(false);
+                new Thread(() -> {
+                    try {
+                        System.out.println(dataLoader.saveWarmStart());
+                    } catch (java.io.IOException | RuntimeException ex) {
+                        System.out.println("Could not save warm start image: " + ex.getMessage());
+                    }
+                    System.exit(0);
+                }, "warm-start-save").start();
+            }
+        });
         setLocationRelativeTo(null); // Center the window on the user's monitor
 
-        // 2. DATA LOADING: Fetch everything from the text files
-        employees = dataLoader.loadEmployee();
-        models = dataLoader.loadModels();
-        outlets = dataLoader.loadOutlets();
-
-        // 3. CONTAINER SETUP
+        // 2. CONTAINER SETUP
         mainPanel.setBackground(BG_COLOR);
 
-        // 4. INIT LOGIN SCREEN
-        // We pass 'this' (the GUI instance) to LoginPanel.
-        // Why? So LoginPanel can call 'this.onLoginSuccess()' later.
-        LoginPanel loginPanel = new LoginPanel(this, employees);
-        
-        // Add Login as the first "Card" in the deck. Key = "LOGIN"
-        mainPanel.add(loginPanel.createPanel(), "LOGIN");
+        // Until the employees are loaded, the window shows a "Loading..." card
+        JLabel loading = new JLabel("Loading...", JLabel.CENTER);
+        loading.setFont(MAIN_FONT);
+        mainPanel.add(loading, "LOADING");
 
         add(mainPanel);
         setVisible(true); // Show the window
 
+        // 3. DATA LOADING: The login screen needs the employees, so it is added as soon as
+        // they are loaded (back on the Swing thread; the window never waits for the files).
+        // Models and outlets are only needed once someone logs in (see onLoginSuccess)
+        employeesLoad.whenCompleteAsync((loaded, error) -> {
+            if (error != null) {
+                JOptionPane.showMessageDialog(this, "Could not load employees: " + error.getMessage());
+                loaded = new HashMap<>();
+            }
+            WarmStartImage image = warmStart.getNow(null);
+            showLoginScreen(loaded, image != null && image.hasCatalogue());
+        }, SwingUtilities::invokeLater);
+
         // --- BACKGROUND WORKER ---
         // Create a timer that ticks every 60,000ms (1 minute).
         // It runs the checkAndSendEmail() method to see if it's time to report to HQ.
         Timer emailTimer = new Timer(60000, e -> checkAndSendEmail());
         emailTimer.start();
+
+        // Background writer for the metrics file (only writes while metrics are switched on)
+        Metrics.startFlusher(METRICS_FILE, Long.getLong("goldenhour.metrics.flushSeconds", 10));
+    }
+
+    // --- LOGIN SCREEN ---
+    // Called on the Swing thread once the employees are loaded (see constructor)
+    private void showLoginScreen(Map<String, employee> loaded, boolean warm) {
+        employees = loaded;
+
+        // We pass 'this' (the GUI instance) to LoginPanel.
+        // Why? So LoginPanel can call 'this.onLoginSuccess()' later.
+        LoginPanel loginPanel = new LoginPanel(this, employees);
+
+        // Add Login as the next "Card" in the deck. Key = "LOGIN"
+        mainPanel.add(loginPanel.createPanel(), "LOGIN");
+        cardLayout.show(mainPanel, "LOGIN");
+
+        // STARTUP TIME: from starting Java until the login screen is up (see the DIAGNOSTICS tab)
+        long uptimeMs = java.lang.management.ManagementFactory.getRuntimeMXBean().getUptime();
+        if (Metrics.isEnabled())
+            Metrics.timer(warm ? "GUI.timeToLoginScreen.warm" : "GUI.timeToLoginScreen.cold")
+                    .record(uptimeMs * 1_000_000L);
     }
 
     // --- LOGIN BRIDGE ---
     // This method is called by LoginPanel.java when the password is correct.
     // It acts as the bridge to transition the UI from "Logged Out" to "Logged In".
     public void onLoginSuccess(employee user, JTextField userField, JPasswordField passField) {
+        long loginClicked = System.nanoTime();
         this.loggedInUser = user;
-        
+        if (catalogue == null) {
+            // The models and outlets may still be loading (see constructor). Waiting for them here
+            // would freeze the window, so show the "Loading..." card and carry on, back on the
+            // Swing thread, once both are in.
+            cardLayout.show(mainPanel, "LOADING");
+            CompletableFuture.allOf(modelsLoad, outletsLoad).whenCompleteAsync((done, error) -> {
+                if (catalogue == null) {
+                    if (error != null)
+                        JOptionPane.showMessageDialog(this, "Could not load models or outlets: " + error.getMessage());
+                    catalogue = new Catalogue(modelsLoad.isCompletedExceptionally() ? new HashMap<>() : modelsLoad.join());
+                    outlets = outletsLoad.isCompletedExceptionally() ? new HashMap<>() : outletsLoad.join();
+                }
+                showDashboard(user, userField, passField, loginClicked);
+            }, SwingUtilities::invokeLater);
+            return;
+        }
+        showDashboard(user, userField, passField, loginClicked);
+    }
+
+    // Shows (building it first if needed) the dashboard of the employee who just logged in
+    private void showDashboard(employee user, JTextField userField, JPasswordField passField, long loginClicked) {
         // LAZY LOADING: We only build the Dashboard AFTER a successful login.
         // This ensures the dashboard can generate the "Welcome, [User]" text correctly.
-        mainPanel.add(createDashboardPanel(userField, passField), "DASHBOARD");
+        // Each user's dashboard is built once; if their details changed since, it is rebuilt.
+        String card = "DASHBOARD-" + user.getID();
+        if (dashboardOwners.get(card) != user) {
+            JPanel old = dashboards.remove(card);
+            if (old != null) {
+                mainPanel.remove(old);
+                disposeDashboard(old);
+            }
+            long t0 = Metrics.start();
+            JPanel dashboard = createDashboardPanel(userField, passField);
+            Metrics.stop("GUI.createDashboardPanel", t0);
+            mainPanel.add(dashboard, card);
+            dashboards.put(card, dashboard);
+            dashboardOwners.put(card, user);
+        }
         
         // FLIP THE CARD: Hide Login, Show Dashboard.
-        cardLayout.show(mainPanel, "DASHBOARD");
+        cardLayout.show(mainPanel, card);
+
+        // STARTUP TIME: from pressing Login until the first dashboard is on screen
+        if (!firstDashboardShown) {
+            firstDashboardShown = true;
+            if (Metrics.isEnabled())
+                Metrics.timer("GUI.timeToFirstDashboard").record(System.nanoTime() - loginClicked);
+        }
     }
 
     // --- AUTO-EMAIL LOGIC ---
@@ -123,24 +248,15 @@ public class GUI extends JFrame {
                 LocalDate reportDateObj = LocalDate.now();
                 String reportDate = reportDateObj.toString();
 
-                // REUSE LOGIC: We instantiate our Analytics/History engines here 
-                // to calculate the totals for the email body.
-                Analytics analytics = new Analytics();
-                History history = new History(); 
-
-                List<Transaction> all = dataLoader.loadTransactions();
-                
-                // Filter: Get transactions for TODAY only
-                List<Transaction> reportTransactions = history.filterSalesByDate(all, reportDateObj, reportDateObj);
-                
-                // Calculate Total Sales amount
-                double totalSales = analytics.calculateCumulativeTotal(reportTransactions);
+                // Calculate Total Sales amount for TODAY only.
+                // The day summaries (see DaySummary.java) already hold it, so no receipts are re-read.
+                long totalCents = dataLoader.salesTotals(reportDateObj, reportDateObj).revenueCents;
 
                 // Construct the email text
                 String summary = "Dear Headquarters,\n\n"
                         + "Please find attached the daily sales report for " + reportDate + ".\n\n"
                         + "Summary:\n"
-                        + "- Total Sales: RM " + String.format("%.2f", totalSales) + "\n"
+                        + "- Total Sales: RM " + Money.format(totalCents) + "\n"
                         + "- Report Date: " + reportDate + "\n\n"
                         + "Best Regards,\nGoldenHour System";
 
@@ -223,6 +339,9 @@ public class GUI extends JFrame {
         headerPanel.add(brandLabel, BorderLayout.WEST);
         headerPanel.add(userInfoPanel, BorderLayout.EAST);
 
+        // Things the tabs must stop when this dashboard is thrown away (see disposeDashboard)
+        java.util.List<Runnable> onDispose = new java.util.ArrayList<>();
+
         // 2. MAIN TABS (BorderLayout.CENTER)
         JTabbedPane tabbedPane = new JTabbedPane();
         tabbedPane.setFont(new Font("Segoe UI", Font.BOLD, 13));
@@ -231,54 +350,74 @@ public class GUI extends JFrame {
         // --- DEPENDENCY INJECTION ---
         // This is where we plug everything together.
         // We create each Tab's class and pass it the data it needs (dataLoader, user, etc).
+        // Each tab's SCREEN (createPanel) is only built when the tab is first opened (see addTab).
 
         // Tab 1: Attendance
-        addTab(tabbedPane, "ATTENDANCE", new AttendanceTab(dataLoader, loggedInUser).createPanel());
+        AttendanceTab attendanceTab = new AttendanceTab(dataLoader, loggedInUser);
+        addTab(tabbedPane, "ATTENDANCE", attendanceTab::createPanel);
 
         // Tab 2: Stock Count
-        StockCountTab stockCountTab = new StockCountTab(models, loggedInUser, this);
-        addTab(tabbedPane, "STOCK COUNT", stockCountTab.createPanel());
+        StockCountTab stockCountTab = new StockCountTab(catalogue, dataLoader, loggedInUser, this);
+        addTab(tabbedPane, "STOCK COUNT", stockCountTab::createPanel);
+        onDispose.add(stockCountTab::dispose);
 
-        // CALLBACK: Creates a function we can pass to other tabs.
-        // If SalesTab makes a sale, it calls this to update the StockTab immediately.
-        Runnable refreshStockUI = stockCountTab::refreshTable;
+        // STOCK CHANGES: when SalesTab or StockInOutTab changes a number, the catalogue tells
+        // every open tab which (model, outlet) changed (see StockEventBus.java), so there is no
+        // callback to pass around and nothing is rebuilt. (A tab that isn't open yet reads the
+        // latest numbers when it is built.)
 
         // Tab 3: Stock In/Out
-        StockInOutTab stockInOutTab = new StockInOutTab(models, outlets, dataLoader, loggedInUser, this, refreshStockUI);
-        addTab(tabbedPane, "STOCK IN/OUT", stockInOutTab.createPanel());
+        StockInOutTab stockInOutTab = new StockInOutTab(catalogue, outlets, dataLoader, loggedInUser, this);
+        addTab(tabbedPane, "STOCK IN/OUT", stockInOutTab::createPanel);
 
         // Tab 4: POS Sales
-        SalesPanel salesTab = new SalesPanel(models, outlets, dataLoader, loggedInUser, this, refreshStockUI);
-        addTab(tabbedPane, "POS SALES", salesTab.createPanel());
+        SalesPanel salesTab = new SalesPanel(catalogue, outlets, dataLoader, loggedInUser, this);
+        addTab(tabbedPane, "POS SALES", salesTab::createPanel);
 
         // Tab 5: History
         HistoryPanel historyPanel = new HistoryPanel(dataLoader);
-        addTab(tabbedPane, "HISTORY", historyPanel.createPanel());
+        addTab(tabbedPane, "HISTORY", historyPanel::createPanel);
 
         // Tab 6: Performance (SECURITY CHECK: Only Managers see this)
         if (loggedInUser.getRole().equalsIgnoreCase("Manager")) {
             PerformancePanel perfPanel = new PerformancePanel(dataLoader, employees);
-            addTab(tabbedPane, "PERFORMANCE", perfPanel.createPanel());
+            addTab(tabbedPane, "PERFORMANCE", perfPanel::createPanel);
         }
 
         // Tab 7: Edit Data (Manual Corrections)
-        EditTab editTab = new EditTab(models, dataLoader, this);
-        addTab(tabbedPane, "EDIT DATA", editTab.createPanel());
+        EditTab editTab = new EditTab(catalogue, dataLoader, this);
+        addTab(tabbedPane, "EDIT DATA", editTab::createPanel);
+        onDispose.add(editTab::dispose);
 
         // Tab 8: Search
-        SearchPanel searchTab = new SearchPanel(models, outlets, dataLoader);
-        addTab(tabbedPane, "SEARCH", searchTab.createPanel());
+        SearchPanel searchTab = new SearchPanel(catalogue, outlets, dataLoader);
+        addTab(tabbedPane, "SEARCH", searchTab::createPanel);
 
         // Tab 9: Analytics (Visual Graphs)
         AnalyticsPanel analyticsPanel = new AnalyticsPanel(dataLoader);
-        addTab(tabbedPane, "ANALYTICS", analyticsPanel.createPanel());
+        addTab(tabbedPane, "ANALYTICS", analyticsPanel::createPanel);
+
+        // Tab 9b: Trends (Zoomable chart, any range, per outlet / model)
+        TrendPanel trendPanel = new TrendPanel(dataLoader);
+        addTab(tabbedPane, "TRENDS", trendPanel::createPanel);
 
         // Tab 10: Register Staff (Managers Only)
         if (loggedInUser.getRole().equalsIgnoreCase("Manager")) {
             RegisterPanel regPanel = new RegisterPanel(dataLoader, employees, outlets, this);
-            addTab(tabbedPane, "REGISTER STAFF", regPanel.createPanel());
+            addTab(tabbedPane, "REGISTER STAFF", regPanel::createPanel);
+        }
+
+        // Tab 11: Diagnostics (Managers Only) - timings collected by Metrics.java
+        if (loggedInUser.getRole().equalsIgnoreCase("Manager")) {
+            DiagnosticsPanel diagnosticsPanel = new DiagnosticsPanel(METRICS_FILE);
+            addTab(tabbedPane, "DIAGNOSTICS", diagnosticsPanel::createPanel);
+            onDispose.add(diagnosticsPanel::dispose);
         }
 
+        // Build a tab the first time it is selected, starting with the one showing now
+        tabbedPane.addChangeListener(e -> buildSelectedTab(tabbedPane));
+        buildSelectedTab(tabbedPane);
+
         // 3. FOOTER PANEL (BorderLayout.SOUTH)
         JPanel footerPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         footerPanel.setBackground(BG_COLOR);
@@ -309,22 +448,76 @@ public class GUI extends JFrame {
         mainDashboard.add(headerPanel, BorderLayout.NORTH);   // Top
         mainDashboard.add(tabbedPane, BorderLayout.CENTER);   // Middle
         mainDashboard.add(footerPanel, BorderLayout.SOUTH);   // Bottom
+        mainDashboard.putClientProperty(ON_DISPOSE, onDispose);
 
         return mainDashboard;
     }
 
-    // HELPER: Adds a consistent border/padding to every tab content
-    private void addTab(JTabbedPane pane, String title, JPanel content) {
+    // A rebuilt dashboard replaces the old one: stop everything the old tabs still had running
+    @SuppressWarnings("unchecked")
+    private static void disposeDashboard(JPanel dashboard) {
+        Object onDispose = dashboard.getClientProperty(ON_DISPOSE);
+        if (onDispose != null)
+            for (Runnable r : (java.util.List<Runnable>) onDispose)
+                r.run();
+    }
+
+    // HELPER: Adds a consistent border/padding to every tab content.
+    // LAZY TABS: the content is NOT built here. We only remember how to build it, and
+    // buildSelectedTab() does so the first time the tab is opened. Logging in no longer waits
+    // for every screen (some of which read the whole sales history) to be put together.
+    private JPanel addTab(JTabbedPane pane, String title, Supplier<JPanel> content) {
         JPanel wrapper = new JPanel(new BorderLayout());
         wrapper.setBackground(Color.WHITE);
         wrapper.setBorder(new EmptyBorder(20, 20, 20, 20)); // White space around the edges
-        wrapper.add(content);
+        wrapper.putClientProperty(LAZY_CONTENT, content);
         pane.addTab("    " + title + "    ", wrapper); // Spaces in title for wider tabs
+        return wrapper;
+    }
+
+    // Builds the selected tab's content if that hasn't happened yet
+    private static void buildSelectedTab(JTabbedPane pane) {
+        if (!(pane.getSelectedComponent() instanceof JPanel))
+            return;
+        JPanel wrapper = (JPanel) pane.getSelectedComponent();
+        Object content = wrapper.getClientProperty(LAZY_CONTENT);
+        if (content == null)
+            return;
+        wrapper.putClientProperty(LAZY_CONTENT, null);
+        long t0 = Metrics.start();
+        wrapper.add((JPanel) ((Supplier<?>) content).get());
+        Metrics.stop("GUI.buildTab", t0);
+        wrapper.revalidate();
+        wrapper.repaint();
     }
 
     // MAIN ENTRY POINT
     // This is where Java starts the application.
     public static void main(String[] args) {
+        // HEADLESS MODE: "java GUI --server" starts the local HTTP API instead of the window
+        if (args.length > 0 && args[0].equals("--server")) {
+            try {
+                ApiServer.main(args);
+            } catch (java.io.IOException e) {
+                System.out.println("Could not start API server: " + e.getMessage());
+            }
+            return;
+        }
+        // BATCH MODE: "java GUI --batch import manifest.csv" etc. (see BatchCli.java)
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchCli.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // HQ MODE: "java GUI --hq --port 7070" collects every outlet's events (see ReplicationHub.java)
+        if (args.length > 0 && args[0].equals("--hq")) {
+            try {
+                ReplicationHub.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            } catch (Exception e) {
+                System.out.println("Could not start HQ replication: " + e.getMessage());
+            }
+            return;
+        }
+
         // SwingUtilities.invokeLater ensures thread safety (standard Java GUI practice)
         SwingUtilities.invokeLater(() -> new GUI());
     }
@@ -11,28 +11,29 @@ public class History {
     // This takes the massive list of ALL transactions and returns a smaller list
     // containing only the sales that happened between "Start Date" and "End Date".
     public List<Transaction> filterSalesByDate(List<Transaction> allTransactions, LocalDate start, LocalDate end) {
+        long t0 = Metrics.start();
         List<Transaction> filtered = new ArrayList<>();
+        // Turn the range into day numbers once, so each sale is just two int comparisons
+        long first = start.toEpochDay();
+        long last = end.toEpochDay();
         
         for (Transaction t : allTransactions) {
             // Step 1: Only look at SALES (ignore "Restock" or "Return" entries if you have them)
             if (t.getType().equals("SALE")) {
-                try {
-                    // Step 2: Convert the String date from file to a Date object
-                    LocalDate tDate = LocalDate.parse(t.getDate());
-                    
-                    // Step 3: Check if the date is INSIDE the range.
-                    // !isBefore means "On or After"
-                    // !isAfter means "On or Before"
-                    // This creates an "Inclusive" range (e.g., from Jan 1 to Jan 3 includes Jan 1, 2, and 3).
-                    if (!tDate.isBefore(start) && !tDate.isAfter(end)) {
-                        filtered.add(t);
-                    }
-                } catch (Exception e) {
-                    // If a date in the file is corrupt/unreadable, just skip that one item.
-                    // We don't want to crash the whole app for one bad line.
+                // Step 2: If a date in the file was corrupt/unreadable, just skip that one item.
+                // We don't want to crash the whole app for one bad line.
+                if (!t.hasDate())
+                    continue;
+
+                // Step 3: Check if the date is INSIDE the range.
+                // This creates an "Inclusive" range (e.g., from Jan 1 to Jan 3 includes Jan 1, 2, and 3).
+                int day = t.getEpochDay();
+                if (day >= first && day <= last) {
+                    filtered.add(t);
                 }
             }
         }
+        Metrics.stop("History.filterSalesByDate", t0);
         return filtered;
     }
 
@@ -40,6 +41,7 @@ public class History {
     // This rearranges the list based on what column header the user clicked.
     // We use a manual Bubble Sort algorithm here (Standard CS algorithm).
     public void sortSales(List<Transaction> list, String criteria, boolean ascending) {
+        long t0 = Metrics.start();
         int n = list.size();
         
         // Nested loops to compare every item against every other item
@@ -52,14 +54,14 @@ public class History {
                 // Decide HOW to compare based on what the user wants to sort by
                 switch (criteria) {
                     case "Date":
-                        // Compare Date objects
-                        swap = ascending ? t1.getDate().compareTo(t2.getDate()) > 0
-                                : t1.getDate().compareTo(t2.getDate()) < 0;
+                        // Compare day numbers
+                        swap = ascending ? t1.getEpochDay() > t2.getEpochDay()
+                                : t1.getEpochDay() < t2.getEpochDay();
                         break;
                     case "Amount":
-                        // Compare Money (Double)
-                        swap = ascending ? t1.getTotalAmount() > t2.getTotalAmount()
-                                : t1.getTotalAmount() < t2.getTotalAmount();
+                        // Compare Money (cents)
+                        swap = ascending ? t1.getTotalCents() > t2.getTotalCents()
+                                : t1.getTotalCents() < t2.getTotalCents();
                         break;
                     case "Customer":
                         // Compare String Names (A-Z)
@@ -76,5 +78,118 @@ public class History {
                 }
             }
         }
+        Metrics.stop("History.sortSales", t0);
+    }
+
+    // --- PAGED QUERY ---
+    // ** USED BY HISTORYPANEL **
+    // For big date ranges, sorting EVERYTHING before showing ANYTHING is slow.
+    // querySales() filters once (adding up the total as it goes, so the "Total Sales" label
+    // is ready straight away) and only picks out the FIRST page in sorted order.
+    // The full sort happens later, only if the user scrolls past the first page.
+    public SalesPages querySales(List<Transaction> allTransactions, LocalDate start, LocalDate end,
+            String criteria, boolean ascending) {
+        long t0 = Metrics.start();
+        List<Transaction> filtered = filterSalesByDate(allTransactions, start, end);
+        SalesPages pages = new SalesPages(filtered, comparatorFor(criteria, ascending));
+        Metrics.stop("History.querySales", t0);
+        return pages;
+    }
+
+    // Same ordering rules as the bubble sort above, written as a Comparator.
+    // Java's List.sort keeps equal items in their original order, just like the bubble sort.
+    static Comparator<Transaction> comparatorFor(String criteria, boolean ascending) {
+        Comparator<Transaction> c;
+        switch (criteria) {
+            case "Amount":
+                c = Comparator.comparingLong(Transaction::getTotalCents);
+                break;
+            case "Customer":
+                c = (a, b) -> a.getCustomerName().compareToIgnoreCase(b.getCustomerName());
+                break;
+            default: // "Date"
+                c = Comparator.comparingInt(Transaction::getEpochDay);
+        }
+        return ascending ? c : c.reversed();
+    }
+
+    // The result of querySales(): the matching sales, handed out one page at a time.
+    public static class SalesPages {
+        public static final int PAGE_SIZE = 200;
+
+        private final List<Transaction> filtered; // in file order until fullySorted
+        private final Comparator<Transaction> order;
+        private final long totalCents;
+        private List<Transaction> firstPage;
+        private boolean fullySorted = false;
+
+        SalesPages(List<Transaction> filtered, Comparator<Transaction> order) {
+            this.filtered = filtered;
+            this.order = order;
+            long total = 0;
+            for (Transaction t : filtered)
+                total += t.getTotalCents();
+            this.totalCents = total;
+        }
+
+        public int getTotalCount() {
+            return filtered.size();
+        }
+
+        public long getTotalCents() {
+            return totalCents;
+        }
+
+        public int getPageCount() {
+            return (filtered.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+        }
+
+        // Page 0, 1, 2... (an empty list once you go past the end)
+        public List<Transaction> getPage(int page) {
+            if (page == 0 && !fullySorted)
+                return topN(PAGE_SIZE);
+
+            // Any later page needs the real, complete order: sort once and remember it
+            if (!fullySorted) {
+                long t0 = Metrics.start();
+                filtered.sort(order);
+                fullySorted = true;
+                Metrics.stop("History.SalesPages.fullSort", t0);
+            }
+            int from = Math.min(page * PAGE_SIZE, filtered.size());
+            int to = Math.min(from + PAGE_SIZE, filtered.size());
+            return new ArrayList<>(filtered.subList(from, to));
+        }
+
+        // TOP-N SELECTION
+        // Keeps only the best N seen so far in a heap whose top is the WORST of them.
+        // Each new sale is compared with that worst one and only goes in if it beats it.
+        // That is about n * log(N) steps instead of n * log(n) for a full sort.
+        // Ties are broken by position in the file, so the page matches the full sort exactly.
+        private List<Transaction> topN(int n) {
+            if (firstPage != null)
+                return firstPage;
+            long t0 = Metrics.start();
+            Comparator<Integer> byOrder = (a, b) -> {
+                int c = order.compare(filtered.get(a), filtered.get(b));
+                return c != 0 ? c : Integer.compare(a, b);
+            };
+            PriorityQueue<Integer> heap = new PriorityQueue<>(n + 1, byOrder.reversed());
+            for (int i = 0; i < filtered.size(); i++) {
+                if (heap.size() < n) {
+                    heap.add(i);
+                } else if (byOrder.compare(i, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(i);
+                }
+            }
+            Integer[] best = heap.toArray(new Integer[0]);
+            Arrays.sort(best, byOrder);
+            firstPage = new ArrayList<>(best.length);
+            for (int i : best)
+                firstPage.add(filtered.get(i));
+            Metrics.stop("History.SalesPages.topN", t0);
+            return firstPage;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,5 @@
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
 import java.time.LocalDate;
@@ -11,6 +10,10 @@ public class HistoryPanel {
     // Reference to the database loader
     private DataLoader dataLoader;
 
+    // The current search result, shown one page at a time (see History.SalesPages)
+    private History.SalesPages currentPages;
+    private int pagesShown = 0;
+
     // Constructor: Inject dependencies
     public HistoryPanel(DataLoader dataLoader) {
         this.dataLoader = dataLoader;
@@ -22,10 +25,8 @@ public class HistoryPanel {
         JPanel panel = new JPanel(new BorderLayout(15, 15));
         panel.setBackground(Color.WHITE);
 
-        // --- LOGIC ENGINES ---
-        // We need 'Analytics' for doing math (Summing totals)
-        // We need 'History' for processing lists (Filtering dates, Sorting)
-        Analytics analytics = new Analytics();
+        // --- LOGIC ENGINE ---
+        // We need 'History' for processing lists (Filtering dates, Sorting, Totals)
         History history = new History();
 
         // --- FILTER BAR (TOP) ---
@@ -64,9 +65,8 @@ public class HistoryPanel {
         filterPanel.add(applyBtn);
 
         // --- DATA TABLE (CENTER) ---
-        String[] columns = { "Date", "Customer", "Model", "Qty", "Total (RM)" };
-        // DefaultTableModel allows us to add/remove rows dynamically
-        DefaultTableModel tableModel = new DefaultTableModel(columns, 0);
+        // The table reads straight from our list of transactions (see TableModels.java)
+        TableModels.TransactionTableModel tableModel = new TableModels.TransactionTableModel();
         JTable table = new JTable(tableModel);
         
         // Helper method to make the table look pretty (see bottom of file)
@@ -86,32 +86,23 @@ public class HistoryPanel {
                 LocalDate start = LocalDate.parse(startField.getText());
                 LocalDate end = LocalDate.parse(endField.getText());
                 
-                // 2. Load fresh data from file
-                List<Transaction> allTxns = dataLoader.loadTransactions();
-                
-                // 3. FILTER: Use History class logic
-                List<Transaction> filtered = history.filterSalesByDate(allTxns, start, end);
+                // 2. Load fresh data from file (only the days that can be in the range)
+                List<Transaction> allTxns = dataLoader.loadTransactions(start, end);
                 
-                // 4. SORT: Use History class logic
+                // 3. FILTER + SORT: Use History class logic.
+                // Only the first page is sorted now; the rest waits until the user scrolls.
                 // We cast selectedItem to String because JComboBox returns 'Object'
-                history.sortSales(filtered, (String) sortBox.getSelectedItem(), ascCheck.isSelected());
-
-                // 5. UPDATE TABLE
-                tableModel.setRowCount(0); // Clear old data
-                for (Transaction t : filtered) {
-                    tableModel.addRow(new Object[] {
-                            t.getDate(),
-                            t.getCustomerName(),
-                            t.getModelName(),
-                            t.getQuantity(),
-                            String.format("%.2f", t.getTotalAmount()) // Format currency
-                    });
-                }
+                currentPages = history.querySales(allTxns, start, end, (String) sortBox.getSelectedItem(),
+                        ascCheck.isSelected());
+                pagesShown = 1;
+
+                // 4. UPDATE TABLE (first page only)
+                tableModel.setRows(currentPages.getPage(0));
+                table.scrollRectToVisible(new Rectangle(0, 0, 1, 1));
                 
-                // 6. UPDATE TOTAL LABEL
-                // Use Analytics class logic for the math
-                double total = analytics.calculateCumulativeTotal(filtered);
-                cumulativeLabel.setText(String.format("Total Sales: RM %.2f", total));
+                // 5. UPDATE TOTAL LABEL (already added up while filtering)
+                cumulativeLabel.setText("Total Sales: RM " + Money.format(currentPages.getTotalCents()) + " ("
+                        + currentPages.getTotalCount() + " sales)");
                 
             } catch (Exception ex) {
                 // Show error if date format is wrong (e.g., user typed "Today" instead of "2023-10-25")
@@ -119,9 +110,23 @@ public class HistoryPanel {
             }
         });
 
+        // --- LOAD MORE ON SCROLL ---
+        // When the user gets near the bottom of what's loaded, add the next page.
+        JScrollPane scrollPane = new JScrollPane(table); // ScrollPane lets us scroll if list is long
+        scrollPane.getVerticalScrollBar().addAdjustmentListener(e -> {
+            if (currentPages == null)
+                return;
+            JScrollBar bar = scrollPane.getVerticalScrollBar();
+            boolean nearBottom = bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - table.getRowHeight() * 5;
+            if (nearBottom && pagesShown < currentPages.getPageCount()) {
+                tableModel.appendRows(currentPages.getPage(pagesShown));
+                pagesShown++;
+            }
+        });
+
         // Assemble the panel
         panel.add(filterPanel, BorderLayout.NORTH);
-        panel.add(new JScrollPane(table), BorderLayout.CENTER); // ScrollPane lets us scroll if list is long
+        panel.add(scrollPane, BorderLayout.CENTER);
         panel.add(cumulativeLabel, BorderLayout.SOUTH);
 
         return panel;
@@ -0,0 +1,246 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// TRANSACTION IDs
+// "TXN-" + System.currentTimeMillis() gives the SAME ID to every item of a sale and to two tills
+// that press "Confirm" in the same millisecond. Here every ID is one 'long' made of three parts
+// (the "Snowflake" layout used by many big systems):
+//
+//   | 41 bits: milliseconds since 2000-01-01 | 10 bits: outlet | 4 bits: till | 8 bits: counter |
+//
+//   - the time part makes IDs sort by time (roughly, across outlets)
+//   - the outlet part means two outlets can never hand out the same ID
+//   - the till part means two programs running at once (the GUI and a BatchCli import, or two
+//     tills sharing the data folder) can't either, even for the same outlet (see TILLS below)
+//   - the counter allows 256 IDs per till per millisecond before we wait for the next one
+//
+// (IDs written before the till part existed had a 12-bit counter there, which almost never went
+// past 255, so the outlet part of every old ID still reads the same.)
+//
+// No locks: the time + counter live together in one AtomicLong that we bump with compareAndSet.
+// The receipts store the ID as a plain number ("Transaction ID: 1234567890123"), and because
+// the outlet is inside the number, DataLoader can tell where a sale happened from its ID alone.
+//
+// ** USED BY TRANSACTION, SALESPANEL, STOCKINOUTTAB, BATCHCLI & DATALOADER **
+public final class IdGenerator {
+
+    public static final long EPOCH = 946684800000L; // 2000-01-01T00:00:00Z (41 bits last until 2069)
+    private static final int NODE_BITS = 10;
+    private static final int TILL_BITS = 4;
+    private static final int SEQUENCE_BITS = 8;
+    private static final int LOW_BITS = TILL_BITS + SEQUENCE_BITS; // everything below the outlet
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    private static final long MAX_LOW = (1L << LOW_BITS) - 1;
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    public static final int MAX_TILL = (1 << TILL_BITS) - 1;
+
+    // Outlet part for HQ, and for old receipts that were written before IDs existed
+    public static final int HQ_NODE = 0;
+    public static final int LEGACY_NODE = MAX_NODE;
+
+    // One generator per outlet in this program (its till part is this program's till)
+    private static final Map<Integer, IdGenerator> GENERATORS = new ConcurrentHashMap<>();
+
+    private final int node;
+    private final int till;
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | counter of the last ID handed out
+    private final AtomicLong last = new AtomicLong();
+
+    private IdGenerator(int node) {
+        this.node = node;
+        this.till = till();
+    }
+
+    // The shared generator for an outlet code like "C60" (or "HQ")
+    public static IdGenerator forOutlet(String outletCode) {
+        return GENERATORS.computeIfAbsent(nodeOf(outletCode), IdGenerator::new);
+    }
+
+    // --- MAKING IDs ---
+
+    public long nextId() {
+        while (true) {
+            long prev = last.get();
+            long now = Math.max(System.currentTimeMillis() - EPOCH, prev >>> SEQUENCE_BITS); // never go back in time
+            long next;
+            if (now == prev >>> SEQUENCE_BITS) {
+                if ((prev & MAX_SEQUENCE) == MAX_SEQUENCE) {
+                    // 256 IDs in this millisecond already: wait for the clock to move on
+                    Thread.onSpinWait();
+                    continue;
+                }
+                next = prev + 1;
+            } else {
+                next = now << SEQUENCE_BITS;
+            }
+            if (last.compareAndSet(prev, next))
+                return compose(next >>> SEQUENCE_BITS, node, ((long) till << SEQUENCE_BITS) | (next & MAX_SEQUENCE));
+        }
+    }
+
+    public String nextIdString() {
+        return Long.toString(nextId());
+    }
+
+    // Builds an ID from its parts (used for generated test data). 'sequence' fills the till and
+    // counter parts together, so anything below 256 is till 0.
+    public static long composeAt(long epochMillis, int node, long sequence) {
+        return compose(epochMillis - EPOCH, node, sequence);
+    }
+
+    // Receipts written before IDs existed get a stable stand-in: their date/time plus their position
+    // in the day's file ('fileName', e.g. "sales_2026-01-05.txt"), under LEGACY_NODE so they can never
+    // clash with a real ID. A receipt whose date can't be read uses the date in the file name
+    // instead, so undated receipts in two different files don't get the same stand-in.
+    public static long legacyId(int epochDay, int minuteOfDay, int receiptNo, String fileName) {
+        if (epochDay == Transaction.NO_DATE)
+            epochDay = dayOfFile(fileName);
+        long millis = ((long) Math.max(epochDay, 0) * 1440 + minuteOfDay) * 60_000L + receiptNo / (MAX_LOW + 1);
+        return composeAt(millis, LEGACY_NODE, receiptNo);
+    }
+
+    // "sales_2026-01-05.txt" -> that day (the text between the last '_' and the '.'), or 0 if there is none
+    private static int dayOfFile(String fileName) {
+        if (fileName == null)
+            return 0;
+        int start = fileName.lastIndexOf('_') + 1;
+        int end = fileName.indexOf('.', start);
+        int day = Transaction.parseEpochDay(fileName.substring(start, end < 0 ? fileName.length() : end));
+        return day == Transaction.NO_DATE ? 0 : day;
+    }
+
+    private static long compose(long millisSinceEpoch, int node, long low) {
+        return (millisSinceEpoch << (NODE_BITS + LOW_BITS)) | ((long) node << LOW_BITS) | (low & MAX_LOW);
+    }
+
+    // --- TILLS ---
+    // Each running program hands out IDs with its own counter, so two programs writing receipts for
+    // the same outlet need different till numbers (0..15). A program gets one by:
+    //   1. -Dgoldenhour.till=3 on the command line (for tills that are always the same machine), or
+    //   2. locking the first free "Tills/till_N.lock" file. The lock is held until the program exits,
+    //      so the next program that starts takes the next number.
+    // If all 16 are taken we fall back to a number from the process ID and say so.
+
+    public static final String TILLS_DIR = "Tills";
+
+    private static File tillFolder = new File(TILLS_DIR);
+    private static int claimedTill = -1;   // -1 = not claimed yet
+    private static FileLock tillLock;      // kept so the lock lives as long as the program
+
+    // Where the lock files live (DataLoader points this at its data folder).
+    // Has no effect once this program has claimed its till.
+    public static synchronized void useTillFolder(File dir) {
+        if (claimedTill < 0)
+            tillFolder = dir;
+    }
+
+    // This program's till number (claimed the first time an ID is made)
+    public static synchronized int till() {
+        if (claimedTill >= 0)
+            return claimedTill;
+
+        String setting = System.getProperty("goldenhour.till");
+        if (setting != null) {
+            try {
+                int n = Integer.parseInt(setting.trim());
+                if (n >= 0 && n <= MAX_TILL)
+                    return claimedTill = n;
+            } catch (NumberFormatException e) {
+                // fall through to the message below
+            }
+            System.out.println("Ignoring goldenhour.till=" + setting + " (must be 0.." + MAX_TILL + ")");
+        }
+
+        tillFolder.mkdirs();
+        for (int n = 0; n <= MAX_TILL; n++) {
+            FileChannel ch = null;
+            try {
+                ch = FileChannel.open(new File(tillFolder, "till_" + n + ".lock").toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                FileLock lock = ch.tryLock();
+                if (lock != null) {
+                    tillLock = lock;
+                    return claimedTill = n;
+                }
+            } catch (IOException | OverlappingFileLockException e) {
+                // can't use this one, try the next
+            }
+            try {
+                if (ch != null)
+                    ch.close();
+            } catch (IOException e) {
+                // nothing to clean up
+            }
+        }
+        claimedTill = (int) (ProcessHandle.current().pid() & MAX_TILL);
+        System.out.println("No free till in " + tillFolder.getPath() + ", using till " + claimedTill
+                + " (set -Dgoldenhour.till to be sure IDs never clash)");
+        return claimedTill;
+    }
+
+    // --- READING IDs BACK ---
+
+    public static long timeOf(long id) {
+        return (id >>> (NODE_BITS + LOW_BITS)) + EPOCH;
+    }
+
+    public static int nodeOf(long id) {
+        return (int) ((id >>> LOW_BITS) & MAX_NODE);
+    }
+
+    // "C63" for an ID made at outlet C63, "HQ" for HQ, "" for old receipts
+    public static String outletOf(long id) {
+        int node = nodeOf(id);
+        if (node == HQ_NODE)
+            return StockMovement.HQ;
+        if (node == LEGACY_NODE)
+            return "";
+        return "C" + node;
+    }
+
+    // The outlet code inside a receipt's "Transaction ID:" text, or "" if there is none
+    public static String outletOf(String id) {
+        long value = parse(id);
+        return value < 0 ? "" : outletOf(value);
+    }
+
+    // "1234567890123" -> 1234567890123, or -1 if the text is not an ID
+    public static long parse(String id) {
+        if (id == null || id.isEmpty() || id.length() > 19)
+            return -1;
+        long v = 0;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    // Outlet codes are "C" + a number (see outlet.csv), so the number itself is the outlet part.
+    // HQ (and anything we can't read) uses HQ_NODE.
+    public static int nodeOf(String outletCode) {
+        if (outletCode == null)
+            return HQ_NODE;
+        int n = 0;
+        boolean digits = false;
+        for (int i = 0; i < outletCode.length(); i++) {
+            char c = outletCode.charAt(i);
+            if (c >= '0' && c <= '9') {
+                n = n * 10 + (c - '0');
+                digits = true;
+                if (n >= LEGACY_NODE)
+                    return HQ_NODE;
+            }
+        }
+        return digits ? n : HQ_NODE;
+    }
+}
@@ -0,0 +1,198 @@
+import java.io.*;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// THE STOPWATCH
+// A tiny metrics registry: counters ("how many?") and timers ("how long?").
+// Timers keep a latency histogram so we can show p50 / p99, not just the average.
+//
+// Usage (the pattern used all over DataLoader and the panels):
+//     long t0 = Metrics.start();
+//     ... do the work ...
+//     Metrics.stop("DataLoader.loadModels", t0);
+//
+// When metrics are switched off, start() returns 0 and stop() returns straight away,
+// so the cost is one boolean check. Switch on with -Dgoldenhour.metrics=true
+// or from the DIAGNOSTICS tab.
+public final class Metrics {
+
+    private static volatile boolean enabled = Boolean.getBoolean("goldenhour.metrics");
+
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService flusher;
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    // --- TIMERS ---
+
+    // Returns the start time, or 0 when metrics are off (stop() then ignores it)
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public static void stop(String name, long startNanos) {
+        if (startNanos == 0L)
+            return;
+        timer(name).record(System.nanoTime() - startNanos);
+    }
+
+    // --- COUNTERS ---
+
+    public static void count(String name) {
+        count(name, 1);
+    }
+
+    public static void count(String name, long amount) {
+        if (!enabled)
+            return;
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(amount);
+    }
+
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, k -> new Timer());
+    }
+
+    public static void reset() {
+        counters.clear();
+        timers.clear();
+    }
+
+    // --- ONE NAMED TIMER ---
+    // Count, total time, max and a latency histogram.
+    // The histogram works like HdrHistogram: values are grouped by their power of two
+    // and each power of two is split into 16 equal slices. So every recorded time is
+    // kept with at most ~6% error, from nanoseconds up to minutes, in 1024 slots.
+    public static class Timer {
+        private static final int SUB_BUCKETS = 16;
+        private static final int SUB_BITS = 4;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+
+        public void record(long nanos) {
+            if (nanos < 0)
+                nanos = 0;
+            count.increment();
+            totalNanos.add(nanos);
+            buckets.incrementAndGet(bucketOf(nanos));
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // another thread raised the max at the same time, try again
+            }
+        }
+
+        // Which slot a value falls into
+        private static int bucketOf(long v) {
+            if (v < SUB_BUCKETS)
+                return (int) v; // small values get an exact slot each
+            int exp = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        // The highest value that still falls into a slot (so percentiles never under-report)
+        private static long upperBoundOf(int bucket) {
+            if (bucket < SUB_BUCKETS)
+                return bucket;
+            int exp = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            long sub = bucket % SUB_BUCKETS;
+            long low = (1L << exp) | (sub << (exp - SUB_BITS));
+            return low + (1L << (exp - SUB_BITS)) - 1;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        // e.g. percentileMillis(99) = "99% of calls were faster than this"
+        public double percentileMillis(double percentile) {
+            long n = count.sum();
+            if (n == 0)
+                return 0;
+            long target = (long) Math.ceil(n * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= target)
+                    return Math.min(upperBoundOf(i), maxNanos.get()) / 1e6;
+            }
+            return getMaxMillis();
+        }
+    }
+
+    // --- REPORTING ---
+
+    // A plain-text table of everything recorded so far (used by the file and the DIAGNOSTICS tab)
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Metrics ").append(enabled ? "ON" : "OFF").append(" @ ").append(java.time.LocalDateTime.now().withNano(0)).append("\n\n");
+
+        sb.append(String.format(Locale.ROOT, "%-44s %9s %10s %10s %10s %10s%n", "TIMER", "COUNT", "MEAN ms", "P50 ms", "P99 ms", "MAX ms"));
+        for (Map.Entry<String, Timer> e : new TreeMap<>(timers).entrySet()) {
+            Timer t = e.getValue();
+            sb.append(String.format(Locale.ROOT, "%-44s %9d %10.3f %10.3f %10.3f %10.3f%n", e.getKey(), t.getCount(),
+                    t.getMeanMillis(), t.percentileMillis(50), t.percentileMillis(99), t.getMaxMillis()));
+        }
+
+        sb.append("\n").append(String.format(Locale.ROOT, "%-44s %9s%n", "COUNTER", "VALUE"));
+        for (Map.Entry<String, LongAdder> e : new TreeMap<>(counters).entrySet()) {
+            sb.append(String.format(Locale.ROOT, "%-44s %9d%n", e.getKey(), e.getValue().sum()));
+        }
+        return sb.toString();
+    }
+
+    // Writes the report to a file (overwrites, so the file always shows the latest numbers)
+    public static void writeReport(File file) {
+        try (PrintWriter pw = new PrintWriter(new FileWriter(file))) {
+            pw.print(report());
+        } catch (IOException e) {
+            System.out.println("Error writing metrics: " + e.getMessage());
+        }
+    }
+
+    // Starts a background thread that rewrites the metrics file every few seconds.
+    // Does nothing when metrics are off (it checks again on each tick).
+    public static synchronized void startFlusher(File file, long periodSeconds) {
+        if (flusher != null)
+            return;
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-flusher");
+            t.setDaemon(true); // never keeps the app alive on exit
+            return t;
+        });
+        flusher.scheduleAtFixedRate(() -> {
+            if (enabled)
+                writeReport(file);
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+}
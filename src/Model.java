@@ -1,15 +1,21 @@
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 public class Model {
     private String modelName;
-    private double price;
+    private long priceCents; // RM 1149.00 is stored as 114900 (see Money.java)
     private Map<String, Integer> stockPerOutlet; // OutletCode -> Quantity
+    private volatile boolean frozen; // published in a Catalogue version: read-only from then on
 
     public Model(String modelName, double price) {
+        this(modelName, Money.ofDouble(price));
+    }
+
+    public Model(String modelName, long priceCents) {
         this.modelName = modelName;
-        this.price = price;
+        this.priceCents = priceCents;
         this.stockPerOutlet = new HashMap<>();
     }
 
@@ -18,10 +24,31 @@ public class Model {
     }
 
     public double getPrice() {
-        return price;
+        return Money.toDouble(priceCents);
+    }
+
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    // A changeable copy (Catalogue.Edit uses this to prepare the next version)
+    Model copy() {
+        Model m = new Model(modelName, priceCents);
+        m.stockPerOutlet.putAll(stockPerOutlet);
+        return m;
+    }
+
+    void freeze() {
+        frozen = true;
+    }
+
+    private void checkWritable() {
+        if (frozen)
+            throw new IllegalStateException(modelName + " belongs to a published catalogue; change it with Catalogue.update");
     }
 
     public void setStock(String outletCode, int quantity) {
+        checkWritable();
         stockPerOutlet.put(outletCode, quantity);
     }
 
@@ -30,10 +57,12 @@ public class Model {
     }
 
     public void addStock(String outletCode, int quantity) {
+        checkWritable();
         stockPerOutlet.put(outletCode, getStock(outletCode) + quantity);
     }
 
     public void reduceStock(String outletCode, int quantity) {
+        checkWritable();
         int current = getStock(outletCode);
         if (current >= quantity) {
             stockPerOutlet.put(outletCode, current - quantity);
@@ -43,11 +72,11 @@ public class Model {
     }
 
     public Map<String, Integer> getAllStock() {
-        return stockPerOutlet;
+        return frozen ? Collections.unmodifiableMap(stockPerOutlet) : stockPerOutlet;
     }
 
     public Map<String, Integer> getStocks() {
-        return stockPerOutlet;
+        return getAllStock();
     }
 
     public int getTotalStock() {
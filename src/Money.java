@@ -0,0 +1,102 @@
+// MONEY IN CENTS
+// A double can't hold 0.10 exactly, so adding up thousands of prices as doubles slowly drifts
+// (e.g. 0.1 + 0.2 = 0.30000000000000004). Here every amount is a whole number of CENTS in a
+// 'long': RM 12.50 is stored as 1250. Adding longs is exact and very fast, and nothing
+// needs to be created on the heap to do it.
+//
+// The text files still say "RM12.50" / "1149.0" exactly as before; we only convert
+// when reading (parse) and writing (format / append).
+//
+// ** USED BY MODEL, TRANSACTION, DATALOADER, ANALYTICS, PERFORMANCE, HISTORY ... **
+public final class Money {
+
+    private Money() {
+    }
+
+    // --- READING ---
+
+    // "1149.0" -> 114900, "RM12.5" -> 1250, "-3.456" -> -346 (rounded half up).
+    // Reads the digits directly, without going through a double.
+    public static long parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    public static long parse(CharSequence text, int start, int end) {
+        // Skip spaces and an optional "RM" in front
+        while (start < end && Character.isWhitespace(text.charAt(start)))
+            start++;
+        if (start + 1 < end && text.charAt(start) == 'R' && text.charAt(start + 1) == 'M')
+            start += 2;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1)))
+            end--;
+
+        boolean negative = false;
+        if (start < end && (text.charAt(start) == '-' || text.charAt(start) == '+')) {
+            negative = text.charAt(start) == '-';
+            start++;
+        }
+
+        long whole = 0;
+        long cents = 0;
+        int decimals = 0;
+        boolean roundUp = false;
+        boolean seenDigit = false;
+        boolean afterPoint = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && !afterPoint) {
+                afterPoint = true;
+            } else if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                if (!afterPoint) {
+                    whole = whole * 10 + (c - '0');
+                } else if (decimals < 2) {
+                    cents = cents * 10 + (c - '0');
+                    decimals++;
+                } else if (decimals == 2) {
+                    roundUp = c >= '5'; // third decimal decides the rounding
+                    decimals++;
+                }
+            } else if (c != ',') { // "1,149.00" is fine, anything else is not a number
+                throw new NumberFormatException("Not an amount: \"" + text.subSequence(start, end) + "\"");
+            }
+        }
+        if (!seenDigit)
+            throw new NumberFormatException("Not an amount: \"" + text.subSequence(start, end) + "\"");
+        if (decimals == 1)
+            cents *= 10; // ".5" means 50 cents
+        long total = whole * 100 + cents + (roundUp ? 1 : 0);
+        return negative ? -total : total;
+    }
+
+    // --- WRITING ---
+
+    // 1250 -> "12.50" (same text as String.format("%.2f", 12.5))
+    public static String format(long cents) {
+        return append(new StringBuilder(12), cents).toString();
+    }
+
+    // Writes the amount straight into a StringBuilder you already have (no extra Strings)
+    public static StringBuilder append(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % 100;
+        sb.append(cents / 100).append('.');
+        if (fraction < 10)
+            sb.append('0');
+        return sb.append(fraction);
+    }
+
+    // --- CONVERTING ---
+
+    // For old code that still works in doubles (rounded to the nearest cent)
+    public static long ofDouble(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+}
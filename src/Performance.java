@@ -7,7 +7,12 @@ public class Performance {
     private DataLoader dataLoader;
 
     public Performance() {
-        this.dataLoader = new DataLoader();
+        this(new DataLoader());
+    }
+
+    // Lets callers (e.g. the benchmarks) share an existing DataLoader
+    public Performance(DataLoader dataLoader) {
+        this.dataLoader = dataLoader;
     }
 
     /**
@@ -16,14 +21,19 @@ public class Performance {
      */
     public static class PerformanceEntry {
         public String empId;
-        public double totalSales;      // How much money they made (RM)
+        public long totalCents;        // How much money they made (in cents, see Money.java)
         public int transactionCount;   // How many times they pressed "Pay"
 
         public PerformanceEntry(String empId) {
             this.empId = empId;
-            this.totalSales = 0;
+            this.totalCents = 0;
             this.transactionCount = 0;
         }
+
+        // The same amount in RM, for screens and reports
+        public double getTotalSales() {
+            return Money.toDouble(totalCents);
+        }
     }
 
     /**
@@ -33,9 +43,17 @@ public class Performance {
      * 3. Sorts them so the #1 Seller is at the top.
      */
     public List<PerformanceEntry> getEmployeePerformance() {
+        long t0 = Metrics.start();
         // Step 1: Load every single transaction from the text files
         List<Transaction> allTxns = dataLoader.loadTransactions();
-        
+        List<PerformanceEntry> sortedList = getEmployeePerformance(allTxns);
+        Metrics.stop("Performance.getEmployeePerformance", t0);
+        return sortedList;
+    }
+
+    // Same leaderboard, but for a list you already have (e.g. one month only).
+    // ** USED BY BATCHCLI ** for the nightly report files.
+    public List<PerformanceEntry> getEmployeePerformance(List<Transaction> allTxns) {
         // Step 2: Aggregate (Group By Employee)
         // Map Key = Employee ID (e.g., "001")
         // Map Value = Their Scorecard (PerformanceEntry)
@@ -51,7 +69,7 @@ public class Performance {
                 
                 // Add this specific sale to their total score
                 PerformanceEntry entry = metrics.get(id);
-                entry.totalSales += t.getTotalAmount();
+                entry.totalCents += t.getTotalCents();
                 entry.transactionCount++;
             }
         }
@@ -65,7 +83,7 @@ public class Performance {
         for (int i = 0; i < n - 1; i++) {
             for (int j = 0; j < n - i - 1; j++) {
                 // Compare: If Person J made LESS than Person J+1...
-                if (sortedList.get(j).totalSales < sortedList.get(j + 1).totalSales) {
+                if (sortedList.get(j).totalCents < sortedList.get(j + 1).totalCents) {
                     // ... SWAP them (push the lower value down)
                     PerformanceEntry temp = sortedList.get(j);
                     sortedList.set(j, sortedList.get(j + 1));
@@ -1,6 +1,5 @@
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
 import java.util.List;
@@ -26,14 +25,11 @@ public class PerformancePanel {
 
         // LOGIC ENGINE:
         // We use the 'Performance' class to handle the heavy math (summing up sales).
-        Performance performance = new Performance();
+        Performance performance = new Performance(dataLoader); // shares the parsed sales
 
         // --- 2. TABLE SETUP ---
-        // Define columns for the leaderboard
-        String[] columns = { "Rank", "Employee Name", "Total Sales (RM)", "Txn Count" };
-        
-        // DefaultTableModel allows us to add rows dynamically later
-        DefaultTableModel tableModel = new DefaultTableModel(columns, 0);
+        // Leaderboard columns: Rank, Employee Name, Total Sales (RM), Txn Count (see TableModels.java)
+        TableModels.PerformanceTableModel tableModel = new TableModels.PerformanceTableModel();
         JTable table = new JTable(tableModel);
         
         // Apply our custom visual style (see helper method at bottom)
@@ -45,55 +41,16 @@ public class PerformancePanel {
         // --- 4. ACTION LISTENER (THE BRAIN) ---
         // This runs when the Manager clicks "Generate Report"
         btnGenerate.addActionListener(e -> {
-            // A. Reset: Clear existing rows so we don't duplicate data if clicked twice
-            tableModel.setRowCount(0);
-            
-            // B. Reload Data: Load fresh employee list from file. 
+            // A. Reload Data: Load fresh employee list from file. 
             // We do this just in case a new staff member was registered 5 minutes ago.
             Map<String, employee> freshEmployees = dataLoader.loadEmployee();
             
-            // C. Get Stats: Ask Performance.java for the sorted list of sales
+            // B. Get Stats: Ask Performance.java for the sorted list of sales
             List<Performance.PerformanceEntry> performanceData = performance.getEmployeePerformance();
 
-            int rank = 1;
-            
-            // D. Process Data: Loop through the results and put them in the table
-            for (Performance.PerformanceEntry entry : performanceData) {
-                
-                // NAME LOOKUP LOGIC:
-                // The transaction only has an ID (e.g., "001"). We need to find the Name ("Ali").
-                String name = "Unknown Staff";
-                String cleanID = (entry.empId != null) ? entry.empId.trim() : "";
-
-                // Attempt 1: Fast Lookup
-                // Check if the ID exists directly in the Map (HashMap is very fast)
-                if (freshEmployees.containsKey(cleanID)) {
-                    name = freshEmployees.get(cleanID).getName();
-                } else {
-                    // Attempt 2: Brute-Force Lookup (Fallback)
-                    // If Fast Lookup failed (maybe due to case sensitivity "A01" vs "a01"),
-                    // loop through everyone to find a match.
-                    for (employee emp : freshEmployees.values()) {
-                        if (emp.getID().trim().equalsIgnoreCase(cleanID)) {
-                            name = emp.getName();
-                            break; // Found them, stop looking
-                        }
-                    }
-                }
-
-                // E. Formatting: Create the Rank string
-                String rankStr = "RANK " + rank;
-                if (rank == 1) rankStr = "TOP RANK"; // Special badge for #1
-
-                // F. Add Row: Push the final calculated data into the table
-                tableModel.addRow(new Object[] {
-                        rankStr,
-                        name,
-                        String.format("%.2f", entry.totalSales), // Format money to 2 decimals
-                        entry.transactionCount
-                });
-                rank++; // Increment rank for the next person
-            }
+            // C. Show them: names are looked up once and the table is refreshed in one go
+            // (ranks and "TOP RANK" badge are worked out by the table model)
+            tableModel.setEntries(performanceData, freshEmployees);
         });
 
         // --- 5. HEADER LABEL ---
@@ -0,0 +1,333 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// THE RECEIPT WRITER (GROUP COMMIT)
+// Opening a FileWriter for every sale costs a file open + close each time, and nothing
+// promises the receipt actually reached the disk. Instead, each receipt folder has ONE
+// long-lived writer:
+//   - the day file (e.g. sales_2026-10-19.txt) stays open as a FileChannel
+//   - tills hand their receipt to a queue; one background thread takes EVERYTHING that is
+//     waiting, writes it with one write() and (depending on the setting) one force()
+//   - at midnight the next receipt simply goes into the next day's file
+// So if five tills press "Confirm" at once, that is one write and one disk flush, not five.
+//
+// DURABILITY (-Dgoldenhour.receipts.durability=...)
+//   sync          (default) append() returns only after the receipt is forced to disk
+//   interval:200  append() returns after the write; the disk is forced at most every 200 ms
+//   close         the disk is forced only at midnight rollover and when the app exits
+//
+// REWRITING A DAY FILE: the open channel keeps pointing at the file it opened. If someone replaced
+// or deleted that file behind our back, later receipts would go into the old (unlinked) file and be
+// lost, and on Windows the rename / delete fails while we hold the file open. So anything that
+// rewrites or removes day files does it inside runExclusive(): no receipt is written meanwhile, the
+// file is closed first, and the next receipt opens whatever file is there afterwards.
+//
+// OTHER PROGRAMS: the GUI and "BatchCli compact" / "BatchCli archive" are separate programs, and
+// 'synchronized' only works inside one. So every write and every runExclusive() also holds a
+// FileLock on "sales_writer.lock" (one per folder + prefix). Before writing, the writer checks that
+// the file it has open is still the day file on disk; if another program swapped it, it reopens.
+//
+// ** USED BY DATALOADER (appendSalesReceipt / appendReceipt / appendReceipts),
+//    SALESAMENDMENTS (compact) & RECEIPTARCHIVE (archive) **
+public class ReceiptAppender {
+
+    public enum Durability {
+        SYNC, INTERVAL, CLOSE
+    }
+
+    // Work on the folder's day files (see runExclusive)
+    public interface FileWork {
+        void run() throws IOException;
+    }
+
+    private static final String LOCK_SUFFIX = "writer.lock"; // "sales_" -> "sales_writer.lock"
+    private static final String LINE = System.lineSeparator(); // same as BufferedWriter.newLine()
+    private static final Charset CHARSET = Charset.defaultCharset(); // same as FileWriter
+
+    // One writer per folder + file prefix, shared by every DataLoader in the app
+    private static final Map<String, ReceiptAppender> APPENDERS = new ConcurrentHashMap<>();
+
+    // Put on the queue by close() to tell the writer thread to finish up.
+    // (We don't interrupt the thread: an interrupt in the middle of a write would close the file.)
+    private static final Entry STOP = new Entry(null, new byte[0]);
+
+    static {
+        // Make sure nothing queued is lost when the app exits
+        Runtime.getRuntime().addShutdownHook(new Thread(ReceiptAppender::closeAll, "receipt-appender-close"));
+    }
+
+    private final File dir;
+    private final String prefix;           // "sales_" or "receipts_"
+    private final Durability durability;
+    private final long intervalMs;
+    private final LinkedBlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    // Only touched while holding 'this' (the writer thread, or runExclusive)
+    private FileChannel channel;
+    private LocalDate channelDate;
+    private Object channelKey;             // which file on disk 'channel' is (null if the OS can't say)
+    private FileChannel lockChannel;       // the lock file, opened on first use
+    private boolean dirty;                 // written but not forced yet
+    private long lastForce = System.currentTimeMillis();
+
+    // One receipt (or a group of receipts from the same call) waiting to be written
+    private static class Entry {
+        final LocalDate date;
+        final byte[] bytes;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile IOException error;
+
+        Entry(LocalDate date, byte[] bytes) {
+            this.date = date;
+            this.bytes = bytes;
+        }
+    }
+
+    private ReceiptAppender(File dir, String prefix, Durability durability, long intervalMs) {
+        this.dir = dir;
+        this.prefix = prefix;
+        this.durability = durability;
+        this.intervalMs = intervalMs;
+        this.writer = new Thread(this::run, "receipt-appender-" + prefix);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // The shared writer for e.g. (SalesReceipt folder, "sales_"), using the configured durability
+    public static ReceiptAppender forDir(File dir, String prefix) {
+        String key = dir.getAbsolutePath() + File.separator + prefix;
+        return APPENDERS.computeIfAbsent(key, k -> {
+            String setting = System.getProperty("goldenhour.receipts.durability", "sync").trim().toLowerCase();
+            if (setting.startsWith("interval")) {
+                int colon = setting.indexOf(':');
+                long ms = colon > 0 ? Long.parseLong(setting.substring(colon + 1).trim()) : 100;
+                return new ReceiptAppender(dir, prefix, Durability.INTERVAL, ms);
+            }
+            return new ReceiptAppender(dir, prefix, setting.equals("close") ? Durability.CLOSE : Durability.SYNC, 0);
+        });
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    // --- FOR THE TILLS ---
+
+    // Adds one receipt block (+ the dashed separator line) to today's file
+    public void append(String content) throws IOException {
+        appendAll(List.of(content));
+    }
+
+    // Adds several receipts in one go (they always end up next to each other in the file)
+    public void appendAll(List<String> contents) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String content : contents)
+            sb.append(content).append(LINE).append(FileFormats.RECEIPT_SEPARATOR).append(LINE);
+        Entry e = new Entry(LocalDate.now(), sb.toString().getBytes(CHARSET));
+        if (closed)
+            throw new IOException("Receipt writer is closed");
+        queue.add(e);
+        try {
+            // SYNC: wait until forced to disk; INTERVAL/CLOSE: until written to the file
+            while (!e.done.await(1, TimeUnit.SECONDS)) {
+                if (!writer.isAlive())
+                    throw new IOException("Receipt writer has stopped");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while saving receipt", ex);
+        }
+        if (e.error != null)
+            throw e.error;
+    }
+
+    // Forces everything written so far to disk and stops the writer
+    public void close() {
+        closed = true;
+        queue.add(STOP);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --- FOR WHOEVER REWRITES DAY FILES ---
+
+    // Runs 'work' while no receipt is being written to this folder, with the day file closed.
+    // Receipts that arrive meanwhile wait, then go into the file that exists afterwards.
+    public void runExclusive(FileWork work) throws IOException {
+        synchronized (this) {
+            try (FileLock lock = lockFolder()) {
+                closeChannel();
+                work.run();
+            }
+        }
+    }
+
+    // Same, for the shared writer of (folder, prefix)
+    public static void runExclusive(File dir, String prefix, FileWork work) throws IOException {
+        forDir(dir, prefix).runExclusive(work);
+    }
+
+    public static void closeAll() {
+        for (ReceiptAppender a : APPENDERS.values())
+            a.close();
+        APPENDERS.clear();
+    }
+
+    // --- THE WRITER THREAD ---
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                Entry first = durability == Durability.INTERVAL ? queue.poll(intervalMs, TimeUnit.MILLISECONDS)
+                        : queue.take();
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch); // everyone who arrived while we were busy
+                    stopping = batch.remove(STOP);
+                    writeBatch(batch);
+                    batch.clear();
+                }
+                if (durability == Durability.INTERVAL && dirty && System.currentTimeMillis() - lastForce >= intervalMs) {
+                    synchronized (this) {
+                        force();
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Not used to stop us (see STOP), just keep going
+            } catch (IOException e) {
+                System.out.println("Error flushing receipts: " + e.getMessage());
+            }
+        }
+        // Closing: write anything that slipped in behind STOP, then force and close the file
+        queue.drainTo(batch);
+        batch.remove(STOP);
+        writeBatch(batch);
+        try {
+            synchronized (this) {
+                closeChannel();
+                if (lockChannel != null)
+                    lockChannel.close();
+            }
+        } catch (IOException e) {
+            System.out.println("Error closing receipt file: " + e.getMessage());
+        }
+    }
+
+    // One write per day file in the batch (normally just one), then one force() in SYNC mode
+    private synchronized void writeBatch(List<Entry> batch) {
+        if (batch.isEmpty())
+            return;
+        long t0 = Metrics.start();
+        int from = 0;
+        while (from < batch.size()) {
+            // Group the entries for the same day (a batch can straddle midnight)
+            LocalDate date = batch.get(from).date;
+            int to = from;
+            while (to < batch.size() && batch.get(to).date.equals(date))
+                to++;
+            ByteBuffer[] buffers = new ByteBuffer[to - from];
+            for (int i = from; i < to; i++)
+                buffers[i - from] = ByteBuffer.wrap(batch.get(i).bytes);
+            IOException error = null;
+            try (FileLock lock = lockFolder()) {
+                openFor(date);
+                long remaining = 0;
+                for (ByteBuffer b : buffers)
+                    remaining += b.remaining();
+                while (remaining > 0)
+                    remaining -= channel.write(buffers);
+                dirty = true;
+                if (durability == Durability.SYNC)
+                    force();
+            } catch (IOException e) {
+                error = e;
+            }
+            for (int i = from; i < to; i++) {
+                batch.get(i).error = error;
+                batch.get(i).done.countDown();
+            }
+            from = to;
+        }
+        Metrics.stop("ReceiptAppender.batch", t0);
+        Metrics.count("ReceiptAppender.receipts", batch.size());
+    }
+
+    // Keeps the right day's file open: a new date means the old file is finished.
+    // (Called holding the lock file, so no other program can swap the file while we look.)
+    private void openFor(LocalDate date) throws IOException {
+        File f = new File(dir, prefix + date + ".txt");
+        if (channel != null && date.equals(channelDate) && Objects.equals(fileKey(f), channelKey))
+            return;
+        closeChannel();
+        if (!dir.exists())
+            dir.mkdirs();
+        channel = FileChannel.open(f.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        channelDate = date;
+        channelKey = fileKey(f);
+    }
+
+    // Tells two files apart even if they have the same name (null if missing, or on Windows,
+    // where a file we hold open can't be replaced anyway)
+    private static Object fileKey(File f) throws IOException {
+        try {
+            return Files.readAttributes(f.toPath(), BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    // Waits until no other program is writing to or rewriting this folder's day files
+    private FileLock lockFolder() throws IOException {
+        if (lockChannel == null || !lockChannel.isOpen()) {
+            if (!dir.exists())
+                dir.mkdirs();
+            lockChannel = FileChannel.open(new File(dir, prefix + LOCK_SUFFIX).toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+        }
+        return lockChannel.lock();
+    }
+
+    private void force() throws IOException {
+        if (channel != null && dirty) {
+            channel.force(false);
+            Metrics.count("ReceiptAppender.forces");
+        }
+        dirty = false;
+        lastForce = System.currentTimeMillis();
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel == null)
+            return;
+        force();
+        channel.close();
+        channel = null;
+        channelDate = null;
+        channelKey = null;
+    }
+}
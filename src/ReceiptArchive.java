@@ -0,0 +1,249 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// OLD RECEIPTS, COMPRESSED (MONTHLY ARCHIVE)
+// SalesReceipt/ and StockReceipt/ get one new text file every day, forever. Receipts are very
+// repetitive text, so gzip shrinks them to a fraction of their size. Day files older than N days
+// are moved into ONE bundle per month inside an "archive" folder:
+//
+//   SalesReceipt/archive/sales_2026-01.gz    every January day file, each one a separate gzip "member"
+//   SalesReceipt/archive/sales_2026-01.idx   one line per day: name|start byte|compressed size|original size
+//
+// Because every day is its own member, one day can be read on its own (seek to its start and
+// unzip just those bytes), and the bundles can be read in parallel.
+// The loaders never need to know: dayFiles() lists plain day files AND archived days together,
+// and DayFile.open() gives back the same lines either way.
+//
+// Safety: the .idx file is the truth. A day is added to the bundle, flushed to disk, THEN listed
+// in the .idx, and only then is the plain file deleted. If we crash halfway, the half-written
+// member is not in the .idx (so it is ignored and cut off next time) and the plain file is still there.
+//
+// ** USED BY DATALOADER (loaders, search, archiveReceipts) & BATCHCLI archive **
+public class ReceiptArchive {
+
+    public static final String ARCHIVE_DIR = "archive";
+
+    // One day of receipts: a plain .txt file, or one member of a monthly bundle
+    public static class DayFile {
+        public final String name;     // "sales_2026-01-05.txt", the same name either way
+        private final File file;      // the .txt file, or the .gz bundle
+        private final long start;     // archived only: where the member starts in the bundle
+        private final long length;    // archived only: compressed size (-1 = plain file)
+
+        DayFile(String name, File file, long start, long length) {
+            this.name = name;
+            this.file = file;
+            this.start = start;
+            this.length = length;
+        }
+
+        public boolean isArchived() {
+            return length >= 0;
+        }
+
+        // Changes whenever the day's text may have changed (see DaySummary)
+        public String stamp() {
+            return isArchived() ? "gz:" + start + ":" + length : file.length() + ":" + file.lastModified();
+        }
+
+        // "sales_2026-01-05.txt" -> "2026-01-05" (the text between the prefix and ".txt")
+        public String date() {
+            int underscore = name.indexOf('_');
+            return name.substring(underscore + 1, name.length() - 4);
+        }
+
+        // The day's text, line by line (archived days are unzipped as they are read)
+        public BufferedReader open() throws IOException {
+            if (!isArchived())
+                return new BufferedReader(new FileReader(file));
+            Metrics.count("ReceiptArchive.daysRead");
+            InputStream slice = new SliceInputStream(file, start, length);
+            return new BufferedReader(new InputStreamReader(new GZIPInputStream(slice, 64 * 1024)), 64 * 1024);
+        }
+    }
+
+    // --- READING ---
+
+    // Every day file for 'prefix' ("sales_" / "receipts_"), plain and archived, sorted by name (= by date)
+    public static List<DayFile> dayFiles(File dir, String prefix) {
+        List<DayFile> days = new ArrayList<>();
+        File[] plain = dir.listFiles((d, name) -> name.startsWith(prefix) && name.endsWith(".txt"));
+        if (plain != null)
+            for (File f : plain)
+                days.add(new DayFile(f.getName(), f, 0, -1));
+        File[] indexes = new File(dir, ARCHIVE_DIR).listFiles((d, name) -> name.startsWith(prefix) && name.endsWith(".idx"));
+        if (indexes != null) {
+            for (File idx : indexes) {
+                File bundle = bundleFor(idx);
+                for (String[] member : readIndex(idx))
+                    days.add(new DayFile(member[0], bundle, Long.parseLong(member[1]), Long.parseLong(member[2])));
+            }
+        }
+        days.sort(Comparator.comparing(d -> d.name));
+        return days;
+    }
+
+    // --- ARCHIVING ---
+
+    // Moves every "prefix + DATE.txt" day file dated before 'before' into its monthly bundle.
+    // 'amendments' (sales only, may be null) are written into the archived copy, the same way
+    // SalesAmendments.compact() would. Returns how many day files were archived.
+    public static int archive(File dir, String prefix, LocalDate before, SalesAmendments amendments) throws IOException {
+        long t0 = Metrics.start();
+        File[] files = dir.listFiles((d, name) -> name.startsWith(prefix) && name.endsWith(".txt"));
+        if (files == null)
+            return 0;
+        // Group the old day files by month ("2026-01"), oldest first
+        Map<String, List<File>> byMonth = new TreeMap<>();
+        for (File f : files) {
+            LocalDate date = dateOf(f.getName(), prefix);
+            if (date != null && date.isBefore(before))
+                byMonth.computeIfAbsent(date.toString().substring(0, 7), k -> new ArrayList<>()).add(f);
+        }
+        if (byMonth.isEmpty())
+            return 0;
+
+        File archiveDir = new File(dir, ARCHIVE_DIR);
+        if (!archiveDir.exists())
+            archiveDir.mkdirs();
+        int archived = 0;
+        for (Map.Entry<String, List<File>> month : byMonth.entrySet()) {
+            List<File> days = month.getValue();
+            days.sort(Comparator.comparing(File::getName));
+            File bundle = new File(archiveDir, prefix + month.getKey() + ".gz");
+            File idx = new File(archiveDir, prefix + month.getKey() + ".idx");
+            for (File day : days) {
+                // Through the receipt writer: it may still hold this day open (see ReceiptAppender)
+                ReceiptAppender.runExclusive(dir, prefix, () -> archiveDay(day, bundle, idx, amendments));
+                archived++;
+            }
+        }
+        Metrics.stop("ReceiptArchive.archive", t0);
+        Metrics.count("ReceiptArchive.daysArchived", archived);
+        return archived;
+    }
+
+    // Adds one day file to the end of its bundle, then lists it in the .idx, then deletes it
+    private static void archiveDay(File day, File bundle, File idx, SalesAmendments amendments) throws IOException {
+        // The bundle really ends where the last listed member ends (anything after is a crashed attempt)
+        long end = 0;
+        for (String[] member : readIndex(idx))
+            end = Math.max(end, Long.parseLong(member[1]) + Long.parseLong(member[2]));
+
+        long start, length;
+        try (FileChannel ch = FileChannel.open(bundle.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ch.truncate(end);
+            ch.position(end);
+            start = end;
+            // Not closed on purpose: closing the gzip stream would close the channel before force()
+            GZIPOutputStream gz = new GZIPOutputStream(Channels.newOutputStream(ch), 64 * 1024);
+            if (amendments == null || amendments.isEmpty()) {
+                Files.copy(day.toPath(), gz);
+            } else {
+                // Bake the logged edits into the archived copy (the same lines compact() would write)
+                Writer w = new BufferedWriter(new OutputStreamWriter(gz));
+                SalesAmendments.Overlay overlay = amendments.overlay(day.getName());
+                try (BufferedReader br = new BufferedReader(new FileReader(day))) {
+                    String line;
+                    while ((line = br.readLine()) != null) {
+                        w.write(overlay.apply(line));
+                        w.write(System.lineSeparator());
+                    }
+                }
+                w.flush();
+            }
+            gz.finish();
+            length = ch.position() - start;
+            ch.force(true);
+        }
+
+        try (FileOutputStream out = new FileOutputStream(idx, true)) {
+            out.write((day.getName() + "|" + start + "|" + length + "|" + day.length() + System.lineSeparator()).getBytes());
+            out.getFD().sync();
+        }
+        Files.delete(day.toPath());
+        ReceiptIndex.invalidate(day);
+    }
+
+    // --- HELPERS ---
+
+    // Lines of an .idx file as { name, start, length, originalLength } (half-written lines are skipped)
+    private static List<String[]> readIndex(File idx) {
+        List<String[]> members = new ArrayList<>();
+        if (!idx.exists())
+            return members;
+        try (BufferedReader br = new BufferedReader(new FileReader(idx))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] p = line.split("\\|");
+                if (p.length == 4 && IdGenerator.parse(p[1]) >= 0 && IdGenerator.parse(p[2]) > 0)
+                    members.add(p);
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading archive index " + idx.getName() + ": " + e.getMessage());
+        }
+        return members;
+    }
+
+    private static File bundleFor(File idx) {
+        String name = idx.getName();
+        return new File(idx.getParentFile(), name.substring(0, name.length() - 4) + ".gz");
+    }
+
+    // "sales_2026-01-05.txt" -> 2026-01-05 (null if the name isn't a day file)
+    private static LocalDate dateOf(String name, String prefix) {
+        String date = name.substring(prefix.length(), name.length() - 4);
+        int epochDay = Transaction.parseEpochDay(date);
+        return epochDay == Transaction.NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    // Reads bytes [start, start + length) of a file and then reports "end of file",
+    // so the gzip reader stops at the end of one day's member
+    private static class SliceInputStream extends InputStream {
+        private final RandomAccessFile raf;
+        private long remaining;
+
+        SliceInputStream(File file, long start, long length) throws IOException {
+            raf = new RandomAccessFile(file, "r");
+            raf.seek(start);
+            remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0)
+                return -1;
+            int b = raf.read();
+            if (b >= 0)
+                remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            if (remaining <= 0)
+                return -1;
+            int n = raf.read(buf, off, (int) Math.min(len, remaining));
+            if (n > 0)
+                remaining -= n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(remaining, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,440 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// COMPANY-WIDE SALES (CONSOLIDATION AT HQ)
+// Every outlet writes its own SalesReceipt/sales_DATE.txt, so HQ ends up with many files of the
+// same name. This merges them into ONE store where each day holds every outlet's receipts in
+// time order:
+//
+//   consolidated/SalesReceipt/sales_2026-01-05.txt     every outlet's receipts of that day
+//   consolidated/SalesReceipt/consolidation.csv        which inputs each day was built from
+//
+// The store is an ordinary SalesReceipt folder, so "new DataLoader(consolidated)" (or the app
+// started there) shows company-wide analytics, and BatchCli archive works on it as usual.
+//
+// HOW: the days are independent, so several are merged at once (one thread each). Within a day,
+// every outlet's file is already in time order (receipts are appended as they happen), so a
+// K-WAY MERGE streams them: keep the next receipt of each outlet in a priority queue, write the
+// earliest, read that outlet's next one. Memory is one receipt + one read buffer per outlet,
+// however big the files are. Days with more than FAN_IN outlets are merged in groups into
+// temporary runs first, then the runs are merged (so we never hold hundreds of files open).
+//
+// Receipts are ordered by their "Time:" line, then by the time inside their Transaction ID
+// (milliseconds), then by outlet. A receipt that goes back in time within its own file (e.g. a
+// hand-edited file) is noticed while merging: that day is then redone with that file sorted in
+// memory first. Logged sales edits (amendments.log) are written into the merged copy, and old
+// receipts without an ID get the same ID the app would give them, so IDs stay stable.
+//
+// A day is only merged again if one of its inputs changed (see consolidation.csv).
+//
+// ** USED BY BATCHCLI consolidate **
+public class ReceiptConsolidator {
+
+    public static final String MANIFEST = "consolidation.csv";
+    public static final int FAN_IN = 64; // most files open at once per day
+
+    private final File storeDir;
+    private final int threads;
+
+    // What a run did
+    public static class Result {
+        public int days;          // merged
+        public int unchanged;     // skipped: same inputs as last time
+        public int archived;      // skipped: already in the store's archive
+        public int outletDays;    // input files merged
+        public long receipts;
+        public long bytes;        // written
+        public int resorted;      // input files that had to be sorted in memory
+        public int incomplete;    // half-written receipts at the end of an input (left out, like the app does)
+        public long millis;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "Consolidated %d day(s) from %d outlet-day file(s): %d receipt(s), %.1f MB in %.1f s"
+                    + " (%d day(s) unchanged, %d already archived, %d file(s) re-sorted, %d incomplete receipt(s) left out).",
+                    days, outletDays, receipts, bytes / 1e6, millis / 1000.0, unchanged, archived, resorted, incomplete);
+        }
+    }
+
+    // 'storeDir' is the SalesReceipt folder of the store; 'threads' days are merged at once
+    public ReceiptConsolidator(File storeDir, int threads) {
+        this.storeDir = storeDir;
+        this.threads = Math.max(1, threads);
+    }
+
+    // An outlet can be given as its data folder (with SalesReceipt inside) or as the SalesReceipt folder
+    public static File salesDirOf(File outletDir) {
+        File inside = new File(outletDir, DataLoader.SALES_DIR);
+        return inside.isDirectory() ? inside : outletDir;
+    }
+
+    // --- THE RUN ---
+
+    public Result consolidate(List<File> outletDirs) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        long t0 = Metrics.start();
+        if (!storeDir.exists())
+            storeDir.mkdirs();
+
+        // Group every outlet's day files by day
+        TreeMap<String, List<Input>> byDay = new TreeMap<>();
+        for (File dir : outletDirs) {
+            File salesDir = salesDirOf(dir);
+            if (salesDir.getCanonicalFile().equals(storeDir.getCanonicalFile()))
+                throw new IOException("The store can't also be an input: " + dir);
+            if (!salesDir.isDirectory())
+                throw new IOException("No such folder: " + dir);
+            SalesAmendments amendments = new SalesAmendments(salesDir);
+            File log = new File(salesDir, SalesAmendments.LOG_FILE);
+            String editsStamp = log.exists() ? log.length() + ":" + log.lastModified() : "-";
+            for (ReceiptArchive.DayFile f : ReceiptArchive.dayFiles(salesDir, "sales_")) {
+                if (!f.name.startsWith("sales_"))
+                    continue;
+                byDay.computeIfAbsent(f.name, k -> new ArrayList<>())
+                        .add(new Input(salesDir.getPath(), f, amendments, editsStamp));
+            }
+        }
+
+        Map<String, String> manifest = readManifest();
+        Set<String> archived = new HashSet<>();
+        for (ReceiptArchive.DayFile f : ReceiptArchive.dayFiles(storeDir, "sales_"))
+            if (f.isArchived())
+                archived.add(f.name);
+
+        // One task per day that needs merging
+        Result result = new Result();
+        List<String> names = new ArrayList<>();
+        List<Future<DayResult>> tasks = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "consolidate");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (Map.Entry<String, List<Input>> day : byDay.entrySet()) {
+                List<Input> inputs = day.getValue();
+                inputs.sort(Comparator.comparing(in -> in.salesDir)); // same order every run
+                String stamp = stampOf(inputs);
+                if (archived.contains(day.getKey())) {
+                    result.archived++;
+                } else if (stamp.equals(manifest.get(day.getKey())) && new File(storeDir, day.getKey()).exists()) {
+                    result.unchanged++;
+                } else {
+                    names.add(day.getKey());
+                    tasks.add(pool.submit(() -> mergeDay(day.getKey(), inputs, stamp)));
+                }
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                DayResult d;
+                try {
+                    d = tasks.get(i).get();
+                } catch (java.util.concurrent.ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof IOException ? (IOException) cause
+                            : new IOException("Merging " + names.get(i) + " failed: " + cause, cause);
+                }
+                manifest.put(names.get(i), d.stamp);
+                result.days++;
+                result.outletDays += d.inputs;
+                result.receipts += d.receipts;
+                result.bytes += d.bytes;
+                result.resorted += d.resorted;
+                result.incomplete += d.incomplete;
+            }
+        } finally {
+            pool.shutdownNow();
+            // Whatever finished is recorded, so a failed run doesn't redo it
+            writeManifest(manifest);
+        }
+        Metrics.stop("ReceiptConsolidator.consolidate", t0);
+        Metrics.count("ReceiptConsolidator.receipts", result.receipts);
+        result.millis = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    // --- ONE DAY ---
+
+    private static class DayResult {
+        String stamp;
+        int inputs, resorted, incomplete;
+        long receipts, bytes;
+    }
+
+    private DayResult mergeDay(String name, List<Input> inputs, String stamp) throws IOException {
+        long t0 = Metrics.start();
+        DayResult d = new DayResult();
+        d.stamp = stamp;
+        d.inputs = inputs.size();
+        List<File> runs = new ArrayList<>();
+        try {
+            // Too many outlets for one merge: merge them in groups into temporary runs first
+            List<Input> level = inputs;
+            while (level.size() > FAN_IN) {
+                List<Input> next = new ArrayList<>();
+                for (int from = 0; from < level.size(); from += FAN_IN) {
+                    List<Input> group = level.subList(from, Math.min(from + FAN_IN, level.size()));
+                    File run = File.createTempFile(name + ".", ".run", storeDir);
+                    runs.add(run);
+                    mergeInto(group, run, d);
+                    next.add(Input.run(run));
+                }
+                level = next;
+            }
+            File tmp = new File(storeDir, name + ".tmp");
+            d.receipts = mergeInto(level, tmp, d);
+            d.bytes = tmp.length();
+            Files.move(tmp.toPath(), new File(storeDir, name).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            for (File run : runs)
+                run.delete();
+        }
+        Metrics.stop("ReceiptConsolidator.day", t0);
+        return d;
+    }
+
+    // K-way merge of 'inputs' into 'out'. Returns how many receipts were written.
+    private static long mergeInto(List<Input> inputs, File out, DayResult d) throws IOException {
+        while (true) {
+            List<Source> sources = new ArrayList<>();
+            PriorityQueue<Receipt> heads = new PriorityQueue<>();
+            long written = 0;
+            try (Writer w = new BufferedWriter(new FileWriter(out), 64 * 1024)) {
+                for (int i = 0; i < inputs.size(); i++) {
+                    Source s = new Source(i, inputs.get(i));
+                    sources.add(s);
+                    Receipt first = s.next();
+                    if (first != null)
+                        heads.add(first);
+                }
+                Receipt r;
+                while ((r = heads.poll()) != null) {
+                    w.write(r.text);
+                    written++;
+                    Receipt next = sources.get(r.source).next();
+                    if (next != null)
+                        heads.add(next);
+                }
+            } catch (OutOfOrder e) {
+                // Not in time order after all: redo this merge with that file sorted in memory
+                inputs.get(e.source).sortInMemory = true;
+                d.resorted++;
+                continue;
+            } finally {
+                for (Source s : sources)
+                    s.close();
+            }
+            for (Source s : sources)
+                d.incomplete += s.incomplete;
+            return written;
+        }
+    }
+
+    // --- INPUTS ---
+
+    // One outlet's file for the day (or a temporary run)
+    private static class Input {
+        final String salesDir;
+        final ReceiptArchive.DayFile day;      // null for a run
+        final File run;
+        final SalesAmendments amendments;      // null for a run (already applied)
+        final String editsStamp;
+        boolean sortInMemory;
+
+        Input(String salesDir, ReceiptArchive.DayFile day, SalesAmendments amendments, String editsStamp) {
+            this.salesDir = salesDir;
+            this.day = day;
+            this.run = null;
+            this.amendments = amendments;
+            this.editsStamp = editsStamp;
+        }
+
+        private Input(File run) {
+            this.salesDir = run.getPath();
+            this.day = null;
+            this.run = run;
+            this.amendments = null;
+            this.editsStamp = "";
+        }
+
+        static Input run(File run) {
+            return new Input(run);
+        }
+
+        BufferedReader open() throws IOException {
+            return run != null ? new BufferedReader(new FileReader(run), 64 * 1024) : day.open();
+        }
+    }
+
+    // One receipt, with what it is sorted by
+    private static class Receipt implements Comparable<Receipt> {
+        final int minute;     // from the "Time:" line
+        final long idTime;    // milliseconds inside the Transaction ID (0 = none)
+        final int source;
+        final long seq;       // position in its source
+        final String text;    // every line, up to and including the receipt separator
+
+        Receipt(int minute, long idTime, int source, long seq, String text) {
+            this.minute = minute;
+            this.idTime = idTime;
+            this.source = source;
+            this.seq = seq;
+            this.text = text;
+        }
+
+        boolean isBefore(Receipt o) {
+            return minute != o.minute ? minute < o.minute : idTime < o.idTime;
+        }
+
+        @Override
+        public int compareTo(Receipt o) {
+            if (minute != o.minute)
+                return Integer.compare(minute, o.minute);
+            if (idTime != o.idTime)
+                return Long.compare(idTime, o.idTime);
+            if (source != o.source)
+                return Integer.compare(source, o.source);
+            return Long.compare(seq, o.seq);
+        }
+    }
+
+    private static class OutOfOrder extends IOException {
+        final int source;
+
+        OutOfOrder(int source) {
+            super("receipts out of time order");
+            this.source = source;
+        }
+    }
+
+    // Reads one input receipt by receipt
+    private static class Source implements Closeable {
+        private final int index;
+        private final BufferedReader br;
+        private final SalesAmendments.Overlay overlay;
+        private final boolean check;
+        private final String name; // the day file's name, part of the stand-in ID of old receipts
+        private Iterator<Receipt> sorted;
+        private Receipt last;
+        private long seq;
+        int incomplete;
+
+        Source(int index, Input input) throws IOException {
+            this.index = index;
+            this.br = input.open();
+            this.name = input.day != null ? input.day.name : input.run.getName();
+            this.overlay = input.amendments == null ? null : input.amendments.overlay(input.day.name);
+            this.check = !input.sortInMemory;
+            if (input.sortInMemory) {
+                List<Receipt> all = new ArrayList<>();
+                Receipt r;
+                while ((r = read()) != null)
+                    all.add(r);
+                Collections.sort(all);
+                sorted = all.iterator();
+            }
+        }
+
+        Receipt next() throws IOException {
+            if (sorted != null)
+                return sorted.hasNext() ? sorted.next() : null;
+            Receipt r = read();
+            if (r != null && check && last != null && r.isBefore(last))
+                throw new OutOfOrder(index);
+            last = r;
+            return r;
+        }
+
+        // Lines up to the next receipt separator (the same rule as DataLoader's parser)
+        private Receipt read() throws IOException {
+            StringBuilder text = new StringBuilder(512);
+            String id = "", date = "", time = "";
+            boolean hasContent = false;
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (overlay != null)
+                    line = overlay.apply(line);
+                if (line.startsWith(FileFormats.TRANSACTION_ID))
+                    id = line.substring(FileFormats.TRANSACTION_ID.length()).trim();
+                else if (line.startsWith("Date: "))
+                    date = line.substring(6).trim();
+                else if (line.startsWith("Time: "))
+                    time = line.substring(6).trim();
+                if (line.startsWith("----------------") && line.length() > 40) {
+                    int minute = StockMovement.parseMinuteOfDay(time);
+                    if (id.isEmpty()) {
+                        // Old receipt: write down the ID the app gives it, since its place in the file changes
+                        id = Long.toString(IdGenerator.legacyId(Transaction.parseEpochDay(date), minute, (int) seq, name));
+                        text.insert(0, FileFormats.TRANSACTION_ID + id + "\n");
+                    }
+                    text.append(line).append('\n');
+                    long parsed = IdGenerator.parse(id);
+                    long idTime = parsed > 0 && IdGenerator.nodeOf(parsed) != IdGenerator.LEGACY_NODE ? IdGenerator.timeOf(parsed) : 0;
+                    return new Receipt(minute, idTime, index, seq++, text.toString());
+                }
+                if (!line.isBlank())
+                    hasContent = true;
+                text.append(line).append('\n');
+            }
+            if (hasContent)
+                incomplete++; // no separator at the end: the app doesn't count it either
+            return null;
+        }
+
+        @Override
+        public void close() {
+            try {
+                br.close();
+            } catch (IOException e) {
+                // read only
+            }
+        }
+    }
+
+    // --- MANIFEST ---
+    // day,inputs stamp   (the stamp changes whenever any input file or its edit log changes)
+
+    private static String stampOf(List<Input> inputs) {
+        StringBuilder sb = new StringBuilder();
+        for (Input in : inputs)
+            sb.append(in.salesDir).append('|').append(in.day.stamp()).append('|').append(in.editsStamp).append(';');
+        java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+        crc.update(sb.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        return inputs.size() + ":" + Long.toHexString(crc.getValue()) + ":" + sb.length();
+    }
+
+    private Map<String, String> readManifest() {
+        Map<String, String> manifest = new TreeMap<>();
+        File f = new File(storeDir, MANIFEST);
+        if (!f.exists())
+            return manifest;
+        try (BufferedReader br = new BufferedReader(new FileReader(f))) {
+            br.readLine(); // header
+            String line;
+            while ((line = br.readLine()) != null) {
+                int comma = line.indexOf(',');
+                if (comma > 0)
+                    manifest.put(line.substring(0, comma), line.substring(comma + 1));
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading " + MANIFEST + " (every day will be merged again): " + e.getMessage());
+        }
+        return manifest;
+    }
+
+    private void writeManifest(Map<String, String> manifest) throws IOException {
+        File tmp = new File(storeDir, MANIFEST + ".tmp");
+        try (PrintWriter pw = new PrintWriter(new FileWriter(tmp))) {
+            pw.println("Day,Inputs");
+            for (Map.Entry<String, String> e : manifest.entrySet())
+                pw.println(e.getKey() + "," + e.getValue());
+        }
+        Files.move(tmp.toPath(), new File(storeDir, MANIFEST).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
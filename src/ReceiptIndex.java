@@ -0,0 +1,175 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// WHERE EACH RECEIPT IS INSIDE A DAY FILE
+// The EDIT tab used to read a whole sales_DATE.txt into memory and scan it line by line to
+// find one customer. This index remembers, for every receipt in the file, the byte position
+// where it starts and how long it is, plus its Transaction ID and customer name.
+// Finding a sale is then a HashMap lookup, and showing it reads only that receipt's bytes.
+//
+// Day files only ever grow at the end, so when a file gets longer we index just the new part.
+// If it shrinks or is rewritten (see SalesAmendments.compact) we start over.
+//
+// ** USED BY DATALOADER (for EDITTAB) **
+public class ReceiptIndex {
+
+    // One receipt: bytes [start, start + length) of the file, ending with the long dashed line
+    public static class Block {
+        public final long start;
+        public final int length;
+        public final String id;       // from "Transaction ID:", or the stand-in ID for old receipts
+        public final String customer;
+        public final int receiptNo;   // position in the file (0 = first)
+
+        Block(long start, int length, String id, String customer, int receiptNo) {
+            this.start = start;
+            this.length = length;
+            this.id = id;
+            this.customer = customer;
+            this.receiptNo = receiptNo;
+        }
+    }
+
+    // One index per file, shared by everyone (the EDIT tab, tools, ...)
+    private static final Map<File, ReceiptIndex> CACHE = new HashMap<>();
+
+    private final File file;
+    private long indexedTo;     // bytes up to here are indexed (end of the last complete receipt)
+    private long seenLength = -1;
+    private long seenModified = -1;
+    private final List<Block> blocks = new ArrayList<>();
+    private final Map<String, Block> byId = new HashMap<>();
+    private final Map<String, Block> byCustomer = new HashMap<>(); // first receipt per exact name
+
+    private ReceiptIndex(File file) {
+        this.file = file;
+    }
+
+    // The (up to date) index of a day file
+    public static ReceiptIndex of(File file) throws IOException {
+        ReceiptIndex index;
+        synchronized (CACHE) {
+            index = CACHE.computeIfAbsent(file.getAbsoluteFile(), ReceiptIndex::new);
+        }
+        index.refresh();
+        return index;
+    }
+
+    // Forget a file's index (after the file was rewritten in place)
+    public static void invalidate(File file) {
+        synchronized (CACHE) {
+            CACHE.remove(file.getAbsoluteFile());
+        }
+    }
+
+    public synchronized int size() {
+        return blocks.size();
+    }
+
+    public synchronized List<Block> blocks() {
+        return new ArrayList<>(blocks);
+    }
+
+    public synchronized Block findById(String id) {
+        return byId.get(id);
+    }
+
+    // Same rule as before: the first receipt whose customer name contains the text.
+    // An exact name is found straight from the map.
+    public synchronized Block findByCustomer(String customer) {
+        Block exact = byCustomer.get(customer);
+        if (exact != null)
+            return exact;
+        for (Block b : blocks)
+            if (b.customer.contains(customer))
+                return b;
+        return null;
+    }
+
+    // Reads only the bytes of one receipt and returns its lines
+    public List<String> readLines(Block b) throws IOException {
+        byte[] bytes = new byte[b.length];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(b.start);
+            raf.readFully(bytes);
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes)))) {
+            String line;
+            while ((line = br.readLine()) != null)
+                lines.add(line);
+        }
+        return lines;
+    }
+
+    // --- KEEPING THE INDEX UP TO DATE ---
+
+    private synchronized void refresh() throws IOException {
+        long length = file.length();
+        long modified = file.lastModified();
+        if (length == seenLength && modified == seenModified)
+            return;
+        // Shorter, or same size but changed: the file was rewritten, start again
+        if (length < indexedTo || (length == seenLength && modified != seenModified)) {
+            indexedTo = 0;
+            blocks.clear();
+            byId.clear();
+            byCustomer.clear();
+        }
+        if (length > indexedTo)
+            scan(indexedTo, length);
+        seenLength = length;
+        seenModified = modified;
+    }
+
+    // Reads bytes [from, to) and adds every complete receipt found there
+    private void scan(long from, long to) throws IOException {
+        long t0 = Metrics.start();
+        ByteBuffer buf = ByteBuffer.allocate((int) (to - from));
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (buf.hasRemaining() && ch.read(buf, from + buf.position()) > 0) {
+            }
+        }
+        byte[] data = buf.array();
+        int n = buf.position();
+
+        int blockStart = 0;
+        String id = "", date = "", time = "", customer = "";
+        int lineStart = 0;
+        for (int i = 0; i < n; i++) {
+            if (data[i] != '\n')
+                continue;
+            int end = i > lineStart && data[i - 1] == '\r' ? i - 1 : i;
+            String line = new String(data, lineStart, end - lineStart);
+            if (line.startsWith(FileFormats.TRANSACTION_ID))
+                id = line.substring(FileFormats.TRANSACTION_ID.length()).trim();
+            else if (line.startsWith("Date: "))
+                date = line.substring(6).trim();
+            else if (line.startsWith("Time: "))
+                time = line.substring(6).trim();
+            else if (line.startsWith("Customer Name:"))
+                customer = line.substring(14).trim();
+            else if (line.startsWith("----------------") && line.length() > 40) {
+                // End of one receipt
+                int receiptNo = blocks.size();
+                if (id.isEmpty())
+                    id = Long.toString(IdGenerator.legacyId(Transaction.parseEpochDay(date),
+                            StockMovement.parseMinuteOfDay(time), receiptNo, file.getName()));
+                Block b = new Block(from + blockStart, i + 1 - blockStart, id, customer, receiptNo);
+                blocks.add(b);
+                byId.putIfAbsent(id, b);
+                byCustomer.putIfAbsent(customer, b);
+                blockStart = i + 1;
+                id = "";
+                customer = "";
+            }
+            lineStart = i + 1;
+        }
+        // Anything after the last dashed line is a receipt still being written: index it next time
+        indexedTo = from + blockStart;
+        Metrics.stop("ReceiptIndex.scan", t0);
+    }
+}
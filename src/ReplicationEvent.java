@@ -0,0 +1,136 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// ONE THING THAT HAPPENED AT AN OUTLET (for HQ)
+// A sale, a stock number that changed, or someone clocking in / out. Outlets write these to
+// their outbox (see ReplicationOutbox.java) and HQ stores and applies them (see ReplicationHub.java).
+//
+// On disk and on the wire every event is the same few bytes:
+//
+//   int    length of everything below
+//   byte   type (SALE, STOCK, CLOCK_IN, CLOCK_OUT)
+//   long   when it happened (System.currentTimeMillis)
+//   byte   number of texts, then each text (DataOutputStream.writeUTF)
+//   byte   number of numbers, then each number (int)
+//
+// So a stock change is about 40 bytes instead of a whole model.csv.
+//
+// ** USED BY REPLICATIONOUTBOX & REPLICATIONHUB **
+public class ReplicationEvent {
+
+    public static final byte SALE = 1;      // texts: receipt                 numbers: -
+    public static final byte STOCK = 2;     // texts: model, outlet           numbers: old qty, new qty
+    public static final byte CLOCK_IN = 3;  // texts: employee, date, time    numbers: -
+    public static final byte CLOCK_OUT = 4; // texts: employee, date, time    numbers: minutes worked
+
+    // Biggest event we accept (a corrupt length must not make us allocate gigabytes)
+    public static final int MAX_LENGTH = 1024 * 1024;
+
+    public final byte type;
+    public final long time;
+    public final String[] texts;
+    public final int[] numbers;
+
+    public ReplicationEvent(byte type, long time, String[] texts, int[] numbers) {
+        this.type = type;
+        this.time = time;
+        this.texts = texts;
+        this.numbers = numbers;
+    }
+
+    // --- THE EVENTS ---
+
+    public static ReplicationEvent sale(String receipt) {
+        return new ReplicationEvent(SALE, System.currentTimeMillis(), new String[] { receipt }, new int[0]);
+    }
+
+    public static ReplicationEvent stock(StockSnapshots.Change c, long time) {
+        return new ReplicationEvent(STOCK, time, new String[] { c.model, c.outlet }, new int[] { c.oldQty, c.newQty });
+    }
+
+    public static ReplicationEvent clockIn(String empId, String date, String time) {
+        return new ReplicationEvent(CLOCK_IN, System.currentTimeMillis(), new String[] { empId, date, time }, new int[0]);
+    }
+
+    public static ReplicationEvent clockOut(String empId, String date, String time, long minutes) {
+        return new ReplicationEvent(CLOCK_OUT, System.currentTimeMillis(), new String[] { empId, date, time },
+                new int[] { (int) minutes });
+    }
+
+    // --- BYTES ---
+
+    // The whole event, length first
+    public byte[] toBytes() {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeByte(type);
+            out.writeLong(time);
+            out.writeByte(texts.length);
+            for (String t : texts)
+                out.writeUTF(t);
+            out.writeByte(numbers.length);
+            for (int n : numbers)
+                out.writeInt(n);
+            out.flush();
+            ByteArrayOutputStream all = new ByteArrayOutputStream(body.size() + 4);
+            new DataOutputStream(all).writeInt(body.size());
+            body.writeTo(all);
+            return all.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // can't happen when writing to memory
+        }
+    }
+
+    // Reads one event (its length was already read). Throws if the bytes don't make sense.
+    public static ReplicationEvent read(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        if (type < SALE || type > CLOCK_OUT)
+            throw new IOException("Unknown replication event type " + type);
+        long time = in.readLong();
+        String[] texts = new String[in.readUnsignedByte()];
+        for (int i = 0; i < texts.length; i++)
+            texts[i] = in.readUTF();
+        int[] numbers = new int[in.readUnsignedByte()];
+        for (int i = 0; i < numbers.length; i++)
+            numbers[i] = in.readInt();
+        return new ReplicationEvent(type, time, texts, numbers);
+    }
+
+    // Splits a run of whole events (as stored in an outbox or replica log) back into events
+    public static List<ReplicationEvent> readAll(byte[] bytes, int from, int to) throws IOException {
+        List<ReplicationEvent> events = new ArrayList<>();
+        int pos = from;
+        while (pos < to) {
+            if (to - pos < 4)
+                throw new IOException("Half an event at the end of a batch");
+            int length = ((bytes[pos] & 0xff) << 24) | ((bytes[pos + 1] & 0xff) << 16) | ((bytes[pos + 2] & 0xff) << 8)
+                    | (bytes[pos + 3] & 0xff);
+            if (length <= 0 || length > MAX_LENGTH || length > to - pos - 4)
+                throw new IOException("Bad replication event length " + length);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, pos + 4, length));
+            events.add(read(in));
+            if (in.available() != 0)
+                throw new IOException("Replication event is longer than its content");
+            pos += 4 + length;
+        }
+        return events;
+    }
+
+    // How many bytes at the start of a log are whole events (anything after is a half-written one)
+    public static long completeLength(File log) throws IOException {
+        long good = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(log), 64 * 1024))) {
+            long size = log.length();
+            while (size - good >= 4) {
+                int length = in.readInt();
+                if (length <= 0 || length > MAX_LENGTH || length > size - good - 4)
+                    break;
+                in.skipNBytes(length);
+                good += 4 + length;
+            }
+        }
+        return good;
+    }
+}
@@ -0,0 +1,433 @@
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// HQ: EVERY OUTLET'S EVENTS IN ONE PLACE (REPLICATION SERVER)
+// Each outlet streams its outbox (see ReplicationOutbox.java) to this server over TCP.
+// For every outlet ("node") HQ keeps an exact copy of its outbox in replicas/<node>.log:
+// a batch is only accepted if it starts exactly where our copy ends, it is forced to disk,
+// and only then acknowledged. So the size of our copy is always the outlet's bookmark.
+//
+// Everything received is also applied to the View below: sales per outlet and day, the newest
+// stock number per model and outlet, and who is clocked in where. It is HQ's live, consolidated
+// picture. On restart the View is rebuilt by replaying the copies, then outlets simply resume.
+//
+// Start it with:   java GUI --hq [--port 7070] [--dir replicas] [--key SECRET] [--report SECONDS]
+//
+// ** USED BY REPLICATIONOUTBOX (protocol helpers) & GUI (--hq) **
+public class ReplicationHub {
+
+    public static final int DEFAULT_PORT = 7070;
+    public static final int PROTOCOL_VERSION = 1;
+    public static final int MAX_BATCH = 256 * 1024; // bytes of events per BATCH
+
+    // --- THE PROTOCOL ---
+    // Every message starts with one byte saying what it is:
+    //   HELLO   int version, UTF node, UTF key        (outlet -> HQ, once per connection)
+    //   RESUME  long position                         (HQ -> outlet: "send from here")
+    //   BATCH   long start, int length, events        (outlet -> HQ)
+    //   ACK     long position                         (HQ -> outlet: "safely stored up to here")
+    public static final byte HELLO = 1;
+    public static final byte RESUME = 2;
+    public static final byte BATCH = 3;
+    public static final byte ACK = 4;
+
+    private final File dir;
+    private final String key;
+    private final Map<String, Replica> replicas = new ConcurrentHashMap<>();
+    private final View view = new View();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private ServerSocket server;
+    private ExecutorService workers;
+    private volatile boolean stopped;
+
+    // 'key' = "" lets any outlet connect; otherwise an outlet's key must match
+    public ReplicationHub(File dir, String key) throws IOException {
+        this.dir = dir;
+        this.key = key == null ? "" : key;
+        if (!dir.exists())
+            dir.mkdirs();
+        // Pick up the copies we already have (this also rebuilds the View)
+        File[] logs = dir.listFiles((d, name) -> name.endsWith(".log"));
+        if (logs != null) {
+            for (File log : logs) {
+                String node = log.getName().substring(0, log.getName().length() - 4);
+                if (isValidNode(node))
+                    replica(node);
+            }
+        }
+    }
+
+    public View view() {
+        return view;
+    }
+
+    // --- SERVER ---
+
+    public static void main(String[] args) throws Exception {
+        int port = DEFAULT_PORT;
+        File dir = new File("replicas");
+        String key = "";
+        int reportSeconds = 0;
+        for (int i = 0; i + 1 < args.length; i++) {
+            switch (args[i]) {
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--dir": dir = new File(args[++i]); break;
+                case "--key": key = args[++i]; break;
+                case "--report": reportSeconds = Integer.parseInt(args[++i]); break;
+                default: break;
+            }
+        }
+        ReplicationHub hub = new ReplicationHub(dir, key);
+        hub.start(port);
+        System.out.println("GoldenHour HQ replication listening on port " + hub.getPort() + " (copies in " + dir + ")");
+        System.out.println(hub.view().report());
+        while (reportSeconds > 0) {
+            Thread.sleep(reportSeconds * 1000L);
+            System.out.println(hub.view().report());
+        }
+    }
+
+    // Listens on every network interface (outlets are other machines); 0 = any free port
+    public void start(int port) throws IOException {
+        server = new ServerSocket();
+        server.bind(new InetSocketAddress(port));
+        workers = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "replication-hub-client");
+            t.setDaemon(true);
+            return t;
+        });
+        Thread acceptor = new Thread(this::acceptLoop, "replication-hub");
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public void stop() {
+        stopped = true;
+        try {
+            server.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+        dropConnections();
+        workers.shutdownNow();
+        for (Replica r : replicas.values())
+            r.close();
+        replicas.clear();
+    }
+
+    // Cuts every outlet off (they reconnect and resume by themselves; used to test exactly that)
+    public void dropConnections() {
+        for (Socket s : connections) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                // already gone
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        while (!stopped) {
+            try {
+                Socket s = server.accept();
+                workers.execute(() -> serve(s));
+            } catch (IOException e) {
+                if (!stopped)
+                    System.out.println("Replication server error: " + e.getMessage());
+            }
+        }
+    }
+
+    // One outlet connection: HELLO, RESUME, then BATCH / ACK until it hangs up
+    private void serve(Socket s) {
+        connections.add(s);
+        String node = null;
+        try (Socket socket = s) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readByte() != HELLO)
+                throw new IOException("expected HELLO");
+            int version = in.readInt();
+            String name = in.readUTF();
+            String theirKey = in.readUTF();
+            if (version != PROTOCOL_VERSION)
+                throw new IOException("outlet speaks protocol version " + version);
+            if (!isValidNode(name))
+                throw new IOException("bad node name");
+            if (!key.isEmpty() && !MessageDigest.isEqual(key.getBytes("UTF-8"), theirKey.getBytes("UTF-8")))
+                throw new IOException("wrong key from '" + name + "'");
+            node = name;
+            Replica replica = replica(node);
+            view.connected(node, +1);
+            writePosition(out, RESUME, replica.length());
+
+            while (true) {
+                if (in.readByte() != BATCH)
+                    throw new IOException("expected BATCH");
+                long start = in.readLong();
+                int length = in.readInt();
+                if (length <= 0 || length > Math.max(MAX_BATCH, ReplicationEvent.MAX_LENGTH + 4))
+                    throw new IOException("bad batch length " + length);
+                byte[] bytes = in.readNBytes(length);
+                if (bytes.length != length)
+                    throw new EOFException();
+                List<ReplicationEvent> events = ReplicationEvent.readAll(bytes, 0, length);
+                long position = replica.append(start, bytes, events);
+                if (position < 0)
+                    writePosition(out, RESUME, replica.length()); // not where we are: tell them again
+                else
+                    writePosition(out, ACK, position);
+            }
+        } catch (EOFException e) {
+            // the outlet hung up
+        } catch (IOException e) {
+            if (!stopped)
+                System.out.println("Replication from " + (node == null ? s.getRemoteSocketAddress() : "'" + node + "'")
+                        + " stopped: " + e.getMessage());
+        } finally {
+            connections.remove(s);
+            if (node != null)
+                view.connected(node, -1);
+        }
+    }
+
+    private Replica replica(String node) throws IOException {
+        try {
+            return replicas.computeIfAbsent(node, n -> {
+                try {
+                    return new Replica(n);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // --- ONE OUTLET'S COPY ---
+
+    private class Replica {
+        private final String node;
+        private final FileChannel log;
+        private long length;
+
+        Replica(String node) throws IOException {
+            this.node = node;
+            File f = new File(dir, node + ".log");
+            length = f.exists() ? ReplicationEvent.completeLength(f) : 0;
+            log = FileChannel.open(f.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            log.truncate(length); // half an event from a crash
+            replay(f);
+        }
+
+        synchronized long length() {
+            return length;
+        }
+
+        // Stores a batch if it starts where our copy ends. Returns the new end, or -1 if it didn't fit.
+        synchronized long append(long start, byte[] bytes, List<ReplicationEvent> events) throws IOException {
+            if (start != length)
+                return -1;
+            long t0 = Metrics.start();
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining())
+                log.write(buf, length + buf.position());
+            log.force(false);
+            length += bytes.length;
+            view.apply(node, events);
+            Metrics.stop("ReplicationHub.batch", t0);
+            Metrics.count("ReplicationHub.events", events.size());
+            return length;
+        }
+
+        // Applies everything already in the copy to the View (on startup)
+        private void replay(File f) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 256 * 1024))) {
+                long pos = 0;
+                List<ReplicationEvent> events = new ArrayList<>();
+                while (pos < length) {
+                    int size = in.readInt();
+                    events.add(ReplicationEvent.read(new DataInputStream(new ByteArrayInputStream(in.readNBytes(size)))));
+                    pos += 4 + size;
+                    if (events.size() == 10_000) {
+                        view.apply(node, events);
+                        events.clear();
+                    }
+                }
+                view.apply(node, events);
+            }
+        }
+
+        synchronized void close() {
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.out.println("Error closing replica " + node + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // --- THE CONSOLIDATED VIEW ---
+
+    public static class View {
+        private final Map<String, long[]> nodes = new TreeMap<>();                   // node -> { events, last event time, connections }
+        private final Map<String, TreeMap<Integer, long[]>> sales = new TreeMap<>(); // outlet -> day -> { sales, cents, units }
+        private final Map<String, Map<String, Integer>> stock = new TreeMap<>();     // model -> outlet -> quantity
+        private final Map<String, Long> stockTimes = new HashMap<>();                // "model|outlet" -> time of that number
+        private final Map<String, Map<String, String>> onShift = new TreeMap<>();    // node -> employee -> clock-in time
+
+        synchronized void apply(String node, List<ReplicationEvent> events) {
+            long[] n = nodes.computeIfAbsent(node, k -> new long[3]);
+            for (ReplicationEvent e : events) {
+                n[0]++;
+                n[1] = Math.max(n[1], e.time);
+                switch (e.type) {
+                    case ReplicationEvent.SALE:
+                        // Same parser as the day files, so HQ counts exactly what the outlet does.
+                        // (No need to check for doubles: the log position means each event arrives once.)
+                        // The separator is added when a receipt is written to the day file (see ReceiptAppender).
+                        String receipt = e.texts[0] + "\n" + FileFormats.RECEIPT_SEPARATOR + "\n";
+                        for (Transaction t : DataLoader.parseSalesText(receipt, "from " + node)) {
+                            long[] day = sales.computeIfAbsent(t.getOutletCode(), k -> new TreeMap<>())
+                                    .computeIfAbsent(t.getEpochDay(), k -> new long[3]);
+                            day[0]++;
+                            day[1] += t.getTotalCents();
+                            day[2] += t.getQuantity();
+                        }
+                        break;
+                    case ReplicationEvent.STOCK:
+                        // Two outlets can report the same number (e.g. both ends of a transfer): newest wins
+                        String cell = e.texts[0] + "|" + e.texts[1];
+                        if (e.time >= stockTimes.getOrDefault(cell, Long.MIN_VALUE)) {
+                            stockTimes.put(cell, e.time);
+                            stock.computeIfAbsent(e.texts[0], k -> new TreeMap<>()).put(e.texts[1], e.numbers[1]);
+                        }
+                        break;
+                    case ReplicationEvent.CLOCK_IN:
+                        onShift.computeIfAbsent(node, k -> new TreeMap<>()).put(e.texts[0], e.texts[1] + " " + e.texts[2]);
+                        break;
+                    case ReplicationEvent.CLOCK_OUT:
+                        onShift.computeIfAbsent(node, k -> new TreeMap<>()).remove(e.texts[0]);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        synchronized void connected(String node, int delta) {
+            nodes.computeIfAbsent(node, k -> new long[3])[2] += delta;
+        }
+
+        // { sales, cents, units } of one outlet between two days (null = no limit)
+        public synchronized long[] salesTotals(String outlet, LocalDate from, LocalDate to) {
+            long[] total = new long[3];
+            TreeMap<Integer, long[]> days = sales.get(outlet);
+            if (days == null)
+                return total;
+            int first = from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+            int last = to == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+            for (long[] d : days.subMap(first, true, last, true).values())
+                for (int i = 0; i < 3; i++)
+                    total[i] += d[i];
+            return total;
+        }
+
+        public synchronized Set<String> outlets() {
+            return new TreeSet<>(sales.keySet());
+        }
+
+        // The newest stock number HQ has heard of (null = never reported)
+        public synchronized Integer stock(String model, String outlet) {
+            Map<String, Integer> row = stock.get(model);
+            return row == null ? null : row.get(outlet);
+        }
+
+        // Employee -> "date time" they clocked in, for everyone currently on shift at a node
+        public synchronized Map<String, String> onShift(String node) {
+            return new TreeMap<>(onShift.getOrDefault(node, Collections.emptyMap()));
+        }
+
+        public synchronized long events(String node) {
+            long[] n = nodes.get(node);
+            return n == null ? 0 : n[0];
+        }
+
+        public synchronized String report() {
+            StringBuilder sb = new StringBuilder("=== HQ live view (" + nodes.size() + " outlet node(s)) ===\n");
+            for (Map.Entry<String, long[]> n : nodes.entrySet()) {
+                long[] v = n.getValue();
+                sb.append(String.format("  %-8s %-12s %8d event(s)%s%n", n.getKey(), v[2] > 0 ? "connected" : "offline", v[0],
+                        v[1] > 0 ? ", last at " + new java.sql.Timestamp(v[1]).toString().substring(0, 19) : ""));
+            }
+            LocalDate today = LocalDate.now();
+            sb.append("Sales (today | all time):\n");
+            for (String outlet : sales.keySet()) {
+                long[] d = salesTotals(outlet, today, today), all = salesTotals(outlet, null, null);
+                sb.append(String.format("  %-8s %6d sale(s) RM %12s | %8d sale(s) RM %14s%n", outlet, d[0], Money.format(d[1]),
+                        all[0], Money.format(all[1])));
+            }
+            long units = 0;
+            for (Map<String, Integer> row : stock.values())
+                for (int q : row.values())
+                    units += q;
+            sb.append("Stock: ").append(stock.size()).append(" model(s), ").append(units).append(" unit(s) reported\n");
+            sb.append("On shift:");
+            for (Map.Entry<String, Map<String, String>> s : onShift.entrySet())
+                if (!s.getValue().isEmpty())
+                    sb.append(' ').append(s.getKey()).append('=').append(s.getValue().keySet());
+            return sb.append('\n').toString();
+        }
+    }
+
+    // --- PROTOCOL HELPERS ---
+
+    // Node names end up in file names, so only plain characters
+    public static boolean isValidNode(String node) {
+        return node != null && node.matches("[A-Za-z0-9_-]{1,32}");
+    }
+
+    static void writeHello(DataOutputStream out, String node, String key) throws IOException {
+        out.writeByte(HELLO);
+        out.writeInt(PROTOCOL_VERSION);
+        out.writeUTF(node);
+        out.writeUTF(key);
+        out.flush();
+    }
+
+    static void writeBatch(DataOutputStream out, long start, byte[] events) throws IOException {
+        out.writeByte(BATCH);
+        out.writeLong(start);
+        out.writeInt(events.length);
+        out.write(events);
+        out.flush();
+    }
+
+    static void writePosition(DataOutputStream out, byte kind, long position) throws IOException {
+        out.writeByte(kind);
+        out.writeLong(position);
+        out.flush();
+    }
+
+    static long readPosition(DataInputStream in, byte expected) throws IOException {
+        if (in.readByte() != expected)
+            throw new IOException("unexpected message from HQ");
+        return in.readLong();
+    }
+}
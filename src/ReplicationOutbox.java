@@ -0,0 +1,340 @@
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+// THE OUTLET'S OUTBOX (SENDING TO HQ)
+// Every sale, stock change and clock in/out at this outlet is added to ONE append-only file,
+// replication/outbox.log (see ReplicationEvent.java for the bytes). A background thread keeps a
+// TCP connection to HQ (see ReplicationHub.java) and streams the file to it:
+//
+//   outlet -> HQ   HELLO  (protocol version, node name, key)
+//   HQ -> outlet   RESUME (how many bytes of our outbox HQ already has)
+//   outlet -> HQ   BATCH  (start position + every whole event written since, up to 256 KB)
+//   HQ -> outlet   ACK    (new position, once the batch is safely on HQ's disk)
+//
+// The position in the file IS the bookmark: after a dropped connection, a crash on either side
+// or a day without network, HQ says where it got to and we carry on from exactly there.
+// Nothing is lost and nothing is sent twice. Events only go out once they are forced to our
+// own disk, so HQ can never hold something the outlet might forget in a crash.
+//
+// Switched on by a small file, replication/node.properties, in the data folder:
+//   node=C60                 this outlet's name at HQ
+//   hq=192.168.1.10:7070     where ReplicationHub listens (leave out to only record)
+//   key=...                  optional, must match HQ's --key
+// Without that file nothing is recorded or sent (a single-store setup, as before).
+//
+// SEVERAL PROGRAMS, ONE OUTBOX: the GUI and BatchCli (and anything else with a DataLoader) may run
+// at the same time on the same data folder, each with its own copy of this class.
+//   - adding an event holds a FileLock on outbox.lock and starts at the file's real size, so two
+//     programs never write over each other's events
+//   - only the program holding sender.lock sends to HQ; the others just record, and take over
+//     sending if that program exits
+//
+// ** USED BY DATALOADER (appendSalesReceipt, saveModels, clockIn, clockOut) **
+public class ReplicationOutbox {
+
+    public static final String DIR = "replication";
+    public static final String CONFIG_FILE = "node.properties";
+    public static final String LOG_FILE = "outbox.log";
+    private static final String APPEND_LOCK_FILE = "outbox.lock";
+    private static final String SENDER_LOCK_FILE = "sender.lock";
+    private static final long SENDER_RETRY_MS = 10_000; // how often a waiting program checks sender.lock
+
+    // One outbox per data folder, shared by every DataLoader in the app
+    private static final Map<String, ReplicationOutbox> OUTBOXES = new ConcurrentHashMap<>();
+
+    private final String node;
+    private final String key;
+    private final String host;
+    private final int port;
+    private final FileChannel log;
+    private final FileChannel appendLock;   // outbox.lock (see SEVERAL PROGRAMS above)
+    private final FileChannel senderLock;   // sender.lock
+    private final Thread sender;
+    private volatile boolean closed;
+    private volatile Socket socket;
+
+    // Positions in outbox.log
+    private long end;                 // everything written (guarded by 'this')
+    private volatile long forcedTo;   // on our disk
+    private volatile long ackedTo;    // on HQ's disk (as far as we know)
+
+    private ReplicationOutbox(File dir, Properties config) throws IOException {
+        this.node = config.getProperty("node", "").trim();
+        if (!ReplicationHub.isValidNode(node))
+            throw new IOException("replication/" + CONFIG_FILE + ": 'node' must be letters, digits, '-' or '_'");
+        this.key = config.getProperty("key", "").trim();
+        String hq = config.getProperty("hq", "").trim();
+        int colon = hq.lastIndexOf(':');
+        this.host = colon > 0 ? hq.substring(0, colon) : hq;
+        this.port = colon > 0 ? Integer.parseInt(hq.substring(colon + 1)) : ReplicationHub.DEFAULT_PORT;
+
+        // A crash can leave half an event at the end: cut it off before adding more
+        // (under the lock, so we never cut off an event another program is writing right now)
+        File f = new File(dir, LOG_FILE);
+        log = FileChannel.open(f.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        appendLock = FileChannel.open(new File(dir, APPEND_LOCK_FILE).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try (FileLock lock = appendLock.lock()) {
+            end = ReplicationEvent.completeLength(f);
+            log.truncate(end);
+        }
+        forcedTo = end;
+
+        if (host.isEmpty()) {
+            senderLock = null;
+            sender = null;
+        } else {
+            senderLock = FileChannel.open(new File(dir, SENDER_LOCK_FILE).toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            sender = new Thread(this::run, "replication-" + node);
+            sender.setDaemon(true);
+            sender.start();
+        }
+    }
+
+    // The outbox of a data folder's "replication" folder, or null if replication isn't set up there
+    public static ReplicationOutbox forDir(File dir) {
+        File config = new File(dir, CONFIG_FILE);
+        if (!config.exists())
+            return null;
+        return OUTBOXES.computeIfAbsent(dir.getAbsolutePath(), k -> {
+            Properties p = new Properties();
+            try (Reader r = new FileReader(config)) {
+                p.load(r);
+                return new ReplicationOutbox(dir, p);
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Replication is switched off: " + e.getMessage());
+                return null; // (not stored, so a fixed file is picked up next time)
+            }
+        });
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    // --- RECORDING ---
+
+    // Adds one event to the end of the outbox. Never throws: a sale must not fail because of HQ.
+    public void append(ReplicationEvent event) {
+        byte[] bytes;
+        try {
+            bytes = event.toBytes();
+        } catch (UncheckedIOException e) {
+            System.out.println("Replication event too big to send: " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            try (FileLock lock = appendLock.lock()) {
+                end = log.size(); // another program may have added events since our last one
+                ByteBuffer buf = ByteBuffer.wrap(bytes);
+                while (buf.hasRemaining())
+                    log.write(buf, end + buf.position());
+                end += bytes.length;
+                notifyAll(); // wake the sender
+            } catch (IOException e) {
+                System.out.println("Error saving replication event: " + e.getMessage());
+            }
+        }
+        Metrics.count("ReplicationOutbox.events");
+    }
+
+    // Bytes written / bytes HQ has confirmed
+    public synchronized long size() {
+        return end;
+    }
+
+    // Catches up with events other programs added (the sender calls this before each wait)
+    private synchronized long refreshSize() throws IOException {
+        try (FileLock lock = appendLock.lock()) {
+            end = log.size();
+        }
+        return end;
+    }
+
+    public long acked() {
+        return ackedTo;
+    }
+
+    // Waits until HQ has confirmed everything written so far (false if that took too long)
+    public boolean awaitSent(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (ackedTo < size()) {
+            if (System.currentTimeMillis() >= deadline)
+                return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    // Stops sending and closes the file (what is not sent yet goes out the next time the app starts)
+    public void close() {
+        OUTBOXES.values().remove(this);
+        closed = true;
+        synchronized (this) {
+            notifyAll();
+        }
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+        if (sender != null) {
+            try {
+                sender.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            log.close();
+            appendLock.close();
+            if (senderLock != null)
+                senderLock.close(); // lets another program take over sending
+        } catch (IOException e) {
+            System.out.println("Error closing outbox: " + e.getMessage());
+        }
+    }
+
+    // --- THE SENDER THREAD ---
+
+    private void run() {
+        if (!claimSender())
+            return;
+        long backoff = 250;
+        while (!closed) {
+            try (Socket s = new Socket()) {
+                s.connect(new InetSocketAddress(host, port), 5000);
+                s.setTcpNoDelay(true);
+                socket = s;
+                backoff = 250;
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 64 * 1024));
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 64 * 1024));
+                stream(out, in);
+            } catch (IOException e) {
+                if (closed)
+                    break;
+                Metrics.count("ReplicationOutbox.reconnects");
+                System.out.println("Replication to HQ (" + host + ":" + port + ") interrupted: "
+                        + (e instanceof EOFException ? "connection closed" : e.getMessage()));
+            } finally {
+                socket = null;
+            }
+            // Try again a bit later (up to every 10 seconds while HQ is unreachable)
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                break;
+            }
+            backoff = Math.min(backoff * 2, 10_000);
+        }
+    }
+
+    // Waits until this program holds sender.lock (straight away, unless another program is sending).
+    // The lock is kept until close(). Returns false if the outbox was closed first.
+    private boolean claimSender() {
+        boolean told = false;
+        while (!closed) {
+            try {
+                if (senderLock.tryLock() != null)
+                    return true;
+                if (!told) {
+                    System.out.println("Another program is sending '" + node + "' to HQ; only recording here");
+                    told = true;
+                }
+            } catch (IOException e) {
+                if (closed)
+                    return false;
+                System.out.println("Error checking " + SENDER_LOCK_FILE + ": " + e.getMessage());
+            }
+            synchronized (this) {
+                try {
+                    wait(SENDER_RETRY_MS); // (close() wakes us up)
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    // One connection: say hello, then send batch after batch until something goes wrong
+    private void stream(DataOutputStream out, DataInputStream in) throws IOException {
+        ReplicationHub.writeHello(out, node, key);
+        long offset = ReplicationHub.readPosition(in, ReplicationHub.RESUME);
+        if (offset > refreshSize())
+            throw new IOException("HQ has more of '" + node + "' than this outbox holds (was outbox.log replaced?)");
+        ackedTo = offset;
+
+        while (!closed) {
+            synchronized (this) {
+                while (!closed && refreshSize() <= offset) {
+                    try {
+                        wait(1000);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            if (closed)
+                return;
+            // Group commit: one force covers everything written so far
+            long target = size();
+            if (forcedTo < target) {
+                log.force(false);
+                forcedTo = target;
+            }
+            byte[] batch = readBatch(offset, forcedTo);
+            long t0 = Metrics.start();
+            ReplicationHub.writeBatch(out, offset, batch);
+            byte kind = in.readByte();
+            long position = in.readLong();
+            if (kind == ReplicationHub.ACK) {
+                offset = position;
+                ackedTo = position;
+                Metrics.stop("ReplicationOutbox.batch", t0);
+                Metrics.count("ReplicationOutbox.bytesSent", batch.length);
+            } else if (kind == ReplicationHub.RESUME && position <= size()) {
+                offset = position; // HQ expected something else (e.g. a second connection got there first)
+            } else {
+                throw new IOException("Unexpected answer from HQ");
+            }
+        }
+    }
+
+    // The whole events between 'from' and 'to', at most MAX_BATCH bytes (but always at least one)
+    private byte[] readBatch(long from, long to) throws IOException {
+        int want = (int) Math.min(to - from, ReplicationHub.MAX_BATCH);
+        ByteBuffer buf = ByteBuffer.allocate(want);
+        while (buf.hasRemaining() && log.read(buf, from + buf.position()) > 0) {
+        }
+        byte[] bytes = buf.array();
+        int whole = 0;
+        while (whole + 4 <= want) {
+            int length = ByteBuffer.wrap(bytes, whole, 4).getInt();
+            if (whole + 4 + length > want)
+                break;
+            whole += 4 + length;
+        }
+        if (whole == 0) {
+            // The first event alone is bigger than a batch: send just that one
+            int length = ByteBuffer.wrap(bytes, 0, 4).getInt();
+            ByteBuffer one = ByteBuffer.allocate(4 + length);
+            while (one.hasRemaining() && log.read(one, from + one.position()) > 0) {
+            }
+            return one.array();
+        }
+        return whole == want ? bytes : java.util.Arrays.copyOf(bytes, whole);
+    }
+}
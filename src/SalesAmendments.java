@@ -0,0 +1,329 @@
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// SALES EDITS (AMENDMENT LOG)
+// Editing one sale used to mean reading the whole day file and writing every line back.
+// Now an edit is ONE short line appended to SalesReceipt/amendments.log:
+//
+//   2026-10-19|3546841035571449856|Customer Name|Mei Ling Tan
+//   (date | Transaction ID | field | new value)
+//
+// The receipt files themselves are never touched. Whoever reads a receipt (DataLoader's
+// loaders, the search, the EDIT tab) passes each line through apply(), which swaps in the
+// newest value for that sale. compact() writes the edits into the day files for good and
+// empties the log, e.g. from a nightly "BatchCli compact".
+//
+// "BatchCli compact" is a separate program from the GUI, so the EDIT tab may log an edit while a
+// compact is running. compact() therefore first RENAMES the log to amendments.compacting.log:
+// new edits start a fresh amendments.log, and only the renamed file is written into the day files
+// and deleted at the end. Until then the readers apply both files (the renamed one first).
+//
+// ** USED BY DATALOADER & EDITTAB **
+public class SalesAmendments {
+
+    public static final String LOG_FILE = "amendments.log";
+    public static final String COMPACTING_FILE = "amendments.compacting.log"; // the log a compact is working on
+    private static final String LOCK_FILE = "amendments.lock";                 // held while a compact runs
+
+    // The fields the EDIT tab can change, and the receipt line each one replaces
+    public static final String[] FIELDS = { "Customer Name", "Model", "Quantity", "Total Price", "Transaction Method" };
+    private static final String[] PREFIXES = { "Customer Name:", "Model:", "Quantity:", "Subtotal:", "Enter transaction method:" };
+    private static final String[] REPLACEMENTS = { "Customer Name: ", "Model: ", "Quantity: ", "Subtotal: RM", "Enter transaction method: " };
+
+    private final File salesDir;
+    private final File logFile;
+    private final File compactingFile;   // null for the copy compact() works from
+
+    // Transaction ID -> (field index -> newest value). Reloaded when the log file changes,
+    // so several DataLoaders (and tools) always see the same edits.
+    private Map<String, String[]> byId = new HashMap<>();
+    private Map<String, Set<String>> idsByDate = new HashMap<>();
+    private long loadedLength = -1, loadedModified = -1;         // amendments.log when last read
+    private long compactingLength = -1, compactingModified = -1; // amendments.compacting.log
+
+    public SalesAmendments(File salesDir) {
+        this(salesDir, new File(salesDir, LOG_FILE), new File(salesDir, COMPACTING_FILE));
+    }
+
+    // Only the edits in 'logFile' (compact() uses this for the renamed log)
+    private SalesAmendments(File salesDir, File logFile, File compactingFile) {
+        this.salesDir = salesDir;
+        this.logFile = logFile;
+        this.compactingFile = compactingFile;
+    }
+
+    // --- WRITING ---
+
+    // Records one edit. Costs one small append, however big the day file is.
+    public synchronized void amend(String date, String id, String field, String value) throws IOException {
+        int f = fieldIndex(field);
+        if (f < 0)
+            throw new IllegalArgumentException("Unknown field: " + field);
+        if (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0 || value.indexOf('|') >= 0)
+            throw new IllegalArgumentException("The new value cannot contain line breaks or '|'");
+        value = checkValue(f, value.trim());
+        if (!salesDir.exists())
+            salesDir.mkdirs();
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(logFile, true))) {
+            bw.write(date + "|" + id + "|" + field + "|" + value);
+            bw.newLine();
+        }
+        refresh();
+        Metrics.count("SalesAmendments.edits");
+    }
+
+    // --- READING ---
+
+    public synchronized boolean isEmpty() {
+        refresh();
+        return byId.isEmpty();
+    }
+
+    // Was any sale in this day file ("2026-10-19") edited?
+    public synchronized boolean hasEditsOn(String date) {
+        refresh();
+        return idsByDate.containsKey(date);
+    }
+
+    // The newest values for one sale, or null if it was never edited
+    public synchronized String[] valuesFor(String id) {
+        refresh();
+        return byId.get(id);
+    }
+
+    // Returns 'line' with the edit for sale 'values' applied (values from valuesFor)
+    public static String apply(String line, String[] values) {
+        if (values == null)
+            return line;
+        for (int f = 0; f < PREFIXES.length; f++) {
+            if (values[f] != null && line.startsWith(PREFIXES[f]))
+                return REPLACEMENTS[f] + values[f];
+        }
+        return line;
+    }
+
+    // Follows a day file line by line (keeping track of which sale we are in) and
+    // returns every line with its edits applied. Receipts without an ID line get the same
+    // stand-in ID as DataLoader gives them (date + time + position in the file).
+    // 'fileName' is the day file's name ("sales_2026-01-05.txt"), part of the stand-in ID.
+    public Overlay overlay(String fileName) {
+        return new Overlay(this, fileName);
+    }
+
+    public static class Overlay {
+        private final SalesAmendments owner;
+        private final boolean empty;
+        private final String fileName;
+        private String id = "", date = "", time = "";
+        private int receiptNo = 0;
+        private String[] values;
+        private boolean looked;
+
+        Overlay(SalesAmendments owner, String fileName) {
+            this.owner = owner;
+            this.fileName = fileName;
+            this.empty = owner.isEmpty();
+        }
+
+        public String apply(String line) {
+            if (line.startsWith("----------------") && line.length() > 40) {
+                receiptNo++;
+                id = "";
+                values = null;
+                looked = false;
+                return line;
+            }
+            if (empty)
+                return line;
+            if (line.startsWith(FileFormats.TRANSACTION_ID)) {
+                id = line.substring(FileFormats.TRANSACTION_ID.length()).trim();
+                looked = false;
+            } else if (line.startsWith("Date: ")) {
+                date = line.substring(6).trim();
+                looked = false;
+            } else if (line.startsWith("Time: ")) {
+                time = line.substring(6).trim();
+                looked = false;
+            } else if (fieldOf(line) >= 0) {
+                // An editable line: find this sale's edits (once per receipt)
+                if (!looked) {
+                    String key = id.isEmpty() ? Long.toString(IdGenerator.legacyId(Transaction.parseEpochDay(date),
+                            StockMovement.parseMinuteOfDay(time), receiptNo, fileName)) : id;
+                    values = owner.valuesFor(key);
+                    looked = true;
+                }
+                return SalesAmendments.apply(line, values);
+            }
+            return line;
+        }
+    }
+
+    // --- COMPACTION ---
+    // Writes the edits into the day files (one rewrite per edited day, not per edit),
+    // then empties the log. Returns how many day files were rewritten.
+    public int compact() throws IOException {
+        if (!salesDir.exists())
+            return 0;
+        // Only one compact at a time, in any program
+        try (FileChannel ch = FileChannel.open(new File(salesDir, LOCK_FILE).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE); FileLock lock = tryLock(ch)) {
+            if (lock == null)
+                throw new IOException("Another compact is already running on " + salesDir.getPath());
+
+            // Move the log aside, so edits made from now on go into a fresh log.
+            // (If a compact stopped half way, its renamed log is finished first; the new edits wait.)
+            synchronized (this) {
+                if (!compactingFile.exists() && logFile.exists())
+                    Files.move(logFile.toPath(), compactingFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                refresh();
+            }
+            if (!compactingFile.exists())
+                return 0;
+
+            SalesAmendments compacting = new SalesAmendments(salesDir, compactingFile, null);
+            int rewritten = 0;
+            for (String date : compacting.dates()) {
+                File day = new File(salesDir, "sales_" + date + ".txt");
+                if (!day.exists())
+                    continue;
+                // Through the receipt writer, so no sale is appended to the old file while we swap it
+                ReceiptAppender.runExclusive(salesDir, "sales_", () -> compacting.rewrite(day));
+                rewritten++;
+            }
+            Files.delete(compactingFile.toPath());
+            synchronized (this) {
+                refresh();
+            }
+            return rewritten;
+        }
+    }
+
+    // null if someone else holds the lock (another program, or another DataLoader in this one)
+    private static FileLock tryLock(FileChannel ch) throws IOException {
+        try {
+            return ch.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    private synchronized Set<String> dates() {
+        refresh();
+        return new HashSet<>(idsByDate.keySet());
+    }
+
+    // Writes one day file again with the edits applied
+    private void rewrite(File day) throws IOException {
+        File tmp = new File(salesDir, day.getName() + ".tmp");
+        Overlay overlay = overlay(day.getName());
+        try (BufferedReader br = new BufferedReader(new FileReader(day));
+                BufferedWriter bw = new BufferedWriter(new FileWriter(tmp))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                bw.write(overlay.apply(line));
+                bw.newLine();
+            }
+        }
+        // Swap the new file in with one rename, so a crash never leaves half a file
+        Files.move(tmp.toPath(), day.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        ReceiptIndex.invalidate(day);
+    }
+
+    // --- HELPERS ---
+
+    private static int fieldOf(String line) {
+        for (int f = 0; f < PREFIXES.length; f++)
+            if (line.startsWith(PREFIXES[f]))
+                return f;
+        return -1;
+    }
+
+    // Numbers must still read back as numbers, or the loaders would have to skip the whole sale.
+    // Returns the value as it goes into the receipt line ("RM1,149" -> "1149.00").
+    private static String checkValue(int f, String value) {
+        if (value.isEmpty())
+            throw new IllegalArgumentException("The new value cannot be empty");
+        if (FIELDS[f].equals("Quantity")) {
+            int qty;
+            try {
+                qty = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Quantity must be a whole number, e.g. 2");
+            }
+            if (qty <= 0)
+                throw new IllegalArgumentException("Quantity must be at least 1");
+            return Integer.toString(qty);
+        }
+        if (FIELDS[f].equals("Total Price")) {
+            long cents;
+            try {
+                cents = Money.parse(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Total Price must be an amount, e.g. 1149.00");
+            }
+            if (cents < 0)
+                throw new IllegalArgumentException("Total Price cannot be negative");
+            return Money.format(cents);
+        }
+        return value;
+    }
+
+    private static int fieldIndex(String field) {
+        for (int f = 0; f < FIELDS.length; f++)
+            if (FIELDS[f].equals(field))
+                return f;
+        return -1;
+    }
+
+    // Re-reads the logs only if they changed since last time (cheap check: size + time)
+    private void refresh() {
+        long length = lengthOf(logFile), modified = modifiedOf(logFile);
+        long cLength = lengthOf(compactingFile), cModified = modifiedOf(compactingFile);
+        if (length == loadedLength && modified == loadedModified && cLength == compactingLength
+                && cModified == compactingModified)
+            return;
+        Map<String, String[]> ids = new HashMap<>();
+        Map<String, Set<String>> dates = new HashMap<>();
+        readLog(compactingFile, ids, dates); // older edits first, so the ones in the log win
+        readLog(logFile, ids, dates);
+        byId = ids;
+        idsByDate = dates;
+        loadedLength = length;
+        loadedModified = modified;
+        compactingLength = cLength;
+        compactingModified = cModified;
+    }
+
+    // (0 if the file isn't there)
+    private static long lengthOf(File f) {
+        return f == null ? 0 : f.length();
+    }
+
+    private static long modifiedOf(File f) {
+        return f == null ? 0 : f.lastModified();
+    }
+
+    private static void readLog(File f, Map<String, String[]> ids, Map<String, Set<String>> dates) {
+        if (f == null || !f.exists() || f.length() == 0)
+            return;
+        try (BufferedReader br = new BufferedReader(new FileReader(f))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] p = line.split("\\|", 4);
+                int field = p.length == 4 ? fieldIndex(p[2]) : -1;
+                if (field < 0)
+                    continue; // half-written or unknown line: skip it
+                ids.computeIfAbsent(p[1], k -> new String[FIELDS.length])[field] = p[3]; // later lines win
+                dates.computeIfAbsent(p[0], k -> new HashSet<>()).add(p[1]);
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading sales amendments: " + e.getMessage());
+        }
+    }
+}
@@ -6,28 +6,26 @@ import java.util.Map;
 
 public class SalesPanel {
     // SHARED DATA
-    private Map<String, Model> models;
+    private Catalogue catalogue; // the models, one consistent version at a time (see Catalogue.java)
     private Map<String, String> outlets;
     private DataLoader dataLoader;
     private employee loggedInUser;
     private Component parentComponent;
-    
-    // CALLBACK: A function we call after a sale to tell other tabs "Hey, stock changed!"
-    private Runnable onStockUpdate; 
+
+    // (Other tabs hear about the new stock numbers from the catalogue, see StockEventBus.java)
 
     // UI Components for the "Shopping Cart"
     private JPanel salesItemsPanel;
     private List<SalesRow> salesRows;
 
     // CONSTRUCTOR
-    public SalesPanel(Map<String, Model> models, Map<String, String> outlets, DataLoader dataLoader,
-            employee loggedInUser, Component parentComponent, Runnable onStockUpdate) {
-        this.models = models;
+    public SalesPanel(Catalogue catalogue, Map<String, String> outlets, DataLoader dataLoader,
+            employee loggedInUser, Component parentComponent) {
+        this.catalogue = catalogue;
         this.outlets = outlets;
         this.dataLoader = dataLoader;
         this.loggedInUser = loggedInUser;
         this.parentComponent = parentComponent;
-        this.onStockUpdate = onStockUpdate;
     }
 
     public JPanel createPanel() {
@@ -81,7 +79,8 @@ public class SalesPanel {
             // Determine which outlet this sale belongs to (Default to HQ 'C60' if unknown)
             String outletCode = (loggedInUser != null) ? loggedInUser.getOutlet() : "C60";
             
-            double grantTotal = 0;
+            Catalogue.Snapshot models = catalogue.snapshot(); // every check below sees the same numbers
+            long grantTotalCents = 0; // in cents, so the sum is exact (see Money.java)
             StringBuilder receiptItems = new StringBuilder();
             List<Transaction> pendingTxns = new ArrayList<>();
 
@@ -95,7 +94,7 @@ public class SalesPanel {
                     continue;
 
                 // Validation 2: Does model exist?
-                if (!models.containsKey(modelStr)) {
+                if (!models.contains(modelStr)) {
                     JOptionPane.showMessageDialog(parentComponent, "Model " + modelStr + " not found!");
                     return;
                 }
@@ -108,18 +107,14 @@ public class SalesPanel {
                 }
 
                 // Calculate Totals
-                double price = model.getPrice();
-                double rowTotal = price * qty;
-                grantTotal += rowTotal;
+                long rowTotalCents = model.getPriceCents() * qty;
+                grantTotalCents += rowTotalCents;
 
                 // Add to Receipt Text
-                receiptItems.append("Model: ").append(modelStr).append("\n");
-                receiptItems.append("Quantity: ").append(qty).append("\n");
-                receiptItems.append("Unit Price: RM").append(price).append("\n");
-                receiptItems.append("-----------------------------\n");
+                FileFormats.appendSalesItem(receiptItems, modelStr, qty, model.getPrice());
 
                 // Create Transaction Object (Ready to be processed)
-                Transaction t = new Transaction(loggedInUser.getID(), outletCode, modelStr, qty, rowTotal, customer);
+                Transaction t = new Transaction(loggedInUser.getID(), outletCode, modelStr, qty, rowTotalCents, customer);
                 pendingTxns.add(t);
             }
 
@@ -129,44 +124,39 @@ public class SalesPanel {
             }
 
             // --- COMMIT THE SALE ---
-            
-            // 1. Update Memory (Reduce Stock)
-            for (Transaction t : pendingTxns) {
-                models.get(t.getModelName()).reduceStock(outletCode, t.getQuantity());
+            long t0 = Metrics.start();
+
+            // 1. Update Memory (Reduce Stock): the whole sale becomes ONE new catalogue version.
+            //    reduceStock checks the stock again, in case another till sold the last one meanwhile.
+            // 2. Save to CSV (done before the next change to the catalogue may start)
+            try {
+                catalogue.update(edit -> {
+                    for (Transaction t : pendingTxns)
+                        edit.model(t.getModelName()).reduceStock(outletCode, t.getQuantity());
+                }, snapshot -> dataLoader.saveModels(snapshot.models(), new ArrayList<>(outlets.keySet())));
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(parentComponent, ex.getMessage());
+                return;
             }
 
-            // 2. Save to CSV
-            dataLoader.saveModels(models, new ArrayList<>(outlets.keySet()));
-            
-            // 3. Refresh UI (Tell StockCountTab to update numbers)
-            if (onStockUpdate != null)
-                onStockUpdate.run();
+            // 3. Refresh UI: nothing to do here, update() told the other tabs which numbers changed
 
             // 4. GENERATE RECEIPT TEXT FILE
-            StringBuilder rc = new StringBuilder();
-            rc.append("=== Record New Sale ===\n");
-            rc.append("Date: ").append(java.time.LocalDate.now()).append("\n");
-            rc.append("Time: ").append(java.time.LocalTime.now()
-                    .format(java.time.format.DateTimeFormatter.ofPattern("hh:mm a"))).append("\n");
-            
-            // Critical: Save Employee ID so "PerformancePanel" can give credit later
-            rc.append("Employee: ").append(loggedInUser.getID()).append("\n"); 
-            
-            rc.append("Customer Name: ").append(customer).append("\n");
-            rc.append("Item(s) Purchased:\n");
-            rc.append(receiptItems);
-            rc.append("Enter transaction method: ").append(method).append("\n");
-            rc.append("Subtotal: RM").append(String.format("%.2f", grantTotal)).append("\n\n");
-            rc.append("Transaction successful.\n");
-            rc.append("Sale recorded successfully.\n");
-            rc.append("Model quantities updated successfully.\n");
-            rc.append("Receipt generated: sales_").append(java.time.LocalDate.now()).append(".txt");
+            // The layout lives in FileFormats so the loaders and tools read/write the same text
+            // One ID for the whole sale (each item above already has its own from the same generator)
+            long saleId = IdGenerator.forOutlet(outletCode).nextId();
+            String rc = FileFormats.salesReceipt(saleId, java.time.LocalDate.now(),
+                    java.time.LocalTime.now().format(FileFormats.TIME_FORMAT),
+                    loggedInUser.getID(), customer, receiptItems, method, grantTotalCents);
 
             // Save receipt to file system
-            dataLoader.appendSalesReceipt(rc.toString());
+            dataLoader.appendSalesReceipt(rc);
+            Metrics.stop("SalesPanel.commitSale", t0);
+            Metrics.count("SalesPanel.sales");
+            Metrics.count("SalesPanel.items", pendingTxns.size());
 
             // 5. Success Message
-            JOptionPane.showMessageDialog(parentComponent, "Sale Recorded Successfully!\nTotal: RM" + grantTotal);
+            JOptionPane.showMessageDialog(parentComponent, "Sale Recorded Successfully!\nTotal: RM" + Money.format(grantTotalCents));
 
             // 6. Reset Form for next customer
             custNameField.setText("");
@@ -5,7 +5,7 @@ import java.util.Map;
 public class SearchPanel {
 
     // Dependencies
-    private Map<String, Model> models;     // Live Stock Data
+    private Catalogue catalogue;            // Live Stock Data (see Catalogue.java)
     private Map<String, String> outlets;   // Outlet Names
     private DataLoader dataLoader;         // To access file search functions
 
@@ -15,8 +15,8 @@ public class SearchPanel {
     private JTextArea resultArea;
     private JLabel searchLabel;
 
-    public SearchPanel(Map<String, Model> models, Map<String, String> outlets, DataLoader dataLoader) {
-        this.models = models;
+    public SearchPanel(Catalogue catalogue, Map<String, String> outlets, DataLoader dataLoader) {
+        this.catalogue = catalogue;
         this.outlets = outlets;
         this.dataLoader = dataLoader;
     }
@@ -93,11 +93,11 @@ public class SearchPanel {
         String type = (String) searchTypeBox.getSelectedItem();
 
         // MODE 1: STOCK SEARCH (Memory Lookup)
-        // This is extremely fast because 'models' is a HashMap in RAM.
+        // This is extremely fast because the catalogue is a HashMap in RAM.
         if (type.contains("Stock")) {
             
-            if (models.containsKey(query)) {
-                Model m = models.get(query);
+            Model m = catalogue.snapshot().get(query);
+            if (m != null) {
                 StringBuilder sb = new StringBuilder();
                 sb.append("Model: ").append(m.getModelName()).append("\n");
                 sb.append("Unit Price: RM").append(String.format("%.2f", m.getPrice())).append("\n\n");
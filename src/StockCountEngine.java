@@ -0,0 +1,237 @@
+import java.io.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// BULK STOCK COUNT (All outlets at once)
+// The STOCK COUNT tab checks one outlet, typed in by hand. This engine takes count sheets
+// exported from handheld scanners, for as many outlets as you like, and:
+//   1. reconciles every outlet against the system stock (outlets are checked in parallel)
+//   2. saves a variance report in the "StockCountReport" folder
+//   3. optionally fixes the stock to match the counts, all in ONE save of model.csv
+//
+// COUNT SHEET FORMAT (CSV, header row optional, several files can be loaded together):
+//   Outlet,Model,Counted
+//   C60,DW2300-1,12
+//   C61,DW2300-1,4
+//
+// ** USED BY STOCKCOUNTTAB (IMPORT SHEETS button) & BATCHCLI (count command) **
+public class StockCountEngine {
+
+    private final DataLoader dataLoader;
+
+    public StockCountEngine(DataLoader dataLoader) {
+        this.dataLoader = dataLoader;
+    }
+
+    // One counted cell of the sheet, after comparing with the system
+    public static class Variance {
+        public final String outlet;
+        public final String model;
+        public final int expected; // what the system says
+        public final int counted;  // what the staff found on the shelf
+
+        Variance(String outlet, String model, int expected, int counted) {
+            this.outlet = outlet;
+            this.model = model;
+            this.expected = expected;
+            this.counted = counted;
+        }
+
+        public int getDifference() {
+            return counted - expected; // negative = missing units
+        }
+    }
+
+    // The outcome of one reconcile() call
+    public static class Result {
+        public final LocalDateTime asOf;                       // null = compared with live stock
+        public final Map<String, List<Variance>> byOutlet;     // outlet -> every counted line
+        public final List<String> problems;                    // unknown outlets/models, bad numbers
+        public File reportFile;
+
+        Result(LocalDateTime asOf, Map<String, List<Variance>> byOutlet, List<String> problems) {
+            this.asOf = asOf;
+            this.byOutlet = byOutlet;
+            this.problems = problems;
+        }
+
+        public int getLinesChecked() {
+            return byOutlet.values().stream().mapToInt(List::size).sum();
+        }
+
+        public List<Variance> getMismatches() {
+            List<Variance> list = new ArrayList<>();
+            for (List<Variance> lines : byOutlet.values())
+                for (Variance v : lines)
+                    if (v.getDifference() != 0)
+                        list.add(v);
+            return list;
+        }
+
+        public String getSummary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Outlets: ").append(byOutlet.size()).append(", lines checked: ").append(getLinesChecked())
+                    .append(", mismatches: ").append(getMismatches().size()).append("\n");
+            for (Map.Entry<String, List<Variance>> e : byOutlet.entrySet()) {
+                int wrong = 0, net = 0;
+                for (Variance v : e.getValue()) {
+                    if (v.getDifference() != 0)
+                        wrong++;
+                    net += v.getDifference();
+                }
+                sb.append(String.format("  %-6s %4d lines, %4d mismatches, net %+d units%n", e.getKey(),
+                        e.getValue().size(), wrong, net));
+            }
+            if (!problems.isEmpty())
+                sb.append("Skipped lines: ").append(problems.size()).append(" (see report)\n");
+            if (reportFile != null)
+                sb.append("Report: ").append(reportFile.getPath()).append("\n");
+            return sb.toString();
+        }
+    }
+
+    // --- STEP 0: READ THE SHEETS ---
+    // Returns outlet -> (model -> counted). If the same model appears twice for an outlet
+    // (e.g. it sits on two shelves), the counts are added together.
+    public Map<String, Map<String, Integer>> readSheets(List<File> sheets, List<String> problems) throws IOException {
+        Map<String, Map<String, Integer>> counts = new TreeMap<>();
+        for (File sheet : sheets) {
+            try (BufferedReader br = new BufferedReader(new FileReader(sheet))) {
+                String line;
+                int lineNo = 0;
+                while ((line = br.readLine()) != null) {
+                    lineNo++;
+                    if (line.trim().isEmpty() || line.toLowerCase().startsWith("outlet,"))
+                        continue;
+                    String[] d = line.split(",");
+                    try {
+                        if (d.length < 3)
+                            throw new NumberFormatException("expected Outlet,Model,Counted");
+                        int qty = Integer.parseInt(d[2].trim());
+                        if (qty < 0)
+                            throw new NumberFormatException("count cannot be negative");
+                        counts.computeIfAbsent(d[0].trim(), k -> new LinkedHashMap<>()).merge(d[1].trim(), qty, Integer::sum);
+                    } catch (NumberFormatException e) {
+                        problems.add(sheet.getName() + " line " + lineNo + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    // --- STEP 1: RECONCILE ---
+    // 'asOf' = when counting started. We then compare with the stock at that moment
+    // (from StockSnapshots) so sales during the count aren't reported as losses.
+    public Result reconcile(Map<String, Map<String, Integer>> counts, LocalDateTime asOf, List<String> problems) {
+        long t0 = Metrics.start();
+        Set<String> knownOutlets = dataLoader.loadOutlets().keySet();
+
+        // The "expected" numbers: one table for everyone, read once
+        Map<String, Map<String, Integer>> expected = null;
+        if (asOf != null)
+            expected = dataLoader.getStockSnapshots().stockAt(asOf);
+        if (expected == null) {
+            if (asOf != null)
+                problems.add("No stock history for " + asOf + ", compared with live stock instead");
+            asOf = null;
+            expected = StockSnapshots.toMatrix(dataLoader.loadModels(), new ArrayList<>(knownOutlets));
+        }
+        final Map<String, Map<String, Integer>> system = expected;
+
+        // Each outlet is independent, so they are checked side by side on all CPU cores.
+        // The lists of problems are collected per outlet and joined afterwards (no shared writes).
+        Map<String, List<String>> outletProblems = new TreeMap<>();
+        Map<String, List<Variance>> byOutlet = counts.entrySet().parallelStream()
+                .filter(e -> knownOutlets.contains(e.getKey()))
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> {
+                    List<Variance> lines = new ArrayList<>(e.getValue().size());
+                    for (Map.Entry<String, Integer> c : e.getValue().entrySet()) {
+                        Map<String, Integer> row = system.get(c.getKey());
+                        if (row == null)
+                            continue; // unknown model, reported below
+                        lines.add(new Variance(e.getKey(), c.getKey(), row.getOrDefault(e.getKey(), 0), c.getValue()));
+                    }
+                    return lines;
+                }, (a, b) -> a, TreeMap::new));
+
+        for (Map.Entry<String, Map<String, Integer>> e : counts.entrySet()) {
+            if (!knownOutlets.contains(e.getKey())) {
+                outletProblems.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).add("Unknown outlet " + e.getKey());
+                continue;
+            }
+            for (String model : e.getValue().keySet())
+                if (!system.containsKey(model))
+                    outletProblems.computeIfAbsent(e.getKey(), k -> new ArrayList<>())
+                            .add(e.getKey() + ": unknown model " + model);
+        }
+        outletProblems.values().forEach(problems::addAll);
+
+        Result result = new Result(asOf, byOutlet, problems);
+        Metrics.stop("StockCountEngine.reconcile", t0);
+        Metrics.count("StockCountEngine.lines", result.getLinesChecked());
+        return result;
+    }
+
+    // --- STEP 2: SAVE THE VARIANCE REPORT ---
+    public File saveReport(Result result) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# Stock count variance report, created ").append(LocalDateTime.now().withNano(0)).append("\n");
+        sb.append("# Compared with stock ").append(result.asOf != null ? "at " + result.asOf.withNano(0) : "at time of import")
+                .append("\n");
+        sb.append("Outlet,Model,Expected,Counted,Difference\n");
+        for (List<Variance> lines : result.byOutlet.values())
+            for (Variance v : lines)
+                sb.append(v.outlet).append(',').append(v.model).append(',').append(v.expected).append(',')
+                        .append(v.counted).append(',').append(v.getDifference()).append('\n');
+        for (String p : result.problems)
+            sb.append("# Skipped: ").append(p).append("\n");
+
+        String name = "variance_" + LocalDateTime.now().withNano(0).toString().replace(':', '-') + ".csv";
+        result.reportFile = dataLoader.saveStockCountReport(name, sb.toString());
+        return result.reportFile;
+    }
+
+    // --- STEP 3 (OPTIONAL): APPLY THE ADJUSTMENTS ---
+    // Every mismatch is corrected by its difference. We ADD the difference to the live
+    // stock (instead of overwriting it with the count), so sales made since the count
+    // started are kept. Everything is checked before anything changes, then model.csv
+    // is written ONCE: either all adjustments happen, or none do.
+    // 'models' is a map only this caller uses (e.g. BatchCli, straight from model.csv).
+    public int applyAdjustments(Result result, Map<String, Model> models, List<String> outletCodes) {
+        long t0 = Metrics.start();
+        List<Variance> mismatches = result.getMismatches();
+        adjust(mismatches, models::get);
+        if (!mismatches.isEmpty())
+            dataLoader.saveModels(models, outletCodes);
+        Metrics.stop("StockCountEngine.apply", t0);
+        return mismatches.size();
+    }
+
+    // The screens' shared catalogue: all adjustments become ONE new version (see Catalogue.java),
+    // checked against the newest numbers, so the screens see the new numbers straight away.
+    public int applyAdjustments(Result result, Catalogue catalogue, List<String> outletCodes) {
+        long t0 = Metrics.start();
+        List<Variance> mismatches = result.getMismatches();
+        if (!mismatches.isEmpty())
+            catalogue.update(edit -> adjust(mismatches, edit::model),
+                    snapshot -> dataLoader.saveModels(snapshot.models(), outletCodes));
+        Metrics.stop("StockCountEngine.apply", t0);
+        return mismatches.size();
+    }
+
+    // Checks every adjustment first, then makes them all ('models' gives the Model to change)
+    private static void adjust(List<Variance> mismatches, java.util.function.Function<String, Model> models) {
+        for (Variance v : mismatches) {
+            Model m = models.apply(v.model);
+            if (m == null)
+                throw new IllegalArgumentException("Model " + v.model + " no longer exists");
+            if (m.getStock(v.outlet) + v.getDifference() < 0)
+                throw new IllegalArgumentException("Adjustment would make " + v.model + " at " + v.outlet
+                        + " negative (sold since the count?)");
+        }
+        for (Variance v : mismatches)
+            models.apply(v.model).addStock(v.outlet, v.getDifference());
+    }
+}
@@ -1,23 +1,38 @@
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
+import java.time.LocalDateTime;
 import java.util.Map;
 
 public class StockCountTab {
     // SHARED DATA
-    private Map<String, Model> models;
+    private Catalogue catalogue; // the live models (see Catalogue.java)
+    private DataLoader dataLoader;
     private employee loggedInUser;
+
+    // COUNT START TIME: A physical count takes a while and sales keep happening meanwhile.
+    // We compare against the stock as it was when the count STARTED (from StockSnapshots),
+    // so a sale in the middle of the count doesn't show up as a false mismatch.
+    private LocalDateTime countStartedAt;
+    private JLabel startedLabel;
+
+    // LIVE MOVEMENT: sales and transfers at this outlet while the sheet is open arrive as
+    // stock change events (see StockEventBus) and only touch their own row + this total.
+    private int unitsMoved;
+    private JLabel movedLabel;
+    private StockEventBus.Listener stockListener; // kept so dispose() can unsubscribe it
     
     // UI Components
-    private DefaultTableModel stockCountModel;
+    private TableModels.StockCountTableModel stockCountModel;
     private JComboBox<String> sessionBox;
     private Component parentComponent; // For centering popups
 
     // Constructor: Dependencies injected from GUI.java
-    public StockCountTab(Map<String, Model> models, employee loggedInUser, Component parentComponent) {
-        this.models = models;
+    public StockCountTab(Catalogue catalogue, DataLoader dataLoader, employee loggedInUser,
+            Component parentComponent) {
+        this.catalogue = catalogue;
+        this.dataLoader = dataLoader;
         this.loggedInUser = loggedInUser;
         this.parentComponent = parentComponent;
     }
@@ -38,22 +53,37 @@ public class StockCountTab {
         sessionBox.setFont(GUI.MAIN_FONT);
         sessionBox.setBackground(Color.WHITE);
         
+        JButton startBtn = new JButton("START COUNT");
+        startBtn.setFont(new Font("Segoe UI", Font.BOLD, 12));
+        startBtn.setFocusPainted(false);
+        startBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+
+        startedLabel = new JLabel("Not started (comparing with live stock)");
+        startedLabel.setFont(GUI.MAIN_FONT);
+
+        // ACTION: Clear the sheet and remember when counting began
+        startBtn.addActionListener(e -> {
+            countStartedAt = LocalDateTime.now();
+            refreshTable();
+            startedLabel.setText("Count started at " + countStartedAt.toLocalTime().format(FileFormats.TIME_FORMAT));
+        });
+
         topPanel.add(lblSession);
         topPanel.add(sessionBox);
+        topPanel.add(startBtn);
+        topPanel.add(startedLabel);
+        movedLabel = new JLabel();
+        movedLabel.setFont(GUI.MAIN_FONT);
+        topPanel.add(movedLabel);
 
         // --- CENTER: THE DATA TABLE ---
-        // We override 'isCellEditable' to control which cells the user can type in.
-        stockCountModel = new DefaultTableModel(new Object[] { "Model", "Enter Count" }, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                // Column 0 is Model Name (Read-only)
-                // Column 1 is Count Input (Editable)
-                return column == 1; 
-            }
-        };
+        // Only the "Enter Count" column can be typed in (see TableModels.java)
+        stockCountModel = new TableModels.StockCountTableModel();
 
         // Populate table with list of models
         refreshTable(); 
+        stockListener = this::stockChanged;
+        catalogue.events().subscribe(stockListener);
 
         JTable table = new JTable(stockCountModel);
         
@@ -79,6 +109,18 @@ public class StockCountTab {
         // ACTION: Run the math logic when clicked
         verifyBtn.addActionListener(e -> performStockVerification());
         
+        // BULK IMPORT (Managers only): count sheets from handheld scanners, for many outlets at once
+        if (loggedInUser instanceof manager && dataLoader != null) {
+            JButton importBtn = new JButton("IMPORT SHEETS");
+            importBtn.setFont(new Font("Segoe UI", Font.BOLD, 14));
+            importBtn.setBackground(GUI.PRIMARY_COLOR);
+            importBtn.setForeground(Color.WHITE);
+            importBtn.setFocusPainted(false);
+            importBtn.setPreferredSize(new Dimension(170, 40));
+            importBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+            importBtn.addActionListener(e -> importCountSheets(importBtn));
+            bottomPanel.add(importBtn);
+        }
         bottomPanel.add(verifyBtn);
         panel.add(bottomPanel, BorderLayout.SOUTH);
 
@@ -111,15 +153,97 @@ public class StockCountTab {
     }
 
     // --- REFRESH DATA ---
-    // Clears the table and re-adds all models with "0" as the starting count.
+    // Starts a fresh sheet: every model with "0" as the starting count.
     public void refreshTable() {
-        if (stockCountModel == null || models == null)
+        if (stockCountModel == null || catalogue == null)
             return;
-        stockCountModel.setRowCount(0);
+        stockCountModel.setModels(catalogue.snapshot().models().values());
+        unitsMoved = 0;
+        movedLabel.setText("");
+    }
+
+    // Called when the dashboard holding this tab is thrown away (see GUI.disposeDashboard)
+    public void dispose() {
+        if (stockListener != null) {
+            catalogue.events().unsubscribe(stockListener);
+            stockListener = null;
+        }
+    }
 
-        for (Model m : models.values()) {
-            stockCountModel.addRow(new Object[] { m.getModelName(), "0" });
+    // Stock numbers changed somewhere (on the Swing thread, at most once per frame)
+    private void stockChanged(java.util.List<StockSnapshots.Change> changes) {
+        String currentOutlet = (loggedInUser != null) ? loggedInUser.getOutlet() : "C60";
+        boolean any = false;
+        for (StockSnapshots.Change c : changes) {
+            if (!c.outlet.equals(currentOutlet))
+                continue;
+            stockCountModel.addMoved(c.model, c.newQty - c.oldQty);
+            unitsMoved += Math.abs(c.newQty - c.oldQty);
+            any = true;
         }
+        if (any)
+            movedLabel.setText(unitsMoved + " unit(s) sold / moved here since the sheet started");
+    }
+
+    // --- BULK IMPORT ---
+    // Reads the chosen CSV sheets and reconciles them in the background (so the window
+    // doesn't freeze on big files), then offers to apply the adjustments.
+    private void importCountSheets(JButton importBtn) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setMultiSelectionEnabled(true);
+        chooser.setDialogTitle("Choose count sheets (Outlet,Model,Counted)");
+        if (chooser.showOpenDialog(parentComponent) != JFileChooser.APPROVE_OPTION)
+            return;
+        java.util.List<java.io.File> sheets = java.util.Arrays.asList(chooser.getSelectedFiles());
+        LocalDateTime asOf = countStartedAt;
+        StockCountEngine engine = new StockCountEngine(dataLoader);
+        importBtn.setEnabled(false);
+
+        new SwingWorker<StockCountEngine.Result, Void>() {
+            @Override
+            protected StockCountEngine.Result doInBackground() throws Exception {
+                java.util.List<String> problems = new java.util.ArrayList<>();
+                StockCountEngine.Result result = engine.reconcile(engine.readSheets(sheets, problems), asOf, problems);
+                engine.saveReport(result);
+                return result;
+            }
+
+            @Override
+            protected void done() {
+                importBtn.setEnabled(true);
+                StockCountEngine.Result result;
+                try {
+                    result = get();
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(parentComponent, "Import failed: " + ex.getMessage());
+                    return;
+                }
+                JTextArea summary = new JTextArea(result.getSummary());
+                summary.setEditable(false);
+                summary.setFont(new Font("Monospaced", Font.PLAIN, 12));
+                JScrollPane scroll = new JScrollPane(summary);
+                scroll.setPreferredSize(new Dimension(500, 300));
+
+                if (result.getMismatches().isEmpty()) {
+                    JOptionPane.showMessageDialog(parentComponent, scroll, "Bulk Stock Count",
+                            JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                int choice = JOptionPane.showConfirmDialog(parentComponent, scroll,
+                        "Bulk Stock Count - apply " + result.getMismatches().size() + " adjustments?",
+                        JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+                if (choice != JOptionPane.YES_OPTION)
+                    return;
+                try {
+                    int applied = engine.applyAdjustments(result, catalogue,
+                            new java.util.ArrayList<>(dataLoader.loadOutlets().keySet()));
+                    refreshTable();
+                    JOptionPane.showMessageDialog(parentComponent, applied + " stock adjustments saved.");
+                } catch (IllegalArgumentException ex) {
+                    JOptionPane.showMessageDialog(parentComponent, "Nothing was changed: " + ex.getMessage());
+                }
+            }
+        }.execute();
     }
 
     // --- VERIFICATION LOGIC ---
@@ -136,7 +260,18 @@ public class StockCountTab {
         // Build Report Header
         report.append("=== ").append(session).append(" ===\n");
         report.append("Date: ").append(date).append("\n");
-        report.append("Time: ").append(time).append("\n\n");
+        report.append("Time: ").append(time).append("\n");
+
+        // Expected numbers: the stock at the start of the count if we have history for it,
+        // otherwise the live numbers (the old behaviour)
+        Map<String, Map<String, Integer>> atStart = null;
+        if (countStartedAt != null && dataLoader != null)
+            atStart = dataLoader.getStockSnapshots().stockAt(countStartedAt);
+        Catalogue.Snapshot live = catalogue.snapshot(); // one version for the whole report
+        if (atStart != null)
+            report.append("Compared with stock at: ")
+                    .append(countStartedAt.toLocalTime().format(FileFormats.TIME_FORMAT)).append("\n");
+        report.append("\n");
 
         int totalChecked = 0;
         int correct = 0;
@@ -145,21 +280,15 @@ public class StockCountTab {
 
         // Loop through every row in the table
         for (int i = 0; i < stockCountModel.getRowCount(); i++) {
-            String modelName = (String) stockCountModel.getValueAt(i, 0);
-            String inputStr = (String) stockCountModel.getValueAt(i, 1);
-            
-            // Parse User Input
-            int counted = 0;
-            try {
-                counted = Integer.parseInt(inputStr);
-            } catch (NumberFormatException ex) {
-                counted = 0; // Default to 0 if they typed "abc" or left it blank
-            }
+            String modelName = stockCountModel.getModelName(i);
+            int counted = stockCountModel.getCount(i); // already a number (bad input was stored as 0)
 
             // Get Expected System Stock
             int systemStock = 0;
-            if (models.containsKey(modelName)) {
-                systemStock = models.get(modelName).getStock(currentOutlet);
+            if (atStart != null) {
+                systemStock = atStart.getOrDefault(modelName, Map.of()).getOrDefault(currentOutlet, 0);
+            } else if (live.contains(modelName)) {
+                systemStock = live.get(modelName).getStock(currentOutlet);
             }
 
             totalChecked++;
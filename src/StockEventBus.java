@@ -0,0 +1,90 @@
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.swing.SwingUtilities;
+
+// STOCK CHANGE EVENTS (WHAT CHANGED, NOT "SOMETHING CHANGED")
+// Every new catalogue version (see Catalogue.update) reports exactly which numbers moved:
+// (model, outlet, old quantity, new quantity), one StockSnapshots.Change each. Screens subscribe
+// and update only the rows and totals those changes touch, instead of rebuilding everything.
+//
+// COALESCING: a bulk transfer or a stock count can change hundreds of numbers in a row. Changes
+// are collected for one screen frame (16 ms) and handed out together, once, on the Swing thread.
+// If the same (model, outlet) changes several times within the frame, listeners get ONE change
+// from the first old number to the last new number (and nothing if it ended where it started).
+//
+// ** USED BY CATALOGUE (publishes) & STOCKCOUNTTAB, EDITTAB (listen) **
+public class StockEventBus {
+
+    public static final int FRAME_MS = 16;
+
+    // Called on the Swing thread with every change since the last call
+    public interface Listener {
+        void stockChanged(List<StockSnapshots.Change> changes);
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final javax.swing.Timer frame;
+
+    // Waiting for the next frame, by "model|outlet" (guarded by 'this')
+    private Map<String, StockSnapshots.Change> pending = new LinkedHashMap<>();
+
+    public StockEventBus() {
+        frame = new javax.swing.Timer(FRAME_MS, e -> deliver());
+        frame.setRepeats(false);
+    }
+
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // (Publishers can skip working out the changes when nobody listens, e.g. the API server)
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    // Any thread. Nothing is kept when nobody listens.
+    public void publish(List<StockSnapshots.Change> changes) {
+        if (changes.isEmpty() || listeners.isEmpty())
+            return;
+        Metrics.count("StockEventBus.changes", changes.size());
+        boolean first;
+        synchronized (this) {
+            first = pending.isEmpty();
+            for (StockSnapshots.Change c : changes) {
+                String key = c.model + "|" + c.outlet;
+                StockSnapshots.Change earlier = pending.get(key);
+                pending.put(key, earlier == null ? c : new StockSnapshots.Change(c.model, c.outlet, earlier.oldQty, c.newQty));
+            }
+        }
+        // The first change of a frame starts the clock; the rest ride along
+        if (first)
+            SwingUtilities.invokeLater(frame::restart);
+    }
+
+    private void deliver() {
+        Map<String, StockSnapshots.Change> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+        List<StockSnapshots.Change> changes = new ArrayList<>(batch.size());
+        for (StockSnapshots.Change c : batch.values())
+            if (c.oldQty != c.newQty)
+                changes.add(c);
+        if (changes.isEmpty())
+            return;
+        long t0 = Metrics.start();
+        for (Listener l : listeners) {
+            try {
+                l.stockChanged(changes);
+            } catch (RuntimeException e) {
+                System.out.println("Stock change listener failed: " + e);
+            }
+        }
+        Metrics.stop("StockEventBus.deliver", t0);
+    }
+}
@@ -10,29 +10,26 @@ import java.util.Map;
 public class StockInOutTab {
     
     // --- SHARED DATA ---
-    private Map<String, Model> models;      // The live database of products
+    private Catalogue catalogue;            // The live database of products (see Catalogue.java)
     private Map<String, String> outlets;    // List of stores (e.g., C60 -> KL)
     private DataLoader dataLoader;          // To save changes to file
     private employee loggedInUser;          // To record WHO made the transfer
     private Component parentComponent;      // For centering popup windows
-    
-    // CALLBACK: This is a "remote control" that lets this tab tell the 
-    // "Stock Count" tab to refresh its table after we change the numbers here.
-    private Runnable onStockUpdate; 
+
+    // (The "Stock Count" tab hears about the new numbers from the catalogue, see StockEventBus.java)
 
     // UI LIST: Where we store the list of visual rows (Model + Qty inputs)
     private JPanel stockItemsPanel;
     private List<StockTransferRow> stockTransferRows;
 
     // CONSTRUCTOR
-    public StockInOutTab(Map<String, Model> models, Map<String, String> outlets, DataLoader dataLoader,
-            employee loggedInUser, Component parentComponent, Runnable onStockUpdate) {
-        this.models = models;
+    public StockInOutTab(Catalogue catalogue, Map<String, String> outlets, DataLoader dataLoader,
+            employee loggedInUser, Component parentComponent) {
+        this.catalogue = catalogue;
         this.outlets = outlets;
         this.dataLoader = dataLoader;
         this.loggedInUser = loggedInUser;
         this.parentComponent = parentComponent;
-        this.onStockUpdate = onStockUpdate;
     }
 
     public JPanel createPanel() {
@@ -116,6 +113,7 @@ public class StockInOutTab {
 
             // VALIDATION: Stock Check Loop
             // Before we change ANY numbers, we must make sure ALL items are valid.
+            Catalogue.Snapshot models = catalogue.snapshot();
             for (StockTransferRow row : stockTransferRows) {
                 String model = row.getSelectedModel();
                 int qty = row.getQuantity();
@@ -135,25 +133,12 @@ public class StockInOutTab {
             }
 
             // --- COMMIT TRANSFER ---
-            // If we get here, all checks passed. Now we actually change the numbers.
+            long t0 = Metrics.start();
             for (StockTransferRow row : stockTransferRows) {
-                String modelStr = row.getSelectedModel();
-                int qty = row.getQuantity();
-                if (qty <= 0) continue;
-
-                Model m = models.get(modelStr);
-                
-                // MATH: Subtract from Source
-                if (!fromCode.equals("HQ"))
-                    m.reduceStock(fromCode, qty);
-                
-                // MATH: Add to Destination
-                if (!toCode.equals("HQ"))
-                    m.addStock(toCode, qty);
-
+                if (row.getQuantity() <= 0) continue;
                 // Add line to receipt text
-                receiptModels.append("    - ").append(modelStr).append(" (Quantity: ").append(qty).append(")\n");
-                totalQty += qty;
+                FileFormats.appendStockItem(receiptModels, row.getSelectedModel(), row.getQuantity());
+                totalQty += row.getQuantity();
             }
 
             // If user clicked Done but didn't enter any quantities
@@ -162,32 +147,44 @@ public class StockInOutTab {
                 return;
             }
 
-            // SAVE: Write updated numbers to model.csv
-            dataLoader.saveModels(models, new ArrayList<>(outlets.keySet()));
-            
-            // REFRESH: Tell other parts of the app to reload data
-            if (onStockUpdate != null)
-                onStockUpdate.run();
+            // If we get here, all checks passed. Now we actually change the numbers: the whole
+            // transfer becomes ONE new catalogue version (reduceStock checks the stock again,
+            // in case a sale took it meanwhile), then model.csv is written.
+            try {
+                catalogue.update(edit -> {
+                    for (StockTransferRow row : stockTransferRows) {
+                        int qty = row.getQuantity();
+                        if (qty <= 0) continue;
+                        Model m = edit.model(row.getSelectedModel());
+
+                        // MATH: Subtract from Source
+                        if (!fromCode.equals("HQ"))
+                            m.reduceStock(fromCode, qty);
+
+                        // MATH: Add to Destination
+                        if (!toCode.equals("HQ"))
+                            m.addStock(toCode, qty);
+                    }
+                }, snapshot -> dataLoader.saveModels(snapshot.models(), new ArrayList<>(outlets.keySet())));
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(parentComponent, ex.getMessage());
+                return;
+            }
+
+            // REFRESH: nothing to do here, update() told the other tabs which numbers changed
 
             // --- GENERATE RECEIPT TEXT ---
-            // We build a string that looks like a formal document
-            StringBuilder rc = new StringBuilder();
-            rc.append("=== ").append(type).append(" ===\n");
-            rc.append("Date: ").append(java.time.LocalDate.now()).append("\n");
-            rc.append("Time: ").append(java.time.LocalTime.now()
-                    .format(java.time.format.DateTimeFormatter.ofPattern("hh:mm a"))).append("\n");
-            rc.append("From: ").append(fromFull).append("\n");
-            rc.append("To: ").append(toFull).append("\n");
-            rc.append("Models Received:\n\n");
-            rc.append(receiptModels);
-            rc.append("\nTotal Quantity: ").append(totalQty).append("\n");
-            rc.append("Name of Employee in Charge: ").append(loggedInUser != null ? loggedInUser.getName() : "Unknown")
-                    .append("\n");
-            rc.append("\nModel quantities updated successfully.\n");
-            rc.append(type).append(" recorded.");
+            // We build a string that looks like a formal document.
+            // The ID's outlet part is where the stock came from (HQ or an outlet).
+            String rc = FileFormats.stockReceipt(IdGenerator.forOutlet(fromCode).nextId(), type, java.time.LocalDate.now(),
+                    java.time.LocalTime.now().format(FileFormats.TIME_FORMAT), fromFull, toFull,
+                    receiptModels, totalQty, loggedInUser != null ? loggedInUser.getName() : "Unknown");
 
             // Save receipt to "StockReceipt" folder
-            dataLoader.appendReceipt(rc.toString());
+            dataLoader.appendReceipt(rc);
+            Metrics.stop("StockInOutTab.transfer", t0);
+            Metrics.count("StockInOutTab.transfers");
+            Metrics.count("StockInOutTab.units", totalQty);
 
             JOptionPane.showMessageDialog(parentComponent, "Transfer Successful!\nReceipt generated.");
 
@@ -209,7 +206,7 @@ public class StockInOutTab {
     // HELPER: Adds a visual row
     private void addStockTransferRow() {
         // Create the inner class object
-        StockTransferRow row = new StockTransferRow(models.keySet().toArray(new String[0]));
+        StockTransferRow row = new StockTransferRow(catalogue.snapshot().models().keySet().toArray(new String[0]));
         // Add to our list logic
         stockTransferRows.add(row);
         // Add to visual panel
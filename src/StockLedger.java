@@ -0,0 +1,213 @@
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+// THE STOCK LEDGER
+// Every stock movement ever written to the receipt files (transfers AND sales), kept in time order
+// and indexed by model and by outlet, so we can answer:
+//   - "what moved in or out of C61 last week?"          -> getMovementsForOutlet(...)
+//   - "how many DW2300-1 did we have at C60 on 1 Jan?"   -> stockAsOf(...)
+//
+// HOW "STOCK AS OF" WORKS
+// We start from the newest stock snapshot taken BEFORE the moment we want (see StockSnapshots.java)
+// and add every movement written after it:   stock then = snapshot + (net change since the snapshot).
+// Instead of re-scanning every receipt for each question, we keep, for each (model, outlet)
+// pair, a running total of its net change (a "checkpoint" after every movement).
+// A question is then two binary searches: O(log n) instead of O(number of receipts).
+//
+// Manual corrections in the EDIT tab and stock count adjustments don't write a receipt, but they
+// are inside the snapshots, so going forward from one is only wrong for corrections made between
+// the snapshot and the moment we want. Only when the history doesn't reach back that far do we
+// fall back to model.csv (the stock RIGHT NOW) and undo every movement since:
+//   stock then = stock now - (net change since then)   (this one can't undo those corrections)
+public class StockLedger {
+
+    private final List<StockMovement> movements;            // everything, oldest first
+    private final Map<String, List<StockMovement>> byModel = new HashMap<>();
+    private final Map<String, List<StockMovement>> byOutlet = new HashMap<>();
+    private final Map<String, Track> tracks = new HashMap<>(); // "model|outlet" -> checkpoints
+    private final Map<String, Model> current;                // the stock right now (the fallback)
+    private final StockSnapshots snapshots;                  // null = no history, replay from 'current'
+
+    // The snapshot of the last question, so a whole table reads the file only once
+    private long cachedFor = Long.MIN_VALUE;
+    private StockSnapshots.Snapshot cachedSnapshot;
+
+    // The running totals for ONE (model, outlet) pair.
+    // times[i] = when movement i happened, netUpTo[i] = total change from the first movement up to and including i.
+    private static class Track {
+        long[] times = new long[4];
+        int[] netUpTo = new int[4];
+        int size;
+
+        void add(long time, int delta) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                netUpTo = Arrays.copyOf(netUpTo, size * 2);
+            }
+            times[size] = time;
+            netUpTo[size] = (size == 0 ? 0 : netUpTo[size - 1]) + delta;
+            size++;
+        }
+
+        int total() {
+            return size == 0 ? 0 : netUpTo[size - 1];
+        }
+
+        // Net change of everything at or before 'time' (binary search for the last checkpoint <= time)
+        int netUntil(long time) {
+            int lo = 0, hi = size - 1, found = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (times[mid] <= time) {
+                    found = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return found < 0 ? 0 : netUpTo[found];
+        }
+    }
+
+    // 'movements' must be in time order (DataLoader.loadStockMovements already sorts them).
+    // 'snapshots' may be null: then every question replays backwards from 'current'.
+    public StockLedger(List<StockMovement> movements, Map<String, Model> current, StockSnapshots snapshots) {
+        long t0 = Metrics.start();
+        this.movements = Collections.unmodifiableList(new ArrayList<>(movements));
+        this.current = current;
+        this.snapshots = snapshots;
+        for (StockMovement m : this.movements) {
+            byModel.computeIfAbsent(m.getModelName(), k -> new ArrayList<>()).add(m);
+            // HQ isn't an outlet in model.csv, and the customer isn't a place at all
+            if (isOutlet(m.getFrom())) {
+                byOutlet.computeIfAbsent(m.getFrom(), k -> new ArrayList<>()).add(m);
+                track(m.getModelName(), m.getFrom()).add(m.getTimeKey(), -m.getQuantity());
+            }
+            if (isOutlet(m.getTo())) {
+                byOutlet.computeIfAbsent(m.getTo(), k -> new ArrayList<>()).add(m);
+                track(m.getModelName(), m.getTo()).add(m.getTimeKey(), m.getQuantity());
+            }
+        }
+        Metrics.stop("StockLedger.build", t0);
+    }
+
+    // Reads all receipts + model.csv and builds the ledger on top of the stock history
+    public static StockLedger load(DataLoader dataLoader) {
+        return new StockLedger(dataLoader.loadStockMovements(), dataLoader.loadModels(), dataLoader.getStockSnapshots());
+    }
+
+    private static boolean isOutlet(String code) {
+        return !code.isEmpty() && !code.equals(StockMovement.HQ);
+    }
+
+    private Track track(String model, String outlet) {
+        return tracks.computeIfAbsent(model + "|" + outlet, k -> new Track());
+    }
+
+    // --- MOVEMENT QUERIES ---
+
+    public List<StockMovement> getMovements() {
+        return movements;
+    }
+
+    public List<StockMovement> getMovementsForModel(String model) {
+        return Collections.unmodifiableList(byModel.getOrDefault(model, Collections.emptyList()));
+    }
+
+    // Everything that came into OR went out of this outlet
+    public List<StockMovement> getMovementsForOutlet(String outlet) {
+        return Collections.unmodifiableList(byOutlet.getOrDefault(outlet, Collections.emptyList()));
+    }
+
+    // Movements between two dates (inclusive). The list is sorted, so we binary search the start.
+    public List<StockMovement> getMovementsBetween(List<StockMovement> sorted, LocalDate from, LocalDate to) {
+        long start = StockMovement.timeKey(from, 0);
+        long end = StockMovement.timeKey(to, 1439);
+        int lo = 0, hi = sorted.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted.get(mid).getTimeKey() < start)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        List<StockMovement> result = new ArrayList<>();
+        for (int i = lo; i < sorted.size() && sorted.get(i).getTimeKey() <= end; i++)
+            result.add(sorted.get(i));
+        return result;
+    }
+
+    // Total units moved in and out of an outlet between two dates (for auditing busy outlets)
+    public int[] unitsInOut(String outlet, LocalDate from, LocalDate to) {
+        int in = 0, out = 0;
+        for (StockMovement m : getMovementsBetween(getMovementsForOutlet(outlet), from, to)) {
+            if (outlet.equals(m.getTo()))
+                in += m.getQuantity();
+            if (outlet.equals(m.getFrom()))
+                out += m.getQuantity();
+        }
+        return new int[] { in, out };
+    }
+
+    // --- STOCK AS OF ---
+
+    // Stock of one model at one outlet at the END of 'date'
+    public int stockAsOf(String model, String outlet, LocalDate date) {
+        return stockAsOf(model, outlet, date, 1439);
+    }
+
+    public int stockAsOf(String model, String outlet, LocalDate date, int minuteOfDay) {
+        long timeKey = StockMovement.timeKey(date, minuteOfDay);
+        Track t = tracks.get(model + "|" + outlet);
+
+        StockSnapshots.Snapshot snapshot = snapshotFor(date, minuteOfDay);
+        if (snapshot != null) {
+            int then = snapshot.matrix.getOrDefault(model, Collections.emptyMap()).getOrDefault(outlet, 0);
+            if (t == null)
+                return then;
+            // Receipts only know the minute, so the ones from the snapshot's own minute are
+            // counted as already inside it (the receipt is written just before model.csv is saved)
+            return then + t.netUntil(timeKey) - t.netUntil(toTimeKey(snapshot.millis));
+        }
+
+        Model m = current.get(model);
+        int now = m != null ? m.getStock(outlet) : 0;
+        if (t == null)
+            return now; // nothing ever moved, so it has always been like this
+        int changedSince = t.total() - t.netUntil(timeKey);
+        return now - changedSince;
+    }
+
+    // The newest snapshot taken before the end of that minute (null = the history doesn't reach back)
+    private synchronized StockSnapshots.Snapshot snapshotFor(LocalDate date, int minuteOfDay) {
+        if (snapshots == null)
+            return null;
+        long millis = date.atStartOfDay().plusMinutes(minuteOfDay + 1)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() - 1;
+        if (millis != cachedFor) {
+            cachedSnapshot = snapshots.snapshotAtOrBefore(millis);
+            cachedFor = millis;
+        }
+        return cachedSnapshot;
+    }
+
+    private static long toTimeKey(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        return StockMovement.timeKey(time.toLocalDate(), time.getHour() * 60 + time.getMinute());
+    }
+
+    // The whole stock table (model -> outlet -> quantity) at the end of 'date'
+    public Map<String, Map<String, Integer>> stockAsOf(LocalDate date, Collection<String> outletCodes) {
+        Map<String, Map<String, Integer>> table = new LinkedHashMap<>();
+        for (String model : current.keySet()) {
+            Map<String, Integer> row = new LinkedHashMap<>();
+            for (String outlet : outletCodes)
+                row.put(outlet, stockAsOf(model, outlet, date));
+            table.put(model, row);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,100 @@
+import java.time.LocalDate;
+
+// ONE LINE OF STOCK MOVEMENT
+// A single model moving between two places, read back from the receipt files:
+//   - a "Stock In" / "Stock Out" receipt gives one movement per "    - Model (Quantity: n)" line
+//   - a sale gives one movement per "Model:" item, going out of the seller's outlet
+// "HQ" is the service center (not counted in model.csv), "" means "left the company" (a customer).
+public class StockMovement {
+    public static final String HQ = "HQ";
+    public static final String CUSTOMER = "";
+
+    private final String type; // "Stock In", "Stock Out" or "Sale"
+    private final LocalDate date;
+    private final int minuteOfDay; // 0..1439, so comparing times is just comparing numbers
+    private final String from;
+    private final String to;
+    private final String modelName;
+    private final int quantity;
+    private final String employee; // Name for transfers, Employee ID for sales (same as the receipts)
+
+    public StockMovement(String type, LocalDate date, int minuteOfDay, String from, String to, String modelName,
+            int quantity, String employee) {
+        this.type = type;
+        this.date = date;
+        this.minuteOfDay = minuteOfDay;
+        this.from = from;
+        this.to = to;
+        this.modelName = modelName;
+        this.quantity = quantity;
+        this.employee = employee;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public int getMinuteOfDay() {
+        return minuteOfDay;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public String getEmployee() {
+        return employee;
+    }
+
+    // A single sortable number for "when": days since 1970 * 1440 + minute of the day
+    public long getTimeKey() {
+        return timeKey(date, minuteOfDay);
+    }
+
+    public static long timeKey(LocalDate date, int minuteOfDay) {
+        return date.toEpochDay() * 1440 + minuteOfDay;
+    }
+
+    // "02:30 PM" -> 870. Returns 0 for anything unreadable (the movement still counts for that day).
+    public static int parseMinuteOfDay(String time) {
+        try {
+            String t = time.trim();
+            int hour = Integer.parseInt(t.substring(0, 2)) % 12;
+            int minute = Integer.parseInt(t.substring(3, 5));
+            if (t.toUpperCase().endsWith("PM"))
+                hour += 12;
+            return hour * 60 + minute;
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    // "C60 (Kuala Lumpur City Centre)" -> "C60", "HQ (Service Center)" -> "HQ"
+    public static String placeCode(String label) {
+        String code = label.trim();
+        int space = code.indexOf(' ');
+        return space > 0 ? code.substring(0, space) : code;
+    }
+
+    @Override
+    public String toString() {
+        return date + " " + String.format("%02d:%02d", minuteOfDay / 60, minuteOfDay % 60) + " " + type + " "
+                + modelName + " x" + quantity + " " + (from.isEmpty() ? "-" : from) + " -> " + (to.isEmpty() ? "customer" : to);
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// STOCK HISTORY (Point-in-time stock)
+// model.csv only knows the stock RIGHT NOW; every save overwrites the old numbers.
+// This class keeps the history in the "StockHistory" folder:
+//
+//   snapshot_2026-10-19_14-05-33-120.csv.gz   a zipped copy of model.csv (at most one per hour)
+//   deltas_2026-10-19.log                      every single change: time,model,outlet,old,new
+//
+// To find the stock at any past moment we open the newest snapshot taken before that moment
+// and replay only the few changes written after it. Hourly snapshots older than a week are
+// thinned out to one per day, so the folder stays small but nothing is ever unreachable.
+//
+// ** CONNECTION TO DATALOADER.SAVEMODELS ** (records every save)
+// ** USED BY STOCKCOUNTTAB ** (compares a count with the stock at the time the count started)
+public class StockSnapshots {
+
+    private static final long SNAPSHOT_INTERVAL_MS = 60 * 60 * 1000L; // hourly
+    private static final int KEEP_HOURLY_DAYS = 7;                      // after that, daily only
+
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss-SSS");
+    private static final String SNAPSHOT_PREFIX = "snapshot_";
+    private static final String SNAPSHOT_SUFFIX = ".csv.gz";
+
+    private final File dir;
+    private long lastSnapshotMillis = -1; // -1 = not looked yet
+
+    public StockSnapshots(File dir) {
+        this.dir = dir;
+    }
+
+    // --- RECORDING ---
+
+    // Called after model.csv was overwritten. 'before' is what the file held until now
+    // (null if there was no file yet), 'after' is what was just saved.
+    public synchronized void recordSave(Map<String, Map<String, Integer>> before, Map<String, Map<String, Integer>> after,
+            List<String> outletCodes, long now) {
+        long t0 = Metrics.start();
+        if (!dir.exists())
+            dir.mkdirs();
+
+        // The very first save: keep the old numbers as the starting point of the history
+        if (latestSnapshotMillis() < 0 && before != null)
+            writeSnapshot(before, outletCodes, now - 1);
+
+        if (before != null)
+            appendDeltas(before, after, now);
+
+        if (latestSnapshotMillis() < 0 || now - latestSnapshotMillis() >= SNAPSHOT_INTERVAL_MS) {
+            writeSnapshot(after, outletCodes, now);
+            pruneOldSnapshots(now);
+        }
+        Metrics.stop("StockSnapshots.recordSave", t0);
+    }
+
+    // One (model, outlet) whose number changed in a save
+    public static class Change {
+        public final String model;
+        public final String outlet;
+        public final int oldQty;
+        public final int newQty;
+
+        Change(String model, String outlet, int oldQty, int newQty) {
+            this.model = model;
+            this.outlet = outlet;
+            this.oldQty = oldQty;
+            this.newQty = newQty;
+        }
+    }
+
+    // Every (model, outlet) whose number differs between two stock tables
+    // ** ALSO USED BY DATALOADER.SAVEMODELS ** (sends the changes to HQ, see ReplicationOutbox)
+    // ** & CATALOGUE ** (tells the screens what a new version changed, see StockEventBus)
+    public static List<Change> changes(Map<String, Map<String, Integer>> before, Map<String, Map<String, Integer>> after) {
+        List<Change> changes = new ArrayList<>();
+        Set<String> modelNames = new LinkedHashSet<>(before.keySet());
+        modelNames.addAll(after.keySet());
+        for (String model : modelNames) {
+            Map<String, Integer> oldRow = before.getOrDefault(model, Collections.emptyMap());
+            Map<String, Integer> newRow = after.getOrDefault(model, Collections.emptyMap());
+            Set<String> outlets = new LinkedHashSet<>(oldRow.keySet());
+            outlets.addAll(newRow.keySet());
+            for (String outlet : outlets) {
+                int oldQty = oldRow.getOrDefault(outlet, 0);
+                int newQty = newRow.getOrDefault(outlet, 0);
+                if (oldQty != newQty)
+                    changes.add(new Change(model, outlet, oldQty, newQty));
+            }
+        }
+        return changes;
+    }
+
+    // Writes one line per (model, outlet) whose number changed
+    private void appendDeltas(Map<String, Map<String, Integer>> before, Map<String, Map<String, Integer>> after, long now) {
+        StringBuilder sb = new StringBuilder();
+        for (Change c : changes(before, after))
+            sb.append(now).append(',').append(c.model).append(',').append(c.outlet).append(',')
+                    .append(c.oldQty).append(',').append(c.newQty).append('\n');
+        if (sb.length() == 0)
+            return;
+        try (Writer w = new BufferedWriter(new FileWriter(deltaFile(toDate(now)), true))) {
+            w.write(sb.toString());
+        } catch (IOException e) {
+            System.out.println("Error saving stock history: " + e.getMessage());
+        }
+        Metrics.count("StockSnapshots.deltaLines", sb.chars().filter(c -> c == '\n').count());
+    }
+
+    private void writeSnapshot(Map<String, Map<String, Integer>> matrix, List<String> outletCodes, long when) {
+        File f = new File(dir, SNAPSHOT_PREFIX + toDateTime(when).format(NAME_FORMAT) + SNAPSHOT_SUFFIX);
+        try (PrintWriter pw = new PrintWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(f))))) {
+            pw.println("Model," + String.join(",", outletCodes));
+            for (Map.Entry<String, Map<String, Integer>> row : matrix.entrySet()) {
+                StringBuilder sb = new StringBuilder(row.getKey());
+                for (String code : outletCodes)
+                    sb.append(',').append(row.getValue().getOrDefault(code, 0));
+                pw.println(sb);
+            }
+            lastSnapshotMillis = when;
+        } catch (IOException e) {
+            System.out.println("Error saving stock snapshot: " + e.getMessage());
+        }
+    }
+
+    // Keeps every snapshot from the last week, and only the first snapshot of each day before that
+    private void pruneOldSnapshots(long now) {
+        LocalDate cutoff = toDate(now).minusDays(KEEP_HOURLY_DAYS);
+        Set<LocalDate> seenDays = new HashSet<>();
+        for (long t : snapshotTimes()) {
+            LocalDate day = toDate(t);
+            if (!seenDays.add(day) && day.isBefore(cutoff))
+                snapshotFile(t).delete();
+        }
+    }
+
+    // --- READING BACK ---
+
+    // One snapshot file read back: when it was taken and the stock table it holds
+    public static class Snapshot {
+        public final long millis;
+        public final Map<String, Map<String, Integer>> matrix;
+
+        Snapshot(long millis, Map<String, Map<String, Integer>> matrix) {
+            this.millis = millis;
+            this.matrix = matrix;
+        }
+    }
+
+    // The newest snapshot taken at or before 'millis', as it is in the file (no changes replayed).
+    // Returns null if the history doesn't reach back that far.
+    // ** ALSO USED BY STOCKLEDGER ** (replays the receipts written after it)
+    public synchronized Snapshot snapshotAtOrBefore(long millis) {
+        long base = -1;
+        for (long t : snapshotTimes()) {
+            if (t <= millis)
+                base = t; // the list is sorted, so the last one that fits is the nearest
+            else
+                break;
+        }
+        if (base < 0)
+            return null;
+
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(new GZIPInputStream(new FileInputStream(snapshotFile(base)))))) {
+            return new Snapshot(base, readMatrix(br, false));
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error reading stock snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // The whole stock table (model -> outlet -> quantity) as it was at 'millis'.
+    // Returns null if the history doesn't reach back that far.
+    public synchronized Map<String, Map<String, Integer>> stockAt(long millis) {
+        long t0 = Metrics.start();
+        Snapshot snapshot = snapshotAtOrBefore(millis);
+        if (snapshot == null)
+            return null;
+        long base = snapshot.millis;
+        Map<String, Map<String, Integer>> matrix = snapshot.matrix;
+
+        // Replay the changes made after the snapshot, up to the moment we want
+        int replayed = 0;
+        for (LocalDate day = toDate(base); !day.isAfter(toDate(millis)); day = day.plusDays(1)) {
+            File f = deltaFile(day);
+            if (!f.exists())
+                continue;
+            try (BufferedReader br = new BufferedReader(new FileReader(f))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    String[] d = line.split(",");
+                    if (d.length < 5)
+                        continue;
+                    long when = Long.parseLong(d[0]);
+                    if (when <= base)
+                        continue; // already inside the snapshot
+                    if (when > millis)
+                        break;    // lines are in time order, so we're done with this file
+                    matrix.computeIfAbsent(d[1], k -> new LinkedHashMap<>()).put(d[2], Integer.parseInt(d[4]));
+                    replayed++;
+                }
+            } catch (IOException | NumberFormatException e) {
+                System.out.println("Error reading stock history: " + e.getMessage());
+            }
+        }
+        Metrics.stop("StockSnapshots.stockAt", t0);
+        Metrics.count("StockSnapshots.replayedDeltas", replayed);
+        return matrix;
+    }
+
+    public Map<String, Map<String, Integer>> stockAt(LocalDateTime time) {
+        return stockAt(time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    // Reads a stock table in model.csv layout. 'hasPrice' = the second column is the price (model.csv)
+    // rather than the first outlet (snapshot files).
+    public static Map<String, Map<String, Integer>> readMatrix(BufferedReader br, boolean hasPrice) throws IOException {
+        Map<String, Map<String, Integer>> matrix = new LinkedHashMap<>();
+        String header = br.readLine();
+        if (header == null)
+            return matrix;
+        String[] headers = header.split(",");
+        int first = hasPrice ? 2 : 1;
+        String line;
+        while ((line = br.readLine()) != null) {
+            String[] data = line.split(",");
+            if (data.length < first)
+                continue;
+            Map<String, Integer> row = new LinkedHashMap<>();
+            for (int i = first; i < data.length && i < headers.length; i++)
+                row.put(headers[i].trim(), Integer.parseInt(data[i].trim()));
+            matrix.put(data[0], row);
+        }
+        return matrix;
+    }
+
+    // Turns the in-memory models into the same table shape
+    public static Map<String, Map<String, Integer>> toMatrix(Map<String, Model> models, List<String> outletCodes) {
+        Map<String, Map<String, Integer>> matrix = new LinkedHashMap<>();
+        for (Model m : models.values()) {
+            Map<String, Integer> row = new LinkedHashMap<>();
+            for (String code : outletCodes)
+                row.put(code, m.getStock(code));
+            matrix.put(m.getModelName(), row);
+        }
+        return matrix;
+    }
+
+    // --- FILE HELPERS ---
+
+    private long latestSnapshotMillis() {
+        if (lastSnapshotMillis == -1) {
+            List<Long> times = snapshotTimes();
+            lastSnapshotMillis = times.isEmpty() ? -2 : times.get(times.size() - 1);
+        }
+        return lastSnapshotMillis < 0 ? -1 : lastSnapshotMillis;
+    }
+
+    // All snapshot times, oldest first (read from the file names)
+    private List<Long> snapshotTimes() {
+        List<Long> times = new ArrayList<>();
+        String[] names = dir.list((d, name) -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX));
+        if (names == null)
+            return times;
+        for (String name : names) {
+            String stamp = name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length());
+            try {
+                times.add(LocalDateTime.parse(stamp, NAME_FORMAT).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            } catch (RuntimeException e) {
+                // not one of ours, ignore
+            }
+        }
+        Collections.sort(times);
+        return times;
+    }
+
+    private File snapshotFile(long millis) {
+        return new File(dir, SNAPSHOT_PREFIX + toDateTime(millis).format(NAME_FORMAT) + SNAPSHOT_SUFFIX);
+    }
+
+    private File deltaFile(LocalDate day) {
+        return new File(dir, "deltas_" + day + ".log");
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    private static LocalDate toDate(long millis) {
+        return toDateTime(millis).toLocalDate();
+    }
+}
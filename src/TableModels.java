@@ -0,0 +1,210 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// THE TABLE DATA SOURCES
+// A DefaultTableModel copies every row into its own Object[] and fires one event per addRow(),
+// which gets slow with 100,000 sales. These models instead keep a reference to OUR lists/arrays
+// and only look up a cell when the JTable asks for it (i.e. only the rows on screen).
+// After a reload we swap in the new list and fire ONE "everything changed" event.
+//
+// ** USED BY HISTORYPANEL, STOCKCOUNTTAB & PERFORMANCEPANEL **
+public class TableModels {
+
+    private TableModels() {
+    }
+
+    // --- HISTORY: one row per Transaction ---
+    public static class TransactionTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = { "Date", "Customer", "Model", "Qty", "Total (RM)" };
+        private List<Transaction> rows = Collections.emptyList();
+
+        public void setRows(List<Transaction> rows) {
+            this.rows = new ArrayList<>(rows);
+            fireTableDataChanged();
+        }
+
+        // Adds the next page at the bottom (used when the user scrolls down the HISTORY tab)
+        public void appendRows(List<Transaction> more) {
+            if (more.isEmpty())
+                return;
+            int first = rows.size();
+            rows.addAll(more);
+            fireTableRowsInserted(first, rows.size() - 1);
+        }
+
+        public Transaction getRow(int row) {
+            return rows.get(row);
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Transaction t = rows.get(row);
+            switch (column) {
+                case 0: return t.getDate();
+                case 1: return t.getCustomerName();
+                case 2: return t.getModelName();
+                case 3: return t.getQuantity();
+                default: return Money.format(t.getTotalCents()); // Format currency
+            }
+        }
+    }
+
+    // --- STOCK COUNT: model name + the number the user typed ---
+    // The counts live in a plain int[] (no boxing), column 1 is editable.
+    public static class StockCountTableModel extends AbstractTableModel {
+        private String[] modelNames = new String[0];
+        private int[] counts = new int[0];
+        private int[] moved = new int[0];                    // stock change at this outlet since the sheet started
+        private Map<String, Integer> rowOf = new HashMap<>(); // model name -> row
+
+        // Starts a fresh sheet: every model with a count of 0
+        public void setModels(Collection<Model> models) {
+            modelNames = new String[models.size()];
+            rowOf = new HashMap<>();
+            int i = 0;
+            for (Model m : models) {
+                rowOf.put(m.getModelName(), i);
+                modelNames[i++] = m.getModelName();
+            }
+            counts = new int[modelNames.length];
+            moved = new int[modelNames.length];
+            fireTableDataChanged();
+        }
+
+        // A sale / transfer changed one model's stock: only that row is repainted (see StockEventBus)
+        public void addMoved(String modelName, int difference) {
+            Integer row = rowOf.get(modelName);
+            if (row == null)
+                return;
+            moved[row] += difference;
+            fireTableCellUpdated(row, 2);
+        }
+
+        public String getModelName(int row) {
+            return modelNames[row];
+        }
+
+        public int getCount(int row) {
+            return counts[row];
+        }
+
+        @Override
+        public int getRowCount() {
+            return modelNames.length;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return 3;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return column == 0 ? "Model" : column == 1 ? "Enter Count" : "Moved Since Start";
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            if (column == 0)
+                return modelNames[row];
+            if (column == 1)
+                return String.valueOf(counts[row]);
+            return moved[row] == 0 ? "" : (moved[row] > 0 ? "+" : "") + moved[row];
+        }
+
+        // Column 0 is Model Name (Read-only), Column 1 is Count Input (Editable)
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return column == 1;
+        }
+
+        @Override
+        public void setValueAt(Object value, int row, int column) {
+            if (column != 1)
+                return;
+            try {
+                counts[row] = Integer.parseInt(String.valueOf(value).trim());
+            } catch (NumberFormatException ex) {
+                counts[row] = 0; // Default to 0 if they typed "abc" or left it blank
+            }
+            fireTableCellUpdated(row, column);
+        }
+    }
+
+    // --- PERFORMANCE: the leaderboard ---
+    // Names are looked up once per reload (not once per paint).
+    public static class PerformanceTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = { "Rank", "Employee Name", "Total Sales (RM)", "Txn Count" };
+        private List<Performance.PerformanceEntry> entries = Collections.emptyList();
+        private String[] names = new String[0];
+
+        public void setEntries(List<Performance.PerformanceEntry> entries, Map<String, employee> employees) {
+            this.entries = new ArrayList<>(entries);
+            this.names = new String[entries.size()];
+            for (int i = 0; i < names.length; i++)
+                names[i] = nameOf(entries.get(i).empId, employees);
+            fireTableDataChanged();
+        }
+
+        // NAME LOOKUP LOGIC:
+        // The transaction only has an ID (e.g., "001"). We need to find the Name ("Ali").
+        private static String nameOf(String empId, Map<String, employee> employees) {
+            String cleanID = (empId != null) ? empId.trim() : "";
+            // Attempt 1: Fast Lookup (HashMap)
+            if (employees.containsKey(cleanID))
+                return employees.get(cleanID).getName();
+            // Attempt 2: Case-insensitive fallback ("A01" vs "a01")
+            for (employee emp : employees.values()) {
+                if (emp.getID().trim().equalsIgnoreCase(cleanID))
+                    return emp.getName();
+            }
+            return "Unknown Staff";
+        }
+
+        @Override
+        public int getRowCount() {
+            return entries.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Performance.PerformanceEntry entry = entries.get(row);
+            switch (column) {
+                case 0: return row == 0 ? "TOP RANK" : "RANK " + (row + 1); // Special badge for #1
+                case 1: return names[row];
+                case 2: return Money.format(entry.totalCents);
+                default: return entry.transactionCount;
+            }
+        }
+    }
+}
@@ -1,10 +1,15 @@
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 public class Transaction {
     private String transactionId;
     private String type; // "SALE", "STOCK_IN", "STOCK_OUT"
+    // WHEN: kept as plain numbers, read from the text ONCE when the transaction is created.
+    // Filters, sorting and charts compare these ints instead of re-parsing "2026-10-19" / "02:30 PM".
+    private int epochDay;    // days since 1970-01-01 (NO_DATE if the receipt's date was unreadable)
+    private int minuteOfDay; // 0 .. 1439 (14:30 -> 870)
+    // The text versions are only built when a screen asks for them (see getDate / getTime)
     private String date;
     private String time;
     private String employeeId;
@@ -12,24 +17,23 @@ public class Transaction {
     private int quantity;
     private String outletCode; // Where the transaction happened
     private String customerName; // Only for SALE
-    private double totalAmount; // Only for SALE
+    private long totalCents; // Only for SALE. RM 12.50 is stored as 1250 (see Money.java)
 
-    private static final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    private static final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("hh:mm a");
+    public static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int NO_TIME = -1;
 
     // Constructor for SALE
-    public Transaction(String employeeId, String outletCode, String modelName, int quantity, double totalAmount,
+    public Transaction(String employeeId, String outletCode, String modelName, int quantity, long totalCents,
             String customerName) {
         this.type = "SALE";
         this.employeeId = employeeId;
         this.outletCode = outletCode;
         this.modelName = modelName;
         this.quantity = quantity;
-        this.totalAmount = totalAmount;
+        this.totalCents = totalCents;
         this.customerName = customerName;
-        this.date = LocalDateTime.now().format(dateFormatter);
-        this.time = LocalDateTime.now().format(timeFormatter);
-        this.transactionId = "TXN-" + System.currentTimeMillis();
+        setWhen(LocalDateTime.now());
+        this.transactionId = IdGenerator.forOutlet(outletCode).nextIdString(); // unique, see IdGenerator
     }
 
     // Constructor for STOCK IN/OUT
@@ -39,11 +43,10 @@ public class Transaction {
         this.outletCode = outletCode;
         this.modelName = modelName;
         this.quantity = quantity;
-        this.date = LocalDateTime.now().format(dateFormatter);
-        this.time = LocalDateTime.now().format(timeFormatter);
-        this.transactionId = "STK-" + System.currentTimeMillis();
+        setWhen(LocalDateTime.now());
+        this.transactionId = IdGenerator.forOutlet(outletCode).nextIdString();
         this.customerName = "N/A";
-        this.totalAmount = 0.0;
+        this.totalCents = 0;
     }
 
     // Getters
@@ -55,12 +58,37 @@ public class Transaction {
         return type;
     }
 
+    // "2026-10-19" (built from epochDay the first time it is needed, then reused)
     public String getDate() {
-        return date;
+        String d = date;
+        if (d == null)
+            date = d = LocalDate.ofEpochDay(epochDay).toString();
+        return d;
     }
 
+    // "02:30 PM" (same format as the receipts)
     public String getTime() {
-        return time;
+        String t = time;
+        if (t == null)
+            time = t = formatTime(minuteOfDay);
+        return t;
+    }
+
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    public int getMinuteOfDay() {
+        return minuteOfDay;
+    }
+
+    public boolean hasDate() {
+        return epochDay != NO_DATE;
+    }
+
+    // False if the receipt's time could not be read (getMinuteOfDay is then 0, which is NOT midnight)
+    public boolean hasTime() {
+        return unreadableTime() == null;
     }
 
     public String getEmployeeId() {
@@ -84,28 +112,130 @@ public class Transaction {
     }
 
     public double getTotalAmount() {
-        return totalAmount;
+        return Money.toDouble(totalCents);
+    }
+
+    public long getTotalCents() {
+        return totalCents;
     }
 
     // For CSV reconstruction
     public Transaction(String id, String type, String date, String time, String empId, String outlet, String model,
             int qty, double amt, String cust) {
+        this(id, type, date, time, empId, outlet, model, qty, Money.ofDouble(amt), cust);
+    }
+
+    // Same, with the amount already in cents (used by DataLoader's receipt parser)
+    public Transaction(String id, String type, String date, String time, String empId, String outlet, String model,
+            int qty, long amtCents, String cust) {
         this.transactionId = id;
         this.type = type;
-        this.date = date;
-        this.time = time;
+        this.epochDay = parseEpochDay(date);
+        int minute = parseMinute(time);
+        this.minuteOfDay = minute == NO_TIME ? 0 : minute;
+        // Only keep the original text if we could NOT read it (so the screens still show something)
+        if (epochDay == NO_DATE)
+            this.date = date;
+        if (minute == NO_TIME)
+            this.time = time != null ? time : ""; // "" still counts as unreadable (see hasTime)
         this.employeeId = empId;
         this.outletCode = outlet;
         this.modelName = model;
         this.quantity = qty;
-        this.totalAmount = amt;
+        this.totalCents = amtCents;
         this.customerName = cust;
     }
 
+    // Rebuilt from the warm-start image (see WarmStartImage.java): the day and minute numbers are
+    // used as they are. dateText / timeText are only given for receipts whose text could not be read.
+    Transaction(String id, String type, int epochDay, int minuteOfDay, String dateText, String timeText, String empId,
+            String outlet, String model, int qty, long amtCents, String cust) {
+        this.transactionId = id;
+        this.type = type;
+        this.epochDay = epochDay;
+        this.minuteOfDay = minuteOfDay;
+        this.date = dateText;
+        this.time = timeText;
+        this.employeeId = empId;
+        this.outletCode = outlet;
+        this.modelName = model;
+        this.quantity = qty;
+        this.totalCents = amtCents;
+        this.customerName = cust;
+    }
+
+    // The original date / time text, but only if it could not be read (otherwise null)
+    String unreadableDate() {
+        return epochDay == NO_DATE ? date : null;
+    }
+
+    String unreadableTime() {
+        return time != null && !time.equals(formatTime(minuteOfDay)) ? time : null;
+    }
+
+    // --- DATE/TIME HELPERS ---
+
+    private void setWhen(LocalDateTime now) {
+        this.epochDay = (int) now.toLocalDate().toEpochDay();
+        this.minuteOfDay = now.getHour() * 60 + now.getMinute();
+    }
+
+    // "2026-10-19" -> days since 1970, read digit by digit (no DateTimeFormatter).
+    // Returns NO_DATE for anything that isn't a real yyyy-MM-dd date.
+    public static int parseEpochDay(String text) {
+        if (text == null)
+            return NO_DATE;
+        String d = text.trim();
+        if (d.length() != 10 || d.charAt(4) != '-' || d.charAt(7) != '-')
+            return NO_DATE;
+        int year = digits(d, 0, 4), month = digits(d, 5, 7), day = digits(d, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31)
+            return NO_DATE;
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay(); // also rejects 31st of April etc.
+        } catch (RuntimeException e) {
+            return NO_DATE;
+        }
+    }
+
+    // "02:30 PM" -> 870, read digit by digit. Returns NO_TIME for anything that isn't a real hh:mm AM/PM time.
+    private static int parseMinute(String text) {
+        if (text == null)
+            return NO_TIME;
+        String t = text.trim();
+        if (t.length() != 8 || t.charAt(2) != ':' || t.charAt(5) != ' ')
+            return NO_TIME;
+        int hour = digits(t, 0, 2), minute = digits(t, 3, 5);
+        String half = t.substring(6).toUpperCase();
+        if (hour < 1 || hour > 12 || minute < 0 || minute > 59 || !(half.equals("AM") || half.equals("PM")))
+            return NO_TIME;
+        return (hour % 12 + (half.equals("PM") ? 12 : 0)) * 60 + minute;
+    }
+
+    private static int digits(String s, int from, int to) {
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    // 870 -> "02:30 PM"
+    public static String formatTime(int minuteOfDay) {
+        int hour = minuteOfDay / 60, minute = minuteOfDay % 60;
+        int h12 = hour % 12 == 0 ? 12 : hour % 12;
+        char[] c = { (char) ('0' + h12 / 10), (char) ('0' + h12 % 10), ':', (char) ('0' + minute / 10),
+                (char) ('0' + minute % 10), ' ', hour < 12 ? 'A' : 'P', 'M' };
+        return new String(c);
+    }
+
     @Override
     public String toString() {
-        return String.format("%s,%s,%s,%s,%s,%s,%s,%d,%.2f,%s",
-                transactionId, type, date, time, employeeId, outletCode, modelName, quantity, totalAmount,
+        return String.format("%s,%s,%s,%s,%s,%s,%s,%d,%s,%s",
+                transactionId, type, getDate(), getTime(), employeeId, outletCode, modelName, quantity, Money.format(totalCents),
                 customerName);
     }
 }
@@ -0,0 +1,220 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+
+// ZOOMABLE TREND CHART
+// A line chart with one line per series (total, or per outlet / per model).
+//   - Mouse wheel   = zoom in/out around the mouse pointer
+//   - Drag          = move left/right in time
+//   - Double-click  = show everything again
+// Every zoom or move asks TrendEngine for fresh numbers at a resolution that fits the
+// width of the screen (hours when zoomed in, months when looking at five years),
+// so there are never more points than pixels to draw.
+//
+// ** USED BY TRENDPANEL **
+public class TrendChart extends JPanel {
+
+    private static final Font LABEL_FONT = new Font("SansSerif", Font.PLAIN, 10);
+    private static final Color[] PALETTE = {
+            new Color(52, 152, 219), new Color(46, 204, 113), new Color(231, 76, 60), new Color(155, 89, 182),
+            new Color(243, 156, 18), new Color(26, 188, 156), new Color(52, 73, 94), new Color(149, 165, 166) };
+    private static final int LEFT = 70, RIGHT = 20, TOP = 30, BOTTOM = 40;
+    private static final int PIXELS_PER_BUCKET = 6; // at most one point every 6 pixels
+    private static final long MIN_SPAN = 6 * 60;    // can't zoom in closer than 6 hours
+
+    private TrendEngine engine;
+    private TrendEngine.Split split = TrendEngine.Split.NONE;
+    private TrendEngine.Result result;
+
+    // The visible time window, in minutes since 1970
+    private long viewFrom, viewTo;
+
+    // Drag state
+    private int dragStartX;
+    private long dragFrom, dragTo;
+
+    public TrendChart() {
+        setBackground(Color.WHITE);
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoom(e.getX(), Math.pow(1.25, e.getPreciseWheelRotation()));
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragStartX = e.getX();
+                dragFrom = viewFrom;
+                dragTo = viewTo;
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (engine == null)
+                    return;
+                long shift = (long) ((dragStartX - e.getX()) * (double) (dragTo - dragFrom) / plotWidth());
+                setView(dragFrom + shift, dragTo + shift);
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2)
+                    showAll();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    // New data (e.g. after REFRESH): keeps the current window if there is one
+    public void setEngine(TrendEngine engine, TrendEngine.Split split) {
+        boolean first = this.engine == null;
+        this.engine = engine;
+        this.split = split;
+        if (first)
+            showAll();
+        else
+            requery();
+    }
+
+    public void setSplit(TrendEngine.Split split) {
+        this.split = split;
+        requery();
+    }
+
+    public void showAll() {
+        if (engine == null)
+            return;
+        // Whole days, from the first sale to the end of the day of the last one
+        long from = Math.floorDiv(engine.getFirstMinute(), 1440) * 1440;
+        long to = (Math.floorDiv(engine.getLastMinute(), 1440) + 1) * 1440;
+        setView(from, to);
+    }
+
+    public void setView(long from, long to) {
+        if (to - from < MIN_SPAN) {
+            long mid = (from + to) / 2;
+            from = mid - MIN_SPAN / 2;
+            to = from + MIN_SPAN;
+        }
+        viewFrom = from;
+        viewTo = to;
+        requery();
+    }
+
+    // Zooms so the moment under the mouse stays under the mouse
+    private void zoom(int mouseX, double factor) {
+        if (engine == null)
+            return;
+        double ratio = Math.max(0, Math.min(1, (mouseX - LEFT) / (double) plotWidth()));
+        long span = viewTo - viewFrom;
+        long anchor = viewFrom + (long) (span * ratio);
+        long newSpan = Math.max(MIN_SPAN, (long) (span * factor));
+        long from = anchor - (long) (newSpan * ratio);
+        setView(from, from + newSpan);
+    }
+
+    // Asks the engine for the visible window at a resolution that fits the width
+    private void requery() {
+        if (engine == null)
+            return;
+        int maxBuckets = Math.max(10, plotWidth() / PIXELS_PER_BUCKET);
+        TrendEngine.Granularity g = TrendEngine.granularityFor(viewFrom, viewTo, maxBuckets);
+        result = engine.query(viewFrom, viewTo, g, split);
+        repaint();
+    }
+
+    private int plotWidth() {
+        return Math.max(1, getWidth() - LEFT - RIGHT);
+    }
+
+    // The window was resized: a different width may need a different resolution
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        boolean widthChanged = width != getWidth();
+        super.setBounds(x, y, width, height);
+        if (widthChanged)
+            requery();
+    }
+
+    private int xOf(long minute) {
+        return LEFT + (int) ((minute - viewFrom) * (double) plotWidth() / (viewTo - viewFrom));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setFont(LABEL_FONT);
+        FontMetrics fm = g2.getFontMetrics();
+        int height = getHeight();
+        int plotHeight = Math.max(1, height - TOP - BOTTOM);
+
+        if (result == null || result.getBucketCount() == 0) {
+            g2.setColor(Color.GRAY);
+            g2.drawString("No sales data loaded.", LEFT, TOP + 20);
+            return;
+        }
+
+        // MATH: the highest point decides the vertical scale
+        double maxVal = 0;
+        for (double[] series : result.values)
+            for (double v : series)
+                maxVal = Math.max(maxVal, v);
+        if (maxVal == 0) maxVal = 1;
+
+        // AXES + the top value on the left
+        g2.setColor(Color.BLACK);
+        g2.drawLine(LEFT, height - BOTTOM, LEFT + plotWidth(), height - BOTTOM);
+        g2.drawLine(LEFT, TOP, LEFT, height - BOTTOM);
+        String maxLabel = String.format("RM %.0f", maxVal);
+        g2.drawString(maxLabel, Math.max(2, LEFT - fm.stringWidth(maxLabel) - 4), TOP + 4);
+        g2.drawString("0", LEFT - fm.stringWidth("0") - 4, height - BOTTOM);
+
+        // X LABELS: about one every 120 pixels
+        int buckets = result.getBucketCount();
+        int step = Math.max(1, (int) Math.ceil(buckets / Math.max(1.0, plotWidth() / 120.0)));
+        g2.setColor(Color.DARK_GRAY);
+        for (int b = 0; b < buckets; b += step) {
+            int x = xOf(result.bucketStart[b]);
+            if (x < LEFT || x > LEFT + plotWidth())
+                continue;
+            g2.drawLine(x, height - BOTTOM, x, height - BOTTOM + 4);
+            g2.drawString(result.label(b), x - fm.stringWidth(result.label(b)) / 2, height - BOTTOM + 16);
+        }
+
+        // THE LINES (clipped to the plot area so panned-off points don't draw over the labels)
+        Shape oldClip = g2.getClip();
+        g2.clipRect(LEFT, TOP - 2, plotWidth() + 1, plotHeight + 3);
+        g2.setStroke(new BasicStroke(2f));
+        int[] xs = new int[buckets];
+        int[] ys = new int[buckets];
+        long half = buckets > 1 ? (result.bucketStart[1] - result.bucketStart[0]) / 2 : 0;
+        for (int b = 0; b < buckets; b++)
+            xs[b] = xOf(result.bucketStart[b] + half); // plot each bucket at its middle
+        for (int s = 0; s < result.values.length; s++) {
+            for (int b = 0; b < buckets; b++)
+                ys[b] = height - BOTTOM - (int) (result.values[s][b] / maxVal * plotHeight);
+            g2.setColor(PALETTE[s % PALETTE.length]);
+            g2.drawPolyline(xs, ys, buckets);
+        }
+        g2.setClip(oldClip);
+        g2.setStroke(new BasicStroke(1f));
+
+        // LEGEND + which resolution we are looking at
+        int lx = LEFT + 10;
+        for (int s = 0; s < result.seriesNames.length; s++) {
+            g2.setColor(PALETTE[s % PALETTE.length]);
+            g2.fillRect(lx, 8, 10, 10);
+            g2.setColor(Color.DARK_GRAY);
+            g2.drawString(result.seriesNames[s], lx + 14, 17);
+            lx += 24 + fm.stringWidth(result.seriesNames[s]);
+        }
+        String info = "per " + result.granularity.name().toLowerCase();
+        g2.drawString(info, LEFT + plotWidth() - fm.stringWidth(info), 17);
+    }
+}
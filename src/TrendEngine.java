@@ -0,0 +1,275 @@
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// THE TREND ENGINE
+// Analytics.getTrendData() only knows "Today / This Week / This Month" and one line of totals.
+// This engine answers "sales between ANY two moments, per hour/day/week/month,
+// optionally one line per outlet or per model" fast enough to redraw while the user zooms.
+//
+// HOW IT STAYS FAST
+// The sales are converted ONCE into plain number arrays (time in minutes, amount, which
+// outlet, which model), sorted by time. A query then:
+//   1. binary searches the first and last sale in the range    (no scanning of old years)
+//   2. drops each sale into its bucket with integer math       (no dates or Strings per sale)
+//
+// ** USED BY TRENDPANEL / TRENDCHART **
+public class TrendEngine {
+
+    public enum Granularity {
+        HOUR, DAY, WEEK, MONTH
+    }
+
+    public enum Split {
+        NONE, OUTLET, MODEL
+    }
+
+    // Lines beyond this many (e.g. 40 models) are added together as "Other"
+    public static final int MAX_SERIES = 8;
+
+    // --- THE DATA (parallel arrays, one slot per sale, sorted by time) ---
+    private final long[] minute;   // minutes since 1970-01-01 00:00
+    private final int[] monthKey;  // year * 12 + (month - 1), precomputed for MONTH buckets
+    private final long[] amountCents; // exact money per sale (see Money.java)
+    private final int[] outletIdx; // index into outletNames
+    private final int[] modelIdx;  // index into modelNames
+    private final String[] outletNames;
+    private final String[] modelNames;
+
+    // Sales only carry the Employee ID, so 'outletOfEmployee' says which outlet made each sale
+    public TrendEngine(List<Transaction> transactions, Map<String, String> outletOfEmployee) {
+        long t0 = Metrics.start();
+        int n = transactions.size();
+        long[] keys = new long[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            Transaction t = transactions.get(i);
+            // unreadable date: sorts first, never inside a range
+            long day = t.hasDate() ? t.getEpochDay() : Long.MIN_VALUE / 2;
+            keys[i] = day * 1440 + t.getMinuteOfDay();
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> keys[i]));
+
+        Map<String, Integer> outlets = new LinkedHashMap<>();
+        Map<String, Integer> models = new LinkedHashMap<>();
+        minute = new long[n];
+        monthKey = new int[n];
+        amountCents = new long[n];
+        outletIdx = new int[n];
+        modelIdx = new int[n];
+        for (int k = 0; k < n; k++) {
+            Transaction t = transactions.get(order[k]);
+            minute[k] = keys[order[k]];
+            LocalDate d = LocalDate.ofEpochDay(Math.max(minute[k], 0) / 1440);
+            monthKey[k] = d.getYear() * 12 + d.getMonthValue() - 1;
+            amountCents[k] = t.getTotalCents();
+            String outlet = outletOfEmployee.getOrDefault(t.getEmployeeId(), t.getOutletCode());
+            outletIdx[k] = outlets.computeIfAbsent(outlet, x -> outlets.size());
+            modelIdx[k] = models.computeIfAbsent(t.getModelName(), x -> models.size());
+        }
+        outletNames = outlets.keySet().toArray(new String[0]);
+        modelNames = models.keySet().toArray(new String[0]);
+        Metrics.stop("TrendEngine.build", t0);
+    }
+
+    // Loads every sale and the staff list, then builds the engine
+    public static TrendEngine load(DataLoader dataLoader) {
+        Map<String, String> outletOfEmployee = new HashMap<>();
+        for (employee e : dataLoader.loadEmployee().values())
+            outletOfEmployee.put(e.getID(), e.getOutlet());
+        return new TrendEngine(dataLoader.loadTransactions(), outletOfEmployee);
+    }
+
+    public int size() {
+        return minute.length;
+    }
+
+    // Time of the first and last sale (in minutes since 1970), for "zoom to everything"
+    public long getFirstMinute() {
+        return minute.length == 0 ? LocalDate.now().toEpochDay() * 1440 : Math.max(0, minute[0]);
+    }
+
+    public long getLastMinute() {
+        return minute.length == 0 ? getFirstMinute() + 1440 : minute[minute.length - 1];
+    }
+
+    // --- THE RESULT ---
+    // bucketStart[b] = when bucket b starts (minutes since 1970)
+    // values[s][b]   = money of series s in bucket b
+    public static class Result {
+        public final Granularity granularity;
+        public final long[] bucketStart;
+        public final String[] seriesNames;
+        public final double[][] values;
+
+        Result(Granularity granularity, long[] bucketStart, String[] seriesNames, double[][] values) {
+            this.granularity = granularity;
+            this.bucketStart = bucketStart;
+            this.seriesNames = seriesNames;
+            this.values = values;
+        }
+
+        public int getBucketCount() {
+            return bucketStart.length;
+        }
+
+        // Text for the x-axis, e.g. "2026-03-01 14:00", "2026-03-01", "W 2026-03-02", "2026-03"
+        public String label(int bucket) {
+            LocalDateTime t = toDateTime(bucketStart[bucket]);
+            switch (granularity) {
+                case HOUR: return String.format("%s %02d:00", t.toLocalDate(), t.getHour());
+                case DAY: return t.toLocalDate().toString();
+                case WEEK: return "W " + t.toLocalDate();
+                default: return String.format("%d-%02d", t.getYear(), t.getMonthValue());
+            }
+        }
+    }
+
+    // --- QUERY ---
+    // Money per bucket between 'fromMinute' (inclusive) and 'toMinute' (exclusive).
+    public Result query(long fromMinute, long toMinute, Granularity g, Split split) {
+        long t0 = Metrics.start();
+
+        // 1. THE BUCKETS: line the first bucket up with a clean boundary (midnight, Monday, 1st)
+        long first = bucketFloor(fromMinute, g);
+        List<Long> starts = new ArrayList<>();
+        for (long b = first; b < toMinute; b = nextBucket(b, g))
+            starts.add(b);
+        long[] bucketStart = new long[starts.size()];
+        for (int i = 0; i < bucketStart.length; i++)
+            bucketStart[i] = starts.get(i);
+
+        // 2. THE RANGE: binary search instead of looking at every sale
+        int lo = lowerBound(first);
+        int hi = lowerBound(toMinute);
+
+        // 3. WHICH LINE each sale belongs to
+        SeriesPlan plan = planSeries(split, lo, hi);
+        int[] seriesOf = plan.mapping;
+        long[][] cents = new long[plan.names.length][bucketStart.length];
+
+        // 4. FILL THE BUCKETS with integer math only
+        int firstMonth = monthKeyOf(first);
+        long firstDay = Math.floorDiv(first, 1440);
+        for (int i = lo; i < hi; i++) {
+            int b;
+            switch (g) {
+                case HOUR: b = (int) ((minute[i] - first) / 60); break;
+                case DAY: b = (int) (minute[i] / 1440 - firstDay); break;
+                case WEEK: b = (int) ((minute[i] / 1440 - firstDay) / 7); break;
+                default: b = monthKey[i] - firstMonth;
+            }
+            if (b < 0 || b >= bucketStart.length)
+                continue;
+            int s = split == Split.NONE ? 0 : seriesOf[split == Split.OUTLET ? outletIdx[i] : modelIdx[i]];
+            cents[s][b] += amountCents[i];
+        }
+        double[][] values = new double[cents.length][bucketStart.length];
+        for (int s = 0; s < cents.length; s++)
+            for (int b = 0; b < bucketStart.length; b++)
+                values[s][b] = Money.toDouble(cents[s][b]);
+        Metrics.stop("TrendEngine.query", t0);
+        return new Result(g, bucketStart, plan.names, values);
+    }
+
+    // Picks the finest granularity that gives at most 'maxBuckets' buckets for the range
+    public static Granularity granularityFor(long fromMinute, long toMinute, int maxBuckets) {
+        long span = Math.max(1, toMinute - fromMinute);
+        if (span / 60 <= maxBuckets)
+            return Granularity.HOUR;
+        if (span / 1440 <= maxBuckets)
+            return Granularity.DAY;
+        if (span / (7 * 1440) <= maxBuckets)
+            return Granularity.WEEK;
+        return Granularity.MONTH;
+    }
+
+    // First sale at or after 'm'
+    private int lowerBound(long m) {
+        int lo = 0, hi = minute.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (minute[mid] < m)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    // For OUTLET/MODEL splits: keep the biggest MAX_SERIES - 1 by money in the range,
+    // everything else goes into one "Other" line.
+    // mapping = outlet/model index -> series index, names = the label of each series.
+    private static class SeriesPlan {
+        int[] mapping = new int[0];
+        String[] names;
+    }
+
+    private SeriesPlan planSeries(Split split, int lo, int hi) {
+        SeriesPlan plan = new SeriesPlan();
+        if (split == Split.NONE) {
+            plan.names = new String[] { "Total Sales" };
+            return plan;
+        }
+        int[] idx = split == Split.OUTLET ? outletIdx : modelIdx;
+        String[] source = split == Split.OUTLET ? outletNames : modelNames;
+        long[] totals = new long[source.length];
+        for (int i = lo; i < hi; i++)
+            totals[idx[i]] += amountCents[i];
+
+        Integer[] byTotal = new Integer[source.length];
+        for (int i = 0; i < source.length; i++)
+            byTotal[i] = i;
+        Arrays.sort(byTotal, (a, b) -> Long.compare(totals[b], totals[a]));
+
+        int keep = source.length <= MAX_SERIES ? source.length : MAX_SERIES - 1;
+        plan.mapping = new int[source.length];
+        for (int rank = 0; rank < source.length; rank++)
+            plan.mapping[byTotal[rank]] = Math.min(rank, keep);
+        plan.names = new String[keep < source.length ? keep + 1 : keep];
+        for (int rank = 0; rank < keep; rank++)
+            plan.names[rank] = source[byTotal[rank]];
+        if (keep < source.length)
+            plan.names[keep] = "Other";
+        return plan;
+    }
+
+    // --- TIME HELPERS (all in "minutes since 1970") ---
+
+    private static long bucketFloor(long m, Granularity g) {
+        long day = Math.floorDiv(m, 1440);
+        switch (g) {
+            case HOUR: return Math.floorDiv(m, 60) * 60;
+            case DAY: return day * 1440;
+            case WEEK: {
+                LocalDate d = LocalDate.ofEpochDay(day);
+                return d.minusDays(d.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue()).toEpochDay() * 1440;
+            }
+            default: return LocalDate.ofEpochDay(day).withDayOfMonth(1).toEpochDay() * 1440;
+        }
+    }
+
+    private static long nextBucket(long start, Granularity g) {
+        switch (g) {
+            case HOUR: return start + 60;
+            case DAY: return start + 1440;
+            case WEEK: return start + 7 * 1440;
+            default: return LocalDate.ofEpochDay(start / 1440).plusMonths(1).toEpochDay() * 1440;
+        }
+    }
+
+    private static int monthKeyOf(long m) {
+        LocalDate d = LocalDate.ofEpochDay(Math.floorDiv(m, 1440));
+        return d.getYear() * 12 + d.getMonthValue() - 1;
+    }
+
+    public static long toMinute(LocalDateTime t) {
+        return t.toLocalDate().toEpochDay() * 1440 + t.getHour() * 60 + t.getMinute();
+    }
+
+    public static LocalDateTime toDateTime(long minute) {
+        return LocalDate.ofEpochDay(Math.floorDiv(minute, 1440)).atStartOfDay().plusMinutes(Math.floorMod(minute, 1440));
+    }
+}
@@ -0,0 +1,93 @@
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+
+// TRENDS TAB
+// A bigger, zoomable version of the ANALYTICS chart: any date range, per hour/day/week/month,
+// with one line per outlet or per model. The sales are loaded in the background so the
+// window never freezes, then TrendChart asks TrendEngine for numbers as the user zooms.
+public class TrendPanel {
+
+    private DataLoader dataLoader;
+
+    public TrendPanel(DataLoader dataLoader) {
+        this.dataLoader = dataLoader;
+    }
+
+    public JPanel createPanel() {
+        JPanel wrapper = new JPanel(new BorderLayout(15, 15));
+        wrapper.setBackground(Color.WHITE);
+        wrapper.setBorder(new EmptyBorder(20, 20, 20, 20));
+
+        // --- TOP CONTROLS ---
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+        controls.setBackground(Color.WHITE);
+
+        JLabel lblSplit = new JLabel("Show:");
+        lblSplit.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        String[] splits = { "Total", "By Outlet", "By Model" };
+        JComboBox<String> splitBox = new JComboBox<>(splits);
+        splitBox.setFont(GUI.MAIN_FONT);
+        splitBox.setBackground(Color.WHITE);
+
+        CustomComponents.ModernButton refreshBtn = new CustomComponents.ModernButton("REFRESH", GUI.PRIMARY_COLOR, Color.WHITE);
+        refreshBtn.setPreferredSize(new Dimension(100, 30));
+        CustomComponents.ModernButton allBtn = new CustomComponents.ModernButton("SHOW ALL", GUI.ACCENT_COLOR, Color.WHITE);
+        allBtn.setPreferredSize(new Dimension(110, 30));
+
+        JLabel hint = new JLabel("Scroll to zoom, drag to move, double-click to show everything");
+        hint.setFont(GUI.MAIN_FONT);
+        hint.setForeground(Color.GRAY);
+
+        controls.add(lblSplit);
+        controls.add(splitBox);
+        controls.add(refreshBtn);
+        controls.add(allBtn);
+        controls.add(hint);
+
+        // --- THE CHART ---
+        TrendChart chart = new TrendChart();
+        chart.setPreferredSize(new Dimension(800, 400));
+        chart.setBorder(BorderFactory.createLineBorder(new Color(230, 230, 230), 1));
+
+        // --- DATA LOADING (background thread) ---
+        Runnable reload = () -> {
+            refreshBtn.setEnabled(false);
+            new SwingWorker<TrendEngine, Void>() {
+                @Override
+                protected TrendEngine doInBackground() {
+                    return TrendEngine.load(dataLoader);
+                }
+
+                @Override
+                protected void done() {
+                    refreshBtn.setEnabled(true);
+                    try {
+                        chart.setEngine(get(), splitFor(splitBox.getSelectedIndex()));
+                    } catch (Exception ex) {
+                        JOptionPane.showMessageDialog(wrapper, "Could not load sales: " + ex.getMessage());
+                    }
+                }
+            }.execute();
+        };
+
+        splitBox.addActionListener(e -> chart.setSplit(splitFor(splitBox.getSelectedIndex())));
+        refreshBtn.addActionListener(e -> reload.run());
+        allBtn.addActionListener(e -> chart.showAll());
+
+        // Initial load
+        reload.run();
+
+        wrapper.add(controls, BorderLayout.NORTH);
+        wrapper.add(chart, BorderLayout.CENTER);
+        return wrapper;
+    }
+
+    private static TrendEngine.Split splitFor(int index) {
+        switch (index) {
+            case 1: return TrendEngine.Split.OUTLET;
+            case 2: return TrendEngine.Split.MODEL;
+            default: return TrendEngine.Split.NONE;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// WARM START (SAVED COPY OF WHAT THE APP HAD IN MEMORY)
+// On startup the app reads employee.csv, model.csv and outlet.csv, and the first dashboard
+// reads every sales receipt. That text parsing is the same work every single time.
+// When the app closes cleanly (or "BatchCli checkpoint" runs) we save the parsed result
+// into ONE binary file, goldenhour.img, and the next start reads it back instead:
+//
+//   MAGIC, VERSION
+//   catalogue stamp   size + time of the three CSV files when the image was written
+//   sales stamp       DataLoader.salesFingerprint() (every day file + the edit log)
+//   CATALOGUE         employees, outlets, models with their stock
+//   SALES             every Transaction as plain numbers
+// Each part starts with its length (so it can be skipped), a CRC32 checksum of its bytes
+// (so damage is noticed before we trust it) and its own string table: every
+// distinct text once (ids, names, outlet codes, models...), which the numbers point into.
+//
+// The file is read into memory in one go and closed straight away (NOT memory mapped: on Windows
+// a mapped file can't be replaced until the mapping is garbage collected, so the next save would fail).
+// The small CATALOGUE part is decoded straight away (the login screen needs it); the big
+// SALES part only when readTransactions() is called, normally on a background thread
+// (checking the sales stamp means looking at every day file, so that waits too).
+// Each part is only used if its stamp still matches the files on disk. If anything changed,
+// is missing, or looks damaged, that part is ignored and the app parses the text as before.
+//
+// ** USED BY DATALOADER (saveWarmStart / loadWarmStart) **
+public class WarmStartImage {
+
+    public static final String FILE_NAME = "goldenhour.img";
+
+    private static final int MAGIC = 0x47484931; // "GHI1"
+    private static final int VERSION = 1;
+    private static final int NONE = -1;          // "no string" in the string table
+
+    // What was read back (null if the catalogue was out of date)
+    public Map<String, employee> employees;
+    public Map<String, String> outlets;
+    public Map<String, Model> models;
+    // The SALES part, still undecoded, and the sales stamp it was saved with
+    private ByteBuffer sales;
+    private long salesCrc;
+    public String salesStamp;
+
+    public boolean hasCatalogue() {
+        return employees != null;
+    }
+
+
+    // --- WRITING ---
+
+    // Writes the whole image to a temp file and swaps it in with one rename,
+    // so a crash while saving never leaves half an image behind
+    public static void write(File file, String catalogueStamp, Map<String, employee> employees,
+            Map<String, String> outlets, Map<String, Model> models, String salesStamp,
+            List<Transaction> transactions) throws IOException {
+        long t0 = Metrics.start();
+        Strings catalogueStrings = new Strings();
+        ByteArrayOutputStream catalogueBytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(catalogueBytes);
+        out.writeInt(employees.size());
+        for (employee e : employees.values()) {
+            out.writeInt(catalogueStrings.ref(e.getID()));
+            out.writeInt(catalogueStrings.ref(e.getName()));
+            out.writeInt(catalogueStrings.ref(e.getRole()));
+            out.writeInt(catalogueStrings.ref(e.getPassword()));
+            out.writeInt(catalogueStrings.ref(e.getOutlet()));
+        }
+        out.writeInt(outlets.size());
+        for (Map.Entry<String, String> o : outlets.entrySet()) {
+            out.writeInt(catalogueStrings.ref(o.getKey()));
+            out.writeInt(catalogueStrings.ref(o.getValue()));
+        }
+        out.writeInt(models.size());
+        for (Model m : models.values()) {
+            out.writeInt(catalogueStrings.ref(m.getModelName()));
+            out.writeLong(m.getPriceCents());
+            Map<String, Integer> stock = m.getAllStock();
+            out.writeInt(stock.size());
+            for (Map.Entry<String, Integer> s : stock.entrySet()) {
+                out.writeInt(catalogueStrings.ref(s.getKey()));
+                out.writeInt(s.getValue());
+            }
+        }
+        out.flush();
+
+        Strings salesStrings = new Strings();
+        ByteArrayOutputStream salesBytes = new ByteArrayOutputStream(transactions.size() * 48 + 16);
+        out = new DataOutputStream(salesBytes);
+        out.writeInt(transactions.size());
+        for (Transaction t : transactions) {
+            out.writeInt(salesStrings.ref(t.getTransactionId()));
+            out.writeInt(salesStrings.ref(t.getType()));
+            out.writeInt(t.getEpochDay());
+            out.writeInt(t.getMinuteOfDay());
+            out.writeInt(salesStrings.ref(t.unreadableDate()));
+            out.writeInt(salesStrings.ref(t.unreadableTime()));
+            out.writeInt(salesStrings.ref(t.getEmployeeId()));
+            out.writeInt(salesStrings.ref(t.getOutletCode()));
+            out.writeInt(salesStrings.ref(t.getModelName()));
+            out.writeInt(t.getQuantity());
+            out.writeLong(t.getTotalCents());
+            out.writeInt(salesStrings.ref(t.getCustomerName()));
+        }
+        out.flush();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream img = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 256 * 1024))) {
+            img.writeInt(MAGIC);
+            img.writeInt(VERSION);
+            writeText(img, catalogueStamp);
+            writeText(img, salesStamp);
+            writePart(img, catalogueStrings, catalogueBytes);
+            writePart(img, salesStrings, salesBytes);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Metrics.stop("WarmStartImage.write", t0);
+    }
+
+    // --- READING ---
+
+    // Reads the catalogue if its stamp still matches, and finds (but doesn't decode) the sales.
+    // Returns null if the file is missing, from another version, or damaged.
+    public static WarmStartImage read(File file, String catalogueStamp) {
+        if (!file.exists())
+            return null;
+        long t0 = Metrics.start();
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION)
+                return null;
+            WarmStartImage image = new WarmStartImage();
+            boolean catalogueFresh = readText(buf).equals(catalogueStamp);
+            image.salesStamp = readText(buf);
+            long catalogueCrc = buf.getLong(buf.position() + 4);
+            ByteBuffer catalogue = nextPart(buf);
+            if (catalogueFresh)
+                image.readCatalogue(checked(catalogue, catalogueCrc));
+            else
+                Metrics.count("WarmStartImage.staleCatalogue");
+            image.salesCrc = buf.getLong(buf.position() + 4);
+            image.sales = nextPart(buf);
+            Metrics.stop("WarmStartImage.read", t0);
+            return image;
+        } catch (IOException | RuntimeException e) {
+            // Damaged or cut short: not worth stopping the app for, just parse the files
+            System.out.println("Ignoring warm start image: " + e);
+            return null;
+        }
+    }
+
+    private void readCatalogue(ByteBuffer buf) {
+        String[] strings = readStrings(buf);
+        Map<String, employee> emps = new TreeMap<>(); // same map types as DataLoader's loaders
+        int n = buf.getInt();
+        for (int i = 0; i < n; i++) {
+            String id = strings[buf.getInt()], name = strings[buf.getInt()], role = strings[buf.getInt()];
+            String pass = strings[buf.getInt()], outlet = strings[buf.getInt()];
+            if (role.equalsIgnoreCase("Manager"))
+                emps.put(id, new manager(id, name, role, pass, outlet));
+            else
+                emps.put(id, new employee(id, name, role, pass, outlet));
+        }
+        Map<String, String> outs = new LinkedHashMap<>();
+        n = buf.getInt();
+        for (int i = 0; i < n; i++)
+            outs.put(strings[buf.getInt()], strings[buf.getInt()]);
+        Map<String, Model> mods = new LinkedHashMap<>();
+        n = buf.getInt();
+        for (int i = 0; i < n; i++) {
+            Model m = new Model(strings[buf.getInt()], buf.getLong());
+            int stocks = buf.getInt();
+            for (int s = 0; s < stocks; s++)
+                m.setStock(strings[buf.getInt()], buf.getInt());
+            mods.put(m.getModelName(), m);
+        }
+        employees = emps;
+        outlets = outs;
+        models = mods;
+    }
+
+    // Decodes the SALES part (only use it if salesStamp still matches). Safe from any thread.
+    public List<Transaction> readTransactions() {
+        long t0 = Metrics.start();
+        ByteBuffer buf = checked(sales.duplicate(), salesCrc);
+        String[] strings = readStrings(buf);
+        int n = buf.getInt();
+        List<Transaction> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String id = strings[buf.getInt()], type = strings[buf.getInt()];
+            int epochDay = buf.getInt(), minute = buf.getInt();
+            String dateText = text(strings, buf.getInt()), timeText = text(strings, buf.getInt());
+            String emp = text(strings, buf.getInt()), outlet = text(strings, buf.getInt());
+            String model = text(strings, buf.getInt());
+            int qty = buf.getInt();
+            long cents = buf.getLong();
+            String cust = text(strings, buf.getInt());
+            list.add(new Transaction(id, type, epochDay, minute, dateText, timeText, emp, outlet, model, qty, cents, cust));
+        }
+        Metrics.stop("WarmStartImage.readTransactions", t0);
+        return list;
+    }
+
+    // --- HELPERS ---
+
+    // Gives every distinct text a number, so "C60" is stored once instead of 100,000 times
+    private static class Strings {
+        final Map<String, Integer> refs = new HashMap<>();
+        final List<String> list = new ArrayList<>();
+
+        int ref(String s) {
+            if (s == null)
+                return NONE;
+            Integer r = refs.get(s);
+            if (r == null) {
+                r = list.size();
+                refs.put(s, r);
+                list.add(s);
+            }
+            return r;
+        }
+    }
+
+    // One part: its length, its checksum, its string table, then its numbers
+    private static void writePart(DataOutputStream img, Strings strings, ByteArrayOutputStream body) throws IOException {
+        ByteArrayOutputStream part = new ByteArrayOutputStream(body.size() + strings.list.size() * 16);
+        DataOutputStream out = new DataOutputStream(part);
+        out.writeInt(strings.list.size());
+        for (String s : strings.list)
+            writeText(out, s);
+        out.flush();
+        body.writeTo(part);
+        CRC32 crc = new CRC32();
+        crc.update(part.toByteArray());
+        img.writeInt(part.size());
+        img.writeLong(crc.getValue());
+        part.writeTo(img);
+    }
+
+    // The next part of the file as its own buffer (and moves 'buf' past it)
+    private static ByteBuffer nextPart(ByteBuffer buf) {
+        int length = buf.getInt();
+        buf.getLong(); // checksum (read by the caller, see checked)
+        ByteBuffer part = buf.slice().limit(length);
+        buf.position(buf.position() + length);
+        return part;
+    }
+
+    // Throws if the part's bytes don't match the checksum written with them
+    private static ByteBuffer checked(ByteBuffer part, long expected) {
+        CRC32 crc = new CRC32();
+        crc.update(part.duplicate());
+        if (crc.getValue() != expected)
+            throw new IllegalStateException("checksum mismatch in " + FILE_NAME);
+        return part;
+    }
+
+    private static String[] readStrings(ByteBuffer buf) {
+        String[] strings = new String[buf.getInt()];
+        for (int i = 0; i < strings.length; i++)
+            strings[i] = readText(buf);
+        return strings;
+    }
+
+    private static String text(String[] strings, int ref) {
+        return ref == NONE ? null : strings[ref];
+    }
+
+    // Length + UTF-8 bytes (DataOutputStream.writeUTF stops at 64 KB, the sales stamp can be longer)
+    private static void writeText(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}